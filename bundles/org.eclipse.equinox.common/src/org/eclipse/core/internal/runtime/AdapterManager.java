@@ -38,34 +38,57 @@ public final class AdapterManager implements IAdapterManager {
 	/** 
 	 * Cache of adapters for a given adaptable class. Maps String  -> Map
 	 * (adaptable class name -> (adapter class name -> factory instance))
-	 * Thread safety note: The outer map is synchronized using a synchronized
-	 * map wrapper class.  The inner map is not synchronized, but it is immutable
-	 * so synchronization is not necessary.
+	 * Thread safety note: The table is only modified while holding the lookupLock
+	 * and readers do not need any synchronization. The inner map is immutable.
 	 */
-	private Map adapterLookup;
+	private final LookupTable adapterLookup = new LookupTable(32);
 
 	/**
-	 * Cache of classes for a given type name. Avoids too many loadClass calls.
-	 * (factory -> (type name -> Class)).
-	 * Thread safety note: Since this structure is a nested hash map, and both
-	 * the inner and outer maps are mutable, access to this entire structure is
-	 * controlled by the classLookupLock field.  Note the field can still be
-	 * nulled concurrently without holding the lock.
+	 * Cache of the factories resolved by {@link #getAdapter(Object, Class)}. Maps
+	 * String -> Map (adaptable class name -> (adapter class name -> factory instance or NO_FACTORY)).
+	 * Both negative and positive results are cached, so that repeated lookups of the same
+	 * pair do not go through the search order of the adaptable class. The maps are keyed
+	 * by class name like adapterLookup, so that they do not keep the classes of
+	 * uninstalled bundles reachable.
+	 * Thread safety note: The table is only modified while holding the lookupLock.
+	 * The inner maps are held by a FactoryDispatch, which replaces its map while holding
+	 * the lookupLock, so readers do not need any synchronization.
+	 */
+	private final LookupTable adapterDispatch = new LookupTable(32);
+
+	/**
+	 * Marks a pair of adaptable class and adapter class without a factory in the
+	 * adapterDispatch cache.
 	 */
-	private Map classLookup;
+	private static final Object NO_FACTORY = new Object();
 
 	/**
-	 * The lock object controlling access to the classLookup data structure.
+	 * Cache of classes for a given type name. Avoids too many loadClass calls.
+	 * (factory -> (type name -> Class)).
+	 * Thread safety note: Both the outer and the inner maps are copied and replaced
+	 * while holding the lookupLock, so readers do not need any synchronization.
 	 */
-	private final Object classLookupLock = new Object();
+	private volatile Map classLookup;
 
 	/**
 	 * Cache of class lookup order (Class -> Class[]). This avoids having to compute often, and
 	 * provides clients with quick lookup for instanceOf checks based on type name.
-	 * Thread safety note: The map is synchronized using a synchronized
-	 * map wrapper class.  The arrays within the map are immutable.
+	 * Thread safety note: The table is only modified while holding the lookupLock.
+	 * The arrays within the table are immutable.
+	 */
+	private final LookupTable classSearchOrderLookup = new LookupTable(32);
+
+	/**
+	 * The lock object serializing the updates of the lookup caches.
+	 */
+	private final Object lookupLock = new Object();
+
+	/**
+	 * Incremented each time entries of the adapterLookup cache are discarded. Used to
+	 * detect tables computed from factories which have changed in the meantime.
+	 * Guarded by the lookupLock.
 	 */
-	private Map classSearchOrderLookup;
+	private int lookupGeneration;
 
 	/**
 	 * Map of factories, keyed by <code>String</code>, fully qualified class name of
@@ -119,33 +142,25 @@ public final class AdapterManager implements IAdapterManager {
 	}
 
 	private void cacheClassLookup(IAdapterFactory factory, Class clazz) {
-		synchronized (classLookupLock) {
-			//cache reference to lookup to protect against concurrent flush
+		synchronized (lookupLock) {
 			Map lookup = classLookup;
-			if (lookup == null)
-				classLookup = lookup = new HashMap(4);
-			HashMap classes = (HashMap) lookup.get(factory);
-			if (classes == null) {
-				classes = new HashMap(4);
-				lookup.put(factory, classes);
-			}
+			HashMap classes = lookup == null ? null : (HashMap) lookup.get(factory);
+			classes = classes == null ? new HashMap(4) : (HashMap) classes.clone();
 			classes.put(clazz.getName(), clazz);
+			lookup = lookup == null ? new HashMap(4) : new HashMap(lookup);
+			lookup.put(factory, classes);
+			classLookup = lookup;
 		}
 	}
 
 	private Class cachedClassForName(IAdapterFactory factory, String typeName) {
-		synchronized (classLookupLock) {
-			Class clazz = null;
-			//cache reference to lookup to protect against concurrent flush
-			Map lookup = classLookup;
-			if (lookup != null) {
-				HashMap classes = (HashMap) lookup.get(factory);
-				if (classes != null) {
-					clazz = (Class) classes.get(typeName);
-				}
-			}
-			return clazz;
+		Map lookup = classLookup;
+		if (lookup != null) {
+			Map classes = (Map) lookup.get(factory);
+			if (classes != null)
+				return (Class) classes.get(typeName);
 		}
+		return null;
 	}
 
 	/**
@@ -198,39 +213,78 @@ public final class AdapterManager implements IAdapterManager {
 	 * @param adaptable
 	 */
 	private Map getFactories(Class adaptable) {
-		//cache reference to lookup to protect against concurrent flush
-		Map lookup = adapterLookup;
-		if (lookup == null)
-			adapterLookup = lookup = Collections.synchronizedMap(new HashMap(30));
-		Map table = (Map) lookup.get(adaptable.getName());
+		Map table = (Map) adapterLookup.get(adaptable.getName());
 		if (table == null) {
+			int generation;
+			synchronized (lookupLock) {
+				generation = lookupGeneration;
+			}
 			// calculate adapters for the class
 			table = new HashMap(4);
 			Class[] classes = computeClassOrder(adaptable);
 			for (int i = 0; i < classes.length; i++)
 				addFactoriesFor(classes[i].getName(), table);
-			// cache the table
-			lookup.put(adaptable.getName(), table);
+			// cache the table unless the factories have changed while computing it
+			synchronized (lookupLock) {
+				if (generation == lookupGeneration)
+					adapterLookup.put(adaptable.getName(), table);
+			}
 		}
 		return table;
 	}
 
+	/**
+	 * The factories resolved for one adaptable class, keyed by the adapter class name.
+	 */
+	private static final class FactoryDispatch {
+		volatile Map factories = Collections.EMPTY_MAP;
+	}
+
+	/**
+	 * Returns the factory providing adapters of the given type for the given
+	 * adaptable class, or <code>null</code> if there is no such factory.
+	 */
+	private IAdapterFactory getFactory(Class adaptable, Class adapterType) {
+		String adaptableName = adaptable.getName();
+		String adapterName = adapterType.getName();
+		FactoryDispatch adapters = (FactoryDispatch) adapterDispatch.get(adaptableName);
+		Object factory = adapters == null ? null : adapters.factories.get(adapterName);
+		if (factory == null) {
+			int generation;
+			synchronized (lookupLock) {
+				generation = lookupGeneration;
+			}
+			factory = getFactories(adaptable).get(adapterName);
+			if (factory == null)
+				factory = NO_FACTORY;
+			synchronized (lookupLock) {
+				if (generation == lookupGeneration) {
+					adapters = (FactoryDispatch) adapterDispatch.get(adaptableName);
+					if (adapters == null) {
+						adapters = new FactoryDispatch();
+						adapterDispatch.put(adaptableName, adapters);
+					}
+					Map factories = new HashMap(adapters.factories);
+					factories.put(adapterName, factory);
+					adapters.factories = factories;
+				}
+			}
+		}
+		return factory == NO_FACTORY ? null : (IAdapterFactory) factory;
+	}
+
 	/**
 	 * Returns the super-type search order starting with <code>adaptable</code>. 
 	 * The search order is defined in this class' comment.
 	 */
 	public Class[] computeClassOrder(Class adaptable) {
-		Class[] classes = null;
-		//cache reference to lookup to protect against concurrent flush
-		Map lookup = classSearchOrderLookup;
-		if (lookup == null)
-			classSearchOrderLookup = lookup = Collections.synchronizedMap(new HashMap());
-		else
-			classes = (Class[]) lookup.get(adaptable);
+		Class[] classes = (Class[]) classSearchOrderLookup.get(adaptable);
 		// compute class order only if it hasn't been cached before
 		if (classes == null) {
 			classes = doComputeClassOrder(adaptable);
-			lookup.put(adaptable, classes);
+			synchronized (lookupLock) {
+				classSearchOrderLookup.put(adaptable, classes);
+			}
 		}
 		return classes;
 	}
@@ -273,14 +327,52 @@ public final class AdapterManager implements IAdapterManager {
 	 * Flushes the cache of adapter search paths. This is generally required whenever an
 	 * adapter is added or removed.
 	 * <p>
-	 * It is likely easier to just toss the whole cache rather than trying to be smart
-	 * and remove only those entries affected.
+	 * The whole cache is discarded. When the affected adaptable types are known,
+	 * {@link #flushLookup(Set, IAdapterFactory)} should be used instead.
 	 * </p>
 	 */
-	public synchronized void flushLookup() {
-		adapterLookup = null;
-		classLookup = null;
-		classSearchOrderLookup = null;
+	public void flushLookup() {
+		synchronized (lookupLock) {
+			lookupGeneration++;
+			adapterLookup.clear();
+			adapterDispatch.clear();
+			classLookup = null;
+			classSearchOrderLookup.clear();
+		}
+	}
+
+	/**
+	 * Flushes the cached adapters and resolved factories of the adaptable classes which have any of the given
+	 * types in their search order. The cached class search orders are kept since they
+	 * do not depend on the registered factories.
+	 * @param adaptableTypes the names of the adaptable types whose factories have changed
+	 * @param removedFactory the unregistered factory whose cached classes should be
+	 * flushed, or <code>null</code> if a factory has been registered
+	 */
+	private void flushLookup(Set adaptableTypes, IAdapterFactory removedFactory) {
+		synchronized (lookupLock) {
+			lookupGeneration++;
+			if (removedFactory != null && classLookup != null && classLookup.containsKey(removedFactory)) {
+				Map lookup = new HashMap(classLookup);
+				lookup.remove(removedFactory);
+				classLookup = lookup;
+			}
+			if (adaptableTypes.isEmpty())
+				return;
+			Object[] adaptables = classSearchOrderLookup.keys();
+			for (int i = 0; i < adaptables.length; i++) {
+				// each cached table has a cached search order
+				Class[] classes = (Class[]) classSearchOrderLookup.get(adaptables[i]);
+				for (int j = 0; j < classes.length; j++) {
+					if (adaptableTypes.contains(classes[j].getName())) {
+						String adaptableName = ((Class) adaptables[i]).getName();
+						adapterLookup.remove(adaptableName);
+						adapterDispatch.remove(adaptableName);
+						break;
+					}
+				}
+			}
+		}
 	}
 
 	/* (non-Javadoc)
@@ -289,7 +381,7 @@ public final class AdapterManager implements IAdapterManager {
 	public Object getAdapter(Object adaptable, Class adapterType) {
 		Assert.isNotNull(adaptable);
 		Assert.isNotNull(adapterType);
-		IAdapterFactory factory = (IAdapterFactory) getFactories(adaptable.getClass()).get(adapterType.getName());
+		IAdapterFactory factory = getFactory(adaptable.getClass(), adapterType);
 		Object result = null;
 		if (factory != null)
 			result = factory.getAdapter(adaptable, adapterType);
@@ -361,7 +453,7 @@ public final class AdapterManager implements IAdapterManager {
 	 */
 	public synchronized void registerAdapters(IAdapterFactory factory, Class adaptable) {
 		registerFactory(factory, adaptable.getName());
-		flushLookup();
+		flushLookup(Collections.singleton(adaptable.getName()), null);
 	}
 
 	/*
@@ -380,9 +472,13 @@ public final class AdapterManager implements IAdapterManager {
 	 * @see IAdapterManager#unregisterAdapters
 	 */
 	public synchronized void unregisterAdapters(IAdapterFactory factory) {
-		for (Iterator it = factories.values().iterator(); it.hasNext();)
-			((List) it.next()).remove(factory);
-		flushLookup();
+		Set adaptableTypes = new HashSet(4);
+		for (Iterator it = factories.entrySet().iterator(); it.hasNext();) {
+			Map.Entry entry = (Map.Entry) it.next();
+			if (((List) entry.getValue()).remove(factory))
+				adaptableTypes.add(entry.getKey());
+		}
+		flushLookup(adaptableTypes, factory);
 	}
 
 	/*
@@ -392,8 +488,8 @@ public final class AdapterManager implements IAdapterManager {
 		List factoryList = (List) factories.get(adaptable.getName());
 		if (factoryList == null)
 			return;
-		factoryList.remove(factory);
-		flushLookup();
+		if (factoryList.remove(factory))
+			flushLookup(Collections.singleton(adaptable.getName()), factory);
 	}
 
 	/*
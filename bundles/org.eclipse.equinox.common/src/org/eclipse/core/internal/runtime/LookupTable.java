@@ -0,0 +1,152 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Contributors to the Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.core.internal.runtime;
+
+/**
+ * A hash table which can be read without synchronization while it is modified
+ * by threads holding a common lock.
+ * <p>
+ * The buckets are chains of immutable entries. A modification replaces the
+ * entries of the affected chain only and then writes the volatile table field,
+ * so a reader which reads the field afterwards sees the modification. Adding
+ * an entry takes constant time on average, unlike copying a whole map for each
+ * new entry.
+ * </p><p>
+ * {@link #put(Object, Object)}, {@link #remove(Object)}, {@link #clear()},
+ * {@link #size()} and {@link #keys()} must be called while holding the lock
+ * guarding the table. Neither keys nor values may be <code>null</code>.
+ * </p>
+ */
+public final class LookupTable {
+
+	private static final class Entry {
+		final int hash;
+		final Object key;
+		final Object value;
+		final Entry next;
+
+		Entry(int hash, Object key, Object value, Entry next) {
+			this.hash = hash;
+			this.key = key;
+			this.value = value;
+			this.next = next;
+		}
+	}
+
+	private volatile Entry[] table;
+	/* guarded by the lock of the table */
+	private int size;
+
+	public LookupTable(int initialCapacity) {
+		int capacity = 4;
+		while (capacity < initialCapacity)
+			capacity <<= 1;
+		table = new Entry[capacity];
+	}
+
+	private static int hash(Object key) {
+		int h = key.hashCode();
+		return h ^ (h >>> 16);
+	}
+
+	/**
+	 * Returns the value of the given key, or <code>null</code> if there is none.
+	 */
+	public Object get(Object key) {
+		Entry[] tab = table;
+		int hash = hash(key);
+		for (Entry e = tab[hash & (tab.length - 1)]; e != null; e = e.next) {
+			if (e.hash == hash && key.equals(e.key))
+				return e.value;
+		}
+		return null;
+	}
+
+	public void put(Object key, Object value) {
+		Entry[] tab = table;
+		int hash = hash(key);
+		int index = hash & (tab.length - 1);
+		Entry first = removeEntry(tab[index], hash, key);
+		if (first == tab[index])
+			size++;
+		tab[index] = new Entry(hash, key, value, first);
+		if (size > tab.length - (tab.length >> 2))
+			tab = rehash(tab);
+		// publish the modification to the readers
+		table = tab;
+	}
+
+	public void remove(Object key) {
+		Entry[] tab = table;
+		int hash = hash(key);
+		int index = hash & (tab.length - 1);
+		Entry first = removeEntry(tab[index], hash, key);
+		if (first != tab[index]) {
+			size--;
+			tab[index] = first;
+			table = tab;
+		}
+	}
+
+	public void clear() {
+		size = 0;
+		table = new Entry[table.length];
+	}
+
+	/**
+	 * Returns the number of entries in the table.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns the keys of the table.
+	 */
+	public Object[] keys() {
+		Entry[] tab = table;
+		Object[] result = new Object[size];
+		int count = 0;
+		for (int i = 0; i < tab.length; i++) {
+			for (Entry e = tab[i]; e != null; e = e.next)
+				result[count++] = e.key;
+		}
+		return result;
+	}
+
+	/*
+	 * Returns the chain without the entry of the given key. The entries in front
+	 * of it are copied, so the chain is returned unchanged if there is no such entry.
+	 */
+	private static Entry removeEntry(Entry first, int hash, Object key) {
+		for (Entry e = first; e != null; e = e.next) {
+			if (e.hash == hash && key.equals(e.key)) {
+				Entry result = e.next;
+				for (Entry p = first; p != e; p = p.next)
+					result = new Entry(p.hash, p.key, p.value, result);
+				return result;
+			}
+		}
+		return first;
+	}
+
+	private static Entry[] rehash(Entry[] tab) {
+		Entry[] result = new Entry[tab.length << 1];
+		int mask = result.length - 1;
+		for (int i = 0; i < tab.length; i++) {
+			for (Entry e = tab[i]; e != null; e = e.next) {
+				int index = e.hash & mask;
+				result[index] = new Entry(e.hash, e.key, e.value, result[index]);
+			}
+		}
+		return result;
+	}
+}
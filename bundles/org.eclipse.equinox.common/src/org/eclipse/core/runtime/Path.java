@@ -11,7 +11,8 @@
 package org.eclipse.core.runtime;
 
 import java.io.File;
-import java.util.Arrays;
+import java.lang.ref.WeakReference;
+import java.util.*;
 
 /** 
  * The standard implementation of the <code>IPath</code> interface.
@@ -44,6 +45,17 @@ public class Path implements IPath, Cloneable {
 	/** Constant value indicating no segments */
 	private static final String[] NO_SEGMENTS = new String[0];
 
+	/** 
+	 * Constant value indicating if equal segments should be shared between path instances.
+	 * Enabled with the <code>eclipse.path.internSegments</code> system property. This reduces
+	 * the memory used by large numbers of paths with repeated segments at the cost of a pool
+	 * lookup for each new segment.
+	 */
+	private static final boolean INTERN_SEGMENTS = getBooleanProperty("eclipse.path.internSegments"); //$NON-NLS-1$
+
+	/** Pool of shared segments (String -> WeakReference(String)), or null if not enabled */
+	private static final Map SEGMENT_POOL = INTERN_SEGMENTS ? new WeakHashMap(1024) : null;
+
 	/** Constant value containing the empty path with no device. */
 	public static final Path EMPTY = new Path(EMPTY_STRING);
 
@@ -205,7 +217,7 @@ public class Path implements IPath, Cloneable {
 		int len = segments.length;
 		String[] newSegments = new String[len];
 		System.arraycopy(segments, 0, newSegments, 0, len - 1);
-		newSegments[len - 1] = segments[len - 1] + '.' + extension;
+		newSegments[len - 1] = internSegment(segments[len - 1] + '.' + extension);
 		return new Path(device, newSegments, separators);
 	}
 
@@ -241,8 +253,13 @@ public class Path implements IPath, Cloneable {
 		int tailLen = tail.segmentCount();
 		String[] newSegments = new String[myLen + tailLen];
 		System.arraycopy(segments, 0, newSegments, 0, myLen);
-		for (int i = 0; i < tailLen; i++) {
-			newSegments[myLen + i] = tail.segment(i);
+		if (tail instanceof Path) {
+			//segments of a Path are already interned if needed
+			System.arraycopy(((Path) tail).segments, 0, newSegments, myLen, tailLen);
+		} else {
+			for (int i = 0; i < tailLen; i++) {
+				newSegments[myLen + i] = internSegment(tail.segment(i));
+			}
 		}
 		//use my leading separators and the tail's trailing separator
 		Path result = new Path(device, newSegments, (separators & (HAS_LEADING | IS_UNC)) | (tail.hasTrailingSeparator() ? HAS_TRAILING : 0));
@@ -272,7 +289,7 @@ public class Path implements IPath, Cloneable {
 			int myLen = segments.length;
 			String[] newSegments = new String[myLen + 1];
 			System.arraycopy(segments, 0, newSegments, 0, myLen);
-			newSegments[myLen] = tail;
+			newSegments[myLen] = internSegment(tail);
 			return new Path(device, newSegments, separators & ~HAS_TRAILING);
 		}
 		//go with easy implementation
@@ -398,6 +415,32 @@ public class Path implements IPath, Cloneable {
 		return new String(result, 0, count);
 	}
 
+	/* (Intentionally not included in javadoc)
+	 * Returns the shared instance of the given segment if segments are interned.
+	 */
+	private static String internSegment(String segment) {
+		if (!INTERN_SEGMENTS)
+			return segment;
+		synchronized (SEGMENT_POOL) {
+			WeakReference ref = (WeakReference) SEGMENT_POOL.get(segment);
+			String shared = ref == null ? null : (String) ref.get();
+			if (shared == null) {
+				//copy the segment so that the pool does not keep the whole path string of a substring
+				shared = new String(segment);
+				SEGMENT_POOL.put(shared, new WeakReference(shared));
+			}
+			return shared;
+		}
+	}
+
+	private static boolean getBooleanProperty(String key) {
+		try {
+			return "true".equalsIgnoreCase(System.getProperty(key)); //$NON-NLS-1$
+		} catch (SecurityException e) {
+			return false;
+		}
+	}
+
 	/* (Intentionally not included in javadoc)
 	 * Computes the hash code for this object.
 	 */
@@ -483,9 +526,9 @@ public class Path implements IPath, Cloneable {
 			int start = next;
 			int end = path.indexOf(SEPARATOR, next);
 			if (end == -1) {
-				newSegments[i] = path.substring(start, lastPosition + 1);
+				newSegments[i] = internSegment(path.substring(start, lastPosition + 1));
 			} else {
-				newSegments[i] = path.substring(start, end);
+				newSegments[i] = internSegment(path.substring(start, end));
 			}
 			next = end + 1;
 		}
@@ -23,6 +23,8 @@ public class AllTests {
 		suite.addTest(org.eclipse.equinox.useradmin.tests.AllTests.suite());
 		suite.addTest(org.eclipse.equinox.event.tests.AllTests.suite());
 		suite.addTest(org.eclipse.equinox.coordinator.tests.AllTests.suite());
+		suite.addTest(org.eclipse.equinox.concurrent.tests.AllTests.suite());
+		suite.addTest(org.eclipse.equinox.util.tests.AllTests.suite());
 		return suite;
 	}
 
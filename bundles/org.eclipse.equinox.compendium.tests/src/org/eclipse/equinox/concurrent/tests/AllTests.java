@@ -0,0 +1,24 @@
+/*******************************************************************************
+ * Copyright (c) 2014 IBM Corporation and others
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.equinox.concurrent.tests;
+
+import junit.framework.Test;
+import junit.framework.TestSuite;
+
+public class AllTests {
+	public static Test suite() {
+		TestSuite suite = new TestSuite("Tests for Equinox Concurrent"); //$NON-NLS-1$
+		suite.addTestSuite(ListenableFutureTest.class);
+		suite.addTestSuite(ListenableFuturesTest.class);
+		suite.addTestSuite(ExecutorTest.class);
+		return suite;
+	}
+}
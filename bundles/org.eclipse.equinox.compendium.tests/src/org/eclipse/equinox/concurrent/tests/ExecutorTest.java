@@ -0,0 +1,233 @@
+/*******************************************************************************
+ * Copyright (c) 2014 IBM Corporation and others
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.equinox.concurrent.tests;
+
+import java.util.concurrent.*;
+import junit.framework.TestCase;
+import org.eclipse.core.runtime.*;
+import org.eclipse.equinox.concurrent.future.*;
+import org.eclipse.equinox.concurrent.future.TimeoutException;
+
+/*
+ * Ensures the executors complete their futures, reject runnables once shut
+ * down and pass cancellation to the progress monitor of the runnable, and that
+ * the future adapter reports the outcome of the adapted future.
+ */
+public class ExecutorTest extends TestCase {
+	private static final String RESULT = "result"; //$NON-NLS-1$
+	private static final long TIMEOUT = 10000;
+
+	public void testPooledExecute() throws Exception {
+		PooledExecutor executor = new PooledExecutor(2);
+		try {
+			IFuture[] futures = new IFuture[20];
+			for (int i = 0; i < futures.length; i++)
+				futures[i] = executor.execute(new ResultRunnable(), null);
+			for (int i = 0; i < futures.length; i++) {
+				assertEquals("Wrong result", RESULT, futures[i].get(TIMEOUT)); //$NON-NLS-1$
+				assertTrue("Wrong status", futures[i].getStatus().isOK()); //$NON-NLS-1$
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	public void testPooledGivenExecutor() throws Exception {
+		ExecutorService service = Executors.newSingleThreadExecutor();
+		try {
+			PooledExecutor executor = new PooledExecutor(service);
+			assertEquals("Wrong result", RESULT, executor.execute(new ResultRunnable(), null).get(TIMEOUT)); //$NON-NLS-1$
+			// the given executor is not shut down
+			executor.shutdown();
+			assertEquals("Wrong result", RESULT, executor.execute(new ResultRunnable(), null).get(TIMEOUT)); //$NON-NLS-1$
+		} finally {
+			service.shutdown();
+		}
+	}
+
+	public void testPooledRejectedAfterShutdown() throws Exception {
+		PooledExecutor executor = new PooledExecutor(1);
+		executor.shutdown();
+		IFuture future = executor.execute(new ResultRunnable(), null);
+		assertTrue("Rejected future not done", future.isDone()); //$NON-NLS-1$
+		IStatus status = future.getStatus();
+		assertEquals("Wrong severity", IStatus.ERROR, status.getSeverity()); //$NON-NLS-1$
+		assertTrue("Wrong exception", status.getException() instanceof RejectedExecutionException); //$NON-NLS-1$
+	}
+
+	public void testPooledCancel() throws Exception {
+		PooledExecutor executor = new PooledExecutor(1);
+		try {
+			assertCancel(executor);
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	public void testThreadsExecute() throws Exception {
+		final ThreadsExecutor executor = new ThreadsExecutor();
+		final IFuture[] futures = new IFuture[20];
+		// execute is not synchronized, so it may be called by several threads at once
+		Thread[] threads = new Thread[4];
+		for (int i = 0; i < threads.length; i++) {
+			final int first = i * futures.length / threads.length;
+			final int last = (i + 1) * futures.length / threads.length;
+			threads[i] = new Thread(new Runnable() {
+				public void run() {
+					for (int j = first; j < last; j++)
+						futures[j] = executor.execute(new ResultRunnable(), null);
+				}
+			});
+			threads[i].start();
+		}
+		for (int i = 0; i < threads.length; i++)
+			threads[i].join();
+		for (int i = 0; i < futures.length; i++)
+			assertEquals("Wrong result", RESULT, futures[i].get(TIMEOUT)); //$NON-NLS-1$
+	}
+
+	public void testThreadsCancel() throws Exception {
+		assertCancel(new ThreadsExecutor());
+	}
+
+	public void testAdapterGet() throws Exception {
+		IFuture future = new ImmediateExecutor().execute(new ResultRunnable(), null);
+		FutureAdapter adapter = new FutureAdapter(future);
+		assertSame("Wrong future", future, adapter.getFuture()); //$NON-NLS-1$
+		assertTrue("Not done", adapter.isDone()); //$NON-NLS-1$
+		assertFalse("Canceled", adapter.isCancelled()); //$NON-NLS-1$
+		assertEquals("Wrong result", RESULT, adapter.get()); //$NON-NLS-1$
+		assertEquals("Wrong result", RESULT, adapter.get(100, TimeUnit.MILLISECONDS)); //$NON-NLS-1$
+	}
+
+	public void testAdapterError() throws Exception {
+		final Exception exception = new Exception();
+		FutureAdapter adapter = new FutureAdapter(new ImmediateExecutor().execute(new IProgressRunnable() {
+			public Object run(IProgressMonitor monitor) throws Exception {
+				throw exception;
+			}
+		}, null));
+		try {
+			adapter.get();
+			fail("ExecutionException expected"); //$NON-NLS-1$
+		} catch (ExecutionException e) {
+			assertSame("Wrong cause", exception, e.getCause()); //$NON-NLS-1$
+		}
+		try {
+			adapter.get(100, TimeUnit.MILLISECONDS);
+			fail("ExecutionException expected"); //$NON-NLS-1$
+		} catch (ExecutionException e) {
+			assertSame("Wrong cause", exception, e.getCause()); //$NON-NLS-1$
+		}
+	}
+
+	public void testAdapterTimeout() throws Exception {
+		AtomicListenableFuture future = new AtomicListenableFuture();
+		FutureAdapter adapter = new FutureAdapter(future);
+		long start = System.currentTimeMillis();
+		try {
+			adapter.get(100, TimeUnit.MILLISECONDS);
+			fail("TimeoutException expected"); //$NON-NLS-1$
+		} catch (java.util.concurrent.TimeoutException e) {
+			// expected
+		}
+		assertTrue("Timed out too early", System.currentTimeMillis() - start >= 100); //$NON-NLS-1$
+		assertFalse("Done after timeout", adapter.isDone()); //$NON-NLS-1$
+		future.runWithProgress(new ResultRunnable());
+		assertEquals("Wrong result", RESULT, adapter.get(100, TimeUnit.MILLISECONDS)); //$NON-NLS-1$
+	}
+
+	public void testAdapterCancel() throws Exception {
+		AtomicListenableFuture future = new AtomicListenableFuture();
+		FutureAdapter adapter = new FutureAdapter(future);
+		assertTrue("Not canceled", adapter.cancel(false)); //$NON-NLS-1$
+		assertTrue("Not done", adapter.isDone()); //$NON-NLS-1$
+		assertTrue("Not canceled", adapter.isCancelled()); //$NON-NLS-1$
+		try {
+			adapter.get();
+			fail("CancellationException expected"); //$NON-NLS-1$
+		} catch (CancellationException e) {
+			// expected
+		}
+		try {
+			adapter.get(100, TimeUnit.MILLISECONDS);
+			fail("CancellationException expected"); //$NON-NLS-1$
+		} catch (CancellationException e) {
+			// expected
+		}
+	}
+
+	/*
+	 * Cancels a running runnable and ensures the cancellation reaches the
+	 * monitor given to execute and the monitor the runnable is run with.
+	 */
+	private static void assertCancel(IExecutor executor) throws Exception {
+		IProgressMonitor monitor = new NullProgressMonitor();
+		CancelableRunnable runnable = new CancelableRunnable();
+		IFuture future = executor.execute(runnable, monitor);
+		runnable.awaitStarted();
+		assertTrue("Not canceled", future.cancel()); //$NON-NLS-1$
+		assertTrue("Given monitor not canceled", monitor.isCanceled()); //$NON-NLS-1$
+		assertTrue("Runnable did not see the cancellation", runnable.awaitCanceled()); //$NON-NLS-1$
+		assertTrue("Not done", future.isDone()); //$NON-NLS-1$
+		try {
+			future.get(TIMEOUT);
+			fail("Cancellation expected"); //$NON-NLS-1$
+		} catch (OperationCanceledException e) {
+			// expected
+		} catch (TimeoutException e) {
+			fail("Canceled future not done"); //$NON-NLS-1$
+		}
+	}
+
+	static class ResultRunnable implements IProgressRunnable {
+		public Object run(IProgressMonitor monitor) throws Exception {
+			return RESULT;
+		}
+	}
+
+	/*
+	 * Runs until its monitor is canceled.
+	 */
+	static class CancelableRunnable implements IProgressRunnable {
+		private boolean started;
+		private boolean canceled;
+
+		public Object run(IProgressMonitor monitor) throws Exception {
+			synchronized (this) {
+				started = true;
+				notifyAll();
+			}
+			long end = System.currentTimeMillis() + TIMEOUT;
+			while (!monitor.isCanceled() && System.currentTimeMillis() < end)
+				Thread.sleep(10);
+			synchronized (this) {
+				canceled = monitor.isCanceled();
+				notifyAll();
+			}
+			return RESULT;
+		}
+
+		synchronized void awaitStarted() throws InterruptedException {
+			long end = System.currentTimeMillis() + TIMEOUT;
+			while (!started && System.currentTimeMillis() < end)
+				wait(100);
+			assertTrue("Runnable not started", started); //$NON-NLS-1$
+		}
+
+		synchronized boolean awaitCanceled() throws InterruptedException {
+			long end = System.currentTimeMillis() + TIMEOUT;
+			while (!canceled && System.currentTimeMillis() < end)
+				wait(100);
+			return canceled;
+		}
+	}
+}
@@ -0,0 +1,179 @@
+/*******************************************************************************
+ * Copyright (c) 2014 IBM Corporation and others
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.equinox.concurrent.tests;
+
+import junit.framework.TestCase;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.equinox.concurrent.future.*;
+
+/*
+ * Ensures the listenable futures complete once, run their listeners whether
+ * they are added before or after completion, and honor the get timeouts.
+ */
+public class ListenableFutureTest extends TestCase {
+	private static final String RESULT = "result"; //$NON-NLS-1$
+
+	private final IExecutor executor = new ImmediateExecutor();
+
+	public void testSingleOperationListenerBeforeCompletion() throws Exception {
+		SingleOperationListenableFuture future = new SingleOperationListenableFuture();
+		CountingRunnable listener = new CountingRunnable();
+		future.addListener(executor, listener, null);
+		assertEquals("Listener executed before completion", 0, listener.count); //$NON-NLS-1$
+		future.runWithProgress(new ResultRunnable());
+		assertEquals("Listener not executed once", 1, listener.count); //$NON-NLS-1$
+		assertEquals("Wrong result", RESULT, future.get()); //$NON-NLS-1$
+	}
+
+	public void testSingleOperationListenerAfterCompletion() throws Exception {
+		SingleOperationListenableFuture future = new SingleOperationListenableFuture();
+		future.runWithProgress(new ResultRunnable());
+		assertTrue("Future not done", future.isDone()); //$NON-NLS-1$
+		CountingRunnable listener = new CountingRunnable();
+		future.addListener(executor, listener, null);
+		assertEquals("Listener not executed once", 1, listener.count); //$NON-NLS-1$
+	}
+
+	public void testAtomicListenerBeforeCompletion() throws Exception {
+		AtomicListenableFuture future = new AtomicListenableFuture();
+		CountingRunnable first = new CountingRunnable();
+		CountingRunnable second = new CountingRunnable();
+		future.addListener(executor, first, null);
+		future.addListener(executor, second, null);
+		assertEquals("Listener executed before completion", 0, first.count); //$NON-NLS-1$
+		future.runWithProgress(new ResultRunnable());
+		assertEquals("First listener not executed once", 1, first.count); //$NON-NLS-1$
+		assertEquals("Second listener not executed once", 1, second.count); //$NON-NLS-1$
+		assertEquals("Wrong result", RESULT, future.get()); //$NON-NLS-1$
+	}
+
+	public void testAtomicListenerAfterCompletion() throws Exception {
+		AtomicListenableFuture future = new AtomicListenableFuture();
+		future.runWithProgress(new ResultRunnable());
+		CountingRunnable listener = new CountingRunnable();
+		future.addListener(executor, listener, null);
+		assertEquals("Listener not executed once", 1, listener.count); //$NON-NLS-1$
+	}
+
+	public void testAtomicCompletesOnce() throws Exception {
+		AtomicListenableFuture future = new AtomicListenableFuture();
+		CountingRunnable listener = new CountingRunnable();
+		future.addListener(executor, listener, null);
+		future.runWithProgress(new ResultRunnable());
+		assertFalse("Done future canceled", future.cancel()); //$NON-NLS-1$
+		future.runWithProgress(new ResultRunnable());
+		assertEquals("Listener not executed once", 1, listener.count); //$NON-NLS-1$
+		assertTrue("Future has no value", future.hasValue()); //$NON-NLS-1$
+	}
+
+	public void testAtomicTimeout() throws Exception {
+		AtomicListenableFuture future = new AtomicListenableFuture();
+		long start = System.currentTimeMillis();
+		try {
+			future.get(100);
+			fail("Timeout expected"); //$NON-NLS-1$
+		} catch (TimeoutException e) {
+			// expected
+		}
+		assertTrue("Timed out too early", System.currentTimeMillis() - start >= 100); //$NON-NLS-1$
+		// A get which times out does not complete the future.
+		assertFalse("Future done after timeout", future.isDone()); //$NON-NLS-1$
+		future.runWithProgress(new ResultRunnable());
+		assertEquals("Wrong result", RESULT, future.get(100)); //$NON-NLS-1$
+	}
+
+	public void testAtomicLongTimeout() throws Exception {
+		final AtomicListenableFuture future = new AtomicListenableFuture();
+		Thread thread = new Thread(new Runnable() {
+			public void run() {
+				try {
+					Thread.sleep(200);
+				} catch (InterruptedException e) {
+					// noop
+				}
+				future.runWithProgress(new ResultRunnable());
+			}
+		});
+		thread.start();
+		// A timeout too long to be expressed in nanoseconds must not overflow.
+		assertEquals("Wrong result", RESULT, future.get(Long.MAX_VALUE)); //$NON-NLS-1$
+		thread.join();
+	}
+
+	public void testSingleOperationListenerOrder() throws Exception {
+		final SingleOperationListenableFuture future = new SingleOperationListenableFuture();
+		final StringBuffer order = new StringBuffer();
+		future.addListener(executor, new IProgressRunnable() {
+			public Object run(IProgressMonitor monitor) throws Exception {
+				order.append('a');
+				// added while the earlier listeners are executed
+				future.addListener(executor, new AppendingRunnable(order, 'c'), null);
+				return null;
+			}
+		}, null);
+		future.addListener(executor, new AppendingRunnable(order, 'b'), null);
+		future.runWithProgress(new ResultRunnable());
+		assertEquals("Listeners not executed in the order they were added", "abc", order.toString()); //$NON-NLS-1$ //$NON-NLS-2$
+		future.addListener(executor, new AppendingRunnable(order, 'd'), null);
+		assertEquals("Listener not executed after completion", "abcd", order.toString()); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	public void testAtomicCancelBeforeListeners() throws Exception {
+		final AtomicListenableFuture future = new AtomicListenableFuture();
+		final boolean[] canceled = new boolean[1];
+		future.addListener(executor, new IProgressRunnable() {
+			public Object run(IProgressMonitor monitor) throws Exception {
+				canceled[0] = future.isCanceled() && future.getProgressMonitor().isCanceled();
+				return null;
+			}
+		}, null);
+		assertTrue("Future not canceled", future.cancel()); //$NON-NLS-1$
+		assertTrue("Listener executed before the monitor was canceled", canceled[0]); //$NON-NLS-1$
+		assertFalse("Future canceled twice", future.cancel()); //$NON-NLS-1$
+		try {
+			future.get();
+			fail("Cancellation expected"); //$NON-NLS-1$
+		} catch (OperationCanceledException e) {
+			// expected
+		}
+	}
+
+	static class ResultRunnable implements IProgressRunnable {
+		public Object run(IProgressMonitor monitor) throws Exception {
+			return RESULT;
+		}
+	}
+
+	static class CountingRunnable implements IProgressRunnable {
+		volatile int count;
+
+		public Object run(IProgressMonitor monitor) throws Exception {
+			count++;
+			return null;
+		}
+	}
+
+	static class AppendingRunnable implements IProgressRunnable {
+		private final StringBuffer buffer;
+		private final char c;
+
+		AppendingRunnable(StringBuffer buffer, char c) {
+			this.buffer = buffer;
+			this.c = c;
+		}
+
+		public Object run(IProgressMonitor monitor) throws Exception {
+			buffer.append(c);
+			return null;
+		}
+	}
+}
@@ -0,0 +1,211 @@
+/*******************************************************************************
+ * Copyright (c) 2014 IBM Corporation and others
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.equinox.concurrent.tests;
+
+import java.util.List;
+import junit.framework.TestCase;
+import org.eclipse.core.runtime.*;
+import org.eclipse.equinox.concurrent.future.*;
+
+/*
+ * Ensures the combined futures complete with the results of the given futures,
+ * and fail or are canceled like the given futures.
+ */
+public class ListenableFuturesTest extends TestCase {
+	private static final String FIRST = "first"; //$NON-NLS-1$
+	private static final String SECOND = "second"; //$NON-NLS-1$
+
+	public void testAllOf() throws Exception {
+		AtomicListenableFuture first = new AtomicListenableFuture();
+		AtomicListenableFuture second = new AtomicListenableFuture();
+		IListenableFuture all = ListenableFutures.allOf(new IListenableFuture[] {first, second});
+		second.runWithProgress(new ResultRunnable(SECOND));
+		assertFalse("Done before all futures are done", all.isDone()); //$NON-NLS-1$
+		first.runWithProgress(new ResultRunnable(FIRST));
+		assertTrue("Not done after all futures are done", all.isDone()); //$NON-NLS-1$
+		assertTrue("Wrong status", all.getStatus().isOK()); //$NON-NLS-1$
+		List results = (List) all.get();
+		assertEquals("Wrong number of results", 2, results.size()); //$NON-NLS-1$
+		assertEquals("Wrong first result", FIRST, results.get(0)); //$NON-NLS-1$
+		assertEquals("Wrong second result", SECOND, results.get(1)); //$NON-NLS-1$
+	}
+
+	public void testAllOfEmpty() throws Exception {
+		IListenableFuture all = ListenableFutures.allOf(new IListenableFuture[0]);
+		assertTrue("Not done", all.isDone()); //$NON-NLS-1$
+		assertTrue("Results not empty", ((List) all.get()).isEmpty()); //$NON-NLS-1$
+	}
+
+	public void testAllOfFailure() throws Exception {
+		AtomicListenableFuture first = new AtomicListenableFuture();
+		AtomicListenableFuture second = new AtomicListenableFuture();
+		IListenableFuture all = ListenableFutures.allOf(new IListenableFuture[] {first, second});
+		Exception exception = new Exception();
+		first.runWithProgress(new FailingRunnable(exception));
+		// the first failure completes the combined future
+		assertTrue("Not done after a failure", all.isDone()); //$NON-NLS-1$
+		assertError(all, exception);
+		second.runWithProgress(new ResultRunnable(SECOND));
+		assertError(all, exception);
+	}
+
+	public void testAllOfCancel() throws Exception {
+		AtomicListenableFuture first = new AtomicListenableFuture();
+		AtomicListenableFuture second = new AtomicListenableFuture();
+		IListenableFuture all = ListenableFutures.allOf(new IListenableFuture[] {first, second});
+		first.runWithProgress(new ResultRunnable(FIRST));
+		assertTrue("Future not canceled", second.cancel()); //$NON-NLS-1$
+		assertCanceled(all);
+	}
+
+	public void testAnyOf() throws Exception {
+		AtomicListenableFuture first = new AtomicListenableFuture();
+		AtomicListenableFuture second = new AtomicListenableFuture();
+		IListenableFuture any = ListenableFutures.anyOf(new IListenableFuture[] {first, second});
+		assertFalse("Done before any future is done", any.isDone()); //$NON-NLS-1$
+		second.runWithProgress(new ResultRunnable(SECOND));
+		assertTrue("Not done after a future is done", any.isDone()); //$NON-NLS-1$
+		assertEquals("Wrong result", SECOND, any.get()); //$NON-NLS-1$
+		// later futures do not change the result
+		first.runWithProgress(new FailingRunnable(new Exception()));
+		assertTrue("Wrong status", any.getStatus().isOK()); //$NON-NLS-1$
+		assertEquals("Wrong result", SECOND, any.get()); //$NON-NLS-1$
+	}
+
+	public void testAnyOfFailure() throws Exception {
+		AtomicListenableFuture first = new AtomicListenableFuture();
+		AtomicListenableFuture second = new AtomicListenableFuture();
+		IListenableFuture any = ListenableFutures.anyOf(new IListenableFuture[] {first, second});
+		Exception exception = new Exception();
+		first.runWithProgress(new FailingRunnable(exception));
+		assertError(any, exception);
+		second.runWithProgress(new ResultRunnable(SECOND));
+		assertError(any, exception);
+	}
+
+	public void testAnyOfCancel() throws Exception {
+		AtomicListenableFuture first = new AtomicListenableFuture();
+		AtomicListenableFuture second = new AtomicListenableFuture();
+		IListenableFuture any = ListenableFutures.anyOf(new IListenableFuture[] {first, second});
+		assertTrue("Future not canceled", first.cancel()); //$NON-NLS-1$
+		assertCanceled(any);
+		second.runWithProgress(new ResultRunnable(SECOND));
+		assertCanceled(any);
+	}
+
+	public void testThenApply() throws Exception {
+		AtomicListenableFuture future = new AtomicListenableFuture();
+		IListenableFuture applied = ListenableFutures.thenApply(future, new IResultFunction() {
+			public Object apply(Object input) {
+				return input + SECOND;
+			}
+		});
+		assertFalse("Done before the future is done", applied.isDone()); //$NON-NLS-1$
+		future.runWithProgress(new ResultRunnable(FIRST));
+		assertTrue("Not done after the future is done", applied.isDone()); //$NON-NLS-1$
+		assertEquals("Wrong result", FIRST + SECOND, applied.get()); //$NON-NLS-1$
+	}
+
+	public void testThenApplyFunctionFailure() throws Exception {
+		AtomicListenableFuture future = new AtomicListenableFuture();
+		final Exception exception = new Exception();
+		IListenableFuture applied = ListenableFutures.thenApply(future, new IResultFunction() {
+			public Object apply(Object input) throws Exception {
+				throw exception;
+			}
+		});
+		future.runWithProgress(new ResultRunnable(FIRST));
+		assertError(applied, exception);
+	}
+
+	public void testThenApplyFailure() throws Exception {
+		AtomicListenableFuture future = new AtomicListenableFuture();
+		CountingFunction function = new CountingFunction();
+		IListenableFuture applied = ListenableFutures.thenApply(future, function);
+		Exception exception = new Exception();
+		future.runWithProgress(new FailingRunnable(exception));
+		assertError(applied, exception);
+		assertEquals("Function applied to a failed future", 0, function.count); //$NON-NLS-1$
+	}
+
+	public void testThenApplyCancel() throws Exception {
+		AtomicListenableFuture future = new AtomicListenableFuture();
+		CountingFunction function = new CountingFunction();
+		IListenableFuture applied = ListenableFutures.thenApply(future, function);
+		assertTrue("Future not canceled", future.cancel()); //$NON-NLS-1$
+		assertCanceled(applied);
+		assertEquals("Function applied to a canceled future", 0, function.count); //$NON-NLS-1$
+	}
+
+	public void testThenApplyDone() throws Exception {
+		AtomicListenableFuture future = new AtomicListenableFuture();
+		future.runWithProgress(new ResultRunnable(FIRST));
+		IListenableFuture applied = ListenableFutures.thenApply(future, new IResultFunction() {
+			public Object apply(Object input) {
+				return input + SECOND;
+			}
+		});
+		assertTrue("Not done for a done future", applied.isDone()); //$NON-NLS-1$
+		assertEquals("Wrong result", FIRST + SECOND, applied.get()); //$NON-NLS-1$
+	}
+
+	private static void assertError(IFuture future, Exception exception) {
+		IStatus status = future.getStatus();
+		assertNotNull("Not done", status); //$NON-NLS-1$
+		assertEquals("Wrong severity", IStatus.ERROR, status.getSeverity()); //$NON-NLS-1$
+		assertSame("Wrong exception", exception, status.getException()); //$NON-NLS-1$
+	}
+
+	private static void assertCanceled(IFuture future) throws Exception {
+		IStatus status = future.getStatus();
+		assertNotNull("Not done", status); //$NON-NLS-1$
+		assertEquals("Wrong severity", IStatus.CANCEL, status.getSeverity()); //$NON-NLS-1$
+		try {
+			future.get();
+			fail("Cancellation expected"); //$NON-NLS-1$
+		} catch (OperationCanceledException e) {
+			// expected
+		}
+	}
+
+	static class ResultRunnable implements IProgressRunnable {
+		private final Object result;
+
+		ResultRunnable(Object result) {
+			this.result = result;
+		}
+
+		public Object run(IProgressMonitor monitor) throws Exception {
+			return result;
+		}
+	}
+
+	static class FailingRunnable implements IProgressRunnable {
+		private final Exception exception;
+
+		FailingRunnable(Exception exception) {
+			this.exception = exception;
+		}
+
+		public Object run(IProgressMonitor monitor) throws Exception {
+			throw exception;
+		}
+	}
+
+	static class CountingFunction implements IResultFunction {
+		int count;
+
+		public Object apply(Object input) {
+			count++;
+			return input;
+		}
+	}
+}
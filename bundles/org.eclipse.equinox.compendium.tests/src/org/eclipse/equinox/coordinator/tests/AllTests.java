@@ -19,6 +19,10 @@ public class AllTests {
 		suite.addTestSuite(CoordinationMaxTimeoutTest.class);
 		suite.addTestSuite(ReverseParticipantOrderNotifyTest.class);
 		suite.addTestSuite(BugTests.class);
+		suite.addTestSuite(ParallelParticipantNotifyTest.class);
+		suite.addTestSuite(PartiallyEndedParticipantsTest.class);
+		suite.addTestSuite(CoordinationTimeoutTest.class);
+		suite.addTestSuite(ConcurrentParticipantTest.class);
 		return suite;
 	}
 }
@@ -0,0 +1,137 @@
+/*******************************************************************************
+ * Copyright (c) 2014 IBM Corporation and others
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.equinox.coordinator.tests;
+
+import java.util.*;
+import org.osgi.service.coordinator.*;
+
+/*
+ * Ensures a participant is in at most one coordination at a time, and is free
+ * to participate again once the coordination has terminated, while many
+ * threads add and remove participants which are spread over the stripes of the
+ * participant registry.
+ */
+public class ConcurrentParticipantTest extends CoordinatorTest {
+	private static final int PARTICIPANTS = 128;
+	private static final int THREADS = 8;
+	private static final int ITERATIONS = 500;
+	private static final int PARTICIPANTS_PER_COORDINATION = 4;
+	private static final long TIMEOUT = 30000;
+
+	private static class TestParticipant implements Participant {
+		// The number of coordinations the participant is in, which must never
+		// exceed one.
+		private int coordinations;
+		private int added;
+		private int notified;
+		boolean overlapped;
+
+		public synchronized void enter() {
+			if (++coordinations > 1)
+				overlapped = true;
+			added++;
+		}
+
+		public synchronized void leave() {
+			coordinations--;
+		}
+
+		public synchronized void ended(Coordination coordination) throws Exception {
+			notified++;
+		}
+
+		public synchronized void failed(Coordination coordination) throws Exception {
+			notified++;
+		}
+
+		public synchronized int getAdded() {
+			return added;
+		}
+
+		public synchronized int getNotified() {
+			return notified;
+		}
+	}
+
+	public void testConcurrentAddAndRemove() throws Exception {
+		final TestParticipant[] participants = new TestParticipant[PARTICIPANTS];
+		for (int i = 0; i < participants.length; i++)
+			participants[i] = new TestParticipant();
+		final List errors = Collections.synchronizedList(new ArrayList());
+		Thread[] threads = new Thread[THREADS];
+		for (int i = 0; i < threads.length; i++) {
+			final Random random = new Random(i);
+			threads[i] = new Thread(new Runnable() {
+				public void run() {
+					try {
+						for (int j = 0; j < ITERATIONS; j++) {
+							// Coordinations created but not begun are not bound to
+							// a thread, so adding a participant of another
+							// coordination waits for it instead of failing.
+							Coordination c = coordinator.create("c", 0); //$NON-NLS-1$
+							int[] indexes = pick(random);
+							for (int k = 0; k < indexes.length; k++) {
+								c.addParticipant(participants[indexes[k]]);
+								participants[indexes[k]].enter();
+							}
+							for (int k = 0; k < indexes.length; k++)
+								participants[indexes[k]].leave();
+							// Terminating the coordination removes its participants.
+							if (j % 3 == 0)
+								c.fail(new Exception());
+							else
+								c.end();
+						}
+					} catch (Throwable t) {
+						errors.add(t);
+					}
+				}
+			});
+			threads[i].start();
+		}
+		for (int i = 0; i < threads.length; i++) {
+			threads[i].join(TIMEOUT);
+			assertFalse("Thread did not finish", threads[i].isAlive()); //$NON-NLS-1$
+		}
+		assertTrue("Unexpected errors: " + errors, errors.isEmpty()); //$NON-NLS-1$
+		int total = 0;
+		for (int i = 0; i < participants.length; i++) {
+			assertFalse("Participant in two coordinations at once", participants[i].overlapped); //$NON-NLS-1$
+			assertEquals("Participant not notified once per coordination", participants[i].getAdded(), participants[i].getNotified()); //$NON-NLS-1$
+			total += participants[i].getAdded();
+		}
+		assertEquals("Wrong number of participations", THREADS * ITERATIONS * PARTICIPANTS_PER_COORDINATION, total); //$NON-NLS-1$
+		// No participant is left registered, so it can be added at once.
+		Coordination c = coordinator.begin("c", 0); //$NON-NLS-1$
+		try {
+			for (int i = 0; i < participants.length; i++)
+				c.addParticipant(participants[i]);
+			assertEquals("Wrong number of participants", PARTICIPANTS, c.getParticipants().size()); //$NON-NLS-1$
+		} finally {
+			c.end();
+		}
+	}
+
+	/*
+	 * Picks distinct participants in ascending order, so that threads waiting
+	 * for each other's participants do not deadlock.
+	 */
+	static int[] pick(Random random) {
+		SortedSet indexes = new TreeSet();
+		while (indexes.size() < PARTICIPANTS_PER_COORDINATION)
+			indexes.add(new Integer(random.nextInt(PARTICIPANTS)));
+		int[] result = new int[indexes.size()];
+		int i = 0;
+		for (Iterator iterator = indexes.iterator(); iterator.hasNext();)
+			result[i++] = ((Integer) iterator.next()).intValue();
+		return result;
+	}
+}
@@ -0,0 +1,135 @@
+/*******************************************************************************
+ * Copyright (c) 2014 IBM Corporation and others
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.equinox.coordinator.tests;
+
+import org.osgi.service.coordinator.Coordination;
+import org.osgi.service.coordinator.Participant;
+
+/*
+ * Ensures coordination timeouts never fire early, also when they span several
+ * rounds of the timing wheel or are extended, and never fire once the
+ * coordination has ended.
+ */
+public class CoordinationTimeoutTest extends CoordinatorTest {
+	private static final String TICK_PROPERTY = "org.eclipse.equinox.coordinator.timer.tick"; //$NON-NLS-1$
+	private static final String WHEEL_SIZE_PROPERTY = "org.eclipse.equinox.coordinator.timer.wheel.size"; //$NON-NLS-1$
+	private static final long TICK = 10;
+	// One round of the wheel takes 40 milliseconds.
+	private static final int WHEEL_SIZE = 4;
+	private static final long WAIT = 5000;
+
+	private static class TimeoutParticipant implements Participant {
+		private long failed;
+
+		public void ended(Coordination coordination) throws Exception {
+			// noop
+		}
+
+		public synchronized void failed(Coordination coordination) throws Exception {
+			failed = System.currentTimeMillis();
+			notifyAll();
+		}
+
+		public synchronized long awaitFailed(long timeout) throws InterruptedException {
+			long deadline = System.currentTimeMillis() + timeout;
+			while (failed == 0) {
+				long wait = deadline - System.currentTimeMillis();
+				if (wait <= 0)
+					break;
+				wait(wait);
+			}
+			return failed;
+		}
+	}
+
+	public void testTimeoutsAcrossRounds() throws Exception {
+		long[] timeouts = new long[] {15, 55, 130, 250, 25, 400};
+		Coordination[] coordinations = new Coordination[timeouts.length];
+		TimeoutParticipant[] participants = new TimeoutParticipant[timeouts.length];
+		long start = System.currentTimeMillis();
+		for (int i = 0; i < timeouts.length; i++) {
+			coordinations[i] = coordinator.create("c" + i, timeouts[i]); //$NON-NLS-1$
+			participants[i] = new TimeoutParticipant();
+			coordinations[i].addParticipant(participants[i]);
+		}
+		for (int i = 0; i < timeouts.length; i++) {
+			long failed = participants[i].awaitFailed(WAIT);
+			assertTrue("Timeout of " + timeouts[i] + " ms did not fire", failed != 0); //$NON-NLS-1$ //$NON-NLS-2$
+			assertTrue("Timeout of " + timeouts[i] + " ms fired after " + (failed - start) + " ms", failed - start >= timeouts[i]); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+			assertEquals("Wrong failure", Coordination.TIMEOUT, coordinations[i].getFailure()); //$NON-NLS-1$
+		}
+	}
+
+	public void testShortTimeoutAfterLongTimeout() throws Exception {
+		// The timer thread waits for the long timeout first.
+		Coordination c1 = coordinator.create("c1", 60000); //$NON-NLS-1$
+		try {
+			Thread.sleep(2 * TICK);
+			long start = System.currentTimeMillis();
+			Coordination c2 = coordinator.create("c2", 50); //$NON-NLS-1$
+			TimeoutParticipant participant = new TimeoutParticipant();
+			c2.addParticipant(participant);
+			long failed = participant.awaitFailed(WAIT);
+			assertTrue("Short timeout did not fire", failed != 0); //$NON-NLS-1$
+			assertTrue("Short timeout fired early", failed - start >= 50); //$NON-NLS-1$
+			assertFalse("Long timeout fired", c1.isTerminated()); //$NON-NLS-1$
+		} finally {
+			c1.end();
+		}
+	}
+
+	public void testExtendTimeout() throws Exception {
+		long start = System.currentTimeMillis();
+		Coordination c = coordinator.create("c", 100); //$NON-NLS-1$
+		TimeoutParticipant participant = new TimeoutParticipant();
+		c.addParticipant(participant);
+		c.extendTimeout(200);
+		long failed = participant.awaitFailed(WAIT);
+		assertTrue("Extended timeout did not fire", failed != 0); //$NON-NLS-1$
+		assertTrue("Extended timeout fired after " + (failed - start) + " ms", failed - start >= 300); //$NON-NLS-1$ //$NON-NLS-2$
+		assertEquals("Wrong failure", Coordination.TIMEOUT, c.getFailure()); //$NON-NLS-1$
+	}
+
+	public void testEndCancelsTimeout() throws Exception {
+		Coordination c = coordinator.create("c", 50); //$NON-NLS-1$
+		TimeoutParticipant participant = new TimeoutParticipant();
+		c.addParticipant(participant);
+		c.end();
+		assertEquals("Canceled timeout fired", 0, participant.awaitFailed(300)); //$NON-NLS-1$
+		assertNull("Ended coordination failed", c.getFailure()); //$NON-NLS-1$
+	}
+
+	public void testManyCanceledTimeouts() throws Exception {
+		// Enough canceled timeouts to make the timer thread remove them early.
+		for (int i = 0; i < 5000; i++)
+			coordinator.create("c" + i, 60000).end(); //$NON-NLS-1$
+		long start = System.currentTimeMillis();
+		Coordination c = coordinator.create("c", 50); //$NON-NLS-1$
+		TimeoutParticipant participant = new TimeoutParticipant();
+		c.addParticipant(participant);
+		long failed = participant.awaitFailed(WAIT);
+		assertTrue("Timeout did not fire", failed != 0); //$NON-NLS-1$
+		assertTrue("Timeout fired early", failed - start >= 50); //$NON-NLS-1$
+	}
+
+	protected void setUp() throws Exception {
+		System.setProperty(TICK_PROPERTY, String.valueOf(TICK));
+		System.setProperty(WHEEL_SIZE_PROPERTY, String.valueOf(WHEEL_SIZE));
+		// The above system property initialization must occur before calling super.setUp().
+		super.setUp();
+	}
+
+	protected void tearDown() throws Exception {
+		super.tearDown();
+		System.getProperties().remove(TICK_PROPERTY);
+		System.getProperties().remove(WHEEL_SIZE_PROPERTY);
+	}
+}
@@ -0,0 +1,146 @@
+/*******************************************************************************
+ * Copyright (c) 2014 IBM Corporation and others
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.equinox.coordinator.tests;
+
+import java.util.*;
+import org.osgi.service.coordinator.*;
+
+/*
+ * Ensures participants are notified in parallel, and their exceptions are
+ * aggregated, when the coordinator has notifier threads.
+ */
+public class ParallelParticipantNotifyTest extends CoordinatorTest {
+	private static final String PROPERTY_NAME = "org.eclipse.equinox.coordinator.notifier.threads"; //$NON-NLS-1$
+	private static final int THREADS = 3;
+	private static final long TIMEOUT = 5000;
+
+	/*
+	 * Waits until all participants are being notified, which only happens if
+	 * they are notified in parallel.
+	 */
+	private static class Barrier {
+		private final int parties;
+		private int arrived;
+
+		public Barrier(int parties) {
+			this.parties = parties;
+		}
+
+		public synchronized boolean await() throws InterruptedException {
+			arrived++;
+			notifyAll();
+			long deadline = System.currentTimeMillis() + TIMEOUT;
+			while (arrived < parties) {
+				long wait = deadline - System.currentTimeMillis();
+				if (wait <= 0)
+					return false;
+				wait(wait);
+			}
+			return true;
+		}
+	}
+
+	private static class TestParticipant implements Participant {
+		private final Barrier barrier;
+		private final Set threads;
+		private final Exception exception;
+		boolean passed;
+
+		public TestParticipant(Barrier barrier, Set threads, Exception exception) {
+			this.barrier = barrier;
+			this.threads = threads;
+			this.exception = exception;
+		}
+
+		public void ended(Coordination coordination) throws Exception {
+			notified();
+		}
+
+		public void failed(Coordination coordination) throws Exception {
+			notified();
+		}
+
+		private void notified() throws Exception {
+			threads.add(Thread.currentThread());
+			passed = barrier.await();
+			if (exception != null)
+				throw exception;
+		}
+	}
+
+	public void testParallelNotifyEnded() throws Exception {
+		Set threads = Collections.synchronizedSet(new HashSet());
+		TestParticipant[] participants = createParticipants(threads, 0);
+		Coordination c = coordinator.create("c", 0); //$NON-NLS-1$
+		addParticipants(c, participants);
+		c.end();
+		assertParallel(participants, threads);
+	}
+
+	public void testParallelNotifyFailed() throws Exception {
+		Set threads = Collections.synchronizedSet(new HashSet());
+		TestParticipant[] participants = createParticipants(threads, 0);
+		Coordination c = coordinator.create("c", 0); //$NON-NLS-1$
+		addParticipants(c, participants);
+		assertTrue("Not failed", c.fail(new Exception())); //$NON-NLS-1$
+		assertParallel(participants, threads);
+	}
+
+	public void testParallelNotifyPartiallyEnded() throws Exception {
+		Set threads = Collections.synchronizedSet(new HashSet());
+		TestParticipant[] participants = createParticipants(threads, 2);
+		Coordination c = coordinator.create("c", 0); //$NON-NLS-1$
+		addParticipants(c, participants);
+		try {
+			c.end();
+			fail("Coordination should have partially ended"); //$NON-NLS-1$
+		} catch (CoordinationException e) {
+			assertEquals("Wrong type", CoordinationException.PARTIALLY_ENDED, e.getType()); //$NON-NLS-1$
+			assertTrue("First participant not named", e.getMessage().indexOf(participants[0].toString()) >= 0); //$NON-NLS-1$
+			assertTrue("Second participant not named", e.getMessage().indexOf(participants[1].toString()) >= 0); //$NON-NLS-1$
+		}
+		assertParallel(participants, threads);
+	}
+
+	protected void setUp() throws Exception {
+		System.setProperty(PROPERTY_NAME, String.valueOf(THREADS));
+		// The above system property initialization must occur before calling super.setUp().
+		super.setUp();
+	}
+
+	protected void tearDown() throws Exception {
+		super.tearDown();
+		System.getProperties().remove(PROPERTY_NAME);
+	}
+
+	/*
+	 * Creates one participant for the terminating thread and one for each
+	 * notifier thread. The first failing participants throw an exception.
+	 */
+	private TestParticipant[] createParticipants(Set threads, int failing) {
+		Barrier barrier = new Barrier(THREADS + 1);
+		TestParticipant[] participants = new TestParticipant[THREADS + 1];
+		for (int i = 0; i < participants.length; i++)
+			participants[i] = new TestParticipant(barrier, threads, i < failing ? new Exception() : null);
+		return participants;
+	}
+
+	private void addParticipants(Coordination c, TestParticipant[] participants) {
+		for (int i = 0; i < participants.length; i++)
+			c.addParticipant(participants[i]);
+	}
+
+	private void assertParallel(TestParticipant[] participants, Set threads) {
+		for (int i = 0; i < participants.length; i++)
+			assertTrue("Participant " + i + " not notified in parallel", participants[i].passed); //$NON-NLS-1$ //$NON-NLS-2$
+		assertEquals("Wrong number of notifying threads", participants.length, threads.size()); //$NON-NLS-1$
+	}
+}
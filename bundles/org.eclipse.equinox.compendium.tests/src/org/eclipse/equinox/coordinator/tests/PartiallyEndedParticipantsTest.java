@@ -0,0 +1,77 @@
+/*******************************************************************************
+ * Copyright (c) 2014 IBM Corporation and others
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.equinox.coordinator.tests;
+
+import org.osgi.service.coordinator.*;
+
+/*
+ * Ensures the exception of a partially ended coordination names every
+ * participant which indicated an error, and has the first error as its cause.
+ */
+public class PartiallyEndedParticipantsTest extends CoordinatorTest {
+	private static class TestParticipant implements Participant {
+		private final Exception exception;
+
+		public TestParticipant(Exception exception) {
+			this.exception = exception;
+		}
+
+		public void ended(Coordination coordination) throws Exception {
+			if (exception != null)
+				throw exception;
+		}
+
+		public void failed(Coordination coordination) throws Exception {
+			// noop
+		}
+	}
+
+	public void testOneParticipantError() {
+		Exception exception = new Exception();
+		Participant p1 = new TestParticipant(null);
+		Participant p2 = new TestParticipant(exception);
+		Coordination c = coordinator.create("c", 0); //$NON-NLS-1$
+		c.addParticipant(p1);
+		c.addParticipant(p2);
+		try {
+			c.end();
+			fail("Coordination should have partially ended"); //$NON-NLS-1$
+		} catch (CoordinationException e) {
+			assertEquals("Wrong type", CoordinationException.PARTIALLY_ENDED, e.getType()); //$NON-NLS-1$
+			assertSame("Wrong cause", exception, e.getCause()); //$NON-NLS-1$
+			assertTrue("Participant not named", e.getMessage().indexOf(p2.toString()) >= 0); //$NON-NLS-1$
+			assertTrue("Participant wrongly named", e.getMessage().indexOf(p1.toString()) < 0); //$NON-NLS-1$
+		}
+	}
+
+	public void testSeveralParticipantErrors() {
+		Exception first = new Exception();
+		Exception second = new Exception();
+		Participant p1 = new TestParticipant(second);
+		Participant p2 = new TestParticipant(null);
+		Participant p3 = new TestParticipant(first);
+		Coordination c = coordinator.create("c", 0); //$NON-NLS-1$
+		c.addParticipant(p1);
+		c.addParticipant(p2);
+		c.addParticipant(p3);
+		try {
+			c.end();
+			fail("Coordination should have partially ended"); //$NON-NLS-1$
+		} catch (CoordinationException e) {
+			assertEquals("Wrong type", CoordinationException.PARTIALLY_ENDED, e.getType()); //$NON-NLS-1$
+			// The participants are notified in reverse participation order.
+			assertSame("Wrong cause", first, e.getCause()); //$NON-NLS-1$
+			assertTrue("First participant not named", e.getMessage().indexOf(p3.toString()) >= 0); //$NON-NLS-1$
+			assertTrue("Second participant not named", e.getMessage().indexOf(p1.toString()) >= 0); //$NON-NLS-1$
+			assertTrue("Participant wrongly named", e.getMessage().indexOf(p2.toString()) < 0); //$NON-NLS-1$
+		}
+	}
+}
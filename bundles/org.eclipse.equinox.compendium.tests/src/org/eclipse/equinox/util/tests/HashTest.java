@@ -0,0 +1,371 @@
+/*******************************************************************************
+ * Copyright (c) 2014 IBM Corporation and others
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.equinox.util.tests;
+
+import java.util.*;
+import junit.framework.TestCase;
+import org.eclipse.equinox.internal.util.hash.*;
+
+/*
+ * Ensures the open addressing hashtables and their striped variants find every
+ * element after collisions, removals and resizes, and can be enumerated.
+ */
+public class HashTest extends TestCase {
+	private static final int OPERATIONS = 20000;
+	private static final int KEYS = 300;
+
+	/*
+	 * A key with a given hash code, so that keys can be made to collide.
+	 */
+	private static class Key {
+		private final int id;
+		private final int hash;
+
+		public Key(int id, int hash) {
+			this.id = id;
+			this.hash = hash;
+		}
+
+		public boolean equals(Object o) {
+			return o instanceof Key && ((Key) o).id == id;
+		}
+
+		public int hashCode() {
+			return hash;
+		}
+
+		public String toString() {
+			return "Key" + id; //$NON-NLS-1$
+		}
+	}
+
+	public void testIntObjAgainstHashtable() {
+		Random random = new Random(1);
+		// A small initial capacity, so that the table is resized several times.
+		HashIntObjNS table = new HashIntObjNS(2);
+		Hashtable expected = new Hashtable();
+		for (int i = 0; i < OPERATIONS; i++) {
+			int key = random.nextInt(KEYS);
+			if (random.nextInt(3) == 0) {
+				assertEquals("Wrong removed value", expected.remove(new Integer(key)), table.remove(key)); //$NON-NLS-1$
+			} else {
+				Object value = new Integer(i);
+				table.put(key, value);
+				expected.put(new Integer(key), value);
+			}
+		}
+		assertEquals("Wrong size", expected.size(), table.size()); //$NON-NLS-1$
+		for (int key = 0; key < KEYS; key++)
+			assertEquals("Wrong value of " + key, expected.get(new Integer(key)), table.get(key)); //$NON-NLS-1$
+		Hashtable enumerated = new Hashtable();
+		for (int i = 0; i < table.next.length; i++)
+			if (table.next[i] != -1)
+				assertNull("Key enumerated twice", enumerated.put(new Integer(table.keys[i]), table.values[i])); //$NON-NLS-1$
+		assertEquals("Wrong enumeration", expected, enumerated); //$NON-NLS-1$
+	}
+
+	public void testLongObjAgainstHashtable() {
+		Random random = new Random(2);
+		HashLongObjNS table = new HashLongObjNS(2);
+		Hashtable expected = new Hashtable();
+		for (int i = 0; i < OPERATIONS; i++) {
+			// Keys differing only in their high bits.
+			long key = ((long) random.nextInt(KEYS)) << 32;
+			if (random.nextInt(3) == 0) {
+				assertEquals("Wrong removed value", expected.remove(new Long(key)), table.remove(key)); //$NON-NLS-1$
+			} else {
+				Object value = new Integer(i);
+				table.put(key, value);
+				expected.put(new Long(key), value);
+			}
+		}
+		assertEquals("Wrong size", expected.size(), table.size()); //$NON-NLS-1$
+		for (int i = 0; i < KEYS; i++) {
+			long key = ((long) i) << 32;
+			assertEquals("Wrong value of " + key, expected.get(new Long(key)), table.get(key)); //$NON-NLS-1$
+		}
+		Hashtable enumerated = new Hashtable();
+		for (int i = 0; i < table.next.length; i++)
+			if (table.next[i] != -1)
+				assertNull("Key enumerated twice", enumerated.put(new Long(table.keys[i]), table.values[i])); //$NON-NLS-1$
+		assertEquals("Wrong enumeration", expected, enumerated); //$NON-NLS-1$
+	}
+
+	public void testObjIntAgainstHashtable() {
+		Random random = new Random(3);
+		HashObjIntNS table = new HashObjIntNS(2);
+		Hashtable expected = new Hashtable();
+		for (int i = 0; i < OPERATIONS; i++) {
+			// Only 16 hash codes for all keys, so that there are many collisions.
+			int id = random.nextInt(KEYS);
+			Key key = new Key(id, id % 16);
+			if (random.nextInt(3) == 0) {
+				Integer value = (Integer) expected.remove(key);
+				if (value == null) {
+					assertNotRemovable(table, key);
+				} else {
+					assertEquals("Wrong removed value", value.intValue(), table.remove(key)); //$NON-NLS-1$
+				}
+			} else {
+				table.put(key, i);
+				expected.put(key, new Integer(i));
+			}
+		}
+		assertEquals("Wrong size", expected.size(), table.size()); //$NON-NLS-1$
+		for (int id = 0; id < KEYS; id++) {
+			Key key = new Key(id, id % 16);
+			Integer value = (Integer) expected.get(key);
+			if (value == null) {
+				try {
+					table.get(key);
+					fail("Removed key found: " + key); //$NON-NLS-1$
+				} catch (NoSuchElementException e) {
+					// expected
+				}
+			} else {
+				assertEquals("Wrong value of " + key, value.intValue(), table.get(key)); //$NON-NLS-1$
+			}
+		}
+		Hashtable enumerated = new Hashtable();
+		for (int i = 0; i < table.next.length; i++)
+			if (table.next[i] != -1)
+				assertNull("Key enumerated twice", enumerated.put(table.keys[i], new Integer(table.values[i]))); //$NON-NLS-1$
+		assertEquals("Wrong enumeration", expected, enumerated); //$NON-NLS-1$
+	}
+
+	public void testObjLongAgainstHashtable() {
+		Random random = new Random(4);
+		HashObjLongNS table = new HashObjLongNS(2);
+		Hashtable expected = new Hashtable();
+		for (int i = 0; i < OPERATIONS; i++) {
+			int id = random.nextInt(KEYS);
+			Key key = new Key(id, id % 16);
+			if (random.nextInt(3) == 0) {
+				Long value = (Long) expected.remove(key);
+				if (value != null)
+					assertEquals("Wrong removed value", value.longValue(), table.remove(key)); //$NON-NLS-1$
+			} else {
+				table.put(key, i * 0x100000000L);
+				expected.put(key, new Long(i * 0x100000000L));
+			}
+		}
+		assertEquals("Wrong size", expected.size(), table.size()); //$NON-NLS-1$
+		Hashtable enumerated = new Hashtable();
+		for (int i = 0; i < table.next.length; i++)
+			if (table.next[i] != -1)
+				assertNull("Key enumerated twice", enumerated.put(table.keys[i], new Long(table.values[i]))); //$NON-NLS-1$
+		assertEquals("Wrong enumeration", expected, enumerated); //$NON-NLS-1$
+		for (Enumeration e = expected.keys(); e.hasMoreElements();) {
+			Key key = (Key) e.nextElement();
+			assertEquals("Wrong value of " + key, ((Long) expected.get(key)).longValue(), table.get(key)); //$NON-NLS-1$
+		}
+	}
+
+	public void testBackShiftAfterCollisions() {
+		// All keys have the same home position, so each one is probed after
+		// the ones added before it.
+		int count = 10;
+		Key[] keys = new Key[count];
+		HashObjIntNS table = new HashObjIntNS(32);
+		for (int i = 0; i < count; i++) {
+			keys[i] = new Key(i, 7);
+			table.put(keys[i], i);
+		}
+		// Remove the first, a middle and the last key of the probe sequence.
+		int[] removed = {0, 5, count - 1};
+		for (int i = 0; i < removed.length; i++) {
+			assertEquals("Wrong removed value", removed[i], table.remove(keys[removed[i]])); //$NON-NLS-1$
+			for (int j = 0; j < count; j++) {
+				if (!contains(removed, j, i))
+					assertEquals("Key not found after removal: " + keys[j], j, table.get(keys[j])); //$NON-NLS-1$
+			}
+		}
+		assertEquals("Wrong size", count - removed.length, table.size()); //$NON-NLS-1$
+		// A key colliding with the remaining ones and inserted after the
+		// removals must be found as well.
+		Key key = new Key(count, 7);
+		table.put(key, count);
+		assertEquals("Wrong value", count, table.get(key)); //$NON-NLS-1$
+		int used = 0;
+		for (int i = 0; i < table.next.length; i++)
+			if (table.next[i] != -1)
+				used++;
+		assertEquals("Removed positions not freed", table.size(), used); //$NON-NLS-1$
+	}
+
+	public void testBackShiftAcrossTableEnd() {
+		// Keys with different hash codes which collide in a small table, so
+		// that probe sequences wrap around the end of the table.
+		HashIntObjNS table = new HashIntObjNS(16);
+		Hashtable expected = new Hashtable();
+		Random random = new Random(5);
+		for (int round = 0; round < 1000; round++) {
+			while (table.size() < 12) {
+				int key = random.nextInt();
+				table.put(key, new Integer(key));
+				expected.put(new Integer(key), new Integer(key));
+			}
+			assertEquals("Table resized", 16, table.next.length); //$NON-NLS-1$
+			Integer key = (Integer) expected.keys().nextElement();
+			expected.remove(key);
+			assertEquals("Wrong removed value", key, table.remove(key.intValue())); //$NON-NLS-1$
+			for (Enumeration e = expected.keys(); e.hasMoreElements();) {
+				Integer k = (Integer) e.nextElement();
+				assertEquals("Key not found after removal: " + k, k, table.get(k.intValue())); //$NON-NLS-1$
+			}
+		}
+	}
+
+	public void testResize() {
+		HashIntObjNS table = new HashIntObjNS(1);
+		int count = 5000;
+		for (int i = 0; i < count; i++)
+			table.put(i * 31, new Integer(i));
+		assertEquals("Wrong size", count, table.size()); //$NON-NLS-1$
+		assertTrue("Capacity not a power of two", (table.next.length & (table.next.length - 1)) == 0); //$NON-NLS-1$
+		assertTrue("Table too full", table.size() <= table.next.length * 0.75); //$NON-NLS-1$
+		for (int i = 0; i < count; i++)
+			assertEquals("Wrong value after resize", new Integer(i), table.get(i * 31)); //$NON-NLS-1$
+		table.removeAll();
+		assertEquals("Not empty", 0, table.size()); //$NON-NLS-1$
+		assertNull("Value found after removeAll", table.get(31)); //$NON-NLS-1$
+	}
+
+	public void testRemoveWhileIterating() {
+		Random random = new Random(6);
+		HashIntObjNS table = new HashIntObjNS(64);
+		Hashtable expected = new Hashtable();
+		for (int i = 0; i < 40; i++) {
+			int key = random.nextInt();
+			table.put(key, new Integer(key));
+			if ((key & 1) != 0)
+				expected.put(new Integer(key), new Integer(key));
+		}
+		// A removal moves following elements back, so the position of a removed
+		// element is examined again before moving on.
+		for (int i = 0; i < table.next.length;) {
+			if (table.next[i] != -1 && (table.keys[i] & 1) == 0)
+				table.remove(table.keys[i]);
+			else
+				i++;
+		}
+		assertEquals("Wrong size", expected.size(), table.size()); //$NON-NLS-1$
+		for (int i = 0; i < table.next.length; i++)
+			if (table.next[i] != -1)
+				assertEquals("Even key not removed", 1, table.keys[i] & 1); //$NON-NLS-1$
+		for (Enumeration e = expected.keys(); e.hasMoreElements();) {
+			Integer key = (Integer) e.nextElement();
+			assertEquals("Odd key lost", key, table.get(key.intValue())); //$NON-NLS-1$
+		}
+	}
+
+	public void testStripedAgainstHashtable() {
+		Random random = new Random(7);
+		HashIntObjStriped intObj = new HashIntObjStriped(4, 2);
+		HashLongObjStriped longObj = new HashLongObjStriped(4, 2);
+		HashObjIntStriped objInt = new HashObjIntStriped(4, 2);
+		HashObjLongStriped objLong = new HashObjLongStriped(4, 2);
+		Hashtable expected = new Hashtable();
+		for (int i = 0; i < OPERATIONS; i++) {
+			int key = random.nextInt(KEYS);
+			Integer k = new Integer(key);
+			if (random.nextInt(3) == 0) {
+				Integer value = (Integer) expected.remove(k);
+				assertEquals("Wrong removed value", value, intObj.remove(key)); //$NON-NLS-1$
+				assertEquals("Wrong removed value", value, longObj.remove(key)); //$NON-NLS-1$
+				if (value != null) {
+					assertEquals("Wrong removed value", value.intValue(), objInt.remove(k)); //$NON-NLS-1$
+					assertEquals("Wrong removed value", value.intValue(), objLong.remove(k)); //$NON-NLS-1$
+				}
+			} else {
+				Integer value = new Integer(i);
+				expected.put(k, value);
+				intObj.put(key, value);
+				longObj.put(key, value);
+				objInt.put(k, i);
+				objLong.put(k, i);
+			}
+		}
+		assertEquals("Wrong size", expected.size(), intObj.size()); //$NON-NLS-1$
+		assertEquals("Wrong size", expected.size(), longObj.size()); //$NON-NLS-1$
+		assertEquals("Wrong size", expected.size(), objInt.size()); //$NON-NLS-1$
+		assertEquals("Wrong size", expected.size(), objLong.size()); //$NON-NLS-1$
+		for (int key = 0; key < KEYS; key++) {
+			Integer value = (Integer) expected.get(new Integer(key));
+			assertEquals("Wrong value", value, intObj.get(key)); //$NON-NLS-1$
+			assertEquals("Wrong value", value, longObj.get(key)); //$NON-NLS-1$
+			if (value != null) {
+				assertEquals("Wrong value", value.intValue(), objInt.get(new Integer(key))); //$NON-NLS-1$
+				assertEquals("Wrong value", value.intValue(), objLong.get(new Integer(key))); //$NON-NLS-1$
+			}
+		}
+		intObj.removeAll();
+		objInt.removeAll();
+		assertEquals("Not empty", 0, intObj.size()); //$NON-NLS-1$
+		assertEquals("Not empty", 0, objInt.size()); //$NON-NLS-1$
+	}
+
+	public void testStripedConcurrentAccess() throws Exception {
+		final HashIntObjStriped table = new HashIntObjStriped(8, 2);
+		final int threadCount = 4;
+		final int perThread = 5000;
+		final Throwable[] failure = new Throwable[1];
+		Thread[] threads = new Thread[threadCount];
+		for (int t = 0; t < threadCount; t++) {
+			final int base = t * perThread;
+			threads[t] = new Thread(new Runnable() {
+				public void run() {
+					try {
+						// Each thread adds its own keys and removes every other one.
+						for (int i = base; i < base + perThread; i++)
+							table.put(i, new Integer(i));
+						for (int i = base; i < base + perThread; i += 2)
+							assertEquals("Wrong removed value", new Integer(i), table.remove(i)); //$NON-NLS-1$
+					} catch (Throwable e) {
+						synchronized (failure) {
+							failure[0] = e;
+						}
+					}
+				}
+			});
+			threads[t].start();
+		}
+		for (int t = 0; t < threadCount; t++)
+			threads[t].join();
+		synchronized (failure) {
+			if (failure[0] != null)
+				fail("Concurrent access failed: " + failure[0]); //$NON-NLS-1$
+		}
+		assertEquals("Wrong size", threadCount * perThread / 2, table.size()); //$NON-NLS-1$
+		for (int i = 0; i < threadCount * perThread; i++) {
+			if ((i & 1) == 0)
+				assertNull("Removed key found", table.get(i)); //$NON-NLS-1$
+			else
+				assertEquals("Key lost", new Integer(i), table.get(i)); //$NON-NLS-1$
+		}
+	}
+
+	private static void assertNotRemovable(HashObjIntNS table, Key key) {
+		try {
+			table.remove(key);
+			fail("Missing key removed: " + key); //$NON-NLS-1$
+		} catch (NoSuchElementException e) {
+			// expected
+		}
+	}
+
+	private static boolean contains(int[] array, int value, int last) {
+		for (int i = 0; i <= last; i++)
+			if (array[i] == value)
+				return true;
+		return false;
+	}
+}
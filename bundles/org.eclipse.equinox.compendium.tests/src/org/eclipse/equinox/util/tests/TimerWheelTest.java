@@ -0,0 +1,202 @@
+/*******************************************************************************
+ * Copyright (c) 2014 IBM Corporation and others
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.equinox.util.tests;
+
+import java.util.*;
+import junit.framework.TestCase;
+import org.eclipse.equinox.internal.util.impl.tpt.timer.TimerQueueNode;
+import org.eclipse.equinox.internal.util.impl.tpt.timer.TimerWheel;
+import org.eclipse.equinox.internal.util.timer.Timer;
+import org.eclipse.equinox.internal.util.timer.TimerListener;
+
+/*
+ * Drives the timing wheel used by the timer when the equinox.timer.wheel
+ * property is true with a simulated clock, the same way as the timer thread
+ * does: the wheel is advanced to the current time and periodical nodes are
+ * added again with their next expiration time.
+ */
+public class TimerWheelTest extends TestCase {
+	/* the ticks covered by one slot of each level of the wheel */
+	private static final long LEVEL1 = 1L << 8;
+	private static final long LEVEL2 = 1L << 16;
+	private static final long LEVEL3 = 1L << 24;
+	private static final long START = 1000000007L;
+
+	private static final TimerListener LISTENER = new TimerListener() {
+		public void timer(int event) {
+			// never called
+		}
+	};
+
+	private TimerWheel wheel;
+	/* the expiration time of each node in the wheel */
+	private Hashtable expirations;
+
+	protected void setUp() throws Exception {
+		wheel = new TimerWheel(START);
+		expirations = new Hashtable();
+	}
+
+	public void testEmpty() {
+		assertTrue("Not empty", wheel.isEmpty()); //$NON-NLS-1$
+		assertEquals("Wrong next tick", Long.MAX_VALUE, wheel.nextTick()); //$NON-NLS-1$
+		assertEquals("Nodes expired", 0, advance(START + LEVEL3).size()); //$NON-NLS-1$
+	}
+
+	public void testExpiresAtItsTime() {
+		Random random = new Random(1);
+		for (int i = 0; i < 2000; i++) {
+			// Spread the nodes over the first three levels.
+			long delay = (long) (random.nextDouble() * 4 * LEVEL2);
+			add(i, START + delay);
+		}
+		long now = START;
+		int expired = 0;
+		while (!wheel.isEmpty()) {
+			long previous = now;
+			now += 1 + random.nextInt(3000);
+			Vector nodes = advance(now);
+			for (int i = 0; i < nodes.size(); i++) {
+				long runOn = expire((TimerQueueNode) nodes.elementAt(i));
+				assertTrue("Node expired early", runOn <= now); //$NON-NLS-1$
+				assertTrue("Node expired late", runOn > previous); //$NON-NLS-1$
+			}
+			expired += nodes.size();
+		}
+		assertEquals("Wrong number of expired nodes", 2000, expired); //$NON-NLS-1$
+	}
+
+	public void testNextTick() {
+		add(1, START + 100);
+		assertEquals("Wrong next tick", START + 100, wheel.nextTick()); //$NON-NLS-1$
+		add(2, START + 10);
+		assertEquals("Wrong next tick", START + 10, wheel.nextTick()); //$NON-NLS-1$
+		assertEquals("Nodes expired", 0, advance(START + 9).size()); //$NON-NLS-1$
+		assertEquals("Wrong expired nodes", 1, advance(START + 10).size()); //$NON-NLS-1$
+		assertEquals("Wrong next tick", START + 100, wheel.nextTick()); //$NON-NLS-1$
+	}
+
+	public void testLongDelayCascading() {
+		// Nodes in the upper levels, including one beyond the range of the
+		// wheel, which is kept in the last level until it comes into range.
+		long[] delays = {LEVEL1 + 3, LEVEL2 + 5, 3 * LEVEL2 + 77, 2 * LEVEL3 + 12345, 300 * LEVEL3 + 1};
+		for (int i = 0; i < delays.length; i++)
+			add(i, START + delays[i]);
+		long now = START;
+		for (int i = 0; i < delays.length; i++) {
+			long runOn = START + delays[i];
+			// The wheel must wake up for the cascades before the expiration time,
+			// but never after it.
+			long next = wheel.nextTick();
+			assertTrue("Next tick after the expiration", next <= runOn); //$NON-NLS-1$
+			assertTrue("Next tick in the past", next > now); //$NON-NLS-1$
+			assertEquals("Expired before its time", 0, advance(runOn - 1).size()); //$NON-NLS-1$
+			assertEquals("Wrong next tick", runOn, wheel.nextTick()); //$NON-NLS-1$
+			Vector expired = advance(runOn);
+			assertEquals("Not expired at its time", 1, expired.size()); //$NON-NLS-1$
+			assertEquals("Wrong node expired", runOn, expire((TimerQueueNode) expired.elementAt(0))); //$NON-NLS-1$
+			now = runOn;
+		}
+		assertTrue("Not empty", wheel.isEmpty()); //$NON-NLS-1$
+	}
+
+	public void testRemove() {
+		Random random = new Random(2);
+		TimerQueueNode[] nodes = new TimerQueueNode[1000];
+		for (int i = 0; i < nodes.length; i++)
+			nodes[i] = add(i, START + 1 + (long) (random.nextDouble() * 2 * LEVEL2));
+		// Let part of the nodes expire and the rest cascade to the lower levels.
+		long now = START + LEVEL2 / 2;
+		for (Enumeration e = advance(now).elements(); e.hasMoreElements();)
+			expire((TimerQueueNode) e.nextElement());
+		int size = expirations.size();
+		assertEquals("Wrong size", size, wheel.size()); //$NON-NLS-1$
+		for (int i = 0; i < nodes.length; i += 2) {
+			// Removing a node which is not in the wheel has no effect.
+			wheel.remove(nodes[i]);
+			if (expirations.remove(nodes[i]) != null)
+				size--;
+			assertEquals("Wrong size after removal", size, wheel.size()); //$NON-NLS-1$
+		}
+		Vector expired = advance(START + 3 * LEVEL2);
+		assertEquals("Wrong number of expired nodes", size, expired.size()); //$NON-NLS-1$
+		for (int i = 0; i < expired.size(); i++)
+			assertTrue("Removed node expired", expire((TimerQueueNode) expired.elementAt(i)) > now); //$NON-NLS-1$
+		assertTrue("Not empty", wheel.isEmpty()); //$NON-NLS-1$
+	}
+
+	public void testReschedule() {
+		TimerQueueNode node = add(1, START + 5 * LEVEL2);
+		// Moved earlier, as when the listener is added again with a shorter delay.
+		reschedule(node, 1, START + 300);
+		assertTrue("Next tick after the expiration", wheel.nextTick() <= START + 300); //$NON-NLS-1$
+		assertEquals("Expired before its time", 0, advance(START + 299).size()); //$NON-NLS-1$
+		// Moved later, after the wheel has been advanced.
+		reschedule(node, 1, START + 2 * LEVEL2 + 1);
+		assertEquals("Old expiration time used", 0, advance(START + 2 * LEVEL2).size()); //$NON-NLS-1$
+		assertEquals("Not expired at its time", 1, advance(START + 2 * LEVEL2 + 1).size()); //$NON-NLS-1$
+		assertTrue("Not empty", wheel.isEmpty()); //$NON-NLS-1$
+	}
+
+	public void testPeriodical() {
+		long period = 1000;
+		TimerQueueNode node = add(1, START + period);
+		long now = START;
+		int runs = 0;
+		while (now < START + 100 * period) {
+			now += 333;
+			Vector expired = advance(now);
+			for (int i = 0; i < expired.size(); i++) {
+				long runOn = expire((TimerQueueNode) expired.elementAt(i));
+				runs++;
+				assertEquals("Wrong expiration time", START + runs * period, runOn); //$NON-NLS-1$
+				// Added again with the next expiration time.
+				reschedule(node, 1, runOn + period);
+			}
+		}
+		assertEquals("Wrong number of runs", 100, runs); //$NON-NLS-1$
+		assertEquals("Node not in the wheel", 1, wheel.size()); //$NON-NLS-1$
+	}
+
+	public void testAlreadyExpired() {
+		advance(START + 1000);
+		add(1, START + 10);
+		assertEquals("Expired node not run", 1, advance(START + 1001).size()); //$NON-NLS-1$
+	}
+
+	private TimerQueueNode add(int event, long runOn) {
+		TimerQueueNode node = new TimerQueueNode();
+		node.setEvent(LISTENER, Thread.NORM_PRIORITY, Timer.ONE_SHOT_TIMER, runOn, 0, event, null, null);
+		expirations.put(node, new Long(runOn));
+		wheel.add(node);
+		return node;
+	}
+
+	private void reschedule(TimerQueueNode node, int event, long runOn) {
+		wheel.remove(node);
+		expirations.remove(node);
+		node.setEvent(LISTENER, Thread.NORM_PRIORITY, Timer.ONE_SHOT_TIMER, runOn, 0, event, null, null);
+		expirations.put(node, new Long(runOn));
+		wheel.add(node);
+	}
+
+	private long expire(TimerQueueNode node) {
+		Long runOn = (Long) expirations.remove(node);
+		assertNotNull("Unknown node expired", runOn); //$NON-NLS-1$
+		return runOn.longValue();
+	}
+
+	private Vector advance(long now) {
+		Vector expired = new Vector();
+		wheel.advance(now, expired);
+		return expired;
+	}
+}
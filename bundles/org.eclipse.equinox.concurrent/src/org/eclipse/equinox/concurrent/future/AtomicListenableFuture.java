@@ -0,0 +1,335 @@
+/******************************************************************************
+ * Copyright (c) 2014 EclipseSource and others. All rights reserved. This
+ * program and the accompanying materials are made available under the terms of
+ * the Eclipse Public License v1.0 which accompanies this distribution, and is
+ * available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   EclipseSource - initial API and implementation
+ ******************************************************************************/
+package org.eclipse.equinox.concurrent.future;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.concurrent.locks.LockSupport;
+import org.eclipse.core.runtime.*;
+
+/**
+ * <p>
+ * Listenable future implementation for a single operation which does not
+ * lock. It can be used in place of {@link SingleOperationListenableFuture}
+ * when many threads wait for or listen to the same future.
+ * </p>
+ * <p>
+ * The future is completed by a compare-and-set of its outcome, so only the
+ * first of {@link #set(Object)}, {@link #setException(Throwable)} and
+ * {@link #cancel()} takes effect. Threads waiting in <code>get</code> and the
+ * listeners added with
+ * {@link #addListener(IExecutor, IProgressRunnable, IProgressMonitor)} are
+ * kept in a lock-free stack. On completion the waiting threads are unparked
+ * and the listeners are executed, in the order they were added, by the thread
+ * completing the future. Any number of listeners may be added.
+ * </p>
+ * <p>
+ * Unlike {@link SingleOperationFuture}, a <code>get(long)</code> which times
+ * out does not complete the future.
+ * </p>
+ *
+ * @param <ResultType>
+ *            the type of the result of the future
+ * @since 1.2
+ */
+public class AtomicListenableFuture<ResultType> extends
+		AbstractFuture<ResultType> implements IListenableFuture<ResultType> {
+	private static final String PLUGIN_ID = "org.eclipse.equinox.concurrent"; //$NON-NLS-1$
+
+	@SuppressWarnings("rawtypes")
+	private static final AtomicReferenceFieldUpdater<AtomicListenableFuture, Outcome> OUTCOME = AtomicReferenceFieldUpdater
+			.newUpdater(AtomicListenableFuture.class, Outcome.class, "outcome"); //$NON-NLS-1$
+	@SuppressWarnings("rawtypes")
+	private static final AtomicReferenceFieldUpdater<AtomicListenableFuture, Node> STACK = AtomicReferenceFieldUpdater
+			.newUpdater(AtomicListenableFuture.class, Node.class, "stack"); //$NON-NLS-1$
+
+	// replaces the stack once the future is done, so no nodes can be pushed
+	private static final Node DONE = new Node(null, null, null, null);
+
+	// null until the future is done
+	private volatile Outcome outcome;
+	// waiting threads and listeners, the last added first
+	private volatile Node stack;
+	protected IProgressMonitor progressMonitor;
+
+	public AtomicListenableFuture() {
+		this((IProgressMonitor) null);
+	}
+
+	public AtomicListenableFuture(IProgressMonitor progressMonitor) {
+		super();
+		this.progressMonitor = new FutureProgressMonitor(
+				(progressMonitor == null) ? new NullProgressMonitor()
+						: progressMonitor);
+	}
+
+	@SuppressWarnings("unchecked")
+	public ResultType get() throws InterruptedException,
+			OperationCanceledException {
+		throwIfCanceled();
+		Outcome o = outcome;
+		if (o == null)
+			o = await(false, 0L);
+		throwIfCanceled();
+		return (ResultType) o.value;
+	}
+
+	@SuppressWarnings("unchecked")
+	public ResultType get(long waitTimeInMillis) throws InterruptedException,
+			TimeoutException, OperationCanceledException {
+		if (waitTimeInMillis < 0)
+			throw new IllegalArgumentException("waitTimeInMillis must be => 0"); //$NON-NLS-1$
+		throwIfCanceled();
+		Outcome o = outcome;
+		if (o == null) {
+			o = await(true, TimeUnit.MILLISECONDS.toNanos(waitTimeInMillis));
+			if (o == null)
+				throw new TimeoutException(
+						"Single operation timeout", waitTimeInMillis); //$NON-NLS-1$
+		}
+		throwIfCanceled();
+		return (ResultType) o.value;
+	}
+
+	/*
+	 * Parks the current thread until the future is done. Returns null if the
+	 * wait is timed and the time has elapsed.
+	 */
+	private Outcome await(boolean timed, long nanos)
+			throws InterruptedException {
+		long deadline = timed ? System.nanoTime() + nanos : 0L;
+		Node node = null;
+		for (;;) {
+			Outcome o = outcome;
+			if (o != null)
+				return o;
+			if (Thread.interrupted()) {
+				if (node != null)
+					node.waiter = null;
+				throw new InterruptedException();
+			}
+			if (node == null) {
+				node = new Node(Thread.currentThread(), null, null, null);
+				// fails only if the future is done meanwhile
+				push(node);
+			} else if (timed) {
+				long left = deadline - System.nanoTime();
+				if (left <= 0) {
+					node.waiter = null;
+					return null;
+				}
+				LockSupport.parkNanos(left);
+			} else {
+				LockSupport.park();
+			}
+		}
+	}
+
+	public boolean isDone() {
+		return outcome != null;
+	}
+
+	public boolean hasValue() {
+		// for a single operation future, hasValue means that the single
+		// operation has completed, and there will be no more.
+		return isDone();
+	}
+
+	public IStatus getStatus() {
+		Outcome o = outcome;
+		return o == null ? null : o.status;
+	}
+
+	public boolean cancel() {
+		if (isDone() || isCanceled())
+			return false;
+		if (!OUTCOME.compareAndSet(this, null, new Outcome(null, new Status(
+				IStatus.CANCEL, PLUGIN_ID, IStatus.CANCEL,
+				"Operation canceled", null)))) //$NON-NLS-1$
+			return false;
+		// the operation and the listeners see the cancellation
+		getProgressMonitor().setCanceled(true);
+		release();
+		return true;
+	}
+
+	public void addListener(IExecutor executor,
+			IProgressRunnable<ResultType> progressRunnable,
+			IProgressMonitor monitor) {
+		Assert.isNotNull(executor);
+		Assert.isNotNull(progressRunnable);
+		Node node = new Node(null, executor, progressRunnable, monitor);
+		// If we're already done, then execute the listener now
+		if (!push(node))
+			execListener(node);
+	}
+
+	/**
+	 * This method is not intended to be called by clients. Rather it should
+	 * only be used by {@link IExecutor}s.
+	 *
+	 * @noreference
+	 */
+	public void runWithProgress(final IProgressRunnable<?> runnable) {
+		Assert.isNotNull(runnable);
+		if (!isCanceled()) {
+			SafeRunner.run(new ISafeRunnable() {
+				public void handleException(Throwable exception) {
+					if (!isCanceled())
+						setException(exception);
+				}
+
+				public void run() throws Exception {
+					@SuppressWarnings("unchecked")
+					ResultType result = (ResultType) runnable
+							.run(getProgressMonitor());
+					if (!isCanceled())
+						set(result);
+				}
+			});
+		}
+	}
+
+	/**
+	 * Completes the future with the given result, unless it is done already.
+	 *
+	 * @return <code>true</code> if the future was completed by this call
+	 */
+	protected boolean set(ResultType newValue) {
+		return complete(newValue, Status.OK_STATUS);
+	}
+
+	/**
+	 * Completes the future with the given exception, unless it is done
+	 * already.
+	 *
+	 * @return <code>true</code> if the future was completed by this call
+	 */
+	protected boolean setException(Throwable ex) {
+		return complete(null, new Status(IStatus.ERROR, PLUGIN_ID,
+				IStatus.ERROR, "Exception during operation", ex)); //$NON-NLS-1$
+	}
+
+	/*
+	 * Completes the future with the given outcome, wakes up the waiting threads
+	 * and executes the listeners.
+	 */
+	boolean complete(Object value, IStatus status) {
+		if (!OUTCOME.compareAndSet(this, null, new Outcome(value, status)))
+			return false;
+		release();
+		return true;
+	}
+
+	/*
+	 * Wakes up the waiting threads and executes the listeners once the outcome
+	 * is set.
+	 */
+	private void release() {
+		Node node = STACK.getAndSet(this, DONE);
+		// unpark the waiters and reverse the listeners to the order they were
+		// added in
+		Node listeners = null;
+		while (node != null) {
+			Node next = node.next;
+			if (node.runnable == null) {
+				Thread waiter = node.waiter;
+				if (waiter != null)
+					LockSupport.unpark(waiter);
+			} else {
+				node.next = listeners;
+				listeners = node;
+			}
+			node = next;
+		}
+		for (; listeners != null; listeners = listeners.next)
+			execListener(listeners);
+	}
+
+	/*
+	 * Pushes a node on the stack. Returns false if the future is done. Waiters
+	 * which have given up on the top of the stack are dropped, so that polling
+	 * a future with timed gets does not grow the stack.
+	 */
+	private boolean push(Node node) {
+		for (;;) {
+			Node head = stack;
+			if (head == DONE)
+				return false;
+			if (head != null && head.runnable == null && head.waiter == null) {
+				STACK.compareAndSet(this, head, head.next);
+				continue;
+			}
+			node.next = head;
+			if (STACK.compareAndSet(this, head, node))
+				return true;
+		}
+	}
+
+	private void execListener(final Node node) {
+		SafeRunner.run(new ISafeRunnable() {
+			public void handleException(Throwable exception) {
+				// logged by SafeRunner
+			}
+
+			@SuppressWarnings("unchecked")
+			public void run() throws Exception {
+				node.executor.execute(node.runnable,
+						(node.monitor == null) ? new NullProgressMonitor()
+								: node.monitor);
+			}
+		});
+	}
+
+	private void throwIfCanceled() throws OperationCanceledException {
+		Outcome o = outcome;
+		if (isCanceled()
+				|| (o != null && o.status.getSeverity() == IStatus.CANCEL)) {
+			throw new OperationCanceledException("Single operation canceled"); //$NON-NLS-1$
+		}
+	}
+
+	public IProgressMonitor getProgressMonitor() {
+		return progressMonitor;
+	}
+
+	public boolean isCanceled() {
+		return getProgressMonitor().isCanceled();
+	}
+
+	private static final class Outcome {
+		final Object value;
+		final IStatus status;
+
+		Outcome(Object value, IStatus status) {
+			this.value = value;
+			this.status = status;
+		}
+	}
+
+	@SuppressWarnings("rawtypes")
+	private static final class Node {
+		// the waiting thread for a waiter, cleared when it stops waiting
+		volatile Thread waiter;
+		// the executor and runnable of a listener, null for a waiter
+		final IExecutor executor;
+		final IProgressRunnable runnable;
+		final IProgressMonitor monitor;
+		Node next;
+
+		Node(Thread waiter, IExecutor executor, IProgressRunnable runnable,
+				IProgressMonitor monitor) {
+			this.waiter = waiter;
+			this.executor = executor;
+			this.runnable = runnable;
+			this.monitor = monitor;
+		}
+	}
+}
@@ -0,0 +1,115 @@
+/******************************************************************************
+ * Copyright (c) 2014 EclipseSource and others. All rights reserved. This
+ * program and the accompanying materials are made available under the terms of
+ * the Eclipse Public License v1.0 which accompanies this distribution, and is
+ * available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   EclipseSource - initial API and implementation
+ ******************************************************************************/
+package org.eclipse.equinox.concurrent.future;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.eclipse.core.runtime.*;
+
+/**
+ * <p>
+ * Adapts an {@link IFuture} to the {@link java.util.concurrent.Future}
+ * interface, so that it can be passed to code using the
+ * <code>java.util.concurrent</code> API.
+ * </p>
+ * <p>
+ * A future completed with an error {@link IStatus} is reported with an
+ * {@link ExecutionException} wrapping the exception of the status, and a
+ * canceled future with a {@link CancellationException}.
+ * </p>
+ * <p>
+ * To be notified of the completion of an {@link IListenableFuture} without
+ * blocking a thread in <code>get</code>, register a listener with
+ * {@link IListenableFuture#addListener(IExecutor, IProgressRunnable, IProgressMonitor)}
+ * instead.
+ * </p>
+ *
+ * @param <ResultType>
+ *            the type of the result of the future
+ * @since 1.2
+ */
+public class FutureAdapter<ResultType> implements Future<ResultType> {
+
+	private final IFuture<ResultType> future;
+
+	/**
+	 * @param future
+	 *            the future to adapt. Must not be <code>null</code>.
+	 */
+	public FutureAdapter(IFuture<ResultType> future) {
+		Assert.isNotNull(future);
+		this.future = future;
+	}
+
+	/**
+	 * Returns the adapted future.
+	 */
+	public IFuture<ResultType> getFuture() {
+		return future;
+	}
+
+	public boolean cancel(boolean mayInterruptIfRunning) {
+		return future.cancel();
+	}
+
+	public boolean isCancelled() {
+		if (future instanceof AbstractFuture)
+			return ((AbstractFuture<?>) future).isCanceled();
+		IStatus status = future.getStatus();
+		return status != null && status.getSeverity() == IStatus.CANCEL;
+	}
+
+	public boolean isDone() {
+		return future.isDone();
+	}
+
+	public ResultType get() throws InterruptedException, ExecutionException {
+		ResultType result;
+		try {
+			result = future.get();
+		} catch (OperationCanceledException e) {
+			throw cancellation(e);
+		}
+		return checkStatus(result);
+	}
+
+	public ResultType get(long timeout, TimeUnit unit)
+			throws InterruptedException, ExecutionException,
+			java.util.concurrent.TimeoutException {
+		ResultType result;
+		try {
+			result = future.get(unit.toMillis(timeout));
+		} catch (OperationCanceledException e) {
+			throw cancellation(e);
+		} catch (TimeoutException e) {
+			throw new java.util.concurrent.TimeoutException(e.getMessage());
+		}
+		return checkStatus(result);
+	}
+
+	private ResultType checkStatus(ResultType result) throws ExecutionException {
+		IStatus status = future.getStatus();
+		if (status == null || status.isOK())
+			return result;
+		if (status.getSeverity() == IStatus.CANCEL)
+			throw new CancellationException(status.getMessage());
+		if (status.getSeverity() == IStatus.ERROR)
+			throw new ExecutionException(status.getMessage(), status.getException());
+		return result;
+	}
+
+	private static CancellationException cancellation(OperationCanceledException e) {
+		CancellationException ce = new CancellationException(e.getMessage());
+		ce.initCause(e);
+		return ce;
+	}
+}
@@ -0,0 +1,34 @@
+/******************************************************************************
+ * Copyright (c) 2014 EclipseSource and others. All rights reserved. This
+ * program and the accompanying materials are made available under the terms of
+ * the Eclipse Public License v1.0 which accompanies this distribution, and is
+ * available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   EclipseSource - initial API and implementation
+ ******************************************************************************/
+package org.eclipse.equinox.concurrent.future;
+
+/**
+ * Interface defining a function computing a result from the result of a
+ * future.
+ * 
+ * @param <InputType>
+ *            the type of the result of the future
+ * @param <ResultType>
+ *            the type that will be returned by {@link #apply(Object)}
+ * @see ListenableFutures#thenApply(IListenableFuture, IResultFunction)
+ * @since 1.2
+ */
+public interface IResultFunction<InputType, ResultType> {
+
+	/**
+	 * Compute a result or throw an exception
+	 * 
+	 * @param input
+	 *            the result of the future
+	 * @return the computed result
+	 * @throws Exception
+	 */
+	ResultType apply(InputType input) throws Exception;
+}
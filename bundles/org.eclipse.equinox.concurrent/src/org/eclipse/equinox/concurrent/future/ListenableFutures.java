@@ -0,0 +1,168 @@
+/******************************************************************************
+ * Copyright (c) 2014 EclipseSource and others. All rights reserved. This
+ * program and the accompanying materials are made available under the terms of
+ * the Eclipse Public License v1.0 which accompanies this distribution, and is
+ * available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   EclipseSource - initial API and implementation
+ ******************************************************************************/
+package org.eclipse.equinox.concurrent.future;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.eclipse.core.runtime.*;
+
+/**
+ * <p>
+ * Combinators composing {@link IListenableFuture}s without blocking a thread.
+ * </p>
+ * <p>
+ * The returned futures are {@link AtomicListenableFuture}s completed by
+ * listeners added to the given futures, i.e. in the thread completing the
+ * last (or first) of the given futures. A given future which is canceled or
+ * completed with an error status completes the returned future with the same
+ * status.
+ * </p>
+ *
+ * @since 1.2
+ */
+public final class ListenableFutures {
+
+	private static final IExecutor IMMEDIATE = new ImmediateExecutor();
+
+	private ListenableFutures() {
+		// utility class
+	}
+
+	/**
+	 * Returns a future which is completed with the results of all given
+	 * futures, in the order of the futures, once they are all completed. The
+	 * futures may have different result types, so the results are returned as
+	 * objects.
+	 *
+	 * @param futures
+	 *            the futures to wait for. Must not be <code>null</code>.
+	 * @return the combined future
+	 */
+	public static IListenableFuture<List<Object>> allOf(
+			final IListenableFuture<?>... futures) {
+		Assert.isNotNull(futures);
+		final AtomicListenableFuture<List<Object>> result = new AtomicListenableFuture<List<Object>>();
+		if (futures.length == 0) {
+			result.set(new ArrayList<Object>(0));
+			return result;
+		}
+		final AtomicInteger remaining = new AtomicInteger(futures.length);
+		for (int i = 0; i < futures.length; i++) {
+			final IListenableFuture<?> future = futures[i];
+			whenDone(future, new Runnable() {
+				public void run() {
+					if (failed(future, result) || remaining.decrementAndGet() > 0)
+						return;
+					List<Object> results = new ArrayList<Object>(
+							futures.length);
+					try {
+						for (int j = 0; j < futures.length; j++)
+							results.add(futures[j].get());
+					} catch (Exception e) {
+						result.setException(e);
+						return;
+					}
+					result.set(results);
+				}
+			});
+		}
+		return result;
+	}
+
+	/**
+	 * Returns a future which is completed like the first of the given futures
+	 * to complete. The futures may have different result types, so the result
+	 * is returned as an object.
+	 *
+	 * @param futures
+	 *            the futures to wait for. Must not be <code>null</code> or
+	 *            empty.
+	 * @return the combined future
+	 */
+	public static IListenableFuture<Object> anyOf(
+			final IListenableFuture<?>... futures) {
+		Assert.isNotNull(futures);
+		Assert.isLegal(futures.length > 0, "futures must not be empty"); //$NON-NLS-1$
+		final AtomicListenableFuture<Object> result = new AtomicListenableFuture<Object>();
+		for (int i = 0; i < futures.length; i++) {
+			final IListenableFuture<?> future = futures[i];
+			whenDone(future, new Runnable() {
+				public void run() {
+					if (result.isDone() || failed(future, result))
+						return;
+					try {
+						result.set(future.get());
+					} catch (Exception e) {
+						result.setException(e);
+					}
+				}
+			});
+		}
+		return result;
+	}
+
+	/**
+	 * Returns a future which is completed with the result of applying the
+	 * given function to the result of the given future, once it is completed.
+	 * The function is applied in the thread completing the given future, and
+	 * an exception thrown by it completes the returned future with an error
+	 * status.
+	 *
+	 * @param future
+	 *            the future to apply the function to the result of. Must not
+	 *            be <code>null</code>.
+	 * @param function
+	 *            the function to apply. Must not be <code>null</code>.
+	 * @return the future of the result of the function
+	 */
+	public static <InputType, ResultType> IListenableFuture<ResultType> thenApply(
+			final IListenableFuture<? extends InputType> future,
+			final IResultFunction<? super InputType, ? extends ResultType> function) {
+		Assert.isNotNull(future);
+		Assert.isNotNull(function);
+		final AtomicListenableFuture<ResultType> result = new AtomicListenableFuture<ResultType>();
+		whenDone(future, new Runnable() {
+			public void run() {
+				if (failed(future, result))
+					return;
+				try {
+					result.set(function.apply(future.get()));
+				} catch (Exception e) {
+					result.setException(e);
+				}
+			}
+		});
+		return result;
+	}
+
+	/*
+	 * Completes the result with the status of the future if it was canceled or
+	 * completed with an error.
+	 */
+	static boolean failed(IFuture<?> future, AtomicListenableFuture<?> result) {
+		IStatus status = future.getStatus();
+		if (status != null && status.matches(IStatus.ERROR | IStatus.CANCEL)) {
+			result.complete(null, status);
+			return true;
+		}
+		return false;
+	}
+
+	private static <ResultType> void whenDone(IListenableFuture<ResultType> future,
+			final Runnable runnable) {
+		future.addListener(IMMEDIATE, new IProgressRunnable<ResultType>() {
+			public ResultType run(IProgressMonitor monitor) {
+				runnable.run();
+				return null;
+			}
+		}, null);
+	}
+}
@@ -0,0 +1,164 @@
+/******************************************************************************
+ * Copyright (c) 2014 EclipseSource and others. All rights reserved. This
+ * program and the accompanying materials are made available under the terms of
+ * the Eclipse Public License v1.0 which accompanies this distribution, and is
+ * available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   EclipseSource - initial API and implementation
+ ******************************************************************************/
+package org.eclipse.equinox.concurrent.future;
+
+import java.util.concurrent.*;
+import org.eclipse.core.runtime.Assert;
+import org.eclipse.core.runtime.IProgressMonitor;
+
+/**
+ * <p>
+ * An executor that runs the given {@link IProgressRunnable}s on the threads of
+ * a {@link java.util.concurrent.Executor}, rather than starting a new
+ * {@link Thread} for every runnable as {@link ThreadsExecutor} does.
+ * </p>
+ * <p>
+ * The executor either creates its own pool with a bounded number of daemon
+ * threads, or uses an {@link java.util.concurrent.Executor} given by the
+ * client, e.g. one starting a virtual thread per task where the VM supports
+ * them. If the underlying executor rejects a runnable, the returned future is
+ * completed with the {@link RejectedExecutionException}.
+ * </p>
+ * <p>
+ * Subclasses may extend the behavior of this PooledExecutor.
+ * </p>
+ * @since 1.2
+ */
+public class PooledExecutor extends AbstractExecutor {
+
+	private final java.util.concurrent.Executor executor;
+	// the pool created by this executor, null if the executor was given
+	private final ExecutorService pool;
+
+	/**
+	 * Create an executor with a pool of as many threads as there are
+	 * processors available to the VM.
+	 */
+	public PooledExecutor() {
+		this(Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Create an executor with a pool of the given number of daemon threads.
+	 * The threads are started on demand. The runnables which are executed
+	 * while all threads are busy wait in the order they were executed.
+	 *
+	 * @param threads
+	 *            the maximum number of threads running the runnables. Must be
+	 *            greater than zero.
+	 */
+	public PooledExecutor(int threads) {
+		Assert.isLegal(threads > 0, "threads must be > 0"); //$NON-NLS-1$
+		this.pool = new ThreadPoolExecutor(threads, threads, 0L,
+				TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>(),
+				new ThreadFactory() {
+					private int count = 0;
+
+					public synchronized Thread newThread(Runnable r) {
+						Thread thread = new Thread(r, createThreadName(count++));
+						configureThreadForExecution(thread);
+						return thread;
+					}
+				});
+		this.executor = pool;
+	}
+
+	/**
+	 * Create an executor running the runnables with the given executor.
+	 * {@link #shutdown()} does not shut the given executor down.
+	 *
+	 * @param executor
+	 *            the executor to run the runnables with. Must not be
+	 *            <code>null</code>.
+	 */
+	public PooledExecutor(java.util.concurrent.Executor executor) {
+		Assert.isNotNull(executor);
+		this.executor = executor;
+		this.pool = null;
+	}
+
+	protected String createThreadName(int index) {
+		return "PooledExecutor(" + index + ")"; //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	/**
+	 * Configure a thread of the pool created by this executor prior to
+	 * starting it. The default implementation calls
+	 * {@link Thread#setDaemon(boolean)}.
+	 *
+	 * @param thread
+	 *            the thread to configure
+	 */
+	protected void configureThreadForExecution(Thread thread) {
+		thread.setDaemon(true);
+	}
+
+	/**
+	 * Create a runnable given an {@link IProgressRunnable} and an
+	 * {@link ISafeProgressRunner} to run the runnable.
+	 *
+	 * @param runner
+	 *            the safe progress runner to run the runnable
+	 * @param progressRunnable
+	 *            the runnable to run.
+	 * @return Runnable that when run will use the safe progress runner to run
+	 *         the progressRunnable
+	 */
+	protected Runnable createRunnable(final ISafeProgressRunner runner,
+			final IProgressRunnable<?> progressRunnable) {
+		return new Runnable() {
+			public void run() {
+				runner.runWithProgress(progressRunnable);
+			}
+		};
+	}
+
+	/**
+	 * Create an {@link AbstractFuture} with the given IProgressMonitor.
+	 *
+	 * @param monitor
+	 *            a progress monitor to associate with the future. May be
+	 *            <code>null</code>.
+	 */
+	@SuppressWarnings("rawtypes")
+	protected AbstractFuture<?> createFuture(IProgressMonitor monitor) {
+		return new AtomicListenableFuture(monitor);
+	}
+
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	public <ResultType> IFuture<ResultType> execute(
+			IProgressRunnable<? extends ResultType> runnable,
+			IProgressMonitor monitor) {
+		Assert.isNotNull(runnable);
+		AbstractFuture sof = createFuture(monitor);
+		try {
+			executor.execute(createRunnable(sof, runnable));
+		} catch (final RejectedExecutionException e) {
+			sof.runWithProgress(new IProgressRunnable<Object>() {
+				public Object run(IProgressMonitor pm) throws Exception {
+					throw e;
+				}
+			});
+		}
+		return sof;
+	}
+
+	/**
+	 * Stop the threads of the pool created by this executor once the
+	 * runnables already executed are done. Runnables executed afterwards are
+	 * rejected. Has no effect if the executor was created with a given
+	 * {@link java.util.concurrent.Executor}.
+	 */
+	public void shutdown() {
+		if (pool != null)
+			pool.shutdown();
+	}
+
+}
@@ -1,5 +1,5 @@
 /******************************************************************************
- * Copyright (c) 2010, 2013 Composent, Inc. and others. All rights reserved. This
+ * Copyright (c) 2010, 2014 Composent, Inc. and others. All rights reserved. This
  * program and the accompanying materials are made available under the terms of
  * the Eclipse Public License v1.0 which accompanies this distribution, and is
  * available at http://www.eclipse.org/legal/epl-v10.html
@@ -9,6 +9,8 @@
  ******************************************************************************/
 package org.eclipse.equinox.concurrent.future;
 
+import java.util.ArrayList;
+import java.util.List;
 import org.eclipse.core.runtime.Assert;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.ISafeRunnable;
@@ -20,6 +22,13 @@ import org.eclipse.core.runtime.SafeRunner;
  * Listenable future implementation for a single operation.
  * </p>
  * <p>
+ * Any number of listeners may be added. They are executed once the operation
+ * has completed or the future is canceled, outside of the monitor of the
+ * future and in the order they were added, also when they are added while
+ * the listeners of the completed future are being executed by another
+ * thread. {@link AtomicListenableFuture} provides the same without locking.
+ * </p>
+ * <p>
  * Subclasses may be created if desired. Note that if subclasses are created,
  * that they should/must be very careful with respect to overriding the
  * synchronized methods in this class.
@@ -30,9 +39,10 @@ public class SingleOperationListenableFuture<ResultType> extends
 		SingleOperationFuture<ResultType> implements
 		IListenableFuture<ResultType> {
 
-	private IProgressRunnable<ResultType> progressRunnable;
-	private IProgressMonitor progressMonitor;
-	private IExecutor listenerExecutor;
+	// listeners not executed yet, guarded by this
+	private List<Listener> listeners = new ArrayList<Listener>(1);
+	// true while a thread executes the listeners, guarded by this
+	private boolean dispatching;
 
 	public SingleOperationListenableFuture() {
 		super();
@@ -47,16 +57,16 @@ public class SingleOperationListenableFuture<ResultType> extends
 			IProgressMonitor monitor) {
 		Assert.isNotNull(executor);
 		Assert.isNotNull(progressRunnable);
+		Listener listener = new Listener(executor, progressRunnable, monitor);
 		synchronized (this) {
-			if (this.progressRunnable == null) {
-				this.progressRunnable = progressRunnable;
-				this.progressMonitor = monitor;
-				this.listenerExecutor = executor;
-				// Now, if we're already done, then execute the listenable now
-				if (isDone())
-					execListenable();
-			}
+			listeners.add(listener);
+			// If we're already done and no other thread executes the earlier
+			// listeners, then execute the listener now
+			if (!isDone() || dispatching)
+				return;
+			dispatching = true;
 		}
+		dispatchListeners();
 	}
 
 	public void runWithProgress(final IProgressRunnable<?> runnable) {
@@ -67,8 +77,8 @@ public class SingleOperationListenableFuture<ResultType> extends
 					synchronized (SingleOperationListenableFuture.this) {
 						if (!isCanceled())
 							setException(exception);
-						execListenable();
 					}
+					execListeners();
 				}
 
 				public void run() throws Exception {
@@ -78,21 +88,76 @@ public class SingleOperationListenableFuture<ResultType> extends
 					synchronized (SingleOperationListenableFuture.this) {
 						if (!isCanceled())
 							set(result);
-						execListenable();
 					}
+					execListeners();
 				}
 			});
 		}
 	}
 
-	private void execListenable() {
-		// If no progressRunnable has been set, then we simply return
-		if (progressRunnable == null || listenerExecutor == null)
-			return;
-		// Make sure that the progress monitor is set to non-null
-		if (progressMonitor == null)
-			progressMonitor = new NullProgressMonitor();
-		// then we execute using executor
-		this.listenerExecutor.execute(progressRunnable, progressMonitor);
+	public boolean cancel() {
+		if (!super.cancel())
+			return false;
+		execListeners();
+		return true;
+	}
+
+	private void execListeners() {
+		synchronized (this) {
+			if (dispatching)
+				return;
+			dispatching = true;
+		}
+		dispatchListeners();
+	}
+
+	/*
+	 * Executes the queued listeners until there are none left. Listeners added
+	 * meanwhile are queued and executed after the earlier ones.
+	 */
+	private void dispatchListeners() {
+		boolean finished = false;
+		try {
+			for (;;) {
+				List<Listener> toExecute;
+				synchronized (this) {
+					if (listeners.isEmpty()) {
+						dispatching = false;
+						finished = true;
+						return;
+					}
+					toExecute = listeners;
+					listeners = new ArrayList<Listener>(1);
+				}
+				for (Listener listener : toExecute)
+					listener.execute();
+			}
+		} finally {
+			if (!finished) {
+				synchronized (this) {
+					dispatching = false;
+				}
+			}
+		}
+	}
+
+	private static class Listener {
+		private final IExecutor executor;
+		private final IProgressRunnable<?> progressRunnable;
+		private final IProgressMonitor monitor;
+
+		Listener(IExecutor executor, IProgressRunnable<?> progressRunnable,
+				IProgressMonitor monitor) {
+			this.executor = executor;
+			this.progressRunnable = progressRunnable;
+			this.monitor = monitor;
+		}
+
+		void execute() {
+			// Make sure that the progress monitor is set to non-null, then we
+			// execute using executor
+			executor.execute(progressRunnable,
+					(monitor == null) ? new NullProgressMonitor() : monitor);
+		}
 	}
 }
@@ -1,5 +1,5 @@
 /******************************************************************************
- * Copyright (c) 2010, 2013 EclipseSource and others. All rights reserved. This
+ * Copyright (c) 2010, 2014 EclipseSource and others. All rights reserved. This
  * program and the accompanying materials are made available under the terms of
  * the Eclipse Public License v1.0 which accompanies this distribution, and is
  * available at http://www.eclipse.org/legal/epl-v10.html
@@ -27,6 +27,10 @@ import org.eclipse.core.runtime.IProgressMonitor;
  * <p>
  * Subclasses may extend the behavior of this ThreadsExecutor.
  * </p>
+ * <p>
+ * For many short runnables, {@link PooledExecutor} avoids starting a thread
+ * for every runnable.
+ * </p>
  * @since 1.1
  */
 public class ThreadsExecutor extends AbstractExecutor {
@@ -85,7 +89,7 @@ public class ThreadsExecutor extends AbstractExecutor {
 	}
 
 	@SuppressWarnings({ "rawtypes", "unchecked" })
-	public synchronized <ResultType> IFuture<ResultType> execute(
+	public <ResultType> IFuture<ResultType> execute(
 			IProgressRunnable<? extends ResultType> runnable,
 			IProgressMonitor monitor) throws IllegalThreadStateException {
 		Assert.isNotNull(runnable);
@@ -21,6 +21,7 @@ import org.osgi.service.coordinator.Coordinator;
 public class Activator implements BundleActivator {
 	private CoordinatorServiceFactory factory;
 	private ServiceRegistration<Coordinator> registration;
+	private ServiceRegistration<?> commandsRegistration;
 
 	public void start(BundleContext bundleContext) throws Exception {
 		factory = new CoordinatorServiceFactory(bundleContext);
@@ -29,9 +30,16 @@ public class Activator implements BundleActivator {
 		// Use local variable to avoid suppressing unchecked warnings at method level.
 		ServiceRegistration<Coordinator> reg = (ServiceRegistration<Coordinator>) bundleContext.registerService(Coordinator.class.getName(), factory, properties);
 		this.registration = reg;
+		try {
+			commandsRegistration = CoordinatorCommands.register(bundleContext, factory);
+		} catch (NoClassDefFoundError e) {
+			// catch in case CommandProvider is not available
+		}
 	}
 
 	public void stop(BundleContext bundleContext) throws Exception {
+		if (commandsRegistration != null)
+			commandsRegistration.unregister();
 		registration.unregister();
 		factory.shutdown();
 		CoordinationWeakReference.processOrphanedCoordinations();
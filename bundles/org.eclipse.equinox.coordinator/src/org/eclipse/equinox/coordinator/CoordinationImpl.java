@@ -12,11 +12,9 @@ package org.eclipse.equinox.coordinator;
 
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.TimerTask;
 
 import org.eclipse.osgi.util.NLS;
 import org.osgi.framework.Bundle;
@@ -35,11 +33,11 @@ public class CoordinationImpl {
 	private volatile boolean terminated;
 	private volatile boolean ending = false;
 	
-	private Date deadline;
+	private long deadline;
 	private CoordinationImpl enclosingCoordination;
 	private Thread thread;
 	private long totalTimeout;
-	private TimerTask timerTask;
+	private CoordinationTimer.Timeout timeout;
 
 	private final CoordinatorImpl coordinator;
 	private final long id;
@@ -177,27 +175,34 @@ public class CoordinationImpl {
 		// not a partial ending has occurred.
 		Exception exception = null;
 		Participant exceptionParticipant = null;
+		List<Participant> exceptionParticipants = new ArrayList<Participant>(0);
 		// No additional synchronization is needed here because the participant
 		// list will not be modified post termination.
 		List<Participant> participantsToNotify = new ArrayList<Participant>(this.participants);
 		Collections.reverse(participantsToNotify);
-		for (Participant participant : participantsToNotify) {
-			try {
-				participant.ended(referent);
-			} catch (Exception e) {
-				coordinator.getLogService().log(LogService.LOG_WARNING, NLS.bind(Messages.ParticipantEndedError, new Object[]{participant, name, id}), e);
-				// Only the first exception will be propagated.
-				if (exception == null) {
-					exception = e;
-					exceptionParticipant = participant;
-				}
+		Exception[] exceptions = coordinator.getNotifier().notify(participantsToNotify, referent, true);
+		for (int i = 0; i < exceptions.length; i++) {
+			Exception e = exceptions[i];
+			if (e == null)
+				continue;
+			Participant participant = participantsToNotify.get(i);
+			coordinator.getLogService().log(LogService.LOG_WARNING, NLS.bind(Messages.ParticipantEndedError, new Object[]{participant, name, id}), e);
+			// Only the first exception will be propagated as the cause.
+			if (exception == null) {
+				exception = e;
+				exceptionParticipant = participant;
 			}
+			exceptionParticipants.add(participant);
 		}
 		synchronized (this) {
 			// Notify everything joined to this coordination that it has finished.
 			notifyAll();
 		}
-		// If a partial ending has occurred, throw the required exception.
+		// If a partial ending has occurred, throw the required exception. Every
+		// participant indicating an error is named in the message.
+		if (exceptionParticipants.size() > 1) {
+			throw new CoordinationException(NLS.bind(Messages.CoordinationPartiallyEndedParticipants, new Object[]{name, id, exceptionParticipants.size(), exceptionParticipants}), referent, CoordinationException.PARTIALLY_ENDED, exception);
+		}
 		if (exception != null) {
 			throw new CoordinationException(NLS.bind(Messages.CoordinationPartiallyEnded, new Object[]{name, id, exceptionParticipant}), referent, CoordinationException.PARTIALLY_ENDED, exception);
 		}
@@ -214,12 +219,12 @@ public class CoordinationImpl {
 			checkTerminated();
 			// If there was no previous timeout set, return 0 indicating that no
 			// extension has taken place.
-			if (timerTask == null)
+			if (timeout == null)
 				return 0;
 			// Passing anything less than zero as well as zero itself will return the
-			// existing deadline. The deadline will not be null if timerTask is not null.
+			// existing deadline. The deadline is set if timeout is not null.
 			if (timeInMillis == 0)
-				return deadline.getTime();
+				return deadline;
 			long maxTimeout = coordinator.getMaxTimeout();
 			long newTotalTimeout = totalTimeout + timeInMillis;
 			// If there is no maximum timeout, there's no need to track the total timeout.
@@ -240,7 +245,7 @@ public class CoordinationImpl {
 					totalTimeout = newTotalTimeout;
 			}
 			// Cancel the current timeout.
-			boolean cancelled = timerTask.cancel();
+			boolean cancelled = timeout.cancel();
 			if (!cancelled) {
 				// This means the previous task has run and is waiting to get a lock on
 				// this coordination. We can't throw an exception yet because we can't
@@ -258,14 +263,12 @@ public class CoordinationImpl {
 					throw new CoordinationException(NLS.bind(Messages.InterruptedTimeoutExtension, new Object[]{totalTimeout, getName(), getId(), timeInMillis}), referent, CoordinationException.UNKNOWN, e);
 				}
 			}
-			// Create the new timeout.
-			timerTask = new CoordinationTimerTask(this);
 			// Extend the current deadline.
-			deadline = new Date(deadline.getTime() + timeInMillis);
+			deadline += timeInMillis;
 			// Schedule the new timeout.
-			coordinator.schedule(timerTask, deadline);
+			timeout = coordinator.schedule(new CoordinationTimerTask(this), deadline);
 			// Return the new deadline.
-			return deadline.getTime();
+			return deadline;
 		}
 	}
 
@@ -290,12 +293,10 @@ public class CoordinationImpl {
 		// list will not be modified post termination.
 		List<Participant> participantsToNotify = new ArrayList<Participant>(this.participants);
 		Collections.reverse(participantsToNotify);
-		for (Participant participant : participantsToNotify) {
-			try {
-				participant.failed(referent);
-			} catch (Exception e) {
-				coordinator.getLogService().log(LogService.LOG_WARNING, NLS.bind(Messages.ParticipantFailedError, new Object[]{participant, name, id}), e);
-			}
+		Exception[] exceptions = coordinator.getNotifier().notify(participantsToNotify, referent, false);
+		for (int i = 0; i < exceptions.length; i++) {
+			if (exceptions[i] != null)
+				coordinator.getLogService().log(LogService.LOG_WARNING, NLS.bind(Messages.ParticipantFailedError, new Object[]{participantsToNotify.get(i), name, id}), exceptions[i]);
 		}
 		synchronized (this) {
 			// Notify everything joined to this coordination that it has finished.
@@ -400,10 +401,9 @@ public class CoordinationImpl {
 		return referent;
 	}
 
-	synchronized void setTimerTask(TimerTask timerTask) {
-		this.timerTask = timerTask;
-		deadline = new Date(System.currentTimeMillis() + totalTimeout);
-		coordinator.schedule(timerTask, deadline);
+	synchronized void setTimerTask(CoordinationTimerTask timerTask) {
+		deadline = System.currentTimeMillis() + totalTimeout;
+		timeout = coordinator.schedule(timerTask, deadline);
 	}
 
 	synchronized void setThreadAndEnclosingCoordination(Thread t, CoordinationImpl c) {
@@ -429,10 +429,9 @@ public class CoordinationImpl {
 	private void terminate() throws CoordinationException {
 		checkTerminated();
 		terminated = true;
-		// Cancel the timeout. Purge the task if it was, in fact, canceled.
-		if (timerTask != null && timerTask.cancel()) {
-			coordinator.purge();
-		}
+		// Cancel the timeout. Canceled timeouts need not be purged.
+		if (timeout != null)
+			timeout.cancel();
 		coordinator.terminate(this, participants);
 	}
 
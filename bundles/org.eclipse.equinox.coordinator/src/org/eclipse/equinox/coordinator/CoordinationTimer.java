@@ -0,0 +1,276 @@
+/*******************************************************************************
+ * Copyright (c) 2014 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.equinox.coordinator;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/*
+ * A hashed timing wheel running the coordination timeouts on a single daemon
+ * thread. Unlike java.util.Timer, scheduling and canceling a timeout take
+ * constant time and no lock, and canceled timeouts need not be purged.
+ *
+ * Scheduled and canceled timeouts are handed to the timer thread through
+ * lock-free queues. Only the timer thread touches the wheel. A timeout runs on
+ * the first tick at or after its delay has elapsed, so it never runs early and
+ * at most one tick late. The thread parks until the tick of the next slot
+ * holding a timeout, and is only unparked early by a timeout due before that
+ * tick or by many cancellations, so it does not wake up on every tick.
+ */
+public class CoordinationTimer {
+	public static final long DEFAULT_TICK_MILLIS = 10;
+	public static final int DEFAULT_WHEEL_SIZE = 512;
+	// The number of canceled timeouts which unparks the thread to remove them.
+	private static final int PURGE_THRESHOLD = 1024;
+	// The tick the thread waits for while there are no timeouts.
+	private static final long NO_TICK = Long.MAX_VALUE;
+	// The tick the thread waits for while it is running timeouts.
+	private static final long RUNNING = Long.MIN_VALUE;
+
+	private final Bucket[] wheel;
+	private final int mask;
+	private final long tickNanos;
+	private final long start;
+	private final ConcurrentLinkedQueue<Timeout> scheduled = new ConcurrentLinkedQueue<Timeout>();
+	private final ConcurrentLinkedQueue<Timeout> canceled = new ConcurrentLinkedQueue<Timeout>();
+	// The number of canceled timeouts not yet removed by the timer thread.
+	private final AtomicInteger canceledCount = new AtomicInteger();
+	private final Thread thread;
+
+	// The tick the timer thread is parked until.
+	private volatile long wakeTick = RUNNING;
+	private volatile boolean stopped;
+
+	public CoordinationTimer() {
+		this(DEFAULT_TICK_MILLIS, DEFAULT_WHEEL_SIZE);
+	}
+
+	public CoordinationTimer(long tickMillis, int wheelSize) {
+		if (tickMillis <= 0)
+			throw new IllegalArgumentException("tickMillis: " + tickMillis); //$NON-NLS-1$
+		if (wheelSize <= 0)
+			throw new IllegalArgumentException("wheelSize: " + wheelSize); //$NON-NLS-1$
+		int size = 1;
+		while (size < wheelSize)
+			size <<= 1;
+		wheel = new Bucket[size];
+		for (int i = 0; i < size; i++)
+			wheel[i] = new Bucket();
+		mask = size - 1;
+		tickNanos = TimeUnit.MILLISECONDS.toNanos(tickMillis);
+		start = System.nanoTime();
+		thread = new Thread(new Worker(), "Coordination Timer"); //$NON-NLS-1$
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/*
+	 * Schedules the task to run on the timer thread once the delay has elapsed.
+	 * Throws IllegalStateException if the timer has been stopped.
+	 */
+	public Timeout schedule(Runnable task, long delayMillis) {
+		if (task == null)
+			throw new NullPointerException("task"); //$NON-NLS-1$
+		if (stopped)
+			throw new IllegalStateException("Timer already stopped."); //$NON-NLS-1$
+		long delay = TimeUnit.MILLISECONDS.toNanos(Math.max(delayMillis, 0));
+		// The first tick at or after the deadline.
+		long deadlineTick = (System.nanoTime() - start + delay + tickNanos - 1) / tickNanos;
+		Timeout timeout = new Timeout(this, task, deadlineTick);
+		scheduled.offer(timeout);
+		if (deadlineTick < wakeTick)
+			LockSupport.unpark(thread);
+		return timeout;
+	}
+
+	/*
+	 * Stops the timer thread. Timeouts which have not run yet are discarded.
+	 */
+	public void stop() {
+		stopped = true;
+		LockSupport.unpark(thread);
+	}
+
+	public static final class Timeout {
+		private static final int WAITING = 0;
+		private static final int CANCELED = 1;
+		private static final int EXPIRED = 2;
+
+		private final CoordinationTimer timer;
+		private final Runnable task;
+		private final long deadlineTick;
+		private final AtomicInteger state = new AtomicInteger(WAITING);
+		// The remaining fields are confined to the timer thread.
+		Bucket bucket;
+		Timeout previous;
+		Timeout next;
+
+		Timeout(CoordinationTimer timer, Runnable task, long deadlineTick) {
+			this.timer = timer;
+			this.task = task;
+			this.deadlineTick = deadlineTick;
+		}
+
+		/*
+		 * Returns true if the task will not run because of this call, or false
+		 * if it has already run or is about to run, or was already canceled.
+		 */
+		public boolean cancel() {
+			if (!state.compareAndSet(WAITING, CANCELED))
+				return false;
+			timer.canceled.offer(this);
+			// The timer thread may be parked for long, so let it remove the
+			// canceled timeouts before they pile up.
+			if (timer.canceledCount.incrementAndGet() == PURGE_THRESHOLD)
+				LockSupport.unpark(timer.thread);
+			return true;
+		}
+
+		boolean expire() {
+			return state.compareAndSet(WAITING, EXPIRED);
+		}
+
+		boolean isCanceled() {
+			return state.get() == CANCELED;
+		}
+	}
+
+	static final class Bucket {
+		private Timeout head;
+		private Timeout tail;
+
+		void add(Timeout timeout) {
+			timeout.bucket = this;
+			timeout.previous = tail;
+			timeout.next = null;
+			if (tail == null)
+				head = timeout;
+			else
+				tail.next = timeout;
+			tail = timeout;
+		}
+
+		void remove(Timeout timeout) {
+			if (timeout.previous == null)
+				head = timeout.next;
+			else
+				timeout.previous.next = timeout.next;
+			if (timeout.next == null)
+				tail = timeout.previous;
+			else
+				timeout.next.previous = timeout.previous;
+			timeout.previous = timeout.next = null;
+			timeout.bucket = null;
+		}
+	}
+
+	private class Worker implements Runnable {
+		// The number of timeouts in the wheel.
+		private int count;
+
+		public void run() {
+			// The first tick which has not been run. The slots of the ticks
+			// before the next tick found by nextTick() are empty.
+			long tick = 0;
+			while (!stopped) {
+				removeCanceled();
+				// The wheel is empty, so the ticks elapsed meanwhile can be skipped.
+				if (count == 0)
+					tick = Math.max(tick, (System.nanoTime() - start) / tickNanos);
+				addScheduled(tick);
+				long next = nextTick(tick);
+				wakeTick = next;
+				// A timeout scheduled before wakeTick was set did not unpark the thread.
+				if (!scheduled.isEmpty())
+					continue;
+				if (next == NO_TICK) {
+					LockSupport.park();
+					continue;
+				}
+				long wait = start + next * tickNanos - System.nanoTime();
+				if (wait > 0) {
+					// Unparked early, spuriously or after the wait; look again.
+					if (canceledCount.get() < PURGE_THRESHOLD)
+						LockSupport.parkNanos(wait);
+					continue;
+				}
+				wakeTick = RUNNING;
+				expire(wheel[(int) (next & mask)], next);
+				tick = next + 1;
+			}
+		}
+
+		/*
+		 * Returns the first tick at or after the given one whose slot holds a
+		 * timeout, or NO_TICK if the wheel is empty. The timeouts in the slot may
+		 * be due in a later round.
+		 */
+		private long nextTick(long tick) {
+			if (count == 0)
+				return NO_TICK;
+			for (int i = 0; i < wheel.length; i++) {
+				if (wheel[(int) ((tick + i) & mask)].head != null)
+					return tick + i;
+			}
+			return tick;
+		}
+
+		private void removeCanceled() {
+			for (Timeout timeout = canceled.poll(); timeout != null; timeout = canceled.poll()) {
+				canceledCount.decrementAndGet();
+				// A timeout canceled before it was added has no bucket.
+				if (timeout.bucket != null) {
+					timeout.bucket.remove(timeout);
+					count--;
+				}
+			}
+		}
+
+		private void addScheduled(long tick) {
+			for (Timeout timeout = scheduled.poll(); timeout != null; timeout = scheduled.poll()) {
+				if (timeout.isCanceled())
+					continue;
+				// A timeout already due runs on the first tick not run yet.
+				long target = Math.max(timeout.deadlineTick, tick);
+				wheel[(int) (target & mask)].add(timeout);
+				count++;
+			}
+		}
+
+		private void expire(Bucket bucket, long tick) {
+			Timeout timeout = bucket.head;
+			while (timeout != null) {
+				Timeout next = timeout.next;
+				if (timeout.isCanceled()) {
+					bucket.remove(timeout);
+					count--;
+				} else if (timeout.deadlineTick <= tick) {
+					bucket.remove(timeout);
+					count--;
+					if (timeout.expire())
+						run(timeout.task);
+				}
+				timeout = next;
+			}
+		}
+
+		private void run(Runnable task) {
+			// The tasks catch their own exceptions. Guard the timer thread anyway.
+			try {
+				task.run();
+			} catch (RuntimeException e) {
+				// noop
+			}
+		}
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2010, 2013 IBM Corporation and others.
+ * Copyright (c) 2010, 2014 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -10,13 +10,11 @@
  *******************************************************************************/
 package org.eclipse.equinox.coordinator;
 
-import java.util.TimerTask;
-
 import org.eclipse.osgi.util.NLS;
 import org.osgi.service.coordinator.Coordination;
 import org.osgi.service.log.LogService;
 
-public class CoordinationTimerTask extends TimerTask {
+public class CoordinationTimerTask implements Runnable {
 	private final CoordinationImpl coordination;
 
 	public CoordinationTimerTask(CoordinationImpl coordination) {
@@ -25,7 +23,6 @@ public class CoordinationTimerTask extends TimerTask {
 		this.coordination = coordination;
 	}
 
-	@Override
 	public void run() {
 		// Catch all exceptions and errors in order to prevent the timer 
 		// thread from stopping.
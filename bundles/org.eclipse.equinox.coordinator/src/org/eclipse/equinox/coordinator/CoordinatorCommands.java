@@ -0,0 +1,41 @@
+/*******************************************************************************
+ * Copyright (c) 2014 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.equinox.coordinator;
+
+import org.eclipse.osgi.framework.console.CommandInterpreter;
+import org.eclipse.osgi.framework.console.CommandProvider;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.ServiceRegistration;
+
+/*
+ * Console commands of the coordinator. The console package is an optional
+ * import, so this class must only be loaded from a try block catching
+ * NoClassDefFoundError.
+ */
+public class CoordinatorCommands implements CommandProvider {
+	private final CoordinatorServiceFactory factory;
+
+	static ServiceRegistration<?> register(BundleContext bundleContext, CoordinatorServiceFactory factory) {
+		return bundleContext.registerService(CommandProvider.class.getName(), new CoordinatorCommands(factory), null);
+	}
+
+	private CoordinatorCommands(CoordinatorServiceFactory factory) {
+		this.factory = factory;
+	}
+
+	public void _coordinatorStats(CommandInterpreter interpreter) {
+		interpreter.println(factory.getCallbackStatistics());
+	}
+
+	public String getHelp() {
+		return "---" + Messages.ConsoleHelpHeader + "---\r\n\tcoordinatorStats - " + Messages.ConsoleHelpStatistics + "\r\n"; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+	}
+}
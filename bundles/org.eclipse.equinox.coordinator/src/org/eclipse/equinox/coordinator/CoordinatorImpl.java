@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2010, 2013 IBM Corporation and others.
+ * Copyright (c) 2010, 2014 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -13,15 +13,13 @@ package org.eclipse.equinox.coordinator;
 import java.security.Permission;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Collections;
-import java.util.Date;
-import java.util.HashMap;
 import java.util.IdentityHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
-import java.util.Timer;
-import java.util.TimerTask;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.eclipse.osgi.util.NLS;
 import org.osgi.framework.Bundle;
@@ -34,19 +32,23 @@ import org.osgi.service.log.LogService;
 
 public class CoordinatorImpl implements Coordinator {
 	// IDs must be positive integers and monotonically increasing.
-	private static long lastId;
-
-	private synchronized static long getNextId() {
-		if (Long.MAX_VALUE == lastId)
-			throw new IllegalStateException(NLS.bind(Messages.MaxCoordinationIdExceeded, lastId));
-		// First ID will be 1.
-		return ++lastId;
+	private static final AtomicLong lastId = new AtomicLong();
+
+	private static long getNextId() {
+		while (true) {
+			long id = lastId.get();
+			if (Long.MAX_VALUE == id)
+				throw new IllegalStateException(NLS.bind(Messages.MaxCoordinationIdExceeded, id));
+			// First ID will be 1.
+			if (lastId.compareAndSet(id, id + 1))
+				return id + 1;
+		}
 	}
 
 	// Coordination IDs must be unique across all using bundles.
-	private static final Map<Long, CoordinationImpl> idToCoordination = new HashMap<Long, CoordinationImpl>();
+	private static final ConcurrentMap<Long, CoordinationImpl> idToCoordination = new ConcurrentHashMap<Long, CoordinationImpl>();
 	// Coordination participation must be tracked across all using bundles.
-	private static final Map<Participant, CoordinationImpl> participantToCoordination = Collections.synchronizedMap(new IdentityHashMap<Participant, CoordinationImpl>());
+	private static final ParticipantRegistry participantToCoordination = new ParticipantRegistry();
 
 	private static ThreadLocal<WeakCoordinationStack> coordinationStack = new ThreadLocal<WeakCoordinationStack>() {
 		@Override
@@ -88,19 +90,70 @@ public class CoordinatorImpl implements Coordinator {
 		}
 	}
 
+	/*
+	 * Maps participants by identity to the coordination they participate in.
+	 * The map is split into stripes by the identity hash code of the
+	 * participant, each guarded by its own lock, so that coordinations with
+	 * different participants rarely contend.
+	 */
+	private static class ParticipantRegistry {
+		private static final int STRIPES = 32;
+
+		private final Map<Participant, CoordinationImpl>[] stripes;
+
+		@SuppressWarnings("unchecked")
+		public ParticipantRegistry() {
+			stripes = new Map[STRIPES];
+			for (int i = 0; i < STRIPES; i++)
+				stripes[i] = new IdentityHashMap<Participant, CoordinationImpl>();
+		}
+
+		public CoordinationImpl putIfAbsent(Participant participant, CoordinationImpl coordination) {
+			Map<Participant, CoordinationImpl> stripe = stripe(participant);
+			synchronized (stripe) {
+				CoordinationImpl result = stripe.get(participant);
+				if (result == null)
+					stripe.put(participant, coordination);
+				return result;
+			}
+		}
+
+		public void removeAll(List<Participant> participants, CoordinationImpl coordination) {
+			synchronized (participants) {
+				for (Participant participant : participants) {
+					Map<Participant, CoordinationImpl> stripe = stripe(participant);
+					synchronized (stripe) {
+						if (stripe.get(participant) == coordination)
+							stripe.remove(participant);
+					}
+				}
+			}
+		}
+
+		private Map<Participant, CoordinationImpl> stripe(Participant participant) {
+			int h = System.identityHashCode(participant);
+			// Spread the higher bits, which vary the most, to the lower ones.
+			h ^= (h >>> 16);
+			return stripes[h & (STRIPES - 1)];
+		}
+	}
+
 	private final Bundle bundle;
-	private final List<CoordinationImpl> coordinations;
+	// The coordinations created by this coordinator, used as a set.
+	private final ConcurrentMap<CoordinationImpl, Boolean> coordinations;
 	private final LogService logService;
 	private final long maxTimeout;
-	private final Timer timer;
+	private final CoordinationTimer timer;
+	private final ParticipantNotifier notifier;
 
-	private boolean shutdown;
+	private volatile boolean shutdown;
 
-	public CoordinatorImpl(Bundle bundle, LogService logService, Timer timer, long maxTimeout) {
+	public CoordinatorImpl(Bundle bundle, LogService logService, CoordinationTimer timer, ParticipantNotifier notifier, long maxTimeout) {
 		this.bundle = bundle;
 		this.logService = logService;
 		this.timer = timer;
-		coordinations = new ArrayList<CoordinationImpl>();
+		this.notifier = notifier;
+		coordinations = new ConcurrentHashMap<CoordinationImpl, Boolean>();
 		if (maxTimeout < 0)
 			throw new IllegalArgumentException(NLS.bind(Messages.InvalidTimeInterval, maxTimeout));
 		this.maxTimeout = maxTimeout;
@@ -143,17 +196,19 @@ public class CoordinatorImpl implements Coordinator {
 		// by the coordination in order to avoid garbage collection. It serves no other
 		// purpose. Just "set it and forget it".
 		coordination.reference = new CoordinationWeakReference(referent, coordination);
-		synchronized (this) {
-			if (shutdown)
-				throw new IllegalStateException(NLS.bind(Messages.CoordinatorShutdown, name, timeout));
-			synchronized (CoordinatorImpl.class) {
-				coordinations.add(coordination);
-				idToCoordination.put(new Long(coordination.getId()), coordination);
-			}
+		// Register the coordination before checking for a shutdown. Either the
+		// check sees the shutdown, or shutdown() sees the coordination and fails
+		// it, which removes it from both maps.
+		Long id = Long.valueOf(coordination.getId());
+		idToCoordination.put(id, coordination);
+		coordinations.put(coordination, Boolean.TRUE);
+		if (shutdown) {
+			coordinations.remove(coordination);
+			idToCoordination.remove(id);
+			throw new IllegalStateException(NLS.bind(Messages.CoordinatorShutdown, name, timeout));
 		}
 		if (timeout > 0) {
-			TimerTask timerTask = new CoordinationTimerTask(coordination);
-			coordination.setTimerTask(timerTask);
+			coordination.setTimerTask(new CoordinationTimerTask(coordination));
 		}
 		// Make sure to return the referent targeted towards the initiator here.
 		return referent;
@@ -170,11 +225,9 @@ public class CoordinatorImpl implements Coordinator {
 	public Coordination getCoordination(long id) {
 		CoordinationWeakReference.processOrphanedCoordinations();
 		CoordinationReferent result = null;
-		synchronized (CoordinatorImpl.class) {
-			CoordinationImpl c = idToCoordination.get(new Long(id));
-			if (c != null)
-				result = c.getReferent();
-		}
+		CoordinationImpl c = idToCoordination.get(Long.valueOf(id));
+		if (c != null)
+			result = c.getReferent();
 		if (result != null && !result.isTerminated()) {
 			try {
 				checkPermission(CoordinationPermission.ADMIN, result.getName());
@@ -188,20 +241,19 @@ public class CoordinatorImpl implements Coordinator {
 
 	public Collection<Coordination> getCoordinations() {
 		CoordinationWeakReference.processOrphanedCoordinations();
-		ArrayList<Coordination> result;
-		synchronized (CoordinatorImpl.class) {
-			result = new ArrayList<Coordination>(idToCoordination.size());
-			for (CoordinationImpl coordination : idToCoordination.values()) {
-				// Ideally, we're only interested in coordinations that have not terminated.
-				// It's okay, however, if the coordination terminates from this point forward.
-				if (coordination.isTerminated())
-					continue;
-				try {
-					checkPermission(CoordinationPermission.ADMIN, coordination.getName());
-					result.add(coordination.getReferent());
-				} catch (SecurityException e) {
-					logService.log(LogService.LOG_DEBUG, NLS.bind(Messages.GetCoordinationNotPermitted, new Object[]{Thread.currentThread(), coordination.getName(), coordination.getId()}), e);
-				}
+		ArrayList<Coordination> result = new ArrayList<Coordination>(idToCoordination.size());
+		// The iteration reflects the coordinations created and terminated
+		// concurrently or not, without failing.
+		for (CoordinationImpl coordination : idToCoordination.values()) {
+			// Ideally, we're only interested in coordinations that have not terminated.
+			// It's okay, however, if the coordination terminates from this point forward.
+			if (coordination.isTerminated())
+				continue;
+			try {
+				checkPermission(CoordinationPermission.ADMIN, coordination.getName());
+				result.add(coordination.getReferent());
+			} catch (SecurityException e) {
+				logService.log(LogService.LOG_DEBUG, NLS.bind(Messages.GetCoordinationNotPermitted, new Object[]{Thread.currentThread(), coordination.getName(), coordination.getId()}), e);
 			}
 		}
 		result.trimToSize();
@@ -225,14 +277,7 @@ public class CoordinatorImpl implements Coordinator {
 	}
 
 	CoordinationImpl addParticipant(Participant participant, CoordinationImpl coordination) {
-		CoordinationImpl result = null;
-		synchronized (participantToCoordination) {
-			result = participantToCoordination.get(participant);
-			if (result == null) {
-				participantToCoordination.put(participant, coordination);
-			}
-		}
-		return result;
+		return participantToCoordination.putIfAbsent(participant, coordination);
 	}
 
 	void checkPermission(String permissionType, String coordinationName) {
@@ -258,32 +303,24 @@ public class CoordinatorImpl implements Coordinator {
 		return maxTimeout;
 	}
 
-	void purge() {
-		// Purge the timer of all canceled tasks if we're running on a supportive JCL.
-		try {
-			Timer.class.getMethod("purge", (Class<?>[]) null).invoke(timer, (Object[]) null); //$NON-NLS-1$
-		} catch (Exception e) {
-			logService.log(LogService.LOG_DEBUG, Messages.CanceledTaskNotPurged, e);
-		}
+	ParticipantNotifier getNotifier() {
+		return notifier;
 	}
 
 	void push(CoordinationImpl coordination) throws CoordinationException {
 		coordinationStack.get().push(coordination);
 	}
 
-	void schedule(TimerTask task, Date deadline) {
-		timer.schedule(task, deadline);
+	CoordinationTimer.Timeout schedule(CoordinationTimerTask task, long deadline) {
+		return timer.schedule(task, deadline - System.currentTimeMillis());
 	}
 
 	void shutdown() {
 		CoordinationWeakReference.processOrphanedCoordinations();
-		List<CoordinationImpl> coords;
-		synchronized (this) {
-			shutdown = true;
-			// Make a copy so the removal of the coordination from the list during
-			// termination does not interfere with the iteration.
-			coords = new ArrayList<CoordinationImpl>(this.coordinations);
-		}
+		shutdown = true;
+		// Make a copy so the removal of the coordination from the set during
+		// termination does not interfere with the iteration.
+		List<CoordinationImpl> coords = new ArrayList<CoordinationImpl>(this.coordinations.keySet());
 		for (CoordinationImpl coordination : coords) {
 			coordination.fail(Coordination.RELEASED);
 		}
@@ -294,12 +331,8 @@ public class CoordinatorImpl implements Coordinator {
 	 */
 	void terminate(CoordinationImpl coordination, List<Participant> participants) {
 		// A coordination has been terminated and needs to be removed from the thread local stack.
-		synchronized (this) {
-			synchronized (CoordinatorImpl.class) {
-				this.coordinations.remove(coordination);
-				idToCoordination.remove(new Long(coordination.getId()));
-				participantToCoordination.keySet().removeAll(participants);
-			}
-		}
+		this.coordinations.remove(coordination);
+		idToCoordination.remove(Long.valueOf(coordination.getId()));
+		participantToCoordination.removeAll(participants, coordination);
 	}
 }
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2010, 2011 IBM Corporation and others.
+ * Copyright (c) 2010, 2014 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -10,26 +10,29 @@
  *******************************************************************************/
 package org.eclipse.equinox.coordinator;
 
-import java.util.Timer;
-
+import org.eclipse.osgi.util.NLS;
 import org.osgi.framework.Bundle;
 import org.osgi.framework.BundleContext;
 import org.osgi.framework.ServiceFactory;
 import org.osgi.framework.ServiceRegistration;
 import org.osgi.service.coordinator.Coordinator;
+import org.osgi.service.log.LogService;
 
 public class CoordinatorServiceFactory implements ServiceFactory<Coordinator> {
 	private final BundleContext bundleContext;
 	private final LogTracker logTracker;
-	private final Timer timer = new Timer(true);
+	private final CoordinationTimer timer;
+	private final ParticipantNotifier notifier;
 
 	public CoordinatorServiceFactory(BundleContext bundleContext) {
 		this.bundleContext = bundleContext;
 		logTracker = new LogTracker(bundleContext, System.out);
+		timer = new CoordinationTimer(getTimerTick(), getTimerWheelSize());
+		notifier = new ParticipantNotifier(getNotifierThreads());
 	}
 
 	public Coordinator getService(Bundle bundle, ServiceRegistration<Coordinator> registration) {
-		return new CoordinatorImpl(bundle, logTracker, timer, getMaxTimeout());
+		return new CoordinatorImpl(bundle, logTracker, timer, notifier, getMaxTimeout());
 	}
 
 	public void ungetService(Bundle bundle, ServiceRegistration<Coordinator> registration, Coordinator service) {
@@ -37,13 +40,52 @@ public class CoordinatorServiceFactory implements ServiceFactory<Coordinator> {
 	}
 
 	void shutdown() {
-		timer.cancel();
+		timer.stop();
+		notifier.shutdown();
+		logTracker.log(LogService.LOG_DEBUG, getCallbackStatistics());
 		logTracker.close();
 	}
+
+	/*
+	 * The statistics of the participant callbacks of all coordinations, shown
+	 * by the coordinatorStats console command and logged on shutdown.
+	 */
+	String getCallbackStatistics() {
+		return NLS.bind(Messages.ParticipantCallbackStatistics, new Object[] {notifier.getCallbackCount(), notifier.getCallbackTime() / 1000000, notifier.getMaxCallbackTime() / 1000000});
+	}
 	
 	private long getMaxTimeout() {
 		String prop = bundleContext.getProperty("org.eclipse.equinox.coordinator.timeout"); //$NON-NLS-1$
 		// Intentionally letting the possible NumberFormatException propagate.
 		return prop == null ? 0 : Long.parseLong(prop);
 	}
+
+	/*
+	 * The timeouts of the coordinations run at most this many milliseconds
+	 * late. A wheel size times the tick is one round of the timing wheel.
+	 */
+	private long getTimerTick() {
+		String prop = bundleContext.getProperty("org.eclipse.equinox.coordinator.timer.tick"); //$NON-NLS-1$
+		// Intentionally letting the possible NumberFormatException propagate.
+		return prop == null ? CoordinationTimer.DEFAULT_TICK_MILLIS : Long.parseLong(prop);
+	}
+
+	private int getTimerWheelSize() {
+		String prop = bundleContext.getProperty("org.eclipse.equinox.coordinator.timer.wheel.size"); //$NON-NLS-1$
+		// Intentionally letting the possible NumberFormatException propagate.
+		return prop == null ? CoordinationTimer.DEFAULT_WHEEL_SIZE : Integer.parseInt(prop);
+	}
+
+	/*
+	 * The participants of all coordinations are notified in parallel by up to
+	 * this many threads, in addition to the thread ending or failing the
+	 * coordination. The default of 0 notifies them one after another, in
+	 * reverse order of participation. Only set this if the participants do
+	 * not depend on each other.
+	 */
+	private int getNotifierThreads() {
+		String prop = bundleContext.getProperty("org.eclipse.equinox.coordinator.notifier.threads"); //$NON-NLS-1$
+		// Intentionally letting the possible NumberFormatException propagate.
+		return prop == null ? 0 : Integer.parseInt(prop);
+	}
 }
@@ -24,6 +24,7 @@ public class Messages extends NLS {
 	public static String LockInterrupted;
 	public static String ParticipantEndedError;
 	public static String CoordinationPartiallyEnded;
+	public static String CoordinationPartiallyEndedParticipants;
 	public static String ParticipantFailedError;
 	public static String CoordinationFailed;
 	public static String CoordinationEnded;
@@ -32,9 +33,11 @@ public class Messages extends NLS {
 	public static String GetCoordinationNotPermitted;
 	public static String CoordinatorShutdown;
 	public static String CoordinationAlreadyExists;
-	public static String CanceledTaskNotPurged;
 	public static String OrphanedCoordinationError;
 	public static String MaximumTimeout;
+	public static String ParticipantCallbackStatistics;
+	public static String ConsoleHelpHeader;
+	public static String ConsoleHelpStatistics;
 
 	static {
 		// initialize resource bundle
@@ -0,0 +1,181 @@
+/*******************************************************************************
+ * Copyright (c) 2014 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.equinox.coordinator;
+
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.osgi.service.coordinator.Coordination;
+import org.osgi.service.coordinator.Participant;
+
+/*
+ * Notifies the participants of a terminated coordination and keeps track of
+ * the latency of the participant callbacks.
+ *
+ * By default the participants are notified one after another on the thread
+ * terminating the coordination. If the notifier has threads, the participants
+ * are notified in parallel by the terminating thread and up to that many
+ * threads of a pool. The terminating thread takes part in the notification,
+ * so it never waits for a callback that has not started. A helper which
+ * starts after all participants have been taken has nothing to do, and one
+ * which cannot be queued is dropped. Nested coordinations ended from within
+ * a callback therefore cannot exhaust the pool and deadlock.
+ */
+public class ParticipantNotifier {
+	// The number of helpers which may wait for a pool thread, per thread.
+	private static final int QUEUED_PER_THREAD = 16;
+
+	private final ThreadPoolExecutor executor;
+	private final int threads;
+
+	private final AtomicLong callbackCount = new AtomicLong();
+	private final AtomicLong callbackTime = new AtomicLong();
+	private final AtomicLong maxCallbackTime = new AtomicLong();
+
+	/*
+	 * Creates a notifier using up to the given number of pool threads, or
+	 * none if the number is zero.
+	 */
+	public ParticipantNotifier(int threads) {
+		if (threads < 0)
+			throw new IllegalArgumentException("threads: " + threads); //$NON-NLS-1$
+		this.threads = threads;
+		if (threads == 0) {
+			executor = null;
+			return;
+		}
+		// The threads are started on demand.
+		executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.SECONDS, new ArrayBlockingQueue<Runnable>(threads * QUEUED_PER_THREAD), new ThreadFactory() {
+			private final AtomicInteger count = new AtomicInteger();
+
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, "Coordination Notifier-" + count.incrementAndGet()); //$NON-NLS-1$
+				thread.setDaemon(true);
+				return thread;
+			}
+		}, new ThreadPoolExecutor.DiscardPolicy());
+	}
+
+	/*
+	 * Calls ended or failed on each participant, in the order of the list
+	 * unless the notification is parallel. Returns the exceptions thrown by
+	 * the participants, at the index of the participant, or null if none
+	 * was thrown.
+	 */
+	public Exception[] notify(List<Participant> participants, Coordination coordination, boolean ended) {
+		int size = participants.size();
+		Participant[] array = participants.toArray(new Participant[size]);
+		Notification notification = new Notification(array, coordination, ended);
+		if (executor != null) {
+			// The terminating thread handles one participant itself.
+			for (int i = Math.min(size - 1, threads); i > 0 && !executor.isShutdown(); i--)
+				executor.execute(notification);
+		}
+		notification.run();
+		notification.await();
+		return notification.exceptions;
+	}
+
+	public void shutdown() {
+		if (executor != null)
+			executor.shutdown();
+	}
+
+	/*
+	 * The number of participant callbacks completed.
+	 */
+	public long getCallbackCount() {
+		return callbackCount.get();
+	}
+
+	/*
+	 * The total time in nanoseconds spent in participant callbacks.
+	 */
+	public long getCallbackTime() {
+		return callbackTime.get();
+	}
+
+	/*
+	 * The longest time in nanoseconds spent in a single participant callback.
+	 */
+	public long getMaxCallbackTime() {
+		return maxCallbackTime.get();
+	}
+
+	private void record(long nanos) {
+		callbackCount.incrementAndGet();
+		callbackTime.addAndGet(nanos);
+		long max = maxCallbackTime.get();
+		while (nanos > max && !maxCallbackTime.compareAndSet(max, nanos))
+			max = maxCallbackTime.get();
+	}
+
+	private class Notification implements Runnable {
+		private final Participant[] participants;
+		private final Coordination coordination;
+		private final boolean ended;
+		final Exception[] exceptions;
+		// The index of the next participant to notify.
+		private final AtomicInteger next = new AtomicInteger();
+		// The number of participants not notified yet. Guarded by this.
+		private int remaining;
+
+		Notification(Participant[] participants, Coordination coordination, boolean ended) {
+			this.participants = participants;
+			this.coordination = coordination;
+			this.ended = ended;
+			exceptions = new Exception[participants.length];
+			remaining = participants.length;
+		}
+
+		public void run() {
+			for (int i = next.getAndIncrement(); i < participants.length; i = next.getAndIncrement()) {
+				long start = System.nanoTime();
+				try {
+					if (ended)
+						participants[i].ended(coordination);
+					else
+						participants[i].failed(coordination);
+				} catch (Exception e) {
+					exceptions[i] = e;
+				} finally {
+					record(System.nanoTime() - start);
+					synchronized (this) {
+						if (--remaining == 0)
+							notifyAll();
+					}
+				}
+			}
+		}
+
+		/*
+		 * Waits for the callbacks started by other threads. The monitor also
+		 * makes their exceptions visible to the terminating thread.
+		 */
+		synchronized void await() {
+			boolean interrupted = false;
+			while (remaining > 0) {
+				try {
+					wait();
+				} catch (InterruptedException e) {
+					interrupted = true;
+				}
+			}
+			if (interrupted)
+				Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -48,6 +48,7 @@ public class Activator implements BundleActivator, SynchronousBundleListener, Se
 	public ScrServiceImpl scrService = null;
 	private ServiceRegistration scrServiceReg;
 	private ServiceRegistration scrCommandProviderReg;
+	private ServiceRegistration metricsReg;
 	private static FrameworkLog fwLog;
 	private boolean inited = false;
 
@@ -57,6 +58,7 @@ public class Activator implements BundleActivator, SynchronousBundleListener, Se
 	public static boolean DBSTORE;
 	public static boolean INSTANTIATE_ALL;
 	public static boolean startup;
+	public static SCRMetrics metrics;
 
 	static long time[] = null;
 
@@ -142,6 +144,9 @@ public class Activator implements BundleActivator, SynchronousBundleListener, Se
 		INSTANTIATE_ALL = getBooleanDebugOption(debugOptions, "org.eclipse.equinox.ds/instantiate_all", false) || getBoolean("equinox.ds.instantiate_all", false); //$NON-NLS-1$ //$NON-NLS-2$
 
 		DBSTORE = getBooleanDebugOption(debugOptions, "org.eclipse.equinox.ds/cache_descriptions", true) || getBoolean("equinox.ds.dbstore", true); //$NON-NLS-1$ //$NON-NLS-2$
+		if (getBooleanDebugOption(debugOptions, "org.eclipse.equinox.ds/metrics", false) || getBoolean("equinox.ds.metrics", false)) { //$NON-NLS-1$ //$NON-NLS-2$
+			metrics = new SCRMetrics();
+		}
 		boolean print = getBooleanDebugOption(debugOptions, "org.eclipse.equinox.ds/print_on_console", false) || getBoolean("equinox.ds.print", false); //$NON-NLS-1$ //$NON-NLS-2$
 		log.setDebug(DEBUG);
 		log.setPrintOnConsole(print);
@@ -187,6 +192,9 @@ public class Activator implements BundleActivator, SynchronousBundleListener, Se
 
 		scrService = new ScrServiceImpl();
 		scrServiceReg = bc.registerService(ScrService.class.getName(), scrService, null);
+		if (metrics != null) {
+			metricsReg = bc.registerService(SCRMetrics.class.getName(), metrics, null);
+		}
 
 		if (startup) {
 			log.debug("[END - start method] Activator.start() method executed for " + String.valueOf(time[0] - time[2]), null); //$NON-NLS-1$
@@ -216,6 +224,12 @@ public class Activator implements BundleActivator, SynchronousBundleListener, Se
 		if (scrCommandProviderReg != null)
 			scrCommandProviderReg.unregister();
 
+		if (metricsReg != null) {
+			metricsReg.unregister();
+			metricsReg = null;
+		}
+		metrics = null;
+
 		if (scrManager != null) {
 			bundleContext.removeBundleListener(scrManager);
 		} else {
@@ -11,8 +11,7 @@
  *******************************************************************************/
 package org.eclipse.equinox.internal.ds;
 
-import java.io.IOException;
-import java.io.InputStream;
+import java.io.*;
 import java.net.URL;
 import java.util.*;
 import org.eclipse.equinox.internal.ds.model.DeclarationParser;
@@ -75,6 +74,8 @@ public abstract class ComponentStorage {
 					if (is == null) {
 						Activator.log(bundle.getBundleContext(), LogService.LOG_ERROR, NLS.bind(Messages.CANT_OPEN_STREAM_TO_COMPONENT_XML, url), null);
 					} else {
+						// the XML prolog is read byte by byte until the encoding is known
+						is = new BufferedInputStream(is);
 						int compSize = components.size();
 						parser.parse(is, bundle, components, url.toString());
 						if (compSize == components.size()) {
@@ -73,7 +73,6 @@ public class Messages extends NLS {
 	public static String ERROR_DISPOSING_INSTANCES;
 	public static String ERROR_LISTING_CONFIGURATIONS;
 	public static String ERROR_LOADING_COMPONENTS;
-	public static String ERROR_LOADING_DATA_FILE;
 	public static String ERROR_LOADING_PROPERTIES_FILE;
 	public static String ERROR_OPENING_COMP_XML;
 	public static String ERROR_PARSING_MANIFEST_HEADER;
@@ -172,6 +171,10 @@ public class Messages extends NLS {
 	public static String ERROR_MODIFYING_COMPONENT;
 	public static String ERROR_SAVING_COMPONENT_DEFINITIONS;
 	public static String FILE_DOESNT_EXIST_OR_DIRECTORY;
+	public static String PRINT_METRICS;
+	public static String METRICS_NOT_ENABLED;
+	public static String METRICS_EXPORTED;
+	public static String ERROR_EXPORTING_METRICS;
 	static {
 		// initialize resource bundle
 		NLS.initializeMessages(BUNDLE_NAME, Messages.class);
@@ -0,0 +1,385 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Contributors to the Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.equinox.internal.ds;
+
+import java.util.*;
+import org.osgi.framework.*;
+
+/**
+ * Caches the services matching the (interface, target filter) pairs of the
+ * component references. The entries are kept per bundle context of the
+ * components, since the services visible to a bundle depend on the find hooks
+ * and on the class space of the bundle. An entry is looked up through the
+ * component's bundle context when a reference using it is first checked for
+ * providers, and is looked up again only after a service event affecting it
+ * was received by the {@link Resolver}. So checking whether a reference is
+ * satisfied does not query the service registry each time.
+ *
+ * An entry is shared by all references of the same bundle context having the
+ * same interface and target filter, and is removed when the last of them is
+ * disposed.
+ *
+ * Only services which the Resolver already knows about (i.e. which are present
+ * in its service reference table) are kept in the cache.
+ *
+ * A reference finds its entry through its own volatile field, so checking it
+ * for providers takes no lock once the entry is created. While no find hooks
+ * are registered and no security manager is installed, a registered or
+ * modified service is added to the entries it matches directly instead of
+ * making them look up their services again.
+ */
+final class ProviderCache {
+
+	// the services of this class affect the services visible to all bundles
+	private static final String FIND_HOOK = "org.osgi.framework.hooks.service.FindHook"; //$NON-NLS-1$
+
+	private static final ServiceReference[] EMPTY = new ServiceReference[0];
+
+	// BundleContext -> Hashtable (String key -> Entry)
+	private Hashtable contextToEntries = new Hashtable(53);
+	// String interface name -> Vector of Entry objects for this interface
+	private Hashtable interfaceToEntries = new Hashtable(53);
+	// the number of registered find hooks; guarded by this
+	private int findHooks = 0;
+
+	final class Entry {
+		final BundleContext bc;
+		final String key;
+		final String interfaceName;
+		final String target;
+		final Filter filter;
+		// the number of references using the entry; guarded by the cache
+		int users;
+		// increased each time the providers are invalidated; guarded by this
+		private int stamp;
+		// replaced on each modification and read without locking;
+		// null if the providers have to be looked up again
+		volatile ServiceReference[] providers;
+
+		Entry(BundleContext bc, String key, String interfaceName, String target) throws InvalidSyntaxException {
+			this.bc = bc;
+			this.key = key;
+			this.interfaceName = interfaceName;
+			this.target = target;
+			this.filter = target != null ? Activator.createFilter(target) : null;
+		}
+
+		boolean matches(ServiceReference reference) {
+			return filter == null || filter.match(reference);
+		}
+
+		ServiceReference[] getProviders(Hashtable knownReferences) throws InvalidSyntaxException {
+			ServiceReference[] result = providers;
+			if (result != null) {
+				return result;
+			}
+			int lookupStamp;
+			synchronized (this) {
+				lookupStamp = stamp;
+			}
+			// the lookup goes through the component's context, so the find hooks are applied
+			ServiceReference[] references = bc.getServiceReferences(interfaceName, target);
+			result = EMPTY;
+			if (references != null) {
+				Vector known = new Vector(references.length);
+				for (int i = 0; i < references.length; i++) {
+					if (knownReferences == null || knownReferences.containsKey(references[i])) {
+						known.addElement(references[i]);
+					}
+				}
+				if (!known.isEmpty()) {
+					result = new ServiceReference[known.size()];
+					known.copyInto(result);
+				}
+			}
+			synchronized (this) {
+				// do not cache the result if the services changed during the lookup
+				if (stamp == lookupStamp) {
+					providers = result;
+				}
+			}
+			return result;
+		}
+
+		void release(Reference reference) {
+			ProviderCache.this.release(reference);
+		}
+
+		synchronized void invalidate() {
+			stamp++;
+			providers = null;
+		}
+
+		synchronized void add(ServiceReference reference) {
+			stamp++;
+			ServiceReference[] current = providers;
+			if (current == null) {
+				return;
+			}
+			for (int i = 0; i < current.length; i++) {
+				if (current[i] == reference) {
+					return;
+				}
+			}
+			ServiceReference[] result = new ServiceReference[current.length + 1];
+			System.arraycopy(current, 0, result, 0, current.length);
+			result[current.length] = reference;
+			providers = result;
+		}
+
+		synchronized void remove(ServiceReference reference) {
+			stamp++;
+			ServiceReference[] current = providers;
+			if (current == null) {
+				return;
+			}
+			for (int i = 0; i < current.length; i++) {
+				if (current[i] == reference) {
+					if (current.length == 1) {
+						providers = EMPTY;
+					} else {
+						ServiceReference[] result = new ServiceReference[current.length - 1];
+						System.arraycopy(current, 0, result, 0, i);
+						System.arraycopy(current, i + 1, result, i, result.length - i);
+						providers = result;
+					}
+					return;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Gets the services matching the interface and target filter of the
+	 * specified reference, which are visible to the bundle of its component
+	 *
+	 * @param reference the component reference
+	 * @param knownReferences the services known to the resolver or <code>null</code>
+	 * @return the matching services. The returned array must not be modified
+	 * @throws InvalidSyntaxException if the target filter is not valid
+	 */
+	ServiceReference[] getProviders(Reference reference, Hashtable knownReferences) throws InvalidSyntaxException {
+		return getEntry(reference).getProviders(knownReferences);
+	}
+
+	private Entry getEntry(Reference reference) throws InvalidSyntaxException {
+		Entry entry = reference.providers;
+		if (entry != null && sameTarget(reference.target, entry)) {
+			return entry;
+		}
+		return createEntry(reference);
+	}
+
+	private synchronized Entry createEntry(Reference reference) throws InvalidSyntaxException {
+		Entry entry = reference.providers;
+		String target = reference.target;
+		if (entry != null) {
+			if (sameTarget(target, entry)) {
+				return entry;
+			}
+			//the target filter of the reference was changed
+			release(reference);
+		}
+		BundleContext bc = reference.scp.bc;
+		String key = target == null ? reference.interfaceName : reference.interfaceName + ' ' + target;
+		Hashtable entries = (Hashtable) contextToEntries.get(bc);
+		entry = entries != null ? (Entry) entries.get(key) : null;
+		if (entry == null) {
+			entry = new Entry(bc, key, reference.interfaceName, target);
+			if (entries == null) {
+				entries = new Hashtable(11);
+				contextToEntries.put(bc, entries);
+			}
+			entries.put(key, entry);
+			Vector interfaceEntries = (Vector) interfaceToEntries.get(entry.interfaceName);
+			if (interfaceEntries == null) {
+				interfaceEntries = new Vector(2);
+				interfaceToEntries.put(entry.interfaceName, interfaceEntries);
+			}
+			interfaceEntries.addElement(entry);
+		}
+		entry.users++;
+		reference.providers = entry;
+		return entry;
+	}
+
+	/**
+	 * Releases the cache entry used by the specified reference. The entry is
+	 * removed if no other reference uses it
+	 *
+	 * @param reference the disposed reference
+	 */
+	synchronized void release(Reference reference) {
+		Entry entry = reference.providers;
+		if (entry == null) {
+			return;
+		}
+		reference.providers = null;
+		if (--entry.users > 0) {
+			return;
+		}
+		Hashtable entries = (Hashtable) contextToEntries.get(entry.bc);
+		if (entries != null && entries.get(entry.key) == entry) {
+			entries.remove(entry.key);
+			if (entries.isEmpty()) {
+				contextToEntries.remove(entry.bc);
+			}
+		}
+		Vector interfaceEntries = (Vector) interfaceToEntries.get(entry.interfaceName);
+		if (interfaceEntries != null) {
+			interfaceEntries.removeElement(entry);
+			if (interfaceEntries.isEmpty()) {
+				interfaceToEntries.remove(entry.interfaceName);
+			}
+		}
+	}
+
+	private static boolean sameTarget(String target, Entry entry) {
+		return target == null ? entry.target == null : target.equals(entry.target);
+	}
+
+	/**
+	 * Updates the cache with a registered service
+	 *
+	 * @param reference the registered service
+	 */
+	synchronized void serviceRegistered(ServiceReference reference) {
+		String[] interfaces = (String[]) reference.getProperty(Constants.OBJECTCLASS);
+		if (isFindHook(interfaces)) {
+			findHooks++;
+			invalidateAll();
+			return;
+		}
+		for (int i = 0; i < interfaces.length; i++) {
+			Vector interfaceEntries = (Vector) interfaceToEntries.get(interfaces[i]);
+			if (interfaceEntries != null) {
+				for (int j = 0; j < interfaceEntries.size(); j++) {
+					Entry entry = (Entry) interfaceEntries.elementAt(j);
+					if (entry.matches(reference)) {
+						added(entry, reference);
+					}
+				}
+			}
+		}
+	}
+
+	/*
+	 * Adds a service matching the target filter of the entry. Without find hooks
+	 * and security checks the service is visible to the bundle of the entry if
+	 * it is in the same class space.
+	 */
+	private void added(Entry entry, ServiceReference reference) {
+		if (findHooks > 0 || System.getSecurityManager() != null) {
+			//the find hooks may hide the service from the bundle
+			entry.invalidate();
+			return;
+		}
+		try {
+			if (reference.isAssignableTo(entry.bc.getBundle(), entry.interfaceName)) {
+				entry.add(reference);
+			} else {
+				entry.remove(reference);
+			}
+		} catch (IllegalStateException e) {
+			//the bundle context is no longer valid
+			entry.invalidate();
+		}
+	}
+
+	/**
+	 * Updates the cache with a service whose properties were modified
+	 *
+	 * @param reference the modified service
+	 */
+	synchronized void serviceModified(ServiceReference reference) {
+		String[] interfaces = (String[]) reference.getProperty(Constants.OBJECTCLASS);
+		if (isFindHook(interfaces)) {
+			invalidateAll();
+			return;
+		}
+		for (int i = 0; i < interfaces.length; i++) {
+			Vector interfaceEntries = (Vector) interfaceToEntries.get(interfaces[i]);
+			if (interfaceEntries != null) {
+				for (int j = 0; j < interfaceEntries.size(); j++) {
+					Entry entry = (Entry) interfaceEntries.elementAt(j);
+					if (entry.matches(reference)) {
+						added(entry, reference);
+					} else {
+						entry.remove(reference);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Removes an unregistered service from the cache
+	 *
+	 * @param reference the unregistered service
+	 */
+	synchronized void serviceUnregistering(ServiceReference reference) {
+		String[] interfaces = (String[]) reference.getProperty(Constants.OBJECTCLASS);
+		if (isFindHook(interfaces)) {
+			if (findHooks > 0) {
+				findHooks--;
+			}
+			invalidateAll();
+			return;
+		}
+		for (int i = 0; i < interfaces.length; i++) {
+			Vector interfaceEntries = (Vector) interfaceToEntries.get(interfaces[i]);
+			if (interfaceEntries != null) {
+				for (int j = 0; j < interfaceEntries.size(); j++) {
+					((Entry) interfaceEntries.elementAt(j)).remove(reference);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Makes all cache entries look up their services again and counts the find
+	 * hooks among the currently registered services
+	 *
+	 * @param references all registered services or <code>null</code> if there are none
+	 */
+	synchronized void reset(ServiceReference[] references) {
+		findHooks = 0;
+		if (references != null) {
+			for (int i = 0; i < references.length; i++) {
+				if (isFindHook((String[]) references[i].getProperty(Constants.OBJECTCLASS))) {
+					findHooks++;
+				}
+			}
+		}
+		invalidateAll();
+	}
+
+	/**
+	 * Makes all cache entries look up their services again
+	 */
+	private synchronized void invalidateAll() {
+		for (Enumeration e = interfaceToEntries.elements(); e.hasMoreElements();) {
+			Vector interfaceEntries = (Vector) e.nextElement();
+			for (int i = 0; i < interfaceEntries.size(); i++) {
+				((Entry) interfaceEntries.elementAt(i)).invalidate();
+			}
+		}
+	}
+
+	private static boolean isFindHook(String[] interfaces) {
+		for (int i = 0; i < interfaces.length; i++) {
+			if (FIND_HOOK.equals(interfaces[i])) {
+				return true;
+			}
+		}
+		return false;
+	}
+}
@@ -46,6 +46,9 @@ public final class Reference implements org.apache.felix.scr.Reference {
 	//in case the cardinality is 1..1, the vector will hold only one matching ServiceReference
 	Vector boundServiceReferences = new Vector(1);
 
+	// the cached services matching this reference; used by the ProviderCache
+	volatile ProviderCache.Entry providers;
+
 	// -- end cache
 
 	/**
@@ -116,25 +119,17 @@ public final class Reference implements org.apache.felix.scr.Reference {
 	}
 
 	// used in Resolver.resolveEligible()
-	final boolean hasProviders(Hashtable serviceReferenceTable) {
+	final boolean hasProviders(ProviderCache providerCache, Hashtable serviceReferenceTable) {
 		// check whether the component's bundle has service GET permission
 		if (System.getSecurityManager() != null && !scp.bc.getBundle().hasPermission(new ServicePermission(interfaceName, ServicePermission.GET))) {
 			return false;
 		}
-		// Get all service references for this target filter
+		// Get the cached service references for this target filter
 		try {
-			ServiceReference[] serviceReferences = null;
-			serviceReferences = scp.bc.getServiceReferences(interfaceName, target);
 			// Only return true if there is a service published that this Reference
-			// represents and we know about it (if we care about it)
-			if (serviceReferences != null) {
-				if (serviceReferenceTable == null)
-					return true;
-				for (int i = 0; i < serviceReferences.length; i++) {
-					if (serviceReferenceTable.containsKey(serviceReferences[i])) {
-						return true;
-					}
-				}
+			// represents and we know about it
+			if (providerCache.getProviders(this, serviceReferenceTable).length > 0) {
+				return true;
 			}
 		} catch (InvalidSyntaxException e) {
 			Activator.log(reference.component.bc, LogService.LOG_WARNING, "Reference.hasProviders(): " + NLS.bind(Messages.INVALID_TARGET_FILTER, target), e); //$NON-NLS-1$
@@ -142,6 +137,17 @@ public final class Reference implements org.apache.felix.scr.Reference {
 		return false;
 	}
 
+	/**
+	 * Releases the cached services matching this reference. Called when the
+	 * component configuration is disposed
+	 */
+	public void releaseProviders() {
+		ProviderCache.Entry entry = providers;
+		if (entry != null) {
+			entry.release(this);
+		}
+	}
+
 	// if the cardinality is "0..1" or "0..n" then this refernce is not required
 	final boolean isRequiredFor(ServiceComponent cd) {
 		// // we want to re-resolve if the component is static and already
@@ -60,6 +60,8 @@ public final class Resolver implements WorkPerformer {
 
 	private Hashtable serviceReferenceTable = new Hashtable();
 
+	private ProviderCache providerCache = new ProviderCache();
+
 	public SCRManager mgr;
 
 	// TODO: Add a hashtable connecting servicereference to a list of References
@@ -90,6 +92,7 @@ public final class Resolver implements WorkPerformer {
 			try {
 				ServiceReference[] references = Activator.bc.getAllServiceReferences(null, null);
 				serviceReferenceTable.clear();
+				providerCache.reset(references);
 				if (references != null) {
 					for (int i = 0; i < references.length; i++) {
 						serviceReferenceTable.put(references[i], Boolean.TRUE);
@@ -312,6 +315,7 @@ public final class Resolver implements WorkPerformer {
 
 				synchronized (syncLock) {
 					serviceReferenceTable.put(event.getServiceReference(), Boolean.TRUE);
+					providerCache.serviceRegistered(event.getServiceReference());
 					if (scpEnabled.isEmpty())
 						return; // check for any enabled configurations
 
@@ -358,6 +362,7 @@ public final class Resolver implements WorkPerformer {
 				Vector newlyUnsatisfiedSCPs;
 				synchronized (syncLock) {
 					serviceReferenceTable.remove(event.getServiceReference());
+					providerCache.serviceUnregistering(event.getServiceReference());
 					if (scpEnabled.isEmpty())
 						return; // check for any enabled configurations
 
@@ -390,6 +395,9 @@ public final class Resolver implements WorkPerformer {
 
 			case ServiceEvent.MODIFIED :
 				synchronized (syncLock) {
+					if (serviceReferenceTable.containsKey(event.getServiceReference())) {
+						providerCache.serviceModified(event.getServiceReference());
+					}
 					if (scpEnabled.isEmpty())
 						return; // check for any enabled configurations
 
@@ -509,7 +517,7 @@ public final class Resolver implements WorkPerformer {
 						// re-run the algorithm
 						Reference reference = (Reference) refs.elementAt(i);
 						if (reference != null) {
-							boolean resolved = !reference.isRequiredFor(scp.serviceComponent) || reference.hasProviders(this.serviceReferenceTable);
+							boolean resolved = !reference.isRequiredFor(scp.serviceComponent) || reference.hasProviders(providerCache, serviceReferenceTable);
 
 							if (!resolved) {
 								if (Activator.DEBUG) {
@@ -598,7 +606,7 @@ public final class Resolver implements WorkPerformer {
 								// the service reference is not a possible match. Skipping further checks 
 								continue;
 							}
-							boolean resolved = !reference.isRequiredFor(scp.serviceComponent) || reference.hasProviders(this.serviceReferenceTable);
+							boolean resolved = !reference.isRequiredFor(scp.serviceComponent) || reference.hasProviders(providerCache, serviceReferenceTable);
 
 							if (!resolved && scp.isBuilt()) {
 								if (Activator.DEBUG) {
@@ -13,8 +13,7 @@
  *******************************************************************************/
 package org.eclipse.equinox.internal.ds;
 
-import java.io.IOException;
-import java.io.InputStream;
+import java.io.*;
 import java.net.URL;
 import java.util.*;
 import org.eclipse.equinox.internal.ds.impl.ComponentInstanceImpl;
@@ -80,6 +79,9 @@ public class SCRCommandProvider implements CommandProvider {
 		if (all || "disableAll".equals(commandName) || "disAll".equals(commandName)) { //$NON-NLS-1$ //$NON-NLS-2$
 			res.append("\n\tdisableAll/disAll [bundle id] - ").append(Messages.DISABLE_ALL_COMPONENTS).append("\n"); //$NON-NLS-1$ //$NON-NLS-2$
 		}
+		if (all || "metrics".equals(commandName)) { //$NON-NLS-1$
+			res.append("\tmetrics [reset | export <file>] - ").append(Messages.PRINT_METRICS).append("\n"); //$NON-NLS-1$ //$NON-NLS-2$
+		}
 		return res.toString();
 	}
 
@@ -262,6 +264,38 @@ public class SCRCommandProvider implements CommandProvider {
 		_disableAll(intp);
 	}
 
+	/**
+	 *  Handle the metrics command
+	 *
+	 *  @param intp A CommandInterpreter object containing the command and it's arguments.
+	 */
+	public void _metrics(CommandInterpreter intp) throws Exception {
+		SCRMetrics metrics = Activator.metrics;
+		if (metrics == null) {
+			intp.println(Messages.METRICS_NOT_ENABLED);
+			return;
+		}
+		String[] params = getParams(intp);
+		if (params.length == 0) {
+			StringWriter buffer = new StringWriter(1000);
+			metrics.writeSnapshot(new PrintWriter(buffer));
+			intp.print(buffer.toString());
+		} else if (params[0].equals("reset")) { //$NON-NLS-1$
+			metrics.reset();
+		} else if (params[0].equals("export") && params.length > 1) { //$NON-NLS-1$
+			File file = new File(params[1]);
+			try {
+				metrics.export(file);
+				intp.println(NLS.bind(Messages.METRICS_EXPORTED, file.getAbsolutePath()));
+			} catch (IOException e) {
+				intp.println(NLS.bind(Messages.ERROR_EXPORTING_METRICS, file.getAbsolutePath()));
+				intp.printStackTrace(e);
+			}
+		} else {
+			intp.println(NLS.bind(Messages.WRONG_PARAMETER2, params[0]));
+		}
+	}
+
 	/**
 	 * Handles the help command
 	 * 
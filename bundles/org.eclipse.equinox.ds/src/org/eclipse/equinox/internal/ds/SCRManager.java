@@ -235,8 +235,11 @@ public class SCRManager implements ServiceListener, SynchronousBundleListener, C
 			startedBundle(event.getBundle());
 		} else if (type == BundleEvent.LAZY_ACTIVATION) {
 			startedBundle(event.getBundle());
-		} else if (type == BundleEvent.UNINSTALLED && Activator.DBSTORE) {
-			storage.deleteComponentDefinitions(event.getBundle().getBundleId());
+		} else if (type == BundleEvent.UNINSTALLED) {
+			MethodCache.flush(event.getBundle());
+			if (Activator.DBSTORE) {
+				storage.deleteComponentDefinitions(event.getBundle().getBundleId());
+			}
 		}
 		if (Activator.PERF) {
 			start = System.currentTimeMillis() - start;
@@ -539,9 +542,11 @@ public class SCRManager implements ServiceListener, SynchronousBundleListener, C
 			bundleToServiceComponents.clear();
 			bundleToServiceComponents = null;
 		}
+		MethodCache.clear();
 	}
 
 	void stoppingBundle(Bundle bundle) {
+		MethodCache.flush(bundle);
 		if (bundleToServiceComponents != null) {
 			Vector components = (Vector) bundleToServiceComponents.remove(bundle);
 			// disable the components which the bundle provides
@@ -760,6 +765,8 @@ public class SCRManager implements ServiceListener, SynchronousBundleListener, C
 		final int actionType;
 		/** work input data to be performed */
 		final Object workToDo;
+		/** the time when the job was queued; set only if metrics are collected */
+		final long enqueued;
 
 		/**
 		 * Constructor for work queue item
@@ -775,6 +782,7 @@ public class SCRManager implements ServiceListener, SynchronousBundleListener, C
 			performer = d;
 			actionType = a;
 			workToDo = o;
+			enqueued = Activator.metrics != null ? System.currentTimeMillis() : 0;
 		}
 
 		void dispatch() {
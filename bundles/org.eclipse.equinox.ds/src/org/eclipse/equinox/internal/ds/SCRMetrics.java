@@ -0,0 +1,227 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Contributors to the Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.equinox.internal.ds;
+
+import java.io.*;
+import java.util.*;
+
+/**
+ * Collects timing statistics about the work done by the Service Component
+ * Runtime. The statistics are gathered per component (time spent in the
+ * activate, bind, unbind, updated, modified and deactivate methods and time
+ * spent in unsatisfied state) and globally for the SCR work queue (time a job
+ * waits in the queue before being dispatched and number of work thread
+ * timeouts).
+ *
+ * The collecting is enabled with the <code>equinox.ds.metrics</code> system
+ * property or the <code>org.eclipse.equinox.ds/metrics</code> debug option. When
+ * enabled, an instance of this class is registered as a service so that the
+ * statistics could be read at runtime. They are also available through the
+ * <code>metrics</code> console command.
+ *
+ * All times are in milliseconds.
+ */
+public class SCRMetrics {
+
+	public static final int ACTIVATE = 0;
+	public static final int BIND = 1;
+	public static final int UNBIND = 2;
+	public static final int UPDATED = 3;
+	public static final int MODIFIED = 4;
+	public static final int DEACTIVATE = 5;
+	public static final int UNSATISFIED = 6;
+
+	/** the names of the measured operations as used in the snapshots */
+	public static final String[] OPERATIONS = {"activate", "bind", "unbind", "updated", "modified", "deactivate", "unsatisfied"}; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$ //$NON-NLS-6$ //$NON-NLS-7$
+
+	/** index of the number of measurements in the statistics arrays */
+	public static final int COUNT = 0;
+	/** index of the total time in the statistics arrays */
+	public static final int TOTAL = 1;
+	/** index of the maximum time in the statistics arrays */
+	public static final int MAX = 2;
+
+	private static final int STATS_SIZE = 3;
+
+	// component name -> long[OPERATIONS.length * STATS_SIZE]
+	private Hashtable components = new Hashtable(53);
+	private long[] queueWait = new long[STATS_SIZE];
+	private int workThreadTimeouts = 0;
+	private long startTime = System.currentTimeMillis();
+
+	/**
+	 * Records the time spent in an operation of a component
+	 *
+	 * @param componentName the name of the component
+	 * @param operation one of the operation constants
+	 * @param start the time in milliseconds when the operation was started
+	 */
+	public void record(String componentName, int operation, long start) {
+		recordDuration(componentName, operation, System.currentTimeMillis() - start);
+	}
+
+	/**
+	 * Records the duration of an operation of a component
+	 *
+	 * @param componentName the name of the component
+	 * @param operation one of the operation constants
+	 * @param duration the duration of the operation in milliseconds
+	 */
+	public synchronized void recordDuration(String componentName, int operation, long duration) {
+		long[] stats = (long[]) components.get(componentName);
+		if (stats == null) {
+			stats = new long[OPERATIONS.length * STATS_SIZE];
+			components.put(componentName, stats);
+		}
+		update(stats, operation * STATS_SIZE, duration);
+	}
+
+	/**
+	 * Records the time a job has waited in the SCR queue before being dispatched
+	 *
+	 * @param enqueued the time in milliseconds when the job was queued
+	 */
+	synchronized void recordQueueWait(long enqueued) {
+		update(queueWait, 0, System.currentTimeMillis() - enqueued);
+	}
+
+	/**
+	 * Counts a work thread blocked for more than the block timeout
+	 */
+	synchronized void workThreadTimedOut() {
+		workThreadTimeouts++;
+	}
+
+	private static void update(long[] stats, int offset, long duration) {
+		if (duration < 0) {
+			// the system time has been changed
+			duration = 0;
+		}
+		stats[offset + COUNT]++;
+		stats[offset + TOTAL] += duration;
+		if (duration > stats[offset + MAX]) {
+			stats[offset + MAX] = duration;
+		}
+	}
+
+	/**
+	 * Gets the names of the components for which statistics are available
+	 *
+	 * @return the component names
+	 */
+	public synchronized String[] getComponentNames() {
+		String[] result = new String[components.size()];
+		int i = 0;
+		for (Enumeration e = components.keys(); e.hasMoreElements();) {
+			result[i++] = (String) e.nextElement();
+		}
+		return result;
+	}
+
+	/**
+	 * Gets the statistics of an operation of a component
+	 *
+	 * @param componentName the name of the component
+	 * @param operation one of the operation constants
+	 * @return array holding the number of measurements, the total and the maximum time
+	 *         at indexes {@link #COUNT}, {@link #TOTAL} and {@link #MAX} or <code>null</code>
+	 *         if there are no statistics about the specified component
+	 */
+	public synchronized long[] getStatistics(String componentName, int operation) {
+		long[] stats = (long[]) components.get(componentName);
+		if (stats == null) {
+			return null;
+		}
+		long[] result = new long[STATS_SIZE];
+		System.arraycopy(stats, operation * STATS_SIZE, result, 0, STATS_SIZE);
+		return result;
+	}
+
+	/**
+	 * Gets the statistics about the time the jobs have waited in the SCR queue
+	 *
+	 * @return array holding the number of measurements, the total and the maximum time
+	 *         at indexes {@link #COUNT}, {@link #TOTAL} and {@link #MAX}
+	 */
+	public synchronized long[] getQueueWaitStatistics() {
+		long[] result = new long[STATS_SIZE];
+		System.arraycopy(queueWait, 0, result, 0, STATS_SIZE);
+		return result;
+	}
+
+	/**
+	 * Gets the number of times the SCR work thread was blocked for more than the
+	 * block timeout and a new work thread was started
+	 *
+	 * @return the number of work thread timeouts
+	 */
+	public synchronized int getWorkThreadTimeouts() {
+		return workThreadTimeouts;
+	}
+
+	/**
+	 * Clears all collected statistics
+	 */
+	public synchronized void reset() {
+		components.clear();
+		queueWait = new long[STATS_SIZE];
+		workThreadTimeouts = 0;
+		startTime = System.currentTimeMillis();
+	}
+
+	/**
+	 * Writes a snapshot of the collected statistics in a human readable form
+	 *
+	 * @param out the writer to print to
+	 */
+	public synchronized void writeSnapshot(PrintWriter out) {
+		out.println("Measured since " + new Date(startTime)); //$NON-NLS-1$
+		out.println("queue wait: " + format(queueWait, 0)); //$NON-NLS-1$
+		out.println("work thread timeouts: " + workThreadTimeouts); //$NON-NLS-1$
+		String[] names = getComponentNames();
+		Arrays.sort(names);
+		for (int i = 0; i < names.length; i++) {
+			long[] stats = (long[]) components.get(names[i]);
+			out.println(names[i]);
+			for (int op = 0; op < OPERATIONS.length; op++) {
+				if (stats[op * STATS_SIZE + COUNT] > 0) {
+					out.println("\t" + OPERATIONS[op] + ": " + format(stats, op * STATS_SIZE)); //$NON-NLS-1$ //$NON-NLS-2$
+				}
+			}
+		}
+		out.flush();
+	}
+
+	/**
+	 * Writes a snapshot of the collected statistics to a file
+	 *
+	 * @param file the file to write to
+	 * @throws IOException if an error occurs while writing the file
+	 */
+	public void export(File file) throws IOException {
+		PrintWriter out = new PrintWriter(new FileWriter(file));
+		try {
+			writeSnapshot(out);
+		} finally {
+			out.close();
+		}
+	}
+
+	private static String format(long[] stats, int offset) {
+		long count = stats[offset + COUNT];
+		StringBuffer buf = new StringBuffer(60);
+		buf.append("count=").append(count); //$NON-NLS-1$
+		buf.append(", total=").append(stats[offset + TOTAL]); //$NON-NLS-1$
+		buf.append(", avg=").append(count > 0 ? stats[offset + TOTAL] / count : 0); //$NON-NLS-1$
+		buf.append(", max=").append(stats[offset + MAX]); //$NON-NLS-1$
+		return buf.toString();
+	}
+}
@@ -86,7 +86,12 @@ public class WorkThread implements Runnable, TimerListener {
 					}
 				}
 				if (objectToProcess instanceof SCRManager.QueuedJob) {
-					((SCRManager.QueuedJob) objectToProcess).dispatch();
+					SCRManager.QueuedJob job = (SCRManager.QueuedJob) objectToProcess;
+					SCRMetrics metrics = Activator.metrics;
+					if (metrics != null && job.enqueued != 0) {
+						metrics.recordQueueWait(job.enqueued);
+					}
+					job.dispatch();
 				} else if (objectToProcess instanceof ConfigurationEvent) {
 					mgr.processConfigurationEvent((ConfigurationEvent) objectToProcess);
 				}
@@ -105,6 +110,10 @@ public class WorkThread implements Runnable, TimerListener {
 		Activator.log(null, LogService.LOG_WARNING, NLS.bind(Messages.TIMEOUT_PROCESSING, objectToProcess), null);
 		running = false;
 		objectToProcess = null;
+		SCRMetrics metrics = Activator.metrics;
+		if (metrics != null) {
+			metrics.workThreadTimedOut();
+		}
 		mgr.queueBlocked();
 	}
 
@@ -86,6 +86,25 @@ public class ComponentReference implements Externalizable, org.apache.felix.scr.
 		this.component.references.addElement(this);
 	}
 
+	/**
+	 * Gets the bind, unbind or updated method of the reference, using the methods already
+	 * resolved for the same reference of other components with the same implementation class
+	 */
+	Method getCachedMethod(ComponentInstanceImpl componentInstance, Reference reference, String methodName, ServiceReference serviceReference) {
+		Class implClass = componentInstance.getInstance().getClass();
+		String signature = methodName + '(' + interfaceName + (component.isNamespaceAtLeast11() ? ")/11" : ")/10"); //$NON-NLS-1$ //$NON-NLS-2$
+		Object cached = MethodCache.get(component.bundle, implClass, signature);
+		if (cached instanceof Method) {
+			return (Method) cached;
+		}
+		Method method = getMethod(componentInstance, reference, methodName, serviceReference);
+		// do not cache failed lookups since they could be caused by circularity
+		if (method != null) {
+			MethodCache.put(component.bundle, implClass, signature, method);
+		}
+		return method;
+	}
+
 	Method getMethod(ComponentInstanceImpl componentInstance, Reference reference, String methodName, ServiceReference serviceReference) {
 
 		Class consumerClass = componentInstance.getInstance().getClass();
@@ -328,7 +347,7 @@ public class ComponentReference implements Externalizable, org.apache.felix.scr.
 			}
 			// retrieve the method from cache
 			if (!bindCached) {
-				bindMethod = getMethod((ComponentInstanceImpl) instance, reference, bind, serviceReference);
+				bindMethod = getCachedMethod((ComponentInstanceImpl) instance, reference, bind, serviceReference);
 				// bindMethod can be null in case of circularity
 				if (bindMethod != null) {
 					bindCached = true;
@@ -372,6 +391,8 @@ public class ComponentReference implements Externalizable, org.apache.felix.scr.
 					params = new Object[] {methodParam, map};
 				}
 
+				SCRMetrics metrics = Activator.metrics;
+				long start = metrics != null ? System.currentTimeMillis() : 0;
 				try {
 					bindMethod.invoke(instance.getInstance(), params);
 					bound = true;
@@ -380,6 +401,9 @@ public class ComponentReference implements Externalizable, org.apache.felix.scr.
 					//remove the component instance marked as bound
 					removeServiceReference(serviceReference, instance);
 				} finally {
+					if (metrics != null) {
+						metrics.record(component.name, SCRMetrics.BIND, start);
+					}
 					if (params.length == 1) {
 						SCRUtil.release(params);
 					}
@@ -438,7 +462,7 @@ public class ComponentReference implements Externalizable, org.apache.felix.scr.
 				// retrieve the unbind method from cache
 				if (!unbindCached) {
 					unbindCached = true;
-					unbindMethod = getMethod((ComponentInstanceImpl) instance, reference, unbind, serviceReference);
+					unbindMethod = getCachedMethod((ComponentInstanceImpl) instance, reference, unbind, serviceReference);
 				}
 				// invoke the method
 				if (unbindMethod != null) {
@@ -472,11 +496,16 @@ public class ComponentReference implements Externalizable, org.apache.felix.scr.
 						}
 						params = new Object[] {methodParam, map};
 					}
+					SCRMetrics metrics = Activator.metrics;
+					long start = metrics != null ? System.currentTimeMillis() : 0;
 					try {
 						unbindMethod.invoke(instance.getInstance(), params);
 					} catch (Throwable t) {
 						logError(NLS.bind(Messages.EXCEPTION_UNBINDING_REFERENCE, this), t, reference);
 					} finally {
+						if (metrics != null) {
+							metrics.record(component.name, SCRMetrics.UNBIND, start);
+						}
 						if (params.length == 1) {
 							SCRUtil.release(params);
 						}
@@ -514,7 +543,7 @@ public class ComponentReference implements Externalizable, org.apache.felix.scr.
 			}
 			// retrieve the method from cache
 			if (!updatedCached) {
-				updatedMethod = getMethod((ComponentInstanceImpl) instance, reference, updated, serviceReference);
+				updatedMethod = getCachedMethod((ComponentInstanceImpl) instance, reference, updated, serviceReference);
 				// updatedMethod can be null in case of circularity
 				if (updatedMethod != null) {
 					updatedCached = true;
@@ -556,11 +585,16 @@ public class ComponentReference implements Externalizable, org.apache.felix.scr.
 					params = new Object[] {methodParam, map};
 				}
 
+				SCRMetrics metrics = Activator.metrics;
+				long start = metrics != null ? System.currentTimeMillis() : 0;
 				try {
 					updatedMethod.invoke(instance.getInstance(), params);
 				} catch (Throwable t) {
 					logError(NLS.bind(Messages.ERROR_UPDATING_REFERENCE, this, instance.getInstance()), t, reference);
 				} finally {
+					if (metrics != null) {
+						metrics.record(component.name, SCRMetrics.UPDATED, start);
+					}
 					if (params.length == 1) {
 						SCRUtil.release(params);
 					}
@@ -18,7 +18,9 @@ import java.net.URL;
 import java.util.*;
 import org.eclipse.equinox.internal.ds.Activator;
 import org.eclipse.equinox.internal.ds.Messages;
-import org.eclipse.equinox.internal.util.xml.*;
+import org.eclipse.equinox.internal.util.xml.ExTagListener;
+import org.eclipse.equinox.internal.util.xml.Tag;
+import org.eclipse.equinox.internal.util.xml.impl.XMLParserImpl;
 import org.eclipse.osgi.util.NLS;
 import org.osgi.framework.*;
 import org.osgi.service.log.LogService;
@@ -109,6 +111,8 @@ public class DeclarationParser implements ExTagListener {
 	private Hashtable namespaces = null;
 	private boolean rootPassed = false;
 	private String currentURL = null;
+	// reused for all parsed files, so that its buffers and known names are kept
+	private XMLParserImpl xmlParser = null;
 
 	public DeclarationParser() {
 		this(false);
@@ -139,7 +143,11 @@ public class DeclarationParser implements ExTagListener {
 		this.bc = bundle.getBundleContext();
 		this.currentURL = processingURL;
 		rootPassed = false;
-		XMLParser.parseXML(in, this, -1);
+		if (xmlParser == null) {
+			xmlParser = new XMLParserImpl();
+		}
+		xmlParser.reset(in, this);
+		xmlParser.parseXML();
 
 		// release temporary objects
 		this.bundle = null;
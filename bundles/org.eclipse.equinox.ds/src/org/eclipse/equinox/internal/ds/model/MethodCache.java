@@ -0,0 +1,103 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Contributors to the Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.equinox.internal.ds.model;
+
+import java.lang.reflect.Method;
+import java.util.Hashtable;
+import org.osgi.framework.Bundle;
+
+/**
+ * Holds the component methods (activate, deactivate, modified, bind, unbind
+ * and updated) resolved through reflection. The methods are cached per
+ * component implementation class and method signature, so that the lookup is
+ * shared between all components having the same implementation class.
+ *
+ * The cached methods are grouped by the bundle providing the components. They
+ * are flushed when the bundle is stopped since its classes may be reloaded
+ * after the bundle is refreshed.
+ */
+public final class MethodCache {
+
+	/** marks a method which was looked up but not found */
+	static final Object NOT_FOUND = new Object();
+
+	// Bundle -> Hashtable (Class -> Hashtable (String signature -> Method or NOT_FOUND))
+	private static final Hashtable bundleToClasses = new Hashtable(11);
+
+	private MethodCache() {
+		//
+	}
+
+	/**
+	 * Gets a cached method
+	 *
+	 * @param bundle the bundle providing the component
+	 * @param clazz the component implementation class
+	 * @param signature the key describing the looked up method
+	 * @return the cached method, {@link #NOT_FOUND} if the method is known to be missing,
+	 *         or <code>null</code> if the method is not cached yet
+	 */
+	static Object get(Bundle bundle, Class clazz, String signature) {
+		if (bundle == null) {
+			return null;
+		}
+		Hashtable classes = (Hashtable) bundleToClasses.get(bundle);
+		if (classes == null) {
+			return null;
+		}
+		Hashtable methods = (Hashtable) classes.get(clazz);
+		return methods != null ? methods.get(signature) : null;
+	}
+
+	/**
+	 * Caches the result of a method lookup
+	 *
+	 * @param bundle the bundle providing the component
+	 * @param clazz the component implementation class
+	 * @param signature the key describing the looked up method
+	 * @param method the found method or <code>null</code> if the method does not exist
+	 */
+	static void put(Bundle bundle, Class clazz, String signature, Method method) {
+		if (bundle == null) {
+			return;
+		}
+		Hashtable methods;
+		synchronized (bundleToClasses) {
+			Hashtable classes = (Hashtable) bundleToClasses.get(bundle);
+			if (classes == null) {
+				classes = new Hashtable(5);
+				bundleToClasses.put(bundle, classes);
+			}
+			methods = (Hashtable) classes.get(clazz);
+			if (methods == null) {
+				methods = new Hashtable(5);
+				classes.put(clazz, methods);
+			}
+		}
+		methods.put(signature, method != null ? (Object) method : NOT_FOUND);
+	}
+
+	/**
+	 * Removes all methods cached for the components of the specified bundle
+	 *
+	 * @param bundle the bundle which is stopped or refreshed
+	 */
+	public static void flush(Bundle bundle) {
+		bundleToClasses.remove(bundle);
+	}
+
+	/**
+	 * Removes all cached methods
+	 */
+	public static void clear() {
+		bundleToClasses.clear();
+	}
+}
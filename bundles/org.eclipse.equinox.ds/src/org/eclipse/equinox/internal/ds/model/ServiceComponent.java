@@ -113,6 +113,25 @@ public class ServiceComponent implements Externalizable, Component {
 		//
 	}
 
+	/**
+	 * Gets the activate, deactivate or modified method of the component, using the methods
+	 * already resolved for other components with the same implementation class
+	 */
+	private final Method getCachedMethod(Object instance, String methodName, boolean isActivate) throws Exception {
+		if (instance == null) {
+			return null;
+		}
+		Class clazz = instance.getClass();
+		String signature = methodName + (isActivate ? "/a" : "/d") + (isNamespaceAtLeast11() ? "/11" : "/10"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+		Object cached = MethodCache.get(bundle, clazz, signature);
+		if (cached != null) {
+			return cached == MethodCache.NOT_FOUND ? null : (Method) cached;
+		}
+		Method method = getMethod(instance, methodName, isActivate);
+		MethodCache.put(bundle, clazz, signature, method);
+		return method;
+	}
+
 	private final Method getMethod(Object instance, String methodName, boolean isActivate) throws Exception {
 		if (Activator.DEBUG) {
 			Activator.log.debug("ServiceComponent.getMethod(): " + methodName, null); //$NON-NLS-1$
@@ -210,7 +229,7 @@ public class ServiceComponent implements Externalizable, Component {
 			if (isNamespaceAtLeast11()) {
 				if (!activateCached) {
 					activateCached = true;
-					activateMethod = getMethod(instance, activateMethodName, true);
+					activateMethod = getCachedMethod(instance, activateMethodName, true);
 				}
 				// invoke the method if any
 				if (activateMethod != null) {
@@ -250,7 +269,7 @@ public class ServiceComponent implements Externalizable, Component {
 				// retrieve the activate method from cache
 				if (!activateCached) {
 					activateCached = true;
-					activateMethod = getMethod(instance, "activate", true); //$NON-NLS-1$
+					activateMethod = getCachedMethod(instance, "activate", true); //$NON-NLS-1$
 				}
 				// invoke the method if any
 				if (activateMethod != null) {
@@ -284,7 +303,7 @@ public class ServiceComponent implements Externalizable, Component {
 				if (!modifyCached) {
 					modifyCached = true;
 					if (modifyMethodName != "") { //$NON-NLS-1$
-						modifyMethod = getMethod(instance, modifyMethodName, true);
+						modifyMethod = getCachedMethod(instance, modifyMethodName, true);
 					}
 				}
 				// invoke the method if any
@@ -334,7 +353,7 @@ public class ServiceComponent implements Externalizable, Component {
 			if (isNamespaceAtLeast11()) {
 				if (!deactivateCached) {
 					deactivateCached = true;
-					deactivateMethod = getMethod(instance, deactivateMethodName, false);
+					deactivateMethod = getCachedMethod(instance, deactivateMethodName, false);
 				}
 				// invoke the method if any
 				if (deactivateMethod != null) {
@@ -377,7 +396,7 @@ public class ServiceComponent implements Externalizable, Component {
 				// retrieve the activate method from cache
 				if (!deactivateCached) {
 					deactivateCached = true;
-					deactivateMethod = getMethod(instance, "deactivate", false); //$NON-NLS-1$
+					deactivateMethod = getCachedMethod(instance, "deactivate", false); //$NON-NLS-1$
 				}
 				// invoke the method
 				if (deactivateMethod != null) {
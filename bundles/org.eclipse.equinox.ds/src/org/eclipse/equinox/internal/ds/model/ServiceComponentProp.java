@@ -58,6 +58,8 @@ public class ServiceComponentProp implements Component, PrivilegedExceptionActio
 
 	//Holds the component's state
 	private int state = STATE_UNSATISFIED;
+	//The time when the component became unsatisfied; used only if metrics are collected
+	private long unsatisfiedSince;
 
 	/**
 	 * List of names (Strings) of Component Configurations we should not
@@ -86,6 +88,9 @@ public class ServiceComponentProp implements Component, PrivilegedExceptionActio
 
 		// used for component context
 		this.mgr = mgr;
+		if (Activator.metrics != null) {
+			unsatisfiedSince = System.currentTimeMillis();
+		}
 	}
 
 	/**
@@ -143,7 +148,12 @@ public class ServiceComponentProp implements Component, PrivilegedExceptionActio
 		}
 
 		// call the activate method on the Service Component
+		SCRMetrics metrics = Activator.metrics;
+		long start = metrics != null ? System.currentTimeMillis() : 0;
 		serviceComponent.activate(componentInstance.getInstance(), componentInstance.getComponentContext());
+		if (metrics != null) {
+			metrics.record(name, SCRMetrics.ACTIVATE, start);
+		}
 	}
 
 	/**
@@ -158,7 +168,12 @@ public class ServiceComponentProp implements Component, PrivilegedExceptionActio
 		if (Activator.DEBUG) {
 			Activator.log.debug("ServiceComponentProp.deactivate(): " + name, null); //$NON-NLS-1$
 		}
+		SCRMetrics metrics = Activator.metrics;
+		long start = metrics != null ? System.currentTimeMillis() : 0;
 		serviceComponent.deactivate(componentInstance.getInstance(), componentInstance.getComponentContext(), deactivateReason);
+		if (metrics != null) {
+			metrics.record(name, SCRMetrics.DEACTIVATE, start);
+		}
 	}
 
 	/**
@@ -184,7 +199,12 @@ public class ServiceComponentProp implements Component, PrivilegedExceptionActio
 		for (int i = 0; i < instances.size(); i++) {
 			ComponentInstanceImpl componentInstance = (ComponentInstanceImpl) instances.elementAt(i);
 			Activator.log.debug("~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~ServiceComponentProp.modify(): instance: " + componentInstance.toString(), null); //$NON-NLS-1$
+			SCRMetrics metrics = Activator.metrics;
+			long start = metrics != null ? System.currentTimeMillis() : 0;
 			serviceComponent.modified(componentInstance.getInstance(), componentInstance.getComponentContext());
+			if (metrics != null) {
+				metrics.record(name, SCRMetrics.MODIFIED, start);
+			}
 		}
 		//3. modify the bound services if necessary
 		if (oldProperties != null) {
@@ -810,6 +830,20 @@ public class ServiceComponentProp implements Component, PrivilegedExceptionActio
 	}
 
 	public synchronized void setState(int state) {
+		SCRMetrics metrics = Activator.metrics;
+		if (metrics != null && this.state != state) {
+			if (state == STATE_UNSATISFIED) {
+				unsatisfiedSince = System.currentTimeMillis();
+			} else if (this.state == STATE_UNSATISFIED && unsatisfiedSince != 0) {
+				metrics.record(name, SCRMetrics.UNSATISFIED, unsatisfiedSince);
+				unsatisfiedSince = 0;
+			}
+		}
+		if (state == STATE_DISPOSED && this.state != STATE_DISPOSED && references != null) {
+			for (int i = 0; i < references.size(); i++) {
+				((Reference) references.elementAt(i)).releaseProviders();
+			}
+		}
 		this.state = state;
 	}
 
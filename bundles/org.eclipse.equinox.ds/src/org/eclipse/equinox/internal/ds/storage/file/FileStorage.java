@@ -17,7 +17,6 @@ import java.net.URLConnection;
 import java.util.*;
 import org.eclipse.equinox.internal.ds.*;
 import org.eclipse.equinox.internal.ds.model.ServiceComponent;
-import org.eclipse.equinox.internal.util.io.ExternalizableDictionary;
 import org.eclipse.osgi.util.ManifestElement;
 import org.eclipse.osgi.util.NLS;
 import org.osgi.framework.*;
@@ -25,7 +24,11 @@ import org.osgi.service.component.ComponentConstants;
 import org.osgi.service.log.LogService;
 
 /**
- * This class implements a cache for the parsed component XML descriptions. 
+ * This class implements a cache for the parsed component XML descriptions.
+ * The components of each bundle are stored in a separate binary entry which
+ * is read only when the bundle is started, so the startup cost depends on the
+ * number of started bundles instead of the number of installed ones. Only the
+ * entries of the bundles whose components were parsed again are written back.
  * 
  * @author Pavlin Dobrev
  * @author Stoyan Boshev
@@ -37,35 +40,29 @@ public class FileStorage extends ComponentStorage {
 	//Probably it should be in the supplement bundle?
 	public static final String PROP_CHECK_CONFIG = "osgi.checkConfiguration"; //$NON-NLS-1$
 
+	// the name of the single file database used by the previous versions
 	private static String CUSTOM_DB_NAME = "SCR"; //$NON-NLS-1$
-	private BundleContext bc = null;
-	private ExternalizableDictionary data = new ExternalizableDictionary();
-	private StringBuffer pathBuffer = new StringBuffer();
-	private String separator;
-	private boolean isDirty = false;
+	private static String CACHE_DIR_NAME = "SCR.cache"; //$NON-NLS-1$
+
+	// marks the beginning of a bundle entry: 'S' 'C' 'R' 'C'
+	private static final int ENTRY_MAGIC = 0x53435243;
+	// must be increased whenever the serialization of the components changes
+	private static final int ENTRY_VERSION = 1;
+
+	// the suffix of an entry which is being written
+	private static final String TEMP_SUFFIX = ".tmp"; //$NON-NLS-1$
+
+	private File cacheDir;
+	// Long (bundle ID) -> byte[] (the bundle entry which is not yet written)
+	private Hashtable dirtyEntries = new Hashtable(11);
 
 	public FileStorage(BundleContext bc) {
-		this.bc = bc;
-		separator = bc.getProperty("path.separator"); //$NON-NLS-1$
-		File file = bc.getDataFile(CUSTOM_DB_NAME);
-		FileInputStream fis = null;
-		try {
-			if (file != null && file.exists()) {
-				data.readObject(new BufferedInputStream(fis = new FileInputStream(file)));
-			}
-		} catch (IOException e) {
-			Activator.log(null, LogService.LOG_ERROR, NLS.bind(Messages.ERROR_LOADING_DATA_FILE, file.getAbsolutePath()), e);
-		} catch (Exception e) {
-			Activator.log(null, LogService.LOG_ERROR, NLS.bind(Messages.ERROR_LOADING_DATA_FILE, file.getAbsolutePath()), e);
-		} finally {
-			if (fis != null) {
-				try {
-					fis.close();
-				} catch (Exception e) {
-					// ignore
-				}
-			}
+		File oldDB = bc.getDataFile(CUSTOM_DB_NAME);
+		if (oldDB != null && oldDB.exists()) {
+			//the components will be parsed again and stored in the new format
+			oldDB.delete();
 		}
+		cacheDir = bc.getDataFile(CACHE_DIR_NAME);
 	}
 
 	public Vector loadComponentDefinitions(Bundle bundle, String dsHeader) {
@@ -83,25 +80,14 @@ public class FileStorage extends ComponentStorage {
 				lastModified = getLastModifiedTimestamp(bundle);
 			}
 
-			String[] dbBundlePath = new String[1];
-			dbBundlePath[0] = String.valueOf(bundle.getBundleId());
-
-			String lastModifiedValue = (String) data.get(getPath(dbBundlePath));
-			if (lastModifiedValue == null) {
-				components = processXMLDeclarations(bundle, dsHeader, dbBundlePath, lastModified);
-			} else {
-				long dbLastModified = Long.parseLong(lastModifiedValue);
-				if (lastModified != dbLastModified) {
-					components = processXMLDeclarations(bundle, dsHeader, dbBundlePath, lastModified);
-				} else {
-					try {
-						components = loadComponentsFromDB(bundle);
-					} catch (Throwable t) {
-						Activator.log(null, LogService.LOG_ERROR, Messages.ERROR_LOADING_COMPONENTS, t);
-						//backup plan - parse the bundle's component XML declarations
-						components = processXMLDeclarations(bundle, dsHeader, dbBundlePath, lastModified);
-					}
-				}
+			try {
+				components = loadComponentsFromDB(bundle, lastModified);
+			} catch (Throwable t) {
+				Activator.log(null, LogService.LOG_ERROR, Messages.ERROR_LOADING_COMPONENTS, t);
+			}
+			if (components == null) {
+				//the bundle entry is missing or outdated - parse the bundle's component XML declarations
+				components = processXMLDeclarations(bundle, dsHeader, lastModified);
 			}
 			return components;
 		} catch (Throwable e) {
@@ -110,113 +96,160 @@ public class FileStorage extends ComponentStorage {
 		}
 	}
 
-	private Vector processXMLDeclarations(Bundle bundle, String dsHeader, String[] dbBundlePath, long lastModified) throws Exception {
+	private Vector processXMLDeclarations(Bundle bundle, String dsHeader, long lastModified) throws Exception {
 		Vector components = parseXMLDeclaration(bundle, dsHeader);
 		if (components != null && components.size() != 0) {
-			data.put(getPath(dbBundlePath), "" + lastModified); //$NON-NLS-1$
-			saveComponentDefinitions(components, bundle.getBundleId());
+			saveComponentDefinitions(components, bundle.getBundleId(), lastModified);
 		}
 		return components;
 	}
 
-	private Vector loadComponentsFromDB(Bundle bundle) throws Exception {
-		String[] dbCompPath = new String[] {null, "COMPONENTS"}; //$NON-NLS-1$
-		ServiceComponent currentComponent = null;
+	/**
+	 * Reads the stored components of the bundle
+	 * 
+	 * @param bundle the bundle providing the components
+	 * @param lastModified the current timestamp of the bundle's component definitions
+	 * @return the stored components or <code>null</code> if there is no entry for
+	 *         the bundle or the entry is outdated
+	 * @throws Exception if the bundle entry is corrupted
+	 */
+	private Vector loadComponentsFromDB(Bundle bundle, long lastModified) throws Exception {
 		long bundleId = bundle.getBundleId();
-		dbCompPath[0] = String.valueOf(bundleId);
-		DBObject value = new DBObject();
-		byte[] byteArr = (byte[]) data.get(getPath(dbCompPath));
-		ByteArrayInputStream tmpIn = new ByteArrayInputStream(byteArr);
-		value.readObject(tmpIn);
-		Vector components = value.components;
+		InputStream in = null;
+		Vector components;
+		try {
+			byte[] dirtyEntry = (byte[]) dirtyEntries.get(new Long(bundleId));
+			if (dirtyEntry != null) {
+				in = new ByteArrayInputStream(dirtyEntry);
+			} else {
+				File file = getEntryFile(bundleId);
+				if (file == null || !file.exists()) {
+					return null;
+				}
+				in = new BufferedInputStream(new FileInputStream(file));
+			}
+			components = readEntry(new DataInputStream(in), lastModified);
+		} finally {
+			if (in != null) {
+				try {
+					in.close();
+				} catch (IOException e) {
+					// ignore
+				}
+			}
+		}
 		if (components == null) {
 			return null;
 		}
 		for (int i = 0; i < components.size(); i++) {
-			currentComponent = (ServiceComponent) components.elementAt(i);
+			ServiceComponent currentComponent = (ServiceComponent) components.elementAt(i);
 			currentComponent.bundle = bundle;
 			currentComponent.bc = bundle.getBundleContext();
 		}
 		return components;
 	}
 
+	private Vector readEntry(DataInputStream in, long lastModified) throws Exception {
+		if (in.readInt() != ENTRY_MAGIC || in.readInt() != ENTRY_VERSION) {
+			//the entry is written by an incompatible version
+			return null;
+		}
+		if (in.readLong() != lastModified) {
+			return null;
+		}
+		DBObject value = new DBObject();
+		value.readObject(in);
+		return value.components;
+	}
+
+	private File getEntryFile(long bundleID) {
+		return cacheDir == null ? null : new File(cacheDir, String.valueOf(bundleID));
+	}
+
 	public void deleteComponentDefinitions(long bundleID) {
-		String[] dbBundlePath = new String[1];
-		dbBundlePath[0] = String.valueOf(bundleID);
-		data.remove(getPath(dbBundlePath));
-		String[] dbCompPath = new String[] {null, "COMPONENTS"}; //$NON-NLS-1$
-		dbCompPath[0] = String.valueOf(bundleID);
-		data.remove(getPath(dbCompPath));
-		File file = bc.getDataFile(CUSTOM_DB_NAME);
+		dirtyEntries.remove(new Long(bundleID));
+		File file = getEntryFile(bundleID);
 		if (file != null && file.exists()) {
-			//delete the file to prevent leaving old information in it
 			file.delete();
 		}
-		isDirty = true;
 	}
 
-	private void saveComponentDefinitions(Vector components, long bundleID) throws Exception {
+	private void saveComponentDefinitions(Vector components, long bundleID, long lastModified) throws Exception {
 		try {
 			if (components == null || components.size() == 0) {
 				return;
 			}
-			String[] dbCompPath = new String[] {null, "COMPONENTS"}; //$NON-NLS-1$
-			dbCompPath[0] = String.valueOf(bundleID);
-
-			DBObject tmpObj = new DBObject(components);
 			ByteArrayOutputStream buf = new ByteArrayOutputStream();
-			tmpObj.writeObject(buf);
-			data.put(getPath(dbCompPath), buf.toByteArray());
-			isDirty = true;
+			DataOutputStream out = new DataOutputStream(buf);
+			out.writeInt(ENTRY_MAGIC);
+			out.writeInt(ENTRY_VERSION);
+			out.writeLong(lastModified);
+			DBObject tmpObj = new DBObject(components);
+			tmpObj.writeObject(out);
+			out.flush();
+			dirtyEntries.put(new Long(bundleID), buf.toByteArray());
 		} catch (Exception e) {
 			Activator.log(null, LogService.LOG_ERROR, Messages.ERROR_SAVING_COMPONENT_DEFINITIONS, e);
 		}
 	}
 
 	public void stop() {
-		if (isDirty) {
-			saveFile();
+		if (!dirtyEntries.isEmpty()) {
+			saveEntries();
 		}
 	}
 
-	private void saveFile() {
-		FileOutputStream fos = null;
-		try {
-			File file = bc.getDataFile(CUSTOM_DB_NAME);
-			if (file == null) {
-				//save operation is not possible
-				return;
+	private void saveEntries() {
+		if (cacheDir == null) {
+			//save operation is not possible
+			return;
+		}
+		if (!cacheDir.isDirectory() && !cacheDir.mkdirs()) {
+			Activator.log(null, LogService.LOG_ERROR, Messages.FILE_DOESNT_EXIST_OR_DIRECTORY, null);
+			return;
+		}
+		for (Enumeration keys = dirtyEntries.keys(); keys.hasMoreElements();) {
+			Long bundleID = (Long) keys.nextElement();
+			byte[] entry = (byte[]) dirtyEntries.get(bundleID);
+			if (entry == null) {
+				//deleted in the meantime
+				continue;
 			}
-			fos = new FileOutputStream(file);
+			File file = getEntryFile(bundleID.longValue());
+			// write to a temporary file first, so that a failed write does not corrupt the existing entry
+			File tmpFile = new File(cacheDir, bundleID + TEMP_SUFFIX);
+			FileOutputStream fos = null;
 			try {
-				data.writeObject(fos);
-				isDirty = false;
-			} catch (Exception e) {
+				fos = new FileOutputStream(tmpFile);
+				fos.write(entry);
+				fos.close();
+				fos = null;
+				if (!tmpFile.renameTo(file)) {
+					//the rename may fail if the target exists on some platforms
+					file.delete();
+					if (!tmpFile.renameTo(file)) {
+						throw new IOException(file.getPath());
+					}
+				}
+				dirtyEntries.remove(bundleID);
+			} catch (IOException e) {
 				Activator.log(null, LogService.LOG_ERROR, Messages.ERROR_WRITING_OBJECT, e);
-			}
-		} catch (FileNotFoundException e) {
-			Activator.log(null, LogService.LOG_ERROR, Messages.FILE_DOESNT_EXIST_OR_DIRECTORY, e);
-		} finally {
-			if (fos != null) {
-				try {
-					fos.close();
-				} catch (IOException e) {
-					//ignore
+			} finally {
+				if (fos != null) {
+					try {
+						fos.close();
+					} catch (IOException e) {
+						//ignore
+					}
+				}
+				//do not leave partially written entries
+				if (tmpFile.exists()) {
+					tmpFile.delete();
 				}
 			}
 		}
 	}
 
-	private String getPath(String path[]) {
-		synchronized (pathBuffer) {
-			pathBuffer.setLength(0);
-			for (int i = 0; i < path.length; i++) {
-				pathBuffer.append(path[i]).append(separator);
-			}
-			return pathBuffer.toString();
-		}
-	}
-
 	/**
 	 * The last modified timestamp of the bundle. Should only be called in development mode
 	 * 
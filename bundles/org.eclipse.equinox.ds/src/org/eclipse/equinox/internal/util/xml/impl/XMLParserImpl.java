@@ -111,6 +111,12 @@ public class XMLParserImpl {
 	private String fEncoding = "UTF-8";
 	private String fStandalone = "yes";
 
+	// open addressing table of the interned tag and attribute names found so
+	// far. It allows recognizing a known name directly from the parsed
+	// characters without creating and interning a new String for it
+	private String[] fNames = new String[64];
+	private int fNamesCount = 0;
+
 	/**
 	 * An empty default constructor
 	 * 
@@ -152,6 +158,41 @@ public class XMLParserImpl {
 		fExTagListener = aListener;
 	}
 
+	/**
+	 * Prepares the parser for parsing a new XML file. The internal buffers and
+	 * the table of known tag and attribute names are kept, so reusing one
+	 * parser instance for many similar files is cheaper than creating a new
+	 * parser for each of them. <br>
+	 * <br>
+	 * <b>Note: The XMLReader does not close the passed InputStream
+	 * 
+	 * @param aInputStream
+	 *            an InputStream to read the XML file from
+	 * @param aListener
+	 *            ExTagListener that will be notified on tag-open or tag-close
+	 *            events
+	 */
+	public void reset(InputStream aInputStream, ExTagListener aListener) {
+		fStream = aInputStream;
+		fReader = null;
+		fExTagListener = aListener;
+		temp.setLength(0);
+		if (temp2 != null) {
+			temp2.setLength(0);
+		}
+		currentChar = 0;
+		prev_char = 0;
+		fLine = 1;
+		fPos = 0;
+		fLevel = -1;
+		fCurrentLevel = 1;
+		fBufferLen = 0;
+		fBufferPos = 0;
+		fVersion = "1.0";
+		fEncoding = "UTF-8";
+		fStandalone = "yes";
+	}
+
 	/**
 	 * Sets the level of tags bellow which the listener will be notified for.
 	 * For internal use only.
@@ -434,21 +475,63 @@ public class XMLParserImpl {
 	protected String parse_identifier() throws IOException {
 		if (isNameStartChar(currentChar)) {
 			CharBuffer sb = getCharBuffer();
+			int hash = 0;
 
 			while (isNameChar(currentChar)) {
 				sb.append(currentChar);
+				hash = 31 * hash + currentChar;
 
 				if (!getNextChar()) {
 					break;
 				}
 			}
-			String result = sb.toString().intern();
+			String result = getName(sb, hash);
 			sb.setLength(0);
 			return result;
 		}
 		return null;
 	}
 
+	/**
+	 * Returns the interned name equal to the content of the passed buffer.
+	 * 
+	 * @param sb
+	 *            the buffer holding the name characters
+	 * @param hash
+	 *            the hash code of the name, computed as
+	 *            <code>String.hashCode()</code> does
+	 * @return the interned name
+	 */
+	private String getName(CharBuffer sb, int hash) {
+		int mask = fNames.length - 1;
+		int i = hash & mask;
+		String name;
+		while ((name = fNames[i]) != null) {
+			if (name.hashCode() == hash && sb.equals(0, name)) {
+				return name;
+			}
+			i = (i + 1) & mask;
+		}
+		name = sb.toString().intern();
+		fNames[i] = name;
+		if (++fNamesCount > (fNames.length >> 1) + (fNames.length >> 2)) {
+			// keep the table at most 3/4 full
+			String[] oldNames = fNames;
+			fNames = new String[oldNames.length << 1];
+			mask = fNames.length - 1;
+			for (int j = 0; j < oldNames.length; j++) {
+				if (oldNames[j] != null) {
+					int k = oldNames[j].hashCode() & mask;
+					while (fNames[k] != null) {
+						k = (k + 1) & mask;
+					}
+					fNames[k] = oldNames[j];
+				}
+			}
+		}
+		return name;
+	}
+
 	/**
 	 * Parses a tag name and if it is successfully parsed the method sets it as
 	 * a name of the parent tag
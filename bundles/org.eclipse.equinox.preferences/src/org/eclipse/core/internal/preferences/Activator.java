@@ -64,6 +64,7 @@ public class Activator implements BundleActivator, ServiceTrackerCustomizer {
 		// Open the services first before processing the command-line args, order is important! (Bug 150288)
 		PreferencesOSGiUtils.getDefault().openServices();
 		processCommandLine();
+		DeferredFlusher.start(context.getProperty(DeferredFlusher.PROP_DEFERRED_FLUSH));
 
 		boolean shouldRegister = !"false".equalsIgnoreCase(context.getProperty(PROP_REGISTER_PERF_SERVICE)); //$NON-NLS-1$
 		if (shouldRegister) {
@@ -79,6 +80,8 @@ public class Activator implements BundleActivator, ServiceTrackerCustomizer {
 	 * @see org.osgi.framework.BundleActivator#stop(org.osgi.framework.BundleContext)
 	 */
 	public void stop(BundleContext context) throws Exception {
+		// write the nodes whose flush was deferred while the locations are still available
+		DeferredFlusher.stop();
 		PreferencesOSGiUtils.getDefault().closeServices();
 		if (registryServiceTracker != null) {
 			registryServiceTracker.close();
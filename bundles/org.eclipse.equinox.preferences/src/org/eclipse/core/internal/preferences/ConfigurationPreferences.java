@@ -99,6 +99,10 @@ public class ConfigurationPreferences extends EclipsePreferences {
 		return loadLevel;
 	}
 
+	protected boolean isFlushDeferred() {
+		return true;
+	}
+
 	protected void initializeChildren() {
 		if (initialized || parent == null)
 			return;
@@ -0,0 +1,295 @@
+/*******************************************************************************
+ * Copyright (c) 2014 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.core.internal.preferences;
+
+import java.util.*;
+import org.osgi.service.prefs.BackingStoreException;
+
+/**
+ * Writes dirty preference nodes to disk in the background.
+ * <p>
+ * When deferred flushing is enabled (see {@link #PROP_DEFERRED_FLUSH}), flushing
+ * a load level node only marks it as pending. A single background thread waits
+ * until the oldest pending node has been waiting for the configured window and
+ * then saves all pending nodes in one batch, so that several flushes of the same
+ * node done within the window result in a single write.
+ * </p><p>
+ * Pending nodes are written synchronously when the node is synced and when
+ * the preferences bundle is stopped. Nodes flushed after the flusher has been
+ * stopped are written synchronously by the flushing thread.
+ * </p>
+ */
+public class DeferredFlusher implements Runnable {
+
+	/**
+	 * Framework property holding the time window in milliseconds in which
+	 * flushes of a node are coalesced. Deferred flushing is disabled if the
+	 * property is not set or its value is not positive.
+	 */
+	public static final String PROP_DEFERRED_FLUSH = "eclipse.preferences.deferredFlush"; //$NON-NLS-1$
+
+	// the maximum time in milliseconds to wait for the writer thread on stop
+	private static final long STOP_TIMEOUT = 10000;
+
+	private static DeferredFlusher instance;
+
+	private final long window;
+	// EclipsePreferences -> Long (time in milliseconds when the node was marked)
+	private final Map pending = new LinkedHashMap();
+	private Thread thread;
+	private boolean stopped = false;
+
+	// statistics
+	private long flushCount = 0;
+	private long totalLatency = 0;
+	private long maxLatency = 0;
+	private long batchCount = 0;
+	private long failureCount = 0;
+	private static long bytesWritten = 0;
+
+	private DeferredFlusher(long window) {
+		this.window = window;
+	}
+
+	/**
+	 * Enables deferred flushing if configured with the {@link #PROP_DEFERRED_FLUSH}
+	 * property.
+	 *
+	 * @param value the value of the property, may be <code>null</code>
+	 */
+	static synchronized void start(String value) {
+		if (instance != null || value == null)
+			return;
+		long window;
+		try {
+			window = Long.parseLong(value.trim());
+		} catch (NumberFormatException e) {
+			return;
+		}
+		if (window > 0)
+			instance = new DeferredFlusher(window);
+	}
+
+	/**
+	 * Writes all pending nodes and disables deferred flushing. Waits for the
+	 * background thread to finish the batch it is writing, if any.
+	 */
+	static void stop() {
+		DeferredFlusher flusher;
+		synchronized (DeferredFlusher.class) {
+			flusher = instance;
+			instance = null;
+		}
+		if (flusher == null)
+			return;
+		Thread writer;
+		synchronized (flusher) {
+			flusher.stopped = true;
+			writer = flusher.thread;
+			flusher.notifyAll();
+		}
+		if (writer != null && writer != Thread.currentThread()) {
+			try {
+				writer.join(STOP_TIMEOUT);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		flusher.flushAll();
+	}
+
+	/**
+	 * Returns the active flusher or <code>null</code> if deferred flushing is
+	 * disabled.
+	 */
+	public static synchronized DeferredFlusher getDefault() {
+		return instance;
+	}
+
+	/**
+	 * Marks the given load level node as pending. The node will be saved
+	 * by the background thread.
+	 *
+	 * @return <code>false</code> if the flusher has been stopped, in which case
+	 * the caller has to save the node itself
+	 */
+	synchronized boolean schedule(EclipsePreferences node) {
+		if (stopped)
+			return false;
+		if (pending.containsKey(node))
+			return true;
+		pending.put(node, new Long(System.currentTimeMillis()));
+		if (thread == null) {
+			thread = new Thread(this, "Preferences Flusher"); //$NON-NLS-1$
+			thread.setDaemon(true);
+			thread.start();
+		}
+		notifyAll();
+		return true;
+	}
+
+	/**
+	 * Saves the given node now if it is pending.
+	 */
+	void flush(EclipsePreferences node) throws BackingStoreException {
+		Long marked;
+		synchronized (this) {
+			marked = (Long) pending.remove(node);
+		}
+		if (marked != null)
+			save(node, marked.longValue());
+	}
+
+	/**
+	 * Saves all pending nodes now.
+	 */
+	void flushAll() {
+		Map batch;
+		synchronized (this) {
+			if (pending.isEmpty())
+				return;
+			batch = new LinkedHashMap(pending);
+			pending.clear();
+		}
+		saveAll(batch);
+	}
+
+	public void run() {
+		while (true) {
+			Map batch;
+			synchronized (this) {
+				try {
+					while (pending.isEmpty() && !stopped)
+						wait();
+					if (stopped)
+						break;
+					// wait until the oldest pending node has been waiting for the whole window
+					long oldest = ((Long) pending.values().iterator().next()).longValue();
+					long delay = oldest + window - System.currentTimeMillis();
+					if (delay > 0 && delay <= window) {
+						wait(delay);
+						continue;
+					}
+				} catch (InterruptedException e) {
+					continue;
+				}
+				batch = new LinkedHashMap(pending);
+				pending.clear();
+			}
+			saveAll(batch);
+		}
+		synchronized (this) {
+			thread = null;
+		}
+	}
+
+	private void saveAll(Map batch) {
+		synchronized (this) {
+			batchCount++;
+		}
+		if (EclipsePreferences.DEBUG_PREFERENCE_GENERAL)
+			PrefsMessages.message("Flushing " + batch.size() + " deferred preference node(s)"); //$NON-NLS-1$ //$NON-NLS-2$
+		for (Iterator i = batch.entrySet().iterator(); i.hasNext();) {
+			Map.Entry entry = (Map.Entry) i.next();
+			try {
+				save((EclipsePreferences) entry.getKey(), ((Long) entry.getValue()).longValue());
+			} catch (BackingStoreException e) {
+				// already logged by the node. it stays dirty so the next flush marks it again
+			} catch (RuntimeException e) {
+				PrefsMessages.message("Unable to flush preferences: " + e.getMessage()); //$NON-NLS-1$
+			}
+		}
+	}
+
+	private void save(EclipsePreferences node, long marked) throws BackingStoreException {
+		boolean failed = true;
+		try {
+			node.flushDeferred();
+			failed = false;
+		} finally {
+			long latency = Math.max(0, System.currentTimeMillis() - marked);
+			synchronized (this) {
+				if (failed) {
+					failureCount++;
+				} else {
+					flushCount++;
+					totalLatency += latency;
+					if (latency > maxLatency)
+						maxLatency = latency;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Counts the bytes written to a preference file.
+	 */
+	static synchronized void written(int bytes) {
+		bytesWritten += bytes;
+	}
+
+	/**
+	 * Returns the window in milliseconds in which flushes are coalesced.
+	 */
+	public long getWindow() {
+		return window;
+	}
+
+	/**
+	 * Returns the number of nodes waiting to be saved.
+	 */
+	public synchronized int getPendingCount() {
+		return pending.size();
+	}
+
+	/**
+	 * Returns the number of node saves done by the flusher.
+	 */
+	public synchronized long getFlushCount() {
+		return flushCount;
+	}
+
+	/**
+	 * Returns the number of batches written by the flusher.
+	 */
+	public synchronized long getBatchCount() {
+		return batchCount;
+	}
+
+	/**
+	 * Returns the number of node saves which failed.
+	 */
+	public synchronized long getFailureCount() {
+		return failureCount;
+	}
+
+	/**
+	 * Returns the total time in milliseconds between marking a node as pending
+	 * and saving it, summed over all saves.
+	 */
+	public synchronized long getTotalLatency() {
+		return totalLatency;
+	}
+
+	/**
+	 * Returns the longest time in milliseconds a node has waited to be saved.
+	 */
+	public synchronized long getMaxLatency() {
+		return maxLatency;
+	}
+
+	/**
+	 * Returns the number of bytes written to preference files.
+	 */
+	public static synchronized long getBytesWritten() {
+		return bytesWritten;
+	}
+}
@@ -27,9 +27,12 @@ import org.osgi.service.prefs.Preferences;
  * 
  * Implementation notes:
  * 
- *  - For thread safety, we always synchronize on <tt>writeLock</tt> when writing
+ *  - For thread safety, we always synchronize on <tt>childAndPropertyLock</tt> when writing
  * the children or properties fields.  Must ensure we don't synchronize when calling
  * client code such as listeners.
+ *  - The properties and children maps are never modified once they are assigned to
+ * their fields. Writers replace them with modified copies, so readers only need
+ * to read the (volatile) fields and don't synchronize.
  * 
  * @since 3.0
  */
@@ -48,10 +51,10 @@ public class EclipsePreferences implements IEclipsePreferences, IScope {
 	protected static final String EMPTY_STRING = ""; //$NON-NLS-1$
 
 	private String cachedPath;
-	protected ImmutableMap properties = ImmutableMap.EMPTY;
-	protected Map children;
+	protected volatile ImmutableMap properties = ImmutableMap.EMPTY;
+	protected volatile Map children;
 	/**
-	 * Protects write access to properties and children.
+	 * Protects write access to properties and children. Reads don't need it.
 	 */
 	private Object childAndPropertyLock = new Object();
 	protected boolean dirty = false;
@@ -59,7 +62,7 @@ public class EclipsePreferences implements IEclipsePreferences, IScope {
 	protected final String name;
 	// the parent of an EclipsePreference node is always an EclipsePreference node. (or null)
 	protected final EclipsePreferences parent;
-	protected boolean removed = false;
+	protected volatile boolean removed = false;
 	private ListenerList nodeChangeListeners;
 	private ListenerList preferenceChangeListeners;
 	private ScopeDescriptor descriptor;
@@ -142,6 +145,14 @@ public class EclipsePreferences implements IEclipsePreferences, IScope {
 		return cachedPath;
 	}
 
+	/*
+	 * Return the absolute path of the child with the given name.
+	 */
+	private String childPath(String childName) {
+		String path = absolutePath();
+		return path.length() == 1 ? path + childName : path + PATH_SEPARATOR + childName;
+	}
+
 	public void accept(IPreferenceNodeVisitor visitor) throws BackingStoreException {
 		if (!visitor.visit(this))
 			return;
@@ -153,11 +164,12 @@ public class EclipsePreferences implements IEclipsePreferences, IScope {
 	protected IEclipsePreferences addChild(String childName, IEclipsePreferences child) {
 		//Thread safety: synchronize method to protect modification of children field
 		synchronized (childAndPropertyLock) {
-			if (children == null)
-				children = Collections.synchronizedMap(new HashMap());
-			children.put(childName, child == null ? (Object) childName : child);
-			return child;
+			Map newChildren = children == null ? new HashMap() : new HashMap(children);
+			newChildren.put(childName, child == null ? (Object) childName : child);
+			children = newChildren;
 		}
+		PreferencesService.nodeTreeChanged(childPath(childName));
+		return child;
 	}
 
 	/*
@@ -218,11 +230,10 @@ public class EclipsePreferences implements IEclipsePreferences, IScope {
 	}
 
 	protected String[] internalChildNames() {
-		synchronized (childAndPropertyLock) {
-			if (children == null || children.size() == 0)
-				return EMPTY_STRING_ARRAY;
-			return (String[]) children.keySet().toArray(EMPTY_STRING_ARRAY);
-		}
+		Map temp = children;
+		if (temp == null || temp.size() == 0)
+			return EMPTY_STRING_ARRAY;
+		return (String[]) temp.keySet().toArray(EMPTY_STRING_ARRAY);
 	}
 
 	/*
@@ -233,10 +244,7 @@ public class EclipsePreferences implements IEclipsePreferences, IScope {
 		checkRemoved();
 		// call each one separately (instead of Properties.clear) so
 		// clients get change notification
-		String[] keys;
-		synchronized (childAndPropertyLock) {
-			keys = properties.keys();
-		}
+		String[] keys = properties.keys();
 		//don't synchronize remove call because it calls listeners
 		for (int i = 0; i < keys.length; i++)
 			remove(keys[i]);
@@ -315,8 +323,10 @@ public class EclipsePreferences implements IEclipsePreferences, IScope {
 		OutputStream output = null;
 		try {
 			output = new SafeFileOutputStream(new File(location.toOSString()));
-			output.write(removeTimestampFromTable(properties).getBytes("UTF-8")); //$NON-NLS-1$
+			byte[] bytes = removeTimestampFromTable(properties).getBytes("UTF-8"); //$NON-NLS-1$
+			output.write(bytes);
 			output.flush();
+			DeferredFlusher.written(bytes.length);
 		} catch (IOException e) {
 			String message = NLS.bind(PrefsMessages.preferences_saveException, location);
 			log(new Status(IStatus.ERROR, PrefsMessages.OWNER_NAME, IStatus.ERROR, message, e));
@@ -352,10 +362,7 @@ public class EclipsePreferences implements IEclipsePreferences, IScope {
 		// add the key/value pairs from this node
 		boolean addSeparator = prefix.length() != 0;
 		//thread safety: copy reference in case of concurrent change
-		ImmutableMap temp;
-		synchronized (childAndPropertyLock) {
-			temp = properties;
-		}
+		ImmutableMap temp = properties;
 		String[] keys = temp.keys();
 		for (int i = 0, imax = keys.length; i < imax; i++) {
 			String value = temp.get(keys[i]);
@@ -464,6 +471,12 @@ public class EclipsePreferences implements IEclipsePreferences, IScope {
 		// any work to do?
 		if (!dirty)
 			return null;
+		if (isFlushDeferred()) {
+			DeferredFlusher flusher = DeferredFlusher.getDefault();
+			// the background writer saves the node later unless it has been stopped meanwhile
+			if (flusher != null && flusher.schedule(this))
+				return null;
+		}
 		//remove dirty bit before saving, to ensure that concurrent 
 		//changes during save mark the store as dirty
 		dirty = false;
@@ -477,6 +490,33 @@ public class EclipsePreferences implements IEclipsePreferences, IScope {
 		return null;
 	}
 
+	/*
+	 * Returns whether flushing this load level node may be deferred to the 
+	 * background writer when deferred flushing is enabled. Only nodes which are
+	 * saved to their own file should answer true. Subclasses to over-ride.
+	 */
+	protected boolean isFlushDeferred() {
+		return false;
+	}
+
+	/*
+	 * Saves this load level node if it is still dirty. Called by the background
+	 * writer for the nodes whose flush was deferred.
+	 */
+	void flushDeferred() throws BackingStoreException {
+		synchronized (childAndPropertyLock) {
+			if (removed || !dirty)
+				return;
+			dirty = false;
+			try {
+				save();
+			} catch (BackingStoreException e) {
+				dirty = true;
+				throw e;
+			}
+		}
+	}
+
 	/*
 	 * @see org.osgi.service.prefs.Preferences#get(java.lang.String, java.lang.String)
 	 */
@@ -506,11 +546,10 @@ public class EclipsePreferences implements IEclipsePreferences, IScope {
 	 * name is known to this node.
 	 */
 	protected boolean childExists(String childName) {
-		synchronized (childAndPropertyLock) {
-			if (children == null)
-				return false;
-			return children.get(childName) != null;
-		}
+		Map temp = children;
+		if (temp == null)
+			return false;
+		return temp.get(childName) != null;
 	}
 
 	/**
@@ -518,19 +557,18 @@ public class EclipsePreferences implements IEclipsePreferences, IScope {
 	 * that matches the given key, or null if there is no matching child.
 	 */
 	protected IEclipsePreferences getChild(String key, Object context, boolean create) {
-		synchronized (childAndPropertyLock) {
-			if (children == null)
-				return null;
-			Object value = children.get(key);
-			if (value == null)
-				return null;
-			if (value instanceof IEclipsePreferences)
-				return (IEclipsePreferences) value;
-			// if we aren't supposed to create this node, then 
-			// just return null
-			if (!create)
-				return null;
-		}
+		Map temp = children;
+		if (temp == null)
+			return null;
+		Object value = temp.get(key);
+		if (value == null)
+			return null;
+		if (value instanceof IEclipsePreferences)
+			return (IEclipsePreferences) value;
+		// if we aren't supposed to create this node, then 
+		// just return null
+		if (!create)
+			return null;
 		return addChild(key, create(this, key, context));
 	}
 
@@ -635,10 +673,7 @@ public class EclipsePreferences implements IEclipsePreferences, IScope {
 			throw new NullPointerException();
 		// illegal state if this node has been removed
 		checkRemoved();
-		String result;
-		synchronized (childAndPropertyLock) {
-			result = properties.get(key);
-		}
+		String result = properties.get(key);
 		if (DEBUG_PREFERENCE_GET)
 			PrefsMessages.message("Getting preference value: " + absolutePath() + '/' + key + "->" + result); //$NON-NLS-1$ //$NON-NLS-2$
 		return result;
@@ -707,10 +742,8 @@ public class EclipsePreferences implements IEclipsePreferences, IScope {
 	 */
 	public String[] keys() {
 		// illegal state if this node has been removed
-		synchronized (childAndPropertyLock) {
-			checkRemoved();
-			return properties.keys();
-		}
+		checkRemoved();
+		return properties.keys();
 	}
 
 	/**
@@ -1060,11 +1093,13 @@ public class EclipsePreferences implements IEclipsePreferences, IScope {
 	protected Object removeNode(String key) {
 		synchronized (childAndPropertyLock) {
 			if (children != null) {
-				Object result = children.remove(key);
+				Map newChildren = new HashMap(children);
+				Object result = newChildren.remove(key);
 				if (result != null)
 					makeDirty();
-				if (children.isEmpty())
-					children = null;
+				children = newChildren.isEmpty() ? null : newChildren;
+				if (result != null)
+					PreferencesService.nodeTreeChanged(childPath(key));
 				return result;
 			}
 		}
@@ -1145,10 +1180,7 @@ public class EclipsePreferences implements IEclipsePreferences, IScope {
 	 */
 	public void shareStrings(StringPool pool) {
 		//thread safety: copy reference in case of concurrent change	
-		ImmutableMap temp;
-		synchronized (childAndPropertyLock) {
-			temp = properties;
-		}
+		ImmutableMap temp = properties;
 		temp.shareStrings(pool);
 		IEclipsePreferences[] myChildren = getChildren(false);
 		for (int i = 0; i < myChildren.length; i++)
@@ -1270,6 +1302,10 @@ public class EclipsePreferences implements IEclipsePreferences, IScope {
 			return;
 		}
 		if (node instanceof EclipsePreferences) {
+			// write a deferred flush before reading the file
+			DeferredFlusher flusher = DeferredFlusher.getDefault();
+			if (flusher != null)
+				flusher.flush((EclipsePreferences) node);
 			((EclipsePreferences) node).load();
 			node.flush();
 		}
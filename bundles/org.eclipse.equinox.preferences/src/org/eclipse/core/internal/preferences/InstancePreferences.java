@@ -187,6 +187,10 @@ public class InstancePreferences extends EclipsePreferences {
 		return loadLevel;
 	}
 
+	protected boolean isFlushDeferred() {
+		return true;
+	}
+
 	/*
 	 * Initialize the children for the root of this node. Store the names as
 	 * keys in the children table so we can lazily load them later.
@@ -14,6 +14,7 @@ package org.eclipse.core.internal.preferences;
 import java.io.*;
 import java.lang.ref.WeakReference;
 import java.util.*;
+import org.eclipse.core.internal.runtime.LookupTable;
 import org.eclipse.core.internal.runtime.RuntimeLog;
 import org.eclipse.core.runtime.*;
 import org.eclipse.core.runtime.preferences.*;
@@ -56,6 +57,107 @@ public class PreferencesService implements IPreferencesService {
 	 */
 	private long lastStringSharing = 0;
 
+	/**
+	 * The maximum number of node chains kept in the cache.
+	 */
+	private static final int MAX_CACHED_CHAINS = 1000;
+
+	/**
+	 * Cache of the nodes searched for a preference. Maps ChainKey -> NodeChain
+	 * (qualifier, key and scope contexts -> nodes). The whole cache is discarded
+	 * when it is full.
+	 * Thread safety note: The table is only modified while holding the nodeChainLock,
+	 * so readers do not need any synchronization.
+	 */
+	private final LookupTable nodeChains = new LookupTable(64);
+
+	/**
+	 * The cached node chains by the paths of their nodes. Maps String -> Set of NodeChain
+	 * (absolute path of a node or of an ancestor of a node -> chains containing the node).
+	 * Used to discard the chains affected by a change of the preference tree.
+	 * Guarded by the nodeChainLock.
+	 */
+	private final Map pathChains = new HashMap();
+	private final Object nodeChainLock = new Object();
+
+	/**
+	 * Incremented each time node chains are discarded, so that chains computed
+	 * meanwhile are not cached. Guarded by the nodeChainLock.
+	 */
+	private int nodeChainGeneration;
+
+	/**
+	 * The key of a cached node chain.
+	 */
+	private static final class ChainKey {
+		final String qualifier;
+		final String key;
+		// null if the default scopes are searched
+		final IScopeContext[] contexts;
+		private final int hash;
+
+		ChainKey(String qualifier, String key, IScopeContext[] contexts) {
+			this.qualifier = qualifier;
+			this.key = key;
+			this.contexts = contexts == null || contexts.length == 0 ? null : contexts;
+			int h = (qualifier == null ? 0 : qualifier.hashCode()) * 31 + (key == null ? 0 : key.hashCode());
+			if (this.contexts != null) {
+				for (int i = 0; i < contexts.length; i++)
+					h = h * 31 + (contexts[i] == null ? 0 : contexts[i].hashCode());
+			}
+			hash = h;
+		}
+
+		public boolean equals(Object obj) {
+			if (this == obj)
+				return true;
+			if (!(obj instanceof ChainKey))
+				return false;
+			ChainKey other = (ChainKey) obj;
+			return hash == other.hash && equals(qualifier, other.qualifier) && equals(key, other.key) && Arrays.equals(contexts, other.contexts);
+		}
+
+		private static boolean equals(String a, String b) {
+			return a == null ? b == null : a.equals(b);
+		}
+
+		public int hashCode() {
+			return hash;
+		}
+	}
+
+	/**
+	 * The nodes searched for a preference key in a given set of scope contexts.
+	 */
+	private static final class NodeChain {
+		final ChainKey key;
+		final String simpleKey;
+		final Preferences[] nodes;
+		// the paths of the nodes and of their ancestors
+		final String[] paths;
+
+		NodeChain(ChainKey key, String simpleKey, Preferences[] nodes) {
+			this.key = key;
+			this.simpleKey = simpleKey;
+			this.nodes = nodes;
+			Set result = new HashSet();
+			for (int i = 0; i < nodes.length; i++) {
+				String path = nodes[i].absolutePath();
+				while (path.length() > 1 && result.add(path))
+					path = path.substring(0, Math.max(1, path.lastIndexOf(IPath.SEPARATOR)));
+			}
+			paths = (String[]) result.toArray(new String[result.size()]);
+		}
+
+		boolean isValid() {
+			for (int i = 0; i < nodes.length; i++) {
+				if (((EclipsePreferences) nodes[i]).removed)
+					return false;
+			}
+			return true;
+		}
+	}
+
 	/*
 	 * Create and return an IStatus object with ERROR severity and the
 	 * given message and exception.
@@ -474,7 +576,7 @@ public class PreferencesService implements IPreferencesService {
 	 * @see org.eclipse.core.runtime.preferences.IPreferencesService#getBoolean(java.lang.String, java.lang.String, boolean, org.eclipse.core.runtime.preferences.IScope[])
 	 */
 	public boolean getBoolean(String qualifier, String key, boolean defaultValue, IScopeContext[] scopes) {
-		String result = get(EclipsePreferences.decodePath(key)[1], null, getNodes(qualifier, key, scopes));
+		String result = getValue(qualifier, key, null, scopes);
 		return result == null ? defaultValue : Boolean.valueOf(result).booleanValue();
 	}
 
@@ -512,7 +614,7 @@ public class PreferencesService implements IPreferencesService {
 	 * @see org.eclipse.core.runtime.preferences.IPreferencesService#getByteArray(java.lang.String, java.lang.String, byte[], org.eclipse.core.runtime.preferences.IScope[])
 	 */
 	public byte[] getByteArray(String qualifier, String key, byte[] defaultValue, IScopeContext[] scopes) {
-		String result = get(EclipsePreferences.decodePath(key)[1], null, getNodes(qualifier, key, scopes));
+		String result = getValue(qualifier, key, null, scopes);
 		return result == null ? defaultValue : Base64.decode(result.getBytes());
 	}
 
@@ -528,7 +630,7 @@ public class PreferencesService implements IPreferencesService {
 	 * @see org.eclipse.core.runtime.preferences.IPreferencesService#getDouble(java.lang.String, java.lang.String, double, org.eclipse.core.runtime.preferences.IScope[])
 	 */
 	public double getDouble(String qualifier, String key, double defaultValue, IScopeContext[] scopes) {
-		String value = get(EclipsePreferences.decodePath(key)[1], null, getNodes(qualifier, key, scopes));
+		String value = getValue(qualifier, key, null, scopes);
 		if (value == null)
 			return defaultValue;
 		try {
@@ -542,7 +644,7 @@ public class PreferencesService implements IPreferencesService {
 	 * @see org.eclipse.core.runtime.preferences.IPreferencesService#getFloat(java.lang.String, java.lang.String, float, org.eclipse.core.runtime.preferences.IScope[])
 	 */
 	public float getFloat(String qualifier, String key, float defaultValue, IScopeContext[] scopes) {
-		String value = get(EclipsePreferences.decodePath(key)[1], null, getNodes(qualifier, key, scopes));
+		String value = getValue(qualifier, key, null, scopes);
 		if (value == null)
 			return defaultValue;
 		try {
@@ -556,7 +658,7 @@ public class PreferencesService implements IPreferencesService {
 	 * @see org.eclipse.core.runtime.preferences.IPreferencesService#getInt(java.lang.String, java.lang.String, int, org.eclipse.core.runtime.preferences.IScope[])
 	 */
 	public int getInt(String qualifier, String key, int defaultValue, IScopeContext[] scopes) {
-		String value = get(EclipsePreferences.decodePath(key)[1], null, getNodes(qualifier, key, scopes));
+		String value = getValue(qualifier, key, null, scopes);
 		if (value == null)
 			return defaultValue;
 		try {
@@ -574,7 +676,7 @@ public class PreferencesService implements IPreferencesService {
 	 * @see org.eclipse.core.runtime.preferences.IPreferencesService#getLong(java.lang.String, java.lang.String, long, org.eclipse.core.runtime.preferences.IScope[])
 	 */
 	public long getLong(String qualifier, String key, long defaultValue, IScopeContext[] scopes) {
-		String value = get(EclipsePreferences.decodePath(key)[1], null, getNodes(qualifier, key, scopes));
+		String value = getValue(qualifier, key, null, scopes);
 		if (value == null)
 			return defaultValue;
 		try {
@@ -598,9 +700,124 @@ public class PreferencesService implements IPreferencesService {
 		return order;
 	}
 
-	private Preferences[] getNodes(final String qualifier, String key, final IScopeContext[] contexts) {
+	/*
+	 * Return the value of the given preference key, searching the nodes for the given
+	 * qualifier and scope contexts in the lookup order.
+	 */
+	private String getValue(String qualifier, String key, String defaultValue, IScopeContext[] contexts) {
+		NodeChain chain = getNodeChain(qualifier, key, contexts);
+		return get(chain.simpleKey, defaultValue, chain.nodes);
+	}
+
+	/*
+	 * Return the nodes to search for the given key. The result is cached until
+	 * the lookup order is changed or nodes are added or removed.
+	 */
+	private NodeChain getNodeChain(String qualifier, String key, IScopeContext[] contexts) {
+		ChainKey chainKey = new ChainKey(qualifier, key, contexts);
+		NodeChain chain = (NodeChain) nodeChains.get(chainKey);
+		if (chain != null && chain.isValid())
+			return chain;
+		int generation;
+		synchronized (nodeChainLock) {
+			generation = nodeChainGeneration;
+		}
+		String[] decoded = EclipsePreferences.decodePath(key);
+		boolean[] failed = new boolean[1];
+		Preferences[] nodes = getNodes(qualifier, key, decoded[0], contexts, failed);
+		for (int i = 0; i < nodes.length; i++) {
+			// only nodes which could be checked for removal are cached
+			if (!(nodes[i] instanceof EclipsePreferences))
+				failed[0] = true;
+		}
+		if (failed[0])
+			return new NodeChain(chainKey, decoded[1], nodes);
+		if (chainKey.contexts != null)
+			// the caller may modify its array
+			chainKey = new ChainKey(qualifier, key, (IScopeContext[]) contexts.clone());
+		chain = new NodeChain(chainKey, decoded[1], nodes);
+		synchronized (nodeChainLock) {
+			if (generation == nodeChainGeneration)
+				cacheNodeChain(chain);
+		}
+		return chain;
+	}
+
+	/*
+	 * Add the chain to the cache. Called while holding the nodeChainLock.
+	 */
+	private void cacheNodeChain(NodeChain chain) {
+		NodeChain old = (NodeChain) nodeChains.get(chain.key);
+		if (old != null)
+			removeNodeChain(old);
+		else if (nodeChains.size() >= MAX_CACHED_CHAINS) {
+			nodeChains.clear();
+			pathChains.clear();
+		}
+		nodeChains.put(chain.key, chain);
+		for (int i = 0; i < chain.paths.length; i++) {
+			Set chains = (Set) pathChains.get(chain.paths[i]);
+			if (chains == null) {
+				chains = new HashSet(4);
+				pathChains.put(chain.paths[i], chains);
+			}
+			chains.add(chain);
+		}
+	}
+
+	/*
+	 * Remove the chain from the cache. Called while holding the nodeChainLock.
+	 */
+	private void removeNodeChain(NodeChain chain) {
+		if (nodeChains.get(chain.key) == chain)
+			nodeChains.remove(chain.key);
+		for (int i = 0; i < chain.paths.length; i++) {
+			Set chains = (Set) pathChains.get(chain.paths[i]);
+			if (chains != null && chains.remove(chain) && chains.isEmpty())
+				pathChains.remove(chain.paths[i]);
+		}
+	}
+
+	/*
+	 * Discard the cached node chains.
+	 */
+	void clearNodeChains() {
+		synchronized (nodeChainLock) {
+			nodeChainGeneration++;
+			nodeChains.clear();
+			pathChains.clear();
+		}
+	}
+
+	/*
+	 * Discard the cached node chains containing the node with the given path
+	 * or one of its descendants.
+	 */
+	void clearNodeChains(String path) {
+		synchronized (nodeChainLock) {
+			nodeChainGeneration++;
+			Set chains = (Set) pathChains.get(path);
+			if (chains == null)
+				return;
+			Object[] affected = chains.toArray();
+			for (int i = 0; i < affected.length; i++)
+				removeNodeChain((NodeChain) affected[i]);
+		}
+	}
+
+	/*
+	 * Called when the node with the given absolute path is added to or removed
+	 * from the preference tree.
+	 */
+	static void nodeTreeChanged(String path) {
+		PreferencesService service = instance;
+		if (service != null)
+			service.clearNodeChains(path);
+	}
+
+	private Preferences[] getNodes(final String qualifier, String key, String path, final IScopeContext[] contexts, final boolean[] failed) {
 		String[] order = getLookupOrder(qualifier, key);
-		final String childPath = EclipsePreferences.makeRelative(EclipsePreferences.decodePath(key)[0]);
+		final String childPath = EclipsePreferences.makeRelative(path);
 		final ArrayList result = new ArrayList();
 		for (int i = 0; i < order.length; i++) {
 			final String scopeString = order[i];
@@ -629,6 +846,7 @@ public class PreferencesService implements IPreferencesService {
 				}
 
 				public void handleException(Throwable exception) {
+					failed[0] = true;
 					log(new Status(IStatus.ERROR, Activator.PI_PREFERENCES, PrefsMessages.preferences_contextError, exception));
 				}
 			});
@@ -673,7 +891,7 @@ public class PreferencesService implements IPreferencesService {
 	 * @see org.eclipse.core.runtime.preferences.IPreferencesService#getString(java.lang.String, java.lang.String, java.lang.String, org.eclipse.core.runtime.preferences.IScope[])
 	 */
 	public String getString(String qualifier, String key, String defaultValue, IScopeContext[] scopes) {
-		return get(EclipsePreferences.decodePath(key)[1], defaultValue, getNodes(qualifier, key, scopes));
+		return getValue(qualifier, key, defaultValue, scopes);
 	}
 
 	/*
@@ -930,6 +1148,7 @@ public class PreferencesService implements IPreferencesService {
 			LookupOrder obj = new LookupOrder(order);
 			defaultsRegistry.put(registryKey, obj);
 		}
+		clearNodeChains();
 	}
 
 	public void setRegistryHelper(Object registryHelper) {
@@ -1121,5 +1340,6 @@ public class PreferencesService implements IPreferencesService {
 		if (order == null)
 			order = new String[0];
 		DEFAULT_DEFAULT_LOOKUP_ORDER = order;
+		clearNodeChains();
 	}
 }
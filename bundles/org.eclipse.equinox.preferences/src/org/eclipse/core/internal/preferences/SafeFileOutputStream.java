@@ -67,6 +67,9 @@ public class SafeFileOutputStream extends OutputStream {
 	protected void commit() throws IOException {
 		if (!temp.exists())
 			return;
+		// replace the target atomically where the file system allows renaming over an existing file
+		if (temp.renameTo(target))
+			return;
 		target.delete();
 		copy(temp, target);
 		temp.delete();
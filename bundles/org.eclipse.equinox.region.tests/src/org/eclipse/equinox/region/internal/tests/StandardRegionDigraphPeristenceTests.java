@@ -164,6 +164,46 @@ public class StandardRegionDigraphPeristenceTests {
 		readDigraph(byteArray);
 	}
 
+	@Test
+	public void testLoadVersion1() throws IOException, InvalidSyntaxException, BundleException {
+		Region r0 = digraph.getRegion("r0");
+		Region r1 = digraph.getRegion("r1");
+		r0.connectRegion(r1, createFilter("r1A"));
+
+		// write the digraph in the format of version 1
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		DataOutputStream dataOut = new DataOutputStream(output);
+		dataOut.writeUTF("equinox region digraph");
+		dataOut.writeInt(1);
+		dataOut.writeInt(digraph.getRegions().size());
+		for (Region region : digraph) {
+			dataOut.writeUTF(region.getName());
+			dataOut.writeInt(region.getBundleIds().size());
+			for (Long id : region.getBundleIds()) {
+				dataOut.writeLong(id);
+			}
+		}
+		dataOut.writeInt(1);
+		dataOut.writeInt(1);
+		dataOut.writeUTF(r0.getName());
+		dataOut.writeUTF(r1.getName());
+		Map<String, Collection<String>> policy = r0.getEdges().iterator().next().getFilter().getSharingPolicy();
+		dataOut.writeInt(policy.size());
+		for (Map.Entry<String, Collection<String>> namespace : policy.entrySet()) {
+			dataOut.writeUTF(namespace.getKey());
+			dataOut.writeInt(namespace.getValue().size());
+			for (String filter : namespace.getValue()) {
+				dataOut.writeUTF(filter);
+			}
+		}
+		dataOut.close();
+
+		ByteArrayInputStream input = new ByteArrayInputStream(output.toByteArray());
+		RegionDigraph copy = persistence.load(input);
+		input.close();
+		assertEquals(digraph, copy);
+	}
+
 	private void readDigraph(byte[] byteArray) throws IOException {
 		ByteArrayInputStream input = new ByteArrayInputStream(byteArray);
 		try {
@@ -111,6 +111,27 @@ public class StandardRegionFilterTests {
 		assertEquals(Arrays.asList(this.packageImportPolicy), regionFilter.getSharingPolicy().get(RegionFilter.VISIBLE_PACKAGE_NAMESPACE));
 	}
 
+	@Test
+	public void testCapabilityAllowedAmongManyFilters() throws InvalidSyntaxException {
+		Collection<String> filters = new ArrayList<String>();
+		for (int i = 0; i < 100; i++) {
+			filters.add("(" + BundleRevision.PACKAGE_NAMESPACE + "=p" + i + ")");
+		}
+		filters.add("(" + BundleRevision.PACKAGE_NAMESPACE + "=fo*)");
+		RegionFilter regionFilter = createRegionFilter(RegionFilter.VISIBLE_PACKAGE_NAMESPACE, filters);
+		assertTrue(regionFilter.isAllowed(fooPackage));
+		assertFalse(regionFilter.isAllowed(barPackage));
+		Map<String, Object> attrs = new HashMap<String, Object>();
+		attrs.put(BundleRevision.PACKAGE_NAMESPACE, "p42");
+		assertTrue(regionFilter.isAllowed(RegionFilter.VISIBLE_PACKAGE_NAMESPACE, attrs));
+	}
+
+	@Test
+	public void testEqualityFilterWithVersionAttribute() throws InvalidSyntaxException {
+		RegionFilter regionFilter = createRegionFilter(RegionFilter.VISIBLE_BUNDLE_NAMESPACE, Arrays.asList("(" + Constants.BUNDLE_VERSION_ATTRIBUTE + "=0)"));
+		assertTrue(regionFilter.isAllowed(stubBundle));
+	}
+
 	@Test
 	public void testCapabilityAllNotAllowed() {
 		RegionFilter regionFilter = RegionReflectionUtils.newStandardRegionFilterBuilder().build();
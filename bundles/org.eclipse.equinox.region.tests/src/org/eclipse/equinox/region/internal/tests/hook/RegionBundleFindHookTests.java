@@ -103,6 +103,19 @@ public class RegionBundleFindHookTests {
 		assertFalse(this.candidates.contains(bundle(BUNDLE_B)));
 	}
 
+	@Test
+	public void testFindAfterConnect() throws BundleException, InvalidSyntaxException {
+		this.candidates.add(bundle(BUNDLE_B));
+		this.bundleFindHook.find(bundleContext(BUNDLE_A), this.candidates);
+		assertFalse(this.candidates.contains(bundle(BUNDLE_B)));
+
+		region(REGION_A).connectRegion(region(REGION_B), createFilter(false, BUNDLE_B));
+
+		this.candidates.add(bundle(BUNDLE_B));
+		this.bundleFindHook.find(bundleContext(BUNDLE_A), this.candidates);
+		assertTrue(this.candidates.contains(bundle(BUNDLE_B)));
+	}
+
 	@Test
 	public void testFindConnectedRegionAllowed() throws BundleException, InvalidSyntaxException {
 		doTestFindConnectedRegionAllowed(false);
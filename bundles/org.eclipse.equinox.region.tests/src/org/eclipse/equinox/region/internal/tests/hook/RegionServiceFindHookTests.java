@@ -121,6 +121,19 @@ public class RegionServiceFindHookTests {
 		assertTrue(this.candidates.contains(serviceReference(BUNDLE_B)));
 	}
 
+	@Test
+	public void testFindAfterConnect() throws BundleException, InvalidSyntaxException {
+		this.candidates.add(serviceReference(BUNDLE_B));
+		this.bundleFindHook.find(bundleContext(BUNDLE_A), "", "", false, this.candidates);
+		assertFalse(this.candidates.contains(serviceReference(BUNDLE_B)));
+
+		region(REGION_A).connectRegion(region(REGION_B), createFilter(BUNDLE_B));
+
+		this.candidates.add(serviceReference(BUNDLE_B));
+		this.bundleFindHook.find(bundleContext(BUNDLE_A), "", "", false, this.candidates);
+		assertTrue(this.candidates.contains(serviceReference(BUNDLE_B)));
+	}
+
 	@Test
 	public void testFindConnectedRegionFiltering() throws BundleException, InvalidSyntaxException {
 		region(REGION_A).connectRegion(region(REGION_B), createFilter(BUNDLE_B));
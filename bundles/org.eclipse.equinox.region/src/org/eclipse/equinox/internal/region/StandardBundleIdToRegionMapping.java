@@ -12,7 +12,8 @@
 package org.eclipse.equinox.internal.region;
 
 import java.util.*;
-import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import org.eclipse.equinox.region.Region;
 import org.osgi.framework.BundleException;
 
@@ -22,9 +23,19 @@ public final class StandardBundleIdToRegionMapping implements BundleIdToRegionMa
 
 	/*
 	 * bundleToRegion maps a given bundle id to the region for which it belongs.
-	 * this is a global map for all regions in the digraph
+	 * this is a global map for all regions in the digraph. It is read without locking.
 	 */
-	private final Map<Long, Region> bundleToRegion = new HashMap<Long, Region>();
+	private volatile ConcurrentMap<Long, Region> bundleToRegion = new ConcurrentHashMap<Long, Region>();
+
+	/*
+	 * pending is the map modified while the updates are deferred, or null. Guarded by this.monitor.
+	 */
+	private ConcurrentMap<Long, Region> pending;
+
+	// Must be called while holding this.monitor.
+	private ConcurrentMap<Long, Region> current() {
+		return this.pending != null ? this.pending : this.bundleToRegion;
+	}
 
 	/**
 	 * {@inheritDoc} 
@@ -32,11 +43,34 @@ public final class StandardBundleIdToRegionMapping implements BundleIdToRegionMa
 	@Override
 	public void associateBundleWithRegion(long bundleId, Region region) throws BundleException {
 		synchronized (this.monitor) {
-			Region r = this.bundleToRegion.get(bundleId);
+			ConcurrentMap<Long, Region> map = current();
+			Region r = map.get(bundleId);
 			if (r != null && r != region) {
 				throw new BundleException("Bundle '" + bundleId + "' is already associated with region '" + r + "'", BundleException.INVALID_OPERATION); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
 			}
-			this.bundleToRegion.put(bundleId, region);
+			map.put(bundleId, region);
+		}
+	}
+
+	/**
+	 * Associates the given bundles with the given region. Either all or none of the bundles are associated.
+	 * 
+	 * @param bundleIds the ids of the bundles
+	 * @param region the region
+	 * @throws BundleException if a bundle is already associated with another region
+	 */
+	void associateBundlesWithRegion(long[] bundleIds, Region region) throws BundleException {
+		synchronized (this.monitor) {
+			ConcurrentMap<Long, Region> map = current();
+			for (long bundleId : bundleIds) {
+				Region r = map.get(bundleId);
+				if (r != null && r != region) {
+					throw new BundleException("Bundle '" + bundleId + "' is already associated with region '" + r + "'", BundleException.INVALID_OPERATION); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+				}
+			}
+			for (long bundleId : bundleIds) {
+				map.put(bundleId, region);
+			}
 		}
 	}
 
@@ -46,7 +80,7 @@ public final class StandardBundleIdToRegionMapping implements BundleIdToRegionMa
 	@Override
 	public void dissociateBundleFromRegion(long bundleId, Region region) {
 		synchronized (this.monitor) {
-			this.bundleToRegion.remove(bundleId);
+			current().remove(bundleId);
 		}
 	}
 
@@ -55,9 +89,7 @@ public final class StandardBundleIdToRegionMapping implements BundleIdToRegionMa
 	 */
 	@Override
 	public boolean isBundleAssociatedWithRegion(long bundleId, Region region) {
-		synchronized (this.monitor) {
-			return this.bundleToRegion.get(bundleId) == region;
-		}
+		return this.bundleToRegion.get(bundleId) == region;
 	}
 
 	/**
@@ -66,11 +98,9 @@ public final class StandardBundleIdToRegionMapping implements BundleIdToRegionMa
 	@Override
 	public Set<Long> getBundleIds(Region region) {
 		Set<Long> bundleIds = new HashSet<Long>();
-		synchronized (this.monitor) {
-			for (Map.Entry<Long, Region> entry : this.bundleToRegion.entrySet()) {
-				if (entry.getValue() == region) {
-					bundleIds.add(entry.getKey());
-				}
+		for (Map.Entry<Long, Region> entry : this.bundleToRegion.entrySet()) {
+			if (entry.getValue() == region) {
+				bundleIds.add(entry.getKey());
 			}
 		}
 		return Collections.unmodifiableSet(bundleIds);
@@ -82,7 +112,7 @@ public final class StandardBundleIdToRegionMapping implements BundleIdToRegionMa
 	@Override
 	public void clear() {
 		synchronized (this.monitor) {
-			this.bundleToRegion.clear();
+			current().clear();
 		}
 	}
 
@@ -91,9 +121,7 @@ public final class StandardBundleIdToRegionMapping implements BundleIdToRegionMa
 	 */
 	@Override
 	public Region getRegion(long bundleId) {
-		synchronized (this.monitor) {
-			return this.bundleToRegion.get(bundleId);
-		}
+		return this.bundleToRegion.get(bundleId);
 	}
 
 	/** 
@@ -102,13 +130,45 @@ public final class StandardBundleIdToRegionMapping implements BundleIdToRegionMa
 	@Override
 	public void dissociateRegion(Region region) {
 		synchronized (this.monitor) {
-			Iterator<Entry<Long, Region>> iterator = this.bundleToRegion.entrySet().iterator();
-			while (iterator.hasNext()) {
-				Entry<Long, Region> entry = iterator.next();
-				if (entry.getValue() == region) {
-					iterator.remove();
+			current().values().removeAll(Collections.singleton(region));
+		}
+	}
+
+	/**
+	 * Starts or ends deferring the updates. While the updates are deferred, they are made to a copy of the
+	 * mapping which the readers do not see. The copy replaces the mapping when the deferral ends, so the
+	 * readers see all the deferred updates at once.
+	 * 
+	 * @param defer <code>true</code> to start deferring, <code>false</code> to publish the deferred updates
+	 */
+	void deferUpdates(boolean defer) {
+		synchronized (this.monitor) {
+			if (defer) {
+				if (this.pending == null) {
+					this.pending = new ConcurrentHashMap<Long, Region>(this.bundleToRegion);
 				}
+			} else if (this.pending != null) {
+				this.bundleToRegion = this.pending;
+				this.pending = null;
+			}
+		}
+	}
+
+	/**
+	 * Returns the ids of the bundles grouped by their region.
+	 * 
+	 * @return the bundle ids of each region which has bundles
+	 */
+	Map<Region, List<Long>> groupByRegion() {
+		Map<Region, List<Long>> result = new HashMap<Region, List<Long>>();
+		for (Map.Entry<Long, Region> entry : this.bundleToRegion.entrySet()) {
+			List<Long> ids = result.get(entry.getValue());
+			if (ids == null) {
+				ids = new ArrayList<Long>();
+				result.put(entry.getValue(), ids);
 			}
+			ids.add(entry.getKey());
 		}
+		return result;
 	}
 }
@@ -33,7 +33,7 @@ public final class StandardRegionDigraph implements BundleIdToRegionMapping, Reg
 
 	private static final Set<FilteredRegion> EMPTY_EDGE_SET = Collections.unmodifiableSet(new HashSet<FilteredRegion>());
 
-	// This monitor guards the modifications and read operations on the digraph as well as 
+	// This monitor guards the modifications on the digraph as well as 
 	// bundle id modifications of all regions in this digraph
 	private final Object monitor = new Object();
 
@@ -41,12 +41,21 @@ public final class StandardRegionDigraph implements BundleIdToRegionMapping, Reg
 
 	// Alien calls may be made to the following object while this.monitor is locked
 	// as this.monitor is higher in the lock hierarchy than this object's own monitor.
-	private final BundleIdToRegionMapping bundleIdToRegionMapping;
+	private final StandardBundleIdToRegionMapping bundleIdToRegionMapping;
 
 	/* edges maps a given region to an immutable set of edges with their tail at the given region. To update
 	 * the edges for a region, the corresponding immutable set is replaced atomically. */
 	private final Map<Region, Set<FilteredRegion>> edges = new HashMap<Region, Set<FilteredRegion>>();
 
+	/* snapshot is an immutable view of the regions and the edges, so the read operations use it without locking
+	 * this.monitor or copying. It is discarded by each modification and built again by the next read operation,
+	 * so a series of modifications builds at most one snapshot. null if it has to be built. */
+	private volatile Snapshot snapshot = Snapshot.EMPTY;
+
+	// Guarded by this.monitor. Positive while the digraph is replaced or loaded, so that the readers see the
+	// previous state until all the modifications are published at the end.
+	private int publishDeferrals = 0;
+
 	private final BundleContext bundleContext;
 
 	private final ThreadLocal<Region> threadLocal;
@@ -116,7 +125,7 @@ public final class StandardRegionDigraph implements BundleIdToRegionMapping, Reg
 	public Region createRegion(String regionName) throws BundleException {
 		Region region = new BundleIdBasedRegion(regionName, this, this, this.bundleContext, this.threadLocal);
 		synchronized (this.monitor) {
-			if (getRegion(regionName) != null) {
+			if (findRegion(regionName) != null) {
 				throw new BundleException("Region '" + regionName + "' already exists", BundleException.UNSUPPORTED_OPERATION); //$NON-NLS-1$ //$NON-NLS-2$
 			}
 			this.regions.add(region);
@@ -183,22 +192,16 @@ public final class StandardRegionDigraph implements BundleIdToRegionMapping, Reg
 	 * {@inheritDoc}
 	 */
 	public Iterator<Region> iterator() {
-		synchronized (this.monitor) {
-			Set<Region> snapshot = new HashSet<Region>(this.regions.size());
-			snapshot.addAll(this.regions);
-			return snapshot.iterator();
-		}
+		return snapshot().regions.iterator();
 	}
 
 	/**
 	 * {@inheritDoc}
 	 */
 	public Set<FilteredRegion> getEdges(Region tailRegion) {
-		synchronized (this.monitor) {
-			// Cope with the case where tailRegion is not in the digraph
-			Set<FilteredRegion> edgeSet = this.edges.get(tailRegion);
-			return edgeSet == null ? EMPTY_EDGE_SET : edgeSet;
-		}
+		// Cope with the case where tailRegion is not in the digraph
+		Set<FilteredRegion> edgeSet = snapshot().edges.get(tailRegion);
+		return edgeSet == null ? EMPTY_EDGE_SET : edgeSet;
 	}
 
 	static class StandardFilteredRegion implements FilteredRegion {
@@ -226,14 +229,18 @@ public final class StandardRegionDigraph implements BundleIdToRegionMapping, Reg
 	 * {@inheritDoc}
 	 */
 	public Region getRegion(String regionName) {
-		synchronized (this.monitor) {
-			for (Region region : this) {
-				if (regionName.equals(region.getName())) {
-					return region;
-				}
+		return snapshot().regionsByName.get(regionName);
+	}
+
+	// Must be called while holding this.monitor. Unlike getRegion(String) it sees the modifications
+	// which are not published yet.
+	private Region findRegion(String regionName) {
+		for (Region region : this.regions) {
+			if (regionName.equals(region.getName())) {
+				return region;
 			}
-			return null;
 		}
+		return null;
 	}
 
 	/**
@@ -247,9 +254,7 @@ public final class StandardRegionDigraph implements BundleIdToRegionMapping, Reg
 	 * {@inheritDoc}
 	 */
 	public Region getRegion(long bundleId) {
-		synchronized (this.monitor) {
-			return this.bundleIdToRegionMapping.getRegion(bundleId);
-		}
+		return this.bundleIdToRegionMapping.getRegion(bundleId);
 	}
 
 	/**
@@ -285,44 +290,42 @@ public final class StandardRegionDigraph implements BundleIdToRegionMapping, Reg
 	 * {@inheritDoc}
 	 */
 	public String toString() {
-		synchronized (this.monitor) {
-			StringBuffer s = new StringBuffer();
-			boolean first = true;
-			s.append("RegionDigraph{"); //$NON-NLS-1$
-			for (Region r : this) {
-				if (!first) {
-					s.append(", "); //$NON-NLS-1$
-				}
-				s.append(r);
-				first = false;
+		Snapshot current = snapshot();
+		StringBuffer s = new StringBuffer();
+		boolean first = true;
+		s.append("RegionDigraph{"); //$NON-NLS-1$
+		for (Region r : current.regions) {
+			if (!first) {
+				s.append(", "); //$NON-NLS-1$
 			}
-			s.append("}"); //$NON-NLS-1$
-
-			s.append("["); //$NON-NLS-1$
-			first = true;
-			for (Region r : this) {
-				Set<FilteredRegion> edgeSet = this.edges.get(r);
-				if (edgeSet != null) {
-					for (FilteredRegion filteredRegion : edgeSet) {
-						if (!first) {
-							s.append(", "); //$NON-NLS-1$
-						}
-						s.append(r + "->" + filteredRegion.getRegion()); //$NON-NLS-1$
-						first = false;
+			s.append(r);
+			first = false;
+		}
+		s.append("}"); //$NON-NLS-1$
+
+		s.append("["); //$NON-NLS-1$
+		first = true;
+		for (Region r : current.regions) {
+			Set<FilteredRegion> edgeSet = current.edges.get(r);
+			if (edgeSet != null) {
+				for (FilteredRegion filteredRegion : edgeSet) {
+					if (!first) {
+						s.append(", "); //$NON-NLS-1$
 					}
+					s.append(r + "->" + filteredRegion.getRegion()); //$NON-NLS-1$
+					first = false;
 				}
 			}
-			s.append("]"); //$NON-NLS-1$
-			return s.toString();
 		}
+		s.append("]"); //$NON-NLS-1$
+		return s.toString();
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
 	public Set<Region> getRegions() {
-		Set<Region> result = new HashSet<Region>();
-		synchronized (this.monitor) {
-			result.addAll(this.regions);
-		}
-		return result;
+		return new HashSet<Region>(snapshot().regions);
 	}
 
 	public RegionFilterBuilder createRegionFilterBuilder() {
@@ -365,17 +368,81 @@ public final class StandardRegionDigraph implements BundleIdToRegionMapping, Reg
 	 * {@inheritDoc}
 	 */
 	public void visitSubgraph(Region startingRegion, RegionDigraphVisitor visitor) {
-		this.subgraphTraverser.visitSubgraph(startingRegion, visitor);
+		// traverse a single snapshot of the edges so that concurrent modifications are not seen half way
+		this.subgraphTraverser.visitSubgraph(startingRegion, visitor, snapshot().edges);
 	}
 
 	/**
 	 * Returns a snapshot of filtered regions
 	 * 
-	 * @return a snapshot of filtered regions
+	 * @return an immutable snapshot of filtered regions
 	 */
 	Map<Region, Set<FilteredRegion>> getFilteredRegions() {
+		return snapshot().edges;
+	}
+
+	/**
+	 * Returns the current immutable snapshot of the digraph, including the bundle ids of each region
+	 * 
+	 * @return the snapshot
+	 */
+	Snapshot getSnapshot() {
+		synchronized (this.monitor) {
+			// the published bundle membership matches the published snapshot while this.monitor is held
+			return new Snapshot(snapshot(), this.bundleIdToRegionMapping.groupByRegion());
+		}
+	}
+
+	private Snapshot snapshot() {
+		Snapshot current = this.snapshot;
+		if (current != null) {
+			return current;
+		}
+		synchronized (this.monitor) {
+			current = this.snapshot;
+			if (current == null) {
+				current = new Snapshot(this.regions, this.edges);
+				this.snapshot = current;
+			}
+			return current;
+		}
+	}
+
+	/**
+	 * Defers publishing the modifications to the readers of the digraph until the matching call with
+	 * <code>false</code>. Used while loading a digraph with many modifications.
+	 * 
+	 * @param defer <code>true</code> to start deferring, <code>false</code> to publish the deferred modifications
+	 */
+	void deferPublishing(boolean defer) {
+		synchronized (this.monitor) {
+			if (defer) {
+				if (this.publishDeferrals++ == 0) {
+					// keep the current state for the readers
+					snapshot();
+					this.bundleIdToRegionMapping.deferUpdates(true);
+				}
+			} else {
+				if (--this.publishDeferrals == 0) {
+					this.bundleIdToRegionMapping.deferUpdates(false);
+				}
+				incrementUpdateCount();
+			}
+		}
+	}
+
+	/**
+	 * Associates the given bundles with the given region in a single update.
+	 * 
+	 * @param bundleIds the ids of the bundles
+	 * @param region the region
+	 * @throws BundleException if a bundle is already associated with another region
+	 */
+	void associateBundlesWithRegion(long[] bundleIds, Region region) throws BundleException {
 		synchronized (this.monitor) {
-			return new HashMap<Region, Set<FilteredRegion>>(this.edges);
+			checkRegionExists(region);
+			this.bundleIdToRegionMapping.associateBundlesWithRegion(bundleIds, region);
+			incrementUpdateCount();
 		}
 	}
 
@@ -417,31 +484,35 @@ public final class StandardRegionDigraph implements BundleIdToRegionMapping, Reg
 			for (Region region : regions) {
 				nameToRegion.put(region.getName(), region);
 			}
-			this.regions.clear();
-			this.edges.clear();
-			this.bundleIdToRegionMapping.clear();
-			for (Region original : filteredRegions.keySet()) {
-				Region copy = nameToRegion.get(original.getName());
-				if (copy != null) {
-					// reuse the previous region object
-					regions.add(copy);
-					edges.put(copy, EMPTY_EDGE_SET);
-				} else {
-					// create a new one
-					copy = this.createRegion(original.getName());
-				}
-				for (Long id : original.getBundleIds()) {
-					copy.addBundle(id);
+			deferPublishing(true);
+			try {
+				this.regions.clear();
+				this.edges.clear();
+				this.bundleIdToRegionMapping.clear();
+				for (Region original : filteredRegions.keySet()) {
+					Region copy = nameToRegion.get(original.getName());
+					if (copy != null) {
+						// reuse the previous region object
+						regions.add(copy);
+						edges.put(copy, EMPTY_EDGE_SET);
+					} else {
+						// create a new one
+						copy = this.createRegion(original.getName());
+					}
+					for (Long id : original.getBundleIds()) {
+						copy.addBundle(id);
+					}
 				}
-			}
-			for (Map.Entry<Region, Set<FilteredRegion>> connection : filteredRegions.entrySet()) {
-				Region tailRegion = this.getRegion(connection.getKey().getName());
-				for (FilteredRegion headFilter : connection.getValue()) {
-					Region headRegion = this.getRegion(headFilter.getRegion().getName());
-					this.connect(tailRegion, headFilter.getFilter(), headRegion);
+				for (Map.Entry<Region, Set<FilteredRegion>> connection : filteredRegions.entrySet()) {
+					Region tailRegion = this.findRegion(connection.getKey().getName());
+					for (FilteredRegion headFilter : connection.getValue()) {
+						Region headRegion = this.findRegion(headFilter.getRegion().getName());
+						this.connect(tailRegion, headFilter.getFilter(), headRegion);
+					}
 				}
+			} finally {
+				deferPublishing(false);
 			}
-			incrementUpdateCount();
 			if (check) {
 				replacement.originUpdateCount = this.updateCount.get();
 			}
@@ -532,8 +603,22 @@ public final class StandardRegionDigraph implements BundleIdToRegionMapping, Reg
 		}
 	}
 
+	/**
+	 * Returns the number of changes made to the regions, their connections and their bundle membership. The count
+	 * increases after each change.
+	 * 
+	 * @return the update count
+	 */
+	public long getUpdateCount() {
+		return this.updateCount.get();
+	}
+
 	private void incrementUpdateCount() {
 		synchronized (this.monitor) {
+			if (this.publishDeferrals == 0) {
+				// discard before counting, so the count never runs ahead of the state the readers see
+				this.snapshot = null;
+			}
 			this.updateCount.incrementAndGet();
 		}
 
@@ -556,9 +641,7 @@ public final class StandardRegionDigraph implements BundleIdToRegionMapping, Reg
 	 */
 	@Override
 	public boolean isBundleAssociatedWithRegion(long bundleId, Region region) {
-		synchronized (this.monitor) {
-			return this.bundleIdToRegionMapping.isBundleAssociatedWithRegion(bundleId, region);
-		}
+		return this.bundleIdToRegionMapping.isBundleAssociatedWithRegion(bundleId, region);
 	}
 
 	/** 
@@ -566,9 +649,7 @@ public final class StandardRegionDigraph implements BundleIdToRegionMapping, Reg
 	 */
 	@Override
 	public Set<Long> getBundleIds(Region region) {
-		synchronized (this.monitor) {
-			return this.bundleIdToRegionMapping.getBundleIds(region);
-		}
+		return this.bundleIdToRegionMapping.getBundleIds(region);
 	}
 
 	/** 
@@ -593,4 +674,39 @@ public final class StandardRegionDigraph implements BundleIdToRegionMapping, Reg
 		}
 	}
 
+	/**
+	 * An immutable view of the regions and the edges of the digraph.
+	 */
+	static final class Snapshot {
+
+		static final Snapshot EMPTY = new Snapshot(Collections.<Region> emptySet(), Collections.<Region, Set<FilteredRegion>> emptyMap());
+
+		final Set<Region> regions;
+
+		final Map<String, Region> regionsByName;
+
+		final Map<Region, Set<FilteredRegion>> edges;
+
+		// the bundle ids of each region, only present in the snapshots returned by getSnapshot()
+		final Map<Region, List<Long>> bundleIds;
+
+		Snapshot(Set<Region> regions, Map<Region, Set<FilteredRegion>> edges) {
+			this.regions = Collections.unmodifiableSet(new HashSet<Region>(regions));
+			Map<String, Region> names = new HashMap<String, Region>();
+			for (Region region : regions) {
+				names.put(region.getName(), region);
+			}
+			this.regionsByName = names;
+			// the edge sets are immutable already
+			this.edges = Collections.unmodifiableMap(new HashMap<Region, Set<FilteredRegion>>(edges));
+			this.bundleIds = null;
+		}
+
+		Snapshot(Snapshot snapshot, Map<Region, List<Long>> bundleIds) {
+			this.regions = snapshot.regions;
+			this.regionsByName = snapshot.regionsByName;
+			this.edges = snapshot.edges;
+			this.bundleIds = bundleIds;
+		}
+	}
 }
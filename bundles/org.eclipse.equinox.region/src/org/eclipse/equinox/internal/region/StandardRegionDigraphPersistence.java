@@ -29,31 +29,77 @@ public final class StandardRegionDigraphPersistence implements RegionDigraphPers
 
 	private static final String PERSISTENT_NAME = "equinox region digraph"; //$NON-NLS-1$
 
-	private static final int PERSISTENT_VERSION = 1;
+	/*
+	 * Version 1 writes the names of the regions with each edge and the string form of every filter.
+	 * Version 2 writes a table of the distinct strings and a table of the distinct sharing policies, which the
+	 * regions and edges refer to by index, and writes the sorted bundle ids of each region as variable length
+	 * deltas. Each distinct filter and each distinct sharing policy is therefore parsed only once on load and edges
+	 * with the same sharing policy share the same RegionFilter.
+	 */
+	private static final int PERSISTENT_VERSION_1 = 1;
+
+	private static final int PERSISTENT_VERSION = 2;
 
 	static void writeRegionDigraph(DataOutputStream out, RegionDigraph digraph) throws IOException {
 		if (!(digraph instanceof StandardRegionDigraph))
 			throw new IllegalArgumentException("Only digraphs of type '" + StandardRegionDigraph.class.getName() + "' are allowed: " + digraph.getClass().getName()); //$NON-NLS-1$ //$NON-NLS-2$
-		Map<Region, Set<FilteredRegion>> filteredRegions = ((StandardRegionDigraph) digraph).getFilteredRegions();
+		StandardRegionDigraph.Snapshot snapshot = ((StandardRegionDigraph) digraph).getSnapshot();
+		Map<Region, Set<FilteredRegion>> filteredRegions = snapshot.edges;
+		Map<Region, List<Long>> bundleIds = snapshot.bundleIds;
+
+		// collect the strings and the sharing policies
+		Map<String, Integer> strings = new LinkedHashMap<String, Integer>();
+		Map<Map<String, Collection<String>>, Integer> policies = new LinkedHashMap<Map<String, Collection<String>>, Integer>();
+		Map<Region, Integer> regionIndexes = new HashMap<Region, Integer>();
+		int numEdges = 0;
+		for (Map.Entry<Region, Set<FilteredRegion>> edges : filteredRegions.entrySet()) {
+			regionIndexes.put(edges.getKey(), Integer.valueOf(regionIndexes.size()));
+			indexOf(strings, edges.getKey().getName());
+			for (FilteredRegion edge : edges.getValue()) {
+				Map<String, Collection<String>> policy = edge.getFilter().getSharingPolicy();
+				if (!policies.containsKey(policy)) {
+					policies.put(policy, Integer.valueOf(policies.size()));
+					for (Map.Entry<String, Collection<String>> namespace : policy.entrySet()) {
+						indexOf(strings, namespace.getKey());
+						for (String filterSpec : namespace.getValue()) {
+							indexOf(strings, filterSpec);
+						}
+					}
+				}
+				numEdges++;
+			}
+		}
 
 		try {
 			// write the persistent name and version
 			out.writeUTF(PERSISTENT_NAME);
 			out.writeInt(PERSISTENT_VERSION);
-			// write the number of regions
-			out.writeInt(filteredRegions.size());
+			// write the string table
+			out.writeInt(strings.size());
+			for (String string : strings.keySet()) {
+				out.writeUTF(string);
+			}
+			// write the sharing policies
+			out.writeInt(policies.size());
+			for (Map<String, Collection<String>> policy : policies.keySet()) {
+				writePolicy(out, policy, strings);
+			}
 			// write each region
+			out.writeInt(regionIndexes.size());
 			for (Region region : filteredRegions.keySet()) {
-				writeRegion(out, region);
+				writeRegion(out, region, bundleIds.get(region), strings);
 			}
 			// write each edge
-			// write number of tail regions
-			out.writeInt(filteredRegions.size());
+			out.writeInt(numEdges);
 			for (Map.Entry<Region, Set<FilteredRegion>> edges : filteredRegions.entrySet()) {
-				// write the number of edges for this tail
-				out.writeInt(edges.getValue().size());
+				int tail = regionIndexes.get(edges.getKey()).intValue();
 				for (FilteredRegion edge : edges.getValue()) {
-					writeEdge(out, edges.getKey(), edge.getFilter(), edge.getRegion());
+					Integer head = regionIndexes.get(edge.getRegion());
+					if (head == null)
+						throw new IOException("Could not find head region: " + edge.getRegion().getName()); //$NON-NLS-1$
+					out.writeInt(tail);
+					out.writeInt(head.intValue());
+					out.writeInt(policies.get(edge.getFilter().getSharingPolicy()).intValue());
 				}
 			}
 		} finally {
@@ -62,40 +108,71 @@ public final class StandardRegionDigraphPersistence implements RegionDigraphPers
 		}
 	}
 
-	private static void writeRegion(DataOutputStream out, Region region) throws IOException {
-		// write region name
-		out.writeUTF(region.getName());
-
-		Set<Long> ids = region.getBundleIds();
-		// write number of bundles
-		out.writeInt(ids.size());
-		for (Long id : ids) {
-			// write each bundle id
-			out.writeLong(id);
+	private static int indexOf(Map<String, Integer> strings, String string) {
+		Integer index = strings.get(string);
+		if (index == null) {
+			index = Integer.valueOf(strings.size());
+			strings.put(string, index);
 		}
+		return index.intValue();
 	}
 
-	private static void writeEdge(DataOutputStream out, Region tail, RegionFilter filter, Region head) throws IOException {
-		// write tail region name
-		out.writeUTF(tail.getName());
-		// write head region name
-		out.writeUTF(head.getName());
-		// save the sharing policy
-		Map<String, Collection<String>> policy = filter.getSharingPolicy();
+	private static void writePolicy(DataOutputStream out, Map<String, Collection<String>> policy, Map<String, Integer> strings) throws IOException {
 		// write the number of name spaces
 		out.writeInt(policy.size());
-		// write each name space policy
 		for (Map.Entry<String, Collection<String>> namespace : policy.entrySet()) {
 			// write the name space name
-			out.writeUTF(namespace.getKey());
+			out.writeInt(indexOf(strings, namespace.getKey()));
 			Collection<String> filters = namespace.getValue();
 			// write the number of filters
 			out.writeInt(filters.size());
 			for (String filterSpec : filters) {
 				// write each filter
-				out.writeUTF(filterSpec);
+				out.writeInt(indexOf(strings, filterSpec));
+			}
+		}
+	}
+
+	private static void writeRegion(DataOutputStream out, Region region, List<Long> ids, Map<String, Integer> strings) throws IOException {
+		// write region name
+		out.writeInt(indexOf(strings, region.getName()));
+		if (ids == null) {
+			out.writeInt(0);
+			return;
+		}
+		long[] sorted = new long[ids.size()];
+		for (int i = 0; i < sorted.length; i++) {
+			sorted[i] = ids.get(i).longValue();
+		}
+		Arrays.sort(sorted);
+		// write number of bundles
+		out.writeInt(sorted.length);
+		long previous = 0;
+		for (long id : sorted) {
+			// write each bundle id as the difference to the previous one
+			writeVarLong(out, id - previous);
+			previous = id;
+		}
+	}
+
+	private static void writeVarLong(DataOutputStream out, long value) throws IOException {
+		while ((value & ~0x7FL) != 0) {
+			out.writeByte((int) ((value & 0x7F) | 0x80));
+			value >>>= 7;
+		}
+		out.writeByte((int) value);
+	}
+
+	private static long readVarLong(DataInputStream in) throws IOException {
+		long value = 0;
+		for (int shift = 0; shift < 64; shift += 7) {
+			int b = in.readUnsignedByte();
+			value |= (long) (b & 0x7F) << shift;
+			if ((b & 0x80) == 0) {
+				return value;
 			}
 		}
+		throw new IOException("Malformed bundle id"); //$NON-NLS-1$
 	}
 
 	static StandardRegionDigraph readRegionDigraph(DataInputStream in, BundleContext bundleContext, ThreadLocal<Region> threadLocal) throws IOException, InvalidSyntaxException, BundleException {
@@ -107,13 +184,99 @@ public final class StandardRegionDigraphPersistence implements RegionDigraphPers
 			throw new IllegalArgumentException("Input stream does not represent a digraph"); //$NON-NLS-1$
 		}
 		int persistentVersion = in.readInt();
-		if (PERSISTENT_VERSION != persistentVersion) {
+		if (PERSISTENT_VERSION != persistentVersion && PERSISTENT_VERSION_1 != persistentVersion) {
 			throw new IllegalArgumentException("Input stream contains a digraph with an incompatible version '" + persistentVersion + "'"); //$NON-NLS-1$ //$NON-NLS-2$
 		}
+		// the digraph is not shared yet; publish it to the readers once it is complete
+		digraph.deferPublishing(true);
+		try {
+			if (persistentVersion == PERSISTENT_VERSION_1) {
+				readVersion1(in, digraph, bundleContext);
+			} else {
+				readVersion2(in, digraph, bundleContext);
+			}
+		} finally {
+			digraph.deferPublishing(false);
+		}
+		return digraph;
+	}
+
+	private static void readVersion2(DataInputStream in, StandardRegionDigraph digraph, BundleContext bundleContext) throws IOException, InvalidSyntaxException, BundleException {
+		// read the string table
+		String[] strings = new String[in.readInt()];
+		for (int i = 0; i < strings.length; i++) {
+			strings[i] = in.readUTF();
+		}
+		// read the sharing policies, parsing each distinct filter once
+		Map<String, Filter> parsedFilters = new HashMap<String, Filter>();
+		RegionFilter[] policies = new RegionFilter[in.readInt()];
+		for (int i = 0; i < policies.length; i++) {
+			int numSpaces = in.readInt();
+			Map<String, Collection<Filter>> policy = new HashMap<String, Collection<Filter>>();
+			for (int j = 0; j < numSpaces; j++) {
+				String namespace = string(strings, in.readInt());
+				int numFilters = in.readInt();
+				Collection<Filter> filters = new ArrayList<Filter>(numFilters);
+				for (int k = 0; k < numFilters; k++) {
+					String filterSpec = string(strings, in.readInt());
+					Filter filter = parsedFilters.get(filterSpec);
+					if (filter == null) {
+						filter = FrameworkUtil.createFilter(filterSpec);
+						parsedFilters.put(filterSpec, filter);
+					}
+					filters.add(filter);
+				}
+				policy.put(namespace, filters);
+			}
+			policies[i] = new StandardRegionFilter(policy);
+		}
+		// read the regions
+		Region[] regions = new Region[in.readInt()];
+		for (int i = 0; i < regions.length; i++) {
+			Region region = digraph.createRegion(string(strings, in.readInt()));
+			long[] ids = new long[in.readInt()];
+			int numIds = 0;
+			long id = 0;
+			for (int j = 0; j < ids.length; j++) {
+				id += readVarLong(in);
+				if (bundleContext == null || bundleContext.getBundle(id) != null)
+					ids[numIds++] = id;
+			}
+			if (numIds < ids.length) {
+				long[] existing = new long[numIds];
+				System.arraycopy(ids, 0, existing, 0, numIds);
+				ids = existing;
+			}
+			digraph.associateBundlesWithRegion(ids, region);
+			regions[i] = region;
+		}
+		// read the edges
+		int numEdges = in.readInt();
+		for (int i = 0; i < numEdges; i++) {
+			Region tail = regions[index(regions.length, in.readInt())];
+			Region head = regions[index(regions.length, in.readInt())];
+			digraph.connect(tail, policies[index(policies.length, in.readInt())], head);
+		}
+	}
+
+	private static int index(int length, int index) throws IOException {
+		if (index < 0 || index >= length)
+			throw new IOException("Invalid index: " + index); //$NON-NLS-1$
+		return index;
+	}
+
+	private static String string(String[] strings, int index) throws IOException {
+		return strings[index(strings.length, index)];
+	}
+
+	private static void readVersion1(DataInputStream in, RegionDigraph digraph, BundleContext bundleContext) throws IOException, InvalidSyntaxException, BundleException {
 		// read the number of regions
 		int numRegions = in.readInt();
+		// the regions are looked up here because getRegion(String) does not see them until the digraph is published
+		Map<String, Region> regions = new HashMap<String, Region>();
 		for (int i = 0; i < numRegions; i++) {
-			readRegion(in, digraph, bundleContext);
+			Region region = readRegion(in, digraph, bundleContext);
+			regions.put(region.getName(), region);
 		}
 		// read each edge
 		// read number of tail regions
@@ -122,11 +285,9 @@ public final class StandardRegionDigraphPersistence implements RegionDigraphPers
 			// read the number of edges for this tail
 			int numEdges = in.readInt();
 			for (int j = 0; j < numEdges; j++) {
-				readEdge(in, digraph);
+				readEdge(in, digraph, regions);
 			}
 		}
-
-		return digraph;
 	}
 
 	private static Region readRegion(DataInputStream in, RegionDigraph digraph, BundleContext context) throws IOException, BundleException {
@@ -144,15 +305,15 @@ public final class StandardRegionDigraphPersistence implements RegionDigraphPers
 		return region;
 	}
 
-	private static void readEdge(DataInputStream in, RegionDigraph digraph) throws IOException, InvalidSyntaxException, BundleException {
+	private static void readEdge(DataInputStream in, RegionDigraph digraph, Map<String, Region> regions) throws IOException, InvalidSyntaxException, BundleException {
 		// read tail region name
 		String tailName = in.readUTF();
-		Region tail = digraph.getRegion(tailName);
+		Region tail = regions.get(tailName);
 		if (tail == null)
 			throw new IOException("Could not find tail region: " + tailName); //$NON-NLS-1$
 		// read head region name
 		String headName = in.readUTF();
-		Region head = digraph.getRegion(headName);
+		Region head = regions.get(headName);
 		if (head == null)
 			throw new IOException("Could not find head region: " + headName); //$NON-NLS-1$
 		// read the sharing policy
@@ -194,6 +355,6 @@ public final class StandardRegionDigraphPersistence implements RegionDigraphPers
 	 * {@inheritDoc}
 	 */
 	public void save(RegionDigraph digraph, OutputStream output) throws IOException {
-		writeRegionDigraph(new DataOutputStream(output), digraph);
+		writeRegionDigraph(new DataOutputStream(new BufferedOutputStream(output)), digraph);
 	}
 }
@@ -13,6 +13,8 @@
 package org.eclipse.equinox.internal.region;
 
 import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 import org.eclipse.equinox.region.RegionFilter;
 import org.osgi.framework.*;
 import org.osgi.framework.wiring.BundleCapability;
@@ -21,6 +23,8 @@ import org.osgi.framework.wiring.BundleRevision;
 public final class StandardRegionFilter implements RegionFilter {
 	private static final String BUNDLE_ID_ATTR = "id"; //$NON-NLS-1$
 	private final Map<String, Collection<Filter>> filters;
+	// the filters of each namespace analyzed for matching
+	private final Map<String, CompiledFilters> compiledFilters;
 
 	public StandardRegionFilter(Map<String, Collection<Filter>> filters) {
 		if (filters == null) {
@@ -28,9 +32,11 @@ public final class StandardRegionFilter implements RegionFilter {
 		}
 		// must perform deep copy to avoid external changes
 		this.filters = new HashMap<String, Collection<Filter>>((int) ((filters.size() / 0.75) + 1));
+		this.compiledFilters = new HashMap<String, CompiledFilters>((int) ((filters.size() / 0.75) + 1));
 		for (Map.Entry<String, Collection<Filter>> namespace : filters.entrySet()) {
 			Collection<Filter> namespaceFilters = new ArrayList<Filter>(namespace.getValue());
 			this.filters.put(namespace.getKey(), namespaceFilters);
+			this.compiledFilters.put(namespace.getKey(), new CompiledFilters(namespaceFilters));
 		}
 	}
 
@@ -68,28 +74,20 @@ public final class StandardRegionFilter implements RegionFilter {
 		return isAllowed(VISIBLE_BUNDLE_NAMESPACE, bundleAttributes);
 	}
 
-	private static boolean match(Collection<Filter> filters, Map<String, ?> attrs) {
+	private static boolean match(CompiledFilters filters, Map<String, ?> attrs) {
 		if (filters == null)
 			return false;
-		for (Filter filter : filters) {
-			if (filter.matches(attrs))
-				return true;
-		}
-		return false;
+		return filters.matches(attrs);
 	}
 
-	private static boolean match(Collection<Filter> filters, ServiceReference<?> service) {
+	private static boolean match(CompiledFilters filters, ServiceReference<?> service) {
 		if (filters == null)
 			return false;
-		for (Filter filter : filters) {
-			if (filter.match(service))
-				return true;
-		}
-		return false;
+		return filters.matches(service);
 	}
 
 	public boolean isAllowed(ServiceReference<?> service) {
-		if (match(filters.get(VISIBLE_SERVICE_NAMESPACE), service))
+		if (match(compiledFilters.get(VISIBLE_SERVICE_NAMESPACE), service))
 			return true;
 		return matchAll(VISIBLE_SERVICE_NAMESPACE, service);
 	}
@@ -103,13 +101,13 @@ public final class StandardRegionFilter implements RegionFilter {
 	 */
 	@Override
 	public boolean isAllowed(String namespace, Map<String, ?> attributes) {
-		if (match(filters.get(namespace), attributes))
+		if (match(compiledFilters.get(namespace), attributes))
 			return true;
 		return matchAll(namespace, attributes);
 	}
 
 	private boolean matchAll(final String namespace, final Map<String, ?> attributes) {
-		Collection<Filter> allMatching = filters.get(VISIBLE_ALL_NAMESPACE);
+		CompiledFilters allMatching = compiledFilters.get(VISIBLE_ALL_NAMESPACE);
 		if (allMatching == null) {
 			return false;
 		}
@@ -130,7 +128,7 @@ public final class StandardRegionFilter implements RegionFilter {
 	}
 
 	private boolean matchAll(final String namespace, final ServiceReference<?> service) {
-		Collection<Filter> allMatching = filters.get(VISIBLE_ALL_NAMESPACE);
+		CompiledFilters allMatching = compiledFilters.get(VISIBLE_ALL_NAMESPACE);
 		if (allMatching == null) {
 			return false;
 		}
@@ -173,4 +171,106 @@ public final class StandardRegionFilter implements RegionFilter {
 	private Long getBundleId(BundleRevision bundleRevision) {
 		return EquinoxStateHelper.getBundleId(bundleRevision);
 	}
+
+	/**
+	 * {@link CompiledFilters} holds the filters of a namespace analyzed for matching. Simple equality filters of the
+	 * form <code>(attribute=value)</code> are kept as sets of values per attribute and are matched with hash lookups.
+	 * All other filters are evaluated one after the other.
+	 * <p />
+	 * A hash lookup is only done if the value of the attribute is a string, an array of strings or a collection of
+	 * strings. Other values, for example versions or numbers, are compared by evaluating the equality filters of the
+	 * attribute, since the filter semantics convert the filter value to the type of the attribute value.
+	 */
+	static final class CompiledFilters {
+
+		// (attribute=value) without wildcards, escapes, nested filters or surrounding whitespace in the value
+		private static final Pattern EQUALITY = Pattern.compile("\\(([^=<>~()*\\\\\\s]+)=([^\\s()*\\\\](?:[^()*\\\\]*[^\\s()*\\\\])?)\\)"); //$NON-NLS-1$
+
+		// attribute -> values allowed by the equality filters
+		private final Map<String, Set<String>> equalities = new HashMap<String, Set<String>>();
+		// attribute -> equality filters, for the attribute values which are not strings
+		private final Map<String, Collection<Filter>> equalityFilters = new HashMap<String, Collection<Filter>>();
+		private final Collection<Filter> others = new ArrayList<Filter>();
+
+		CompiledFilters(Collection<Filter> filters) {
+			for (Filter filter : filters) {
+				Matcher matcher = EQUALITY.matcher(filter.toString());
+				if (!matcher.matches()) {
+					others.add(filter);
+					continue;
+				}
+				String attribute = matcher.group(1);
+				Set<String> values = equalities.get(attribute);
+				if (values == null) {
+					values = new HashSet<String>();
+					equalities.put(attribute, values);
+					equalityFilters.put(attribute, new ArrayList<Filter>());
+				}
+				values.add(matcher.group(2));
+				equalityFilters.get(attribute).add(filter);
+			}
+		}
+
+		boolean matches(Map<String, ?> attrs) {
+			for (Map.Entry<String, Set<String>> equality : equalities.entrySet()) {
+				String attribute = equality.getKey();
+				Object value = attrs.get(attribute);
+				if (value != null && matches(attribute, value, equality.getValue(), attrs, null)) {
+					return true;
+				}
+			}
+			for (Filter filter : others) {
+				if (filter.matches(attrs))
+					return true;
+			}
+			return false;
+		}
+
+		boolean matches(ServiceReference<?> service) {
+			for (Map.Entry<String, Set<String>> equality : equalities.entrySet()) {
+				String attribute = equality.getKey();
+				Object value = service.getProperty(attribute);
+				if (value != null && matches(attribute, value, equality.getValue(), null, service)) {
+					return true;
+				}
+			}
+			for (Filter filter : others) {
+				if (filter.match(service))
+					return true;
+			}
+			return false;
+		}
+
+		private boolean matches(String attribute, Object value, Set<String> values, Map<String, ?> attrs, ServiceReference<?> service) {
+			if (value instanceof String) {
+				return values.contains(value);
+			}
+			if (value instanceof String[]) {
+				for (String element : (String[]) value) {
+					if (values.contains(element))
+						return true;
+				}
+				return false;
+			}
+			if (value instanceof Collection<?>) {
+				boolean strings = true;
+				for (Object element : (Collection<?>) value) {
+					if (element instanceof String) {
+						if (values.contains(element))
+							return true;
+					} else {
+						strings = false;
+					}
+				}
+				if (strings)
+					return false;
+			}
+			// not a string value; let the filters convert the value
+			for (Filter filter : equalityFilters.get(attribute)) {
+				if (service != null ? filter.match(service) : filter.matches(attrs))
+					return true;
+			}
+			return false;
+		}
+	}
 }
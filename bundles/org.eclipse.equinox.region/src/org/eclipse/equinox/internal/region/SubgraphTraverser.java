@@ -16,6 +16,7 @@ import org.eclipse.equinox.region.RegionDigraphVisitor;
 import org.eclipse.equinox.region.RegionDigraph.FilteredRegion;
 
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -28,34 +29,38 @@ import java.util.Set;
  */
 final class SubgraphTraverser {
 
-	void visitSubgraph(Region startingRegion, RegionDigraphVisitor visitor) {
-		visitRemainingSubgraph(startingRegion, visitor, new HashSet<Region>());
+	void visitSubgraph(Region startingRegion, RegionDigraphVisitor visitor, Map<Region, Set<FilteredRegion>> edges) {
+		visitRemainingSubgraph(startingRegion, visitor, edges, new HashSet<Region>());
 	}
 
-	private void visitRemainingSubgraph(Region r, RegionDigraphVisitor visitor, Set<Region> path) {
+	private void visitRemainingSubgraph(Region r, RegionDigraphVisitor visitor, Map<Region, Set<FilteredRegion>> edges, Set<Region> path) {
 		if (!path.contains(r)) {
 			if (visitor.visit(r)) {
-				traverseEdges(r, visitor, path);
+				traverseEdges(r, visitor, edges, path);
 			}
 		}
 	}
 
-	private void traverseEdges(Region r, RegionDigraphVisitor visitor, Set<Region> path) {
-		for (FilteredRegion fr : r.getEdges()) {
-			if (visitor.preEdgeTraverse(fr.getFilter())) {
-				try {
-					visitRemainingSubgraph(fr.getRegion(), visitor, extendPath(r, path));
-				} finally {
-					visitor.postEdgeTraverse(fr.getFilter());
+	private void traverseEdges(Region r, RegionDigraphVisitor visitor, Map<Region, Set<FilteredRegion>> edges, Set<Region> path) {
+		Set<FilteredRegion> edgeSet = edges.get(r);
+		if (edgeSet == null) {
+			return;
+		}
+		// the path holds the regions from the starting region to r, it is restored after visiting the edges of r
+		path.add(r);
+		try {
+			for (FilteredRegion fr : edgeSet) {
+				if (visitor.preEdgeTraverse(fr.getFilter())) {
+					try {
+						visitRemainingSubgraph(fr.getRegion(), visitor, edges, path);
+					} finally {
+						visitor.postEdgeTraverse(fr.getFilter());
+					}
 				}
 			}
+		} finally {
+			path.remove(r);
 		}
 	}
 
-	private Set<Region> extendPath(Region r, Set<Region> path) {
-		Set<Region> newPath = new HashSet<Region>(path);
-		newPath.add(r);
-		return newPath;
-	}
-
-}
\ No newline at end of file
+}
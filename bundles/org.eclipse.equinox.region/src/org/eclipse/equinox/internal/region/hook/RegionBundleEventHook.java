@@ -51,6 +51,8 @@ public final class RegionBundleEventHook implements EventHook {
 		Bundle eventBundle = event.getBundle();
 		if (event.getType() == BundleEvent.INSTALLED) {
 			bundleInstalled(eventBundle, event.getOrigin());
+		} else if (event.getType() == BundleEvent.UPDATED && this.bundleFindHook instanceof RegionBundleFindHook) {
+			((RegionBundleFindHook) this.bundleFindHook).bundleChanged(eventBundle);
 		}
 		Iterator<BundleContext> i = contexts.iterator();
 		while (i.hasNext()) {
@@ -11,8 +11,8 @@
 
 package org.eclipse.equinox.internal.region.hook;
 
-import java.util.Collection;
-import java.util.HashMap;
+import java.util.*;
+import org.eclipse.equinox.internal.region.hook.RegionVisibilityCache.Visibility;
 import org.eclipse.equinox.region.*;
 import org.osgi.framework.*;
 import org.osgi.framework.hooks.bundle.FindHook;
@@ -30,9 +30,12 @@ public final class RegionBundleFindHook implements FindHook {
 
 	private final long hookImplID;
 
+	private final RegionVisibilityCache<Bundle> visibilityCache;
+
 	public RegionBundleFindHook(RegionDigraph regionDigraph, long hookImplID) {
 		this.regionDigraph = regionDigraph;
 		this.hookImplID = hookImplID;
+		this.visibilityCache = new RegionVisibilityCache<Bundle>(regionDigraph);
 	}
 
 	/**
@@ -58,11 +61,48 @@ public final class RegionBundleFindHook implements FindHook {
 			return;
 		}
 
-		Visitor visitor = new Visitor(bundles);
+		Visibility<Bundle> visibility = this.visibilityCache.getVisibility(finderRegion);
+		if (visibility == null) {
+			Visitor visitor = new Visitor(bundles);
+			finderRegion.visitSubgraph(visitor);
+			bundles.retainAll(visitor.getAllowed());
+			return;
+		}
+
+		// only traverse the digraph for the bundles whose visibility is not cached;
+		// a hash set keeps the removals below linear in the number of candidates
+		Collection<Bundle> unknown = null;
+		for (Iterator<Bundle> i = bundles.iterator(); i.hasNext();) {
+			Bundle bundle = i.next();
+			Boolean allowed = visibility.get(bundle);
+			if (allowed == null) {
+				if (unknown == null) {
+					unknown = new HashSet<Bundle>();
+				}
+				unknown.add(bundle);
+			} else if (!allowed.booleanValue()) {
+				i.remove();
+			}
+		}
+		if (unknown == null) {
+			return;
+		}
+		long stamp = visibility.stamp();
+		Visitor visitor = new Visitor(unknown);
 		finderRegion.visitSubgraph(visitor);
 		Collection<Bundle> allowed = visitor.getAllowed();
+		visibility.put(unknown, allowed, stamp);
+		unknown.removeAll(allowed);
+		bundles.removeAll(unknown);
+	}
 
-		bundles.retainAll(allowed);
+	/**
+	 * Drops the cached visibility of a bundle whose symbolic name or version may have changed.
+	 * 
+	 * @param bundle the updated bundle
+	 */
+	void bundleChanged(Bundle bundle) {
+		this.visibilityCache.invalidate(bundle);
 	}
 
 	class Visitor extends RegionDigraphVisitorBase<Bundle> {
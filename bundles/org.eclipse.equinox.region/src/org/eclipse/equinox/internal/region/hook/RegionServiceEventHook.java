@@ -43,6 +43,10 @@ public final class RegionServiceEventHook implements EventHook {
 	 */
 	public void event(ServiceEvent event, Collection<BundleContext> contexts) {
 		ServiceReference<?> eventBundle = event.getServiceReference();
+		if (event.getType() != ServiceEvent.REGISTERED && this.serviceFindHook instanceof RegionServiceFindHook) {
+			// the properties of the service have changed or it is going away
+			((RegionServiceFindHook) this.serviceFindHook).serviceChanged(eventBundle);
+		}
 		Iterator<BundleContext> i = contexts.iterator();
 		while (i.hasNext()) {
 			if (!find(i.next(), eventBundle)) {
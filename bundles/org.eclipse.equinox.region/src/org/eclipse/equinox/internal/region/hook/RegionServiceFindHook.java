@@ -11,7 +11,8 @@
 
 package org.eclipse.equinox.internal.region.hook;
 
-import java.util.Collection;
+import java.util.*;
+import org.eclipse.equinox.internal.region.hook.RegionVisibilityCache.Visibility;
 import org.eclipse.equinox.region.*;
 import org.osgi.framework.*;
 import org.osgi.framework.hooks.service.FindHook;
@@ -28,8 +29,11 @@ public final class RegionServiceFindHook implements FindHook {
 
 	private final RegionDigraph regionDigraph;
 
+	private final RegionVisibilityCache<ServiceReference<?>> visibilityCache;
+
 	public RegionServiceFindHook(RegionDigraph regionDigraph) {
 		this.regionDigraph = regionDigraph;
+		this.visibilityCache = new RegionVisibilityCache<ServiceReference<?>>(regionDigraph);
 	}
 
 	/**
@@ -52,11 +56,48 @@ public final class RegionServiceFindHook implements FindHook {
 			return;
 		}
 
-		Visitor visitor = new Visitor(references);
+		Visibility<ServiceReference<?>> visibility = this.visibilityCache.getVisibility(finderRegion);
+		if (visibility == null) {
+			Visitor visitor = new Visitor(references);
+			finderRegion.visitSubgraph(visitor);
+			references.retainAll(visitor.getAllowed());
+			return;
+		}
+
+		// only traverse the digraph for the references whose visibility is not cached;
+		// a hash set keeps the removals below linear in the number of candidates
+		Collection<ServiceReference<?>> unknown = null;
+		for (Iterator<ServiceReference<?>> i = references.iterator(); i.hasNext();) {
+			ServiceReference<?> reference = i.next();
+			Boolean allowed = visibility.get(reference);
+			if (allowed == null) {
+				if (unknown == null) {
+					unknown = new HashSet<ServiceReference<?>>();
+				}
+				unknown.add(reference);
+			} else if (!allowed.booleanValue()) {
+				i.remove();
+			}
+		}
+		if (unknown == null) {
+			return;
+		}
+		long stamp = visibility.stamp();
+		Visitor visitor = new Visitor(unknown);
 		finderRegion.visitSubgraph(visitor);
 		Collection<ServiceReference<?>> allowed = visitor.getAllowed();
+		visibility.put(unknown, allowed, stamp);
+		unknown.removeAll(allowed);
+		references.removeAll(unknown);
+	}
 
-		references.retainAll(allowed);
+	/**
+	 * Drops the cached visibility of a service whose properties have changed or which is being unregistered.
+	 * 
+	 * @param reference the service reference
+	 */
+	void serviceChanged(ServiceReference<?> reference) {
+		this.visibilityCache.invalidate(reference);
 	}
 
 	class Visitor extends RegionDigraphVisitorBase<ServiceReference<?>> {
@@ -0,0 +1,163 @@
+/*******************************************************************************
+ * Copyright (c) 2014 VMware Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   VMware Inc. - initial contribution
+ *******************************************************************************/
+
+package org.eclipse.equinox.internal.region.hook;
+
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import org.eclipse.equinox.internal.region.StandardRegionDigraph;
+import org.eclipse.equinox.region.Region;
+import org.eclipse.equinox.region.RegionDigraph;
+
+/**
+ * {@link RegionVisibilityCache} remembers whether a candidate (bundle or service) is visible from a finder region so
+ * that repeated finds do not have to traverse the {@link RegionDigraph} and evaluate the region filters again.
+ * <p />
+ * The cached results are dropped whenever the update count of the digraph changes, which happens on any change to the
+ * regions, their connections or their bundle membership. A single candidate is dropped with {@link #invalidate(Object)}
+ * when its attributes change, for example when a service is modified or a bundle is updated. Only digraphs of type
+ * {@link StandardRegionDigraph} expose an update count; for other digraphs nothing is cached.
+ * <p />
+ *
+ * <strong>Concurrent Semantics</strong><br />
+ * Thread safe.
+ *
+ * @param <C> the type of candidate
+ */
+final class RegionVisibilityCache<C> {
+
+	private final RegionDigraph regionDigraph;
+
+	private final AtomicReference<Generation<C>> generation = new AtomicReference<Generation<C>>(new Generation<C>(-1));
+
+	RegionVisibilityCache(RegionDigraph regionDigraph) {
+		this.regionDigraph = regionDigraph;
+	}
+
+	/**
+	 * Returns the cached visibility of the candidates from the given finder region, valid for the current state of the
+	 * digraph, or <code>null</code> if visibility cannot be cached for the digraph.
+	 *
+	 * @param finderRegion the region of the finder bundle
+	 * @return the visibility of the candidates seen by the finder region
+	 */
+	Visibility<C> getVisibility(Region finderRegion) {
+		if (!(this.regionDigraph instanceof StandardRegionDigraph)) {
+			return null;
+		}
+		long updateCount = ((StandardRegionDigraph) this.regionDigraph).getUpdateCount();
+		Generation<C> current = this.generation.get();
+		while (current.updateCount != updateCount) {
+			if (current.updateCount > updateCount) {
+				// another thread has seen a newer update count
+				updateCount = ((StandardRegionDigraph) this.regionDigraph).getUpdateCount();
+				continue;
+			}
+			// only one generation is installed per update count so that invalidations are not lost
+			Generation<C> next = new Generation<C>(updateCount);
+			if (this.generation.compareAndSet(current, next)) {
+				current = next;
+			} else {
+				current = this.generation.get();
+			}
+		}
+		Visibility<C> visibility = current.regions.get(finderRegion);
+		if (visibility == null) {
+			visibility = new Visibility<C>(current);
+			Visibility<C> existing = current.regions.putIfAbsent(finderRegion, visibility);
+			if (existing != null) {
+				visibility = existing;
+			}
+		}
+		return visibility;
+	}
+
+	/**
+	 * Drops the cached visibility of the given candidate for all finder regions.
+	 *
+	 * @param candidate the candidate whose attributes have changed
+	 */
+	void invalidate(C candidate) {
+		Generation<C> current = this.generation.get();
+		current.invalidations.incrementAndGet();
+		for (Visibility<C> visibility : current.regions.values()) {
+			visibility.allowed.remove(candidate);
+		}
+	}
+
+	private static final class Generation<C> {
+
+		final long updateCount;
+
+		final AtomicLong invalidations = new AtomicLong();
+
+		final ConcurrentMap<Region, Visibility<C>> regions = new ConcurrentHashMap<Region, Visibility<C>>();
+
+		Generation(long updateCount) {
+			this.updateCount = updateCount;
+		}
+	}
+
+	/**
+	 * The visibility of candidates from a single finder region.
+	 */
+	static final class Visibility<C> {
+
+		private final Generation<C> generation;
+
+		final ConcurrentMap<C, Boolean> allowed = new ConcurrentHashMap<C, Boolean>();
+
+		Visibility(Generation<C> generation) {
+			this.generation = generation;
+		}
+
+		/**
+		 * Returns a stamp to pass to {@link #put(Collection, Collection, long)} after computing the visibility of
+		 * candidates which are not cached.
+		 */
+		long stamp() {
+			return this.generation.invalidations.get();
+		}
+
+		/**
+		 * Returns whether the candidate is visible or <code>null</code> if this is not known.
+		 */
+		Boolean get(C candidate) {
+			return this.allowed.get(candidate);
+		}
+
+		/**
+		 * Caches the computed visibility of the given candidates unless some candidate has been invalidated while
+		 * the visibility was computed.
+		 *
+		 * @param candidates the candidates whose visibility was computed
+		 * @param visible the candidates found to be visible
+		 * @param stamp the value returned by {@link #stamp()} before computing the visibility
+		 */
+		void put(Collection<C> candidates, Collection<C> visible, long stamp) {
+			if (this.generation.invalidations.get() != stamp) {
+				return;
+			}
+			for (C candidate : candidates) {
+				this.allowed.put(candidate, Boolean.valueOf(visible.contains(candidate)));
+			}
+			if (this.generation.invalidations.get() != stamp) {
+				// a candidate was invalidated concurrently; its result may be stale
+				for (C candidate : candidates) {
+					this.allowed.remove(candidate);
+				}
+			}
+		}
+	}
+}
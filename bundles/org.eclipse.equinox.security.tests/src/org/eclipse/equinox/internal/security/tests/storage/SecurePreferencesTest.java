@@ -17,6 +17,7 @@ import java.util.Map;
 import junit.framework.Test;
 import junit.framework.TestSuite;
 import org.eclipse.core.runtime.FileLocator;
+import org.eclipse.equinox.internal.security.storage.SecurePreferencesWrapper;
 import org.eclipse.equinox.internal.security.storage.friends.InternalExchangeUtils;
 import org.eclipse.equinox.internal.security.tests.SecurityTestsActivator;
 import org.eclipse.equinox.security.storage.ISecurePreferences;
@@ -397,6 +398,28 @@ abstract public class SecurePreferencesTest extends StorageAbstractTest {
 		compareArrays(testArray, array);
 	}
 
+	/**
+	 * Tests retrieval of several values of a node in one pass.
+	 */
+	public void testGetAll() throws StorageException, MalformedURLException, IOException {
+		ISecurePreferences preferences = newPreferences(getStorageLocation(), getOptions());
+		fill(preferences);
+
+		ISecurePreferences node = preferences.node(path3);
+		Map values = ((SecurePreferencesWrapper) node).getAll(new String[] {key, secondKey, clearTextKey, unicodeKey, unassignedKey});
+		assertEquals(4, values.size());
+		assertEquals(value, values.get(key));
+		assertEquals(secondValue, values.get(secondKey));
+		assertEquals(clearTextValue, values.get(clearTextKey));
+		assertEquals(unicodeValue, values.get(unicodeKey));
+		assertFalse(values.containsKey(unassignedKey));
+
+		node.put(key, null, true);
+		values = ((SecurePreferencesWrapper) node).getAll(new String[] {key});
+		assertTrue(values.containsKey(key));
+		assertNull(values.get(key));
+	}
+
 	/**
 	 * Tests corrupted encrypted data.
 	 */
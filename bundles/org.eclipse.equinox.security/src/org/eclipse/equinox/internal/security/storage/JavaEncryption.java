@@ -10,6 +10,7 @@
  *******************************************************************************/
 package org.eclipse.equinox.internal.security.storage;
 
+import java.lang.ref.WeakReference;
 import java.security.*;
 import java.security.spec.InvalidKeySpecException;
 import java.util.*;
@@ -45,6 +46,11 @@ public class JavaEncryption {
 
 	static private final int SALT_ITERATIONS = 10;
 
+	/**
+	 * Maximum number of derived keys kept in the key cache
+	 */
+	static private final int KEY_CACHE_SIZE = 16;
+
 	private String keyFactoryAlgorithm = null;
 	private String cipherAlgorithm = null;
 
@@ -52,6 +58,39 @@ public class JavaEncryption {
 
 	private HashMap availableCiphers;
 
+	/**
+	 * Derived keys of the verified passwords, least recently used first: KeyCacheKey -> SecretKey
+	 */
+	private final Map keyCache = new LinkedHashMap(KEY_CACHE_SIZE, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		protected boolean removeEldestEntry(Map.Entry eldest) {
+			return size() > KEY_CACHE_SIZE;
+		}
+	};
+
+	/**
+	 * Verified passwords whose derived keys can be cached, compared by identity;
+	 * guarded by keyCache
+	 */
+	private final List verifiedPasswords = new ArrayList(2);
+
+	/**
+	 * Cipher holder of the current thread; the cipher is re-initialized for every operation
+	 */
+	private final ThreadLocal threadCipher = new ThreadLocal();
+
+	/**
+	 * Weak references to the cipher holders of all threads, so that their ciphers
+	 * can be dropped with the keys; guarded by keyCache
+	 */
+	private final List cipherHolders = new ArrayList();
+
+	/**
+	 * Source of the salts; seeded once
+	 */
+	private final SecureRandom random = new SecureRandom();
+
 	public JavaEncryption() {
 		// placeholder
 	}
@@ -134,19 +173,20 @@ public class JavaEncryption {
 
 	private CryptoData internalEncrypt(PasswordExt passwordExt, byte[] clearText) throws StorageException {
 		try {
-			SecretKeyFactory keyFactory = SecretKeyFactory.getInstance(keyFactoryAlgorithm);
-			SecretKey key = keyFactory.generateSecret(passwordExt.getPassword());
+			SecretKey key = getSecretKey(passwordExt);
 
 			byte[] salt = new byte[8];
-			SecureRandom random = new SecureRandom();
 			random.nextBytes(salt);
 			PBEParameterSpec entropy = new PBEParameterSpec(salt, SALT_ITERATIONS);
 
-			Cipher c = Cipher.getInstance(cipherAlgorithm);
-			c.init(Cipher.ENCRYPT_MODE, key, entropy);
+			CipherHolder holder = getCipherHolder();
+			synchronized (holder) {
+				Cipher c = holder.getCipher(cipherAlgorithm);
+				c.init(Cipher.ENCRYPT_MODE, key, entropy);
 
-			byte[] result = c.doFinal(clearText);
-			return new CryptoData(passwordExt.getModuleID(), salt, result);
+				byte[] result = c.doFinal(clearText);
+				return new CryptoData(passwordExt.getModuleID(), salt, result);
+			}
 		} catch (InvalidKeyException e) {
 			handle(e, StorageException.ENCRYPTION_ERROR);
 			return null;
@@ -178,16 +218,18 @@ public class JavaEncryption {
 
 	private byte[] internalDecrypt(PasswordExt passwordExt, CryptoData encryptedData) throws StorageException, IllegalStateException, IllegalBlockSizeException, BadPaddingException {
 		try {
-			SecretKeyFactory keyFactory = SecretKeyFactory.getInstance(keyFactoryAlgorithm);
-			SecretKey key = keyFactory.generateSecret(passwordExt.getPassword());
+			SecretKey key = getSecretKey(passwordExt);
 
 			PBEParameterSpec entropy = new PBEParameterSpec(encryptedData.getSalt(), SALT_ITERATIONS);
 
-			Cipher c = Cipher.getInstance(cipherAlgorithm);
-			c.init(Cipher.DECRYPT_MODE, key, entropy);
+			CipherHolder holder = getCipherHolder();
+			synchronized (holder) {
+				Cipher c = holder.getCipher(cipherAlgorithm);
+				c.init(Cipher.DECRYPT_MODE, key, entropy);
 
-			byte[] result = c.doFinal(encryptedData.getData());
-			return result;
+				byte[] result = c.doFinal(encryptedData.getData());
+				return result;
+			}
 		} catch (InvalidAlgorithmParameterException e) {
 			handle(e, StorageException.INTERNAL_ERROR);
 			return null;
@@ -206,6 +248,90 @@ public class JavaEncryption {
 		}
 	}
 
+	/**
+	 * Returns the key derived from the password with the current key factory algorithm.
+	 * The keys of verified passwords are cached by the identity of the password and
+	 * the algorithm.
+	 */
+	private SecretKey getSecretKey(PasswordExt passwordExt) throws NoSuchAlgorithmException, InvalidKeySpecException {
+		PBEKeySpec password = passwordExt.getPassword();
+		String algorithm = keyFactoryAlgorithm;
+		KeyCacheKey cacheKey = new KeyCacheKey(password, algorithm);
+		synchronized (keyCache) {
+			SecretKey key = (SecretKey) keyCache.get(cacheKey);
+			if (key != null)
+				return key;
+		}
+		SecretKeyFactory keyFactory = SecretKeyFactory.getInstance(algorithm);
+		SecretKey key = keyFactory.generateSecret(password);
+		synchronized (keyCache) {
+			if (isVerified(password))
+				keyCache.put(cacheKey, key);
+		}
+		return key;
+	}
+
+	private boolean isVerified(PBEKeySpec password) {
+		for (int i = 0; i < verifiedPasswords.size(); i++) {
+			if (verifiedPasswords.get(i) == password)
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Allows the keys derived from the password to be cached. Called once the
+	 * password has been verified; the keys of other passwords are never cached.
+	 */
+	public void passwordVerified(PasswordExt passwordExt) {
+		PBEKeySpec password = passwordExt.getPassword();
+		synchronized (keyCache) {
+			if (!isVerified(password))
+				verifiedPasswords.add(password);
+		}
+	}
+
+	/**
+	 * Returns the cipher holder of the current thread.
+	 */
+	private CipherHolder getCipherHolder() {
+		CipherHolder holder = (CipherHolder) threadCipher.get();
+		if (holder == null) {
+			holder = new CipherHolder();
+			threadCipher.set(holder);
+			synchronized (keyCache) {
+				for (Iterator i = cipherHolders.iterator(); i.hasNext();) {
+					if (((WeakReference) i.next()).get() == null)
+						i.remove();
+				}
+				cipherHolders.add(new WeakReference(holder));
+			}
+		}
+		return holder;
+	}
+
+	/**
+	 * Removes all derived keys from the key cache and drops the ciphers of all
+	 * threads, which are still initialized with the last key they used, for
+	 * instance after the passwords have been cleared.
+	 */
+	public void clearKeyCache() {
+		Object[] holders;
+		synchronized (keyCache) {
+			keyCache.clear();
+			verifiedPasswords.clear();
+			holders = cipherHolders.toArray();
+		}
+		for (int i = 0; i < holders.length; i++) {
+			CipherHolder holder = (CipherHolder) ((WeakReference) holders[i]).get();
+			if (holder != null) {
+				synchronized (holder) {
+					holder.cipher = null;
+				}
+			}
+		}
+	}
+
 	private void handle(Exception e, int internalCode) throws StorageException {
 		if (AuthPlugin.DEBUG_LOGIN_FRAMEWORK)
 			e.printStackTrace();
@@ -310,4 +436,47 @@ public class JavaEncryption {
 		}
 	}
 
+	/**
+	 * The cipher of a thread. The monitor of the holder is taken while the cipher
+	 * is used, and by {@link JavaEncryption#clearKeyCache()} to drop it.
+	 */
+	private static class CipherHolder {
+		Cipher cipher;
+
+		/**
+		 * Returns the cipher for the algorithm. The caller must initialize the
+		 * cipher before using it.
+		 */
+		Cipher getCipher(String algorithm) throws NoSuchAlgorithmException, NoSuchPaddingException {
+			if (cipher == null || !algorithm.equals(cipher.getAlgorithm()))
+				cipher = Cipher.getInstance(algorithm);
+			return cipher;
+		}
+	}
+
+	/**
+	 * Key of the derived key cache: the password, compared by identity, and the
+	 * key factory algorithm.
+	 */
+	private static class KeyCacheKey {
+		private final PBEKeySpec password;
+		private final String algorithm;
+
+		public KeyCacheKey(PBEKeySpec password, String algorithm) {
+			this.password = password;
+			this.algorithm = algorithm;
+		}
+
+		public boolean equals(Object obj) {
+			if (!(obj instanceof KeyCacheKey))
+				return false;
+			KeyCacheKey other = (KeyCacheKey) obj;
+			return password == other.password && algorithm.equals(other.algorithm);
+		}
+
+		public int hashCode() {
+			return System.identityHashCode(password) ^ algorithm.hashCode();
+		}
+	}
+
 }
@@ -247,7 +247,38 @@ public class SecurePreferences {
 		checkRemoved();
 		if (!hasKey(key))
 			return def;
-		String encryptedValue = internalGet(key);
+		return decryptValue(internalGet(key), null, container);
+	}
+
+	/**
+	 * Retrieves the values of several keys of this node in one pass. The password
+	 * of each module is obtained once for all values encrypted with it.
+	 * @param keys keys of the values to retrieve
+	 * @param container container of this node
+	 * @return map of key -> value (String) for the keys present in this node
+	 * @throws StorageException if a value could not be decrypted
+	 */
+	public Map getAll(String[] keys, SecurePreferencesContainer container) throws StorageException {
+		checkRemoved();
+		Map result = new HashMap(keys.length);
+		Map passwords = new HashMap(2); // module ID -> PasswordExt
+		for (int i = 0; i < keys.length; i++) {
+			if (hasKey(keys[i]))
+				result.put(keys[i], decryptValue(internalGet(keys[i]), passwords, container));
+		}
+		return result;
+	}
+
+	/**
+	 * Decrypts a value stored in this node
+	 * @param encryptedValue the stored value, may be <code>null</code>
+	 * @param passwords module ID -> PasswordExt map of the passwords already obtained,
+	 * or <code>null</code> if the password is only needed for this value
+	 * @param container container of this node
+	 * @return the clear text value
+	 * @throws StorageException if the value could not be decrypted
+	 */
+	private String decryptValue(String encryptedValue, Map passwords, SecurePreferencesContainer container) throws StorageException {
 		if (encryptedValue == null)
 			return null;
 
@@ -259,9 +290,14 @@ public class SecurePreferences {
 			return StorageUtils.getString(data.getData());
 		}
 
-		PasswordExt passwordExt = getRoot().getPassword(moduleID, container, false);
-		if (passwordExt == null)
-			throw new StorageException(StorageException.NO_PASSWORD, SecAuthMessages.loginNoPassword);
+		PasswordExt passwordExt = (passwords == null) ? null : (PasswordExt) passwords.get(moduleID);
+		if (passwordExt == null) {
+			passwordExt = getRoot().getPassword(moduleID, container, false);
+			if (passwordExt == null)
+				throw new StorageException(StorageException.NO_PASSWORD, SecAuthMessages.loginNoPassword);
+			if (passwords != null)
+				passwords.put(moduleID, passwordExt);
+		}
 
 		try {
 			byte[] clearText = getRoot().getCipher().decrypt(passwordExt, data);
@@ -287,11 +287,8 @@ public class SecurePreferencesRoot extends SecurePreferences implements IStorage
 						break;
 				}
 			}
-			if (validPassword) {
-				synchronized (passwordCache) {
-					passwordCache.put(key, passwordExt);
-				}
-			}
+			if (validPassword)
+				cachePassword(key, passwordExt);
 		} finally {
 			if (addedNoPrompt) {
 				((SecurePreferencesContainer) container).removeOption(IProviderHints.PROMPT_USER);
@@ -380,12 +377,15 @@ public class SecurePreferencesRoot extends SecurePreferences implements IStorage
 		synchronized (passwordCache) {
 			passwordCache.put(moduleID, passwordExt);
 		}
+		// only the keys of the cached passwords are kept by the cipher
+		cipher.passwordVerified(passwordExt);
 	}
 
 	public void clearPasswordCache() {
 		synchronized (passwordCache) {
 			passwordCache.clear();
 		}
+		cipher.clearKeyCache();
 	}
 
 	private long getLastModified() {
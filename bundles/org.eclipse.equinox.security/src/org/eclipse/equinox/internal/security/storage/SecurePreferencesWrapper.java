@@ -11,6 +11,7 @@
 package org.eclipse.equinox.internal.security.storage;
 
 import java.io.IOException;
+import java.util.Map;
 import org.eclipse.equinox.security.storage.ISecurePreferences;
 import org.eclipse.equinox.security.storage.StorageException;
 
@@ -106,6 +107,17 @@ public class SecurePreferencesWrapper implements ISecurePreferences {
 		return node.get(key, def, container);
 	}
 
+	/**
+	 * Retrieves the values of several keys of this node in one pass, decrypting
+	 * them as needed. Keys not present in this node are not included in the result.
+	 * @param keys keys of the values to retrieve
+	 * @return map of key -> value (String)
+	 * @throws StorageException if a value could not be decrypted
+	 */
+	public Map getAll(String[] keys) throws StorageException {
+		return node.getAll(keys, container);
+	}
+
 	public void put(String key, String value, boolean encrypt) throws StorageException {
 		node.put(key, value, encrypt, container);
 	}
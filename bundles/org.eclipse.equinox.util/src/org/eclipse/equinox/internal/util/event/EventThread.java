@@ -18,6 +18,11 @@ import org.eclipse.equinox.internal.util.UtilActivator;
 /**
  * Abstract class for asynchronous event dispatching
  *
+ * If the <code>batching</code> field is true (by default if the
+ * <code>equinox.util.event.batching</code> property is true), the thread takes
+ * all events available in the queue at once instead of synchronizing on the
+ * queue for every event.
+ *
  * @author Pavlin Dobrev
  * @version 1.0
  */
@@ -42,7 +47,28 @@ public abstract class EventThread implements Runnable {
 	 * <li> bit 0: 0 = started / 1 = stopped;
 	 * <li> bit 1: 0 not waiting / 1 = waiting
 	 */
-	protected int state;
+	protected volatile int state;
+
+	/**
+	 * If true, all events available in the queue are taken at once. Must be
+	 * set before the thread is started. The events taken by a thread which
+	 * stops responding are returned to the front of the queue when the thread
+	 * is replaced, so they are delivered by the new thread in order.
+	 */
+	protected boolean batching = UtilActivator.getBoolean("equinox.util.event.batching");
+
+	/*
+	 * the events taken by a batching thread and not delivered yet, guarded by
+	 * batchLock, which is taken after queue
+	 */
+	private final Object batchLock = new Object();
+	private Object[] batch;
+	private int batchNext = 0;
+	private int batchCount = 0;
+
+	/* statistics, guarded by queue */
+	private long processed = 0;
+	private long processingTime = 0;
 
 	/**
 	 * The time spent in the current callback, or 0 if the thread is not in a
@@ -120,6 +146,9 @@ public abstract class EventThread implements Runnable {
 		baseName = old.baseName;
 		counter = old.counter;
 		queue = old.queue;
+		batching = old.batching;
+		processed = old.processed;
+		processingTime = old.processingTime;
 		int priority = getThreadPriority();
 		if (priority != Thread.NORM_PRIORITY)
 			thread.setPriority(priority);
@@ -151,6 +180,7 @@ public abstract class EventThread implements Runnable {
 		else if (check && checkTime())
 			try {
 				state |= 1;
+				returnBatch();
 				newEventDispatcher(); // must call start
 			} catch (Throwable t) {
 				print(t);
@@ -166,12 +196,19 @@ public abstract class EventThread implements Runnable {
 		synchronized (queue) {
 			queue.notifyAll();
 		}
+		int count = 0; // events processed since the last update of the statistics
+		long start = 0;
 		while (true) {
 			try {
 				synchronized (queue) {
+					if (count > 0) {
+						processed += count;
+						processingTime += System.currentTimeMillis() - start;
+						count = 0;
+					}
 					if ((state & 1) != 0)
 						return; // closed
-					while ((element = queue.get()) == null)
+					while (queue.size() == 0)
 						try {
 							state |= 2; // waiting
 							queue.wait();
@@ -180,9 +217,26 @@ public abstract class EventThread implements Runnable {
 							state &= 253; // not waiting
 						} catch (InterruptedException ie) {
 						}
+					if (batching) {
+						synchronized (batchLock) {
+							if (batch == null)
+								batch = new Object[16];
+							if (batch.length < queue.size())
+								batch = new Object[queue.size()];
+							count = batchCount = queue.get(batch);
+							batchNext = 0;
+						}
+					} else {
+						if ((element = queue.get()) == null)
+							continue;
+						count = 1;
+					}
+					start = System.currentTimeMillis();
 				}
-				processEvent();
-
+				if (batching)
+					processBatch();
+				else
+					processEvent();
 			} catch (Throwable t) {
 				print(t);
 				try { // fix memory leak
@@ -193,6 +247,79 @@ public abstract class EventThread implements Runnable {
 		}
 	}
 
+	/*
+	 * Processes the events of the batch until all are processed or the thread
+	 * is closed. The next event is taken under batchLock, so that an event is
+	 * either delivered by this thread or returned to the queue by returnBatch.
+	 */
+	private void processBatch() {
+		while (true) {
+			synchronized (batchLock) {
+				if ((state & 1) != 0 || batchNext == batchCount)
+					return;
+				element = batch[batchNext];
+				batch[batchNext++] = null;
+			}
+			try {
+				processEvent();
+			} catch (Throwable t) {
+				print(t);
+			}
+		}
+	}
+
+	/*
+	 * Returns the events of the batch which are not delivered yet to the front
+	 * of the queue, for the thread replacing this one. Called synchronized on
+	 * queue.
+	 */
+	private void returnBatch() {
+		synchronized (batchLock) {
+			while (batchCount > batchNext) {
+				queue.unget(batch[--batchCount]);
+				batch[batchCount] = null;
+			}
+		}
+	}
+
+	/**
+	 * Returns the number of events waiting in the queue.
+	 */
+	public int getQueueSize() {
+		synchronized (queue) {
+			return queue.size();
+		}
+	}
+
+	/**
+	 * Returns the largest number of events which have waited in the queue.
+	 */
+	public int getMaxQueueSize() {
+		synchronized (queue) {
+			return queue.getMaxSize();
+		}
+	}
+
+	/**
+	 * Returns the number of events processed by this thread and the threads it
+	 * has replaced.
+	 */
+	public long getProcessedCount() {
+		synchronized (queue) {
+			return processed;
+		}
+	}
+
+	/**
+	 * Returns the time in milliseconds spent in processing the events counted
+	 * by {@link #getProcessedCount()}.
+	 */
+	public long getProcessingTime() {
+		synchronized (queue) {
+			return processingTime;
+		}
+	}
+
 	private void makeThread(ThreadGroup group, String name) {
 		try {
 			if (privilegedAction == null) {
@@ -0,0 +1,190 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Contributors to the Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.equinox.internal.util.event;
+
+/**
+ * Abstract class for asynchronous event dispatching to independent listeners
+ * by several threads. The events are added together with the listener to
+ * deliver them to, and each listener is assigned to one of the
+ * {@link EventThread} partitions of the dispatcher by its identity hash code.
+ * The events of a listener are delivered in the order they were added, while
+ * the events of listeners in different partitions are delivered in parallel,
+ * so a slow listener only delays the listeners of its partition.
+ *
+ * The partitions have no watchdog - subclasses which need to detect listeners
+ * that are not responding should use {@link EventThread} directly.
+ *
+ * @version 1.0
+ */
+
+public abstract class PartitionedEventDispatcher {
+
+	private Partition[] partitions;
+
+	/**
+	 * Constructs the dispatcher. The threads are started by {@link #start()}.
+	 *
+	 * @param group
+	 *            The ThreadGroup of the threads, or null for the current
+	 *            thread group
+	 * @param name
+	 *            The base name of the threads. The partition number will be
+	 *            added at the end of the string to construct the name of
+	 *            each thread.
+	 * @param count
+	 *            The number of partitions
+	 * @param size
+	 *            The initial number of elements of the events queue of each
+	 *            partition
+	 * @param batching
+	 *            If true, each partition takes all events available in its
+	 *            queue at once
+	 */
+	public PartitionedEventDispatcher(ThreadGroup group, String name, int count, int size, boolean batching) {
+		if (count < 1) {
+			throw new IllegalArgumentException("Invalid partitions count: " + count + ".");
+		}
+		partitions = new Partition[count];
+		for (int i = 0; i < count; i++) {
+			partitions[i] = new Partition(group, name + i + '-', size);
+			partitions[i].batching = batching;
+		}
+	}
+
+	public void start() {
+		for (int i = 0; i < partitions.length; i++) {
+			partitions[i].start();
+		}
+	}
+
+	/**
+	 * Adds an event for the given listener in the queue of its partition.
+	 *
+	 * @param listener
+	 *            The listener to deliver the event to
+	 * @param event
+	 *            The event to add
+	 */
+	public void addEvent(Object listener, Object event) {
+		Partition partition = partitions[(System.identityHashCode(listener) & 0x7FFFFFFF) % partitions.length];
+		Object[] pair = new Object[] {listener, event};
+		synchronized (partition.queue) {
+			partition.addEvent(pair, false);
+		}
+	}
+
+	/**
+	 * Stops the threads of the dispatcher. The events waiting in the queues are
+	 * not delivered.
+	 */
+	public void close() {
+		for (int i = 0; i < partitions.length; i++) {
+			Queue queue = partitions[i].queue;
+			synchronized (queue) {
+				partitions[i].state |= 1;
+				queue.clear();
+				queue.notifyAll();
+			}
+		}
+	}
+
+	/**
+	 * Returns the number of events waiting in the queues of all partitions.
+	 */
+	public int getQueueSize() {
+		int size = 0;
+		for (int i = 0; i < partitions.length; i++) {
+			size += partitions[i].getQueueSize();
+		}
+		return size;
+	}
+
+	/**
+	 * Returns the number of events delivered by all partitions.
+	 */
+	public long getProcessedCount() {
+		long count = 0;
+		for (int i = 0; i < partitions.length; i++) {
+			count += partitions[i].getProcessedCount();
+		}
+		return count;
+	}
+
+	/**
+	 * Returns the time in milliseconds spent by all partitions in delivering
+	 * events.
+	 */
+	public long getProcessingTime() {
+		long time = 0;
+		for (int i = 0; i < partitions.length; i++) {
+			time += partitions[i].getProcessingTime();
+		}
+		return time;
+	}
+
+	/**
+	 * Returns the partitions of the dispatcher, e.g. for querying the
+	 * statistics of each of them.
+	 */
+	public EventThread[] getPartitions() {
+		EventThread[] result = new EventThread[partitions.length];
+		System.arraycopy(partitions, 0, result, 0, partitions.length);
+		return result;
+	}
+
+	/**
+	 * Returns the desired priority of the threads.
+	 */
+	public abstract int getThreadPriority();
+
+	/**
+	 * Performs the actual event delivery to the listener. Called by the thread
+	 * of the partition of the listener.
+	 */
+	public abstract void processEvent(Object listener, Object event);
+
+	/**
+	 * Logs the error.
+	 *
+	 * @param t
+	 */
+	public abstract void print(Throwable t);
+
+	private class Partition extends EventThread {
+
+		Partition(ThreadGroup group, String name, int size) {
+			super(group, name, size);
+		}
+
+		public int getThreadPriority() {
+			return PartitionedEventDispatcher.this.getThreadPriority();
+		}
+
+		public void processEvent() {
+			if ((state & 1) != 0)
+				return; // closed
+			Object[] pair = (Object[]) element;
+			PartitionedEventDispatcher.this.processEvent(pair[0], pair[1]);
+		}
+
+		public boolean checkTime() {
+			return false;
+		}
+
+		public void newEventDispatcher() {
+			// not used - checkTime() never reports a partition as not responding
+		}
+
+		public void print(Throwable t) {
+			PartitionedEventDispatcher.this.print(t);
+		}
+	}
+}
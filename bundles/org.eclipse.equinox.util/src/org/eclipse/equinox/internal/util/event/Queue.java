@@ -24,6 +24,7 @@ public class Queue {
 	protected int initial, count;
 	protected int increment;
 	protected int decrement;
+	protected int maxCount;
 
 	public Queue(int size) {
 		queue = new Object[initial = size];
@@ -35,7 +36,8 @@ public class Queue {
 		if (count == queue.length)
 			resize(true);
 		queue[++last == queue.length ? last = 0 : last] = element;
-		count++;
+		if (++count > maxCount)
+			maxCount = count;
 	}
 
 	public void unget(Object element) {
@@ -58,6 +60,36 @@ public class Queue {
 		return element;
 	}
 
+	/**
+	 * Removes up to <code>elements.length</code> elements from the head of the
+	 * queue and stores them in <code>elements</code>.
+	 * 
+	 * @param elements
+	 *            the array to store the removed elements in
+	 * @return the number of removed elements
+	 */
+	public int get(Object[] elements) {
+		if (count == 0)
+			return 0;
+		if (queue.length > initial && queue.length - count > decrement)
+			resize(false);
+		int n = count < elements.length ? count : elements.length;
+		int n1 = queue.length - first;
+		if (n1 > n)
+			n1 = n;
+		System.arraycopy(queue, first, elements, 0, n1);
+		for (int i = first; i < first + n1; i++)
+			queue[i] = null;
+		if (n > n1) {
+			System.arraycopy(queue, 0, elements, n1, n - n1);
+			for (int i = 0; i < n - n1; i++)
+				queue[i] = null;
+		}
+		first = (first + n) % queue.length;
+		count -= n;
+		return n;
+	}
+
 	public void clear() {
 		if (queue.length > initial) {
 			queue = new Object[initial];
@@ -76,6 +108,13 @@ public class Queue {
 		return count;
 	}
 
+	/**
+	 * Returns the largest number of elements the queue has held.
+	 */
+	public int getMaxSize() {
+		return maxCount;
+	}
+
 	protected void resize(boolean up) {
 		Object[] tmp = new Object[queue.length + (up ? increment : -increment)];
 		if (first <= last)
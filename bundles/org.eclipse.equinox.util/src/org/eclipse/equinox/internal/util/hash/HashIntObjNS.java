@@ -15,9 +15,17 @@ package org.eclipse.equinox.internal.util.hash;
  * Hashtable for mapping int keys to Object values. The methods of this
  * hashtable are not synchronized, and if used concurently must be externally
  * synchronized
- * 
+ *
+ * The elements are kept in the <code>keys</code> and <code>values</code>
+ * arrays using open addressing with linear probing, so no objects are
+ * allocated for the elements. The capacity of the table is a power of two.
+ * Removing an element moves the following elements of its probe sequence back,
+ * so the table never holds deleted entries. Because of this, removing elements
+ * while enumerating the arrays may move elements not enumerated yet to an
+ * already enumerated position.
+ *
  * @author Pavlin Dobrev
- * @version 1.0
+ * @version 1.1
  */
 
 public class HashIntObjNS {
@@ -26,14 +34,14 @@ public class HashIntObjNS {
 
 	// count of elements available in table
 	private int count = 0;
-	// used for computation of next position
-	private int step = 499979;
+	// 32 - log2(capacity), used for computation of the home position
+	private int shift;
 
 	/**
 	 * Used to enumerate the keys in the hash table. The key at index
 	 * <code>i</code> is valid only if
 	 * <ul>
-	 * <code>  values[i] != null </code>
+	 * <code>  next[i] != -1 </code>
 	 * </ul>
 	 */
 	public int[] keys;
@@ -42,7 +50,7 @@ public class HashIntObjNS {
 	 * Used to enumerate the values in the hash table. The value at index
 	 * <code>i</code> is valid only if
 	 * <ul>
-	 * <code>  values[i] != null </code>
+	 * <code>  next[i] != -1 </code>
 	 * </ul>
 	 */
 	public Object[] values;
@@ -61,8 +69,8 @@ public class HashIntObjNS {
 
 	/**
 	 * Constructs an empty hash table with keys of type int and values af type
-	 * Object. Uses default load factor (0.75) and default capacity (89)
-	 * 
+	 * Object. Uses default load factor (0.75) and default capacity (128)
+	 *
 	 */
 	public HashIntObjNS() {
 		this(101, LOAD_FACTOR);
@@ -71,10 +79,10 @@ public class HashIntObjNS {
 	/**
 	 * Constructs an empty hash table with keys of type int and values af type
 	 * Object. Uses default load factor (0.75).
-	 * 
+	 *
 	 * @param capacity
-	 *            initial capacity of the table
-	 * 
+	 *            initial capacity of the table, rounded up to a power of two
+	 *
 	 * @exception IllegalArgumentException
 	 *                if <code>capacity</code> < 1.
 	 */
@@ -85,12 +93,12 @@ public class HashIntObjNS {
 	/**
 	 * Constructs an empty hash table with keys of type int and values of type
 	 * Object.
-	 * 
+	 *
 	 * @param capacity
-	 *            initial capacity of the table
+	 *            initial capacity of the table, rounded up to a power of two
 	 * @param lf
 	 *            load factor ot the table
-	 * 
+	 *
 	 * @exception IllegalArgumentException
 	 *                if <code>capacity</code> < 1 or <code>lf</code> < 0.0
 	 */
@@ -110,65 +118,74 @@ public class HashIntObjNS {
 			lf = 1.0;
 		}
 		loadFactor = lf;
-		limit = (int) (capacity * lf);
-		count = 0;
+		init(HashUtil.tableSize(capacity));
+	}
 
+	private void init(int capacity) {
 		keys = new int[capacity];
 		values = new Object[capacity];
 		next = new int[capacity];
 		for (int i = 0; i < capacity; i++) {
-			keys[i] = 0;
 			next[i] = -1;
 		}
+		shift = HashUtil.shift(capacity);
+		limit = HashUtil.limit(capacity, loadFactor);
 	}
 
 	/**
 	 * Adds in the hashtable an element with <code>key</code> key and
 	 * <code>value</code> value. If an element with the specified key is
 	 * already in the table only change it's value.
-	 * 
+	 *
 	 * @param key
 	 *            the key of the inserted element
 	 * @param value
 	 *            the value of the inserted element
 	 */
 	public void put(int key, Object value) {
+		int pos = find(key);
+		if (pos >= 0) {
+			values[pos] = value;
+			return;
+		}
 		if (count >= limit) {
 			rehash();
+			pos = find(key);
 		}
-		if (_put(key, value)) {
-			count++;
-		}
+		pos = -pos - 1;
+		keys[pos] = key;
+		values[pos] = value;
+		next[pos] = 0;
+		count++;
 	}
 
 	/**
 	 * Returns an value which is mapped to the <code>key</code> key.
-	 * 
+	 *
 	 * @param key
 	 *            the key we are searching for
 	 * @return the value this key is mapped to in the table, or null
 	 */
 	public Object get(int key) {
 		int pos = find(key);
-		return (pos == -1) ? null : values[pos];
+		return (pos < 0) ? null : values[pos];
 	}
 
 	/**
 	 * Removes an element with the specified key from the table. Does nothing if
 	 * there is no element with this key.
-	 * 
+	 *
 	 * @param key
 	 *            the key of the element we want to remove
 	 * @return the removed value, or null if there was nothing to remove
 	 */
 	public Object remove(int key) {
 		int pos = find(key);
-		if (pos == -1)
+		if (pos < 0)
 			return null;
-		next[pos] += next.length; // mark this field as empty
-		count--;
 		Object tmp = values[pos];
-		values[pos] = null;
+		delete(pos);
+		count--;
 		return tmp;
 	}
 
@@ -194,80 +211,82 @@ public class HashIntObjNS {
 		Object[] tmpValues = values;
 		int[] tmpNext = next;
 
-		int capacity = keys.length * 2 + 1;
-
-		// polzwame temp array-i za da ne se namaje hashtable-a pri OutOfMemory
+		// the new arrays are assigned only after they are all allocated, so an
+		// OutOfMemoryError leaves the table unchanged
+		int capacity = keys.length * 2;
 		int[] keys = new int[capacity];
 		Object[] values = new Object[capacity];
 		int[] next = new int[capacity];
-		for (int i = 0; i < next.length; i++) {
+		for (int i = 0; i < capacity; i++) {
 			next[i] = -1;
 		}
 
 		this.keys = keys;
 		this.values = values;
 		this.next = next;
+		shift = HashUtil.shift(capacity);
+		limit = HashUtil.limit(capacity, loadFactor);
 
+		int mask = capacity - 1;
 		for (int i = 0; i < tmpNext.length; i++) {
-			if ((tmpNext[i] >= 0) && (tmpNext[i] < tmpNext.length)) {
-				_put(tmpKeys[i], tmpValues[i]);
+			if (tmpNext[i] != -1) {
+				int pos = HashUtil.hash(tmpKeys[i], shift);
+				while (next[pos] != -1) {
+					pos = (pos + 1) & mask;
+				}
+				keys[pos] = tmpKeys[i];
+				values[pos] = tmpValues[i];
+				next[pos] = 0;
 			}
 		}
-
-		limit = (int) (capacity * loadFactor);
 	}
 
 	/**
 	 * Returns the count of elements currently in the table
-	 * 
+	 *
 	 * @return the count of elements
 	 */
 	public int size() {
 		return count;
 	}
 
+	/*
+	 * Returns the position of the key or -(insertion point) - 1 if the key is
+	 * not in the table.
+	 */
 	private int find(int key) {
-		int pos = (key & 0x7fffffff) % keys.length;
-		int i = 0;
-
-		while (next[pos] >= 0) {
+		int mask = next.length - 1;
+		int pos = HashUtil.hash(key, shift);
+		while (next[pos] != -1) {
 			if (keys[pos] == key) {
-				if (next[pos] < next.length) {
-					return pos;
-				}
-			}
-			if ((pos = next[pos]) >= next.length) {
-				pos -= next.length;
-			}
-			if (++i > next.length) {
-				return -1;
+				return pos;
 			}
+			pos = (pos + 1) & mask;
 		}
-
-		return -1;
+		return -pos - 1;
 	} // find
 
-	private boolean _put(int key, Object value) {
-		int index = find(key);
-		if (index != -1) {
-			values[index] = value;
-			return false;
-		}
-
-		int pos = (key & 0x7fffffff) % keys.length;
-
-		while ((next[pos] >= 0) && (next[pos] < next.length)) {
-			pos = next[pos];
-		}
-
-		keys[pos] = key;
-		values[pos] = value;
-		if (next[pos] < 0) {
-			next[pos] = (pos + step) % next.length;
-		} else {
-			next[pos] -= next.length;
+	/*
+	 * Frees a position, moving back the elements after it which would not be
+	 * found otherwise.
+	 */
+	private void delete(int pos) {
+		int mask = next.length - 1;
+		int i = (pos + 1) & mask;
+		while (next[i] != -1) {
+			int home = HashUtil.hash(keys[i], shift);
+			// the element can fill the free position if its home position is not
+			// cyclically in (pos, i]
+			if (((i - home) & mask) >= ((i - pos) & mask)) {
+				keys[pos] = keys[i];
+				values[pos] = values[i];
+				pos = i;
+			}
+			i = (i + 1) & mask;
 		}
-		return true;
-	} // _put
+		keys[pos] = 0;
+		values[pos] = null;
+		next[pos] = -1;
+	} // delete
 
 }
@@ -0,0 +1,93 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Contributors to the Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.equinox.internal.util.hash;
+
+/**
+ * Thread safe hashtable for mapping long keys to Object values. Unlike
+ * {@link HashLongObjS}, which locks the whole table, the elements are split by
+ * their keys into several {@link HashLongObjNS} stripes, each locked
+ * separately, so threads accessing different stripes do not contend.
+ *
+ * @version 1.0
+ */
+
+public final class HashLongObjStriped {
+
+	private final HashLongObjNS[] stripes;
+	private final int mask;
+
+	/**
+	 * Constructs an empty hash table with 16 stripes of the default capacity.
+	 */
+	public HashLongObjStriped() {
+		this(16, 101);
+	}
+
+	/**
+	 * Constructs an empty hash table.
+	 *
+	 * @param stripes
+	 *            the count of the separately locked stripes, rounded up to a
+	 *            power of two
+	 * @param capacity
+	 *            initial capacity of each stripe
+	 */
+	public HashLongObjStriped(int stripes, int capacity) {
+		this.stripes = new HashLongObjNS[HashUtil.tableSize(stripes)];
+		for (int i = 0; i < this.stripes.length; i++) {
+			this.stripes[i] = new HashLongObjNS(capacity);
+		}
+		mask = this.stripes.length - 1;
+	}
+
+	public void put(long key, Object value) {
+		HashLongObjNS stripe = stripes[HashUtil.stripe(key, mask)];
+		synchronized (stripe) {
+			stripe.put(key, value);
+		}
+	}
+
+	public Object get(long key) {
+		HashLongObjNS stripe = stripes[HashUtil.stripe(key, mask)];
+		synchronized (stripe) {
+			return stripe.get(key);
+		}
+	}
+
+	public Object remove(long key) {
+		HashLongObjNS stripe = stripes[HashUtil.stripe(key, mask)];
+		synchronized (stripe) {
+			return stripe.remove(key);
+		}
+	}
+
+	/**
+	 * Returns the count of elements in the table. The stripes are counted one
+	 * after another, so the result may miss concurrent modifications.
+	 */
+	public int size() {
+		int size = 0;
+		for (int i = 0; i < stripes.length; i++) {
+			synchronized (stripes[i]) {
+				size += stripes[i].size();
+			}
+		}
+		return size;
+	}
+
+	public void removeAll() {
+		for (int i = 0; i < stripes.length; i++) {
+			synchronized (stripes[i]) {
+				stripes[i].removeAll();
+			}
+		}
+	}
+}
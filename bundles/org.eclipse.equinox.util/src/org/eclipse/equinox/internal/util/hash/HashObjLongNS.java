@@ -17,9 +17,17 @@ import java.util.NoSuchElementException;
  * Hashtable for mapping Object keys to long values. The methods of this
  * hashtable are not synchronized, and if used concurently must be externally
  * synchronized
- * 
+ *
+ * The elements are kept in the <code>keys</code> and <code>values</code>
+ * arrays using open addressing with linear probing, so no objects are
+ * allocated for the elements. The capacity of the table is a power of two.
+ * Removing an element moves the following elements of its probe sequence back,
+ * so the table never holds deleted entries. Because of this, removing elements
+ * while enumerating the arrays may move elements not enumerated yet to an
+ * already enumerated position.
+ *
  * @author Pavlin Dobrev
- * @version 1.0
+ * @version 1.1
  */
 
 public class HashObjLongNS {
@@ -28,8 +36,8 @@ public class HashObjLongNS {
 
 	// count of elements available in table
 	private int count = 0;
-	// used for computation of next position
-	private int step = 499979;
+	// 32 - log2(capacity), used for computation of the home position
+	private int shift;
 
 	/**
 	 * Used to enumerate the keys in the hash table. The key at index
@@ -62,21 +70,21 @@ public class HashObjLongNS {
 	private double loadFactor;
 
 	/**
-	 * Constructs an empty hash table with keys of type int and values af type
-	 * Object. Uses default load factor (0.75) and default capacity (89)
-	 * 
+	 * Constructs an empty hash table with keys of type Object and values af
+	 * type long. Uses default load factor (0.75) and default capacity (128)
+	 *
 	 */
 	public HashObjLongNS() {
 		this(101, LOAD_FACTOR);
 	}
 
 	/**
-	 * Constructs an empty hash table with keys of type int and values af type
-	 * Object. Uses default load factor (0.75).
-	 * 
+	 * Constructs an empty hash table with keys of type Object and values af
+	 * type long. Uses default load factor (0.75).
+	 *
 	 * @param capacity
-	 *            initial capacity of the table
-	 * 
+	 *            initial capacity of the table, rounded up to a power of two
+	 *
 	 * @exception IllegalArgumentException
 	 *                if <code>capacity</code> < 1.
 	 */
@@ -85,14 +93,14 @@ public class HashObjLongNS {
 	}
 
 	/**
-	 * Constructs an empty hash table with keys of type int and values of type
-	 * Object.
-	 * 
+	 * Constructs an empty hash table with keys of type Object and values of
+	 * type long.
+	 *
 	 * @param capacity
-	 *            initial capacity of the table
+	 *            initial capacity of the table, rounded up to a power of two
 	 * @param lf
 	 *            load factor ot the table
-	 * 
+	 *
 	 * @exception IllegalArgumentException
 	 *                if <code>capacity</code> < 1 or <code>lf</code> < 0.0
 	 */
@@ -112,50 +120,61 @@ public class HashObjLongNS {
 			lf = 1.0;
 		}
 		loadFactor = lf;
-		limit = (int) (capacity * lf);
-		count = 0;
+		init(HashUtil.tableSize(capacity));
+	}
 
+	private void init(int capacity) {
 		keys = new Object[capacity];
 		values = new long[capacity];
 		next = new int[capacity];
 		for (int i = 0; i < capacity; i++) {
 			next[i] = -1;
 		}
+		shift = HashUtil.shift(capacity);
+		limit = HashUtil.limit(capacity, loadFactor);
 	}
 
 	/**
 	 * Adds in hashtable an element with <code>key</code> key and
 	 * <code>value</code> value. If an element with the specified key is
 	 * already in the table only change it's value.
-	 * 
+	 *
 	 * @param key
 	 *            the key of the inserted element
 	 * @param value
 	 *            the value of the inserted element
 	 */
 	public void put(Object key, long value) {
+		int pos = find(key);
+		if (pos >= 0) {
+			values[pos] = value;
+			return;
+		}
 		if (count >= limit) {
 			rehash();
+			pos = find(key);
 		}
-		if (_put(key, value)) {
-			count++;
-		}
+		pos = -pos - 1;
+		keys[pos] = key;
+		values[pos] = value;
+		next[pos] = 0;
+		count++;
 	}
 
 	/**
 	 * Returns an value which is mapped to the <code>key</code> key. If there
 	 * is no such a key, throws <code>NoSuchElementException</code>.
-	 * 
+	 *
 	 * @param key
 	 *            the key we are searching for
 	 * @return the value this key is mapped to in the table.
-	 * 
+	 *
 	 * @exception NoSuchElementException
 	 *                if there is no element with the specified key.
 	 */
 	public long get(Object key) {
 		int pos = find(key);
-		if (pos == -1)
+		if (pos < 0)
 			throw new NoSuchElementException();
 		return values[pos];
 	}
@@ -164,7 +183,7 @@ public class HashObjLongNS {
 	 * Removes an element with the specified key from the table. throws
 	 * <code>NoSuchElementException</code> if there is no element with this
 	 * key.
-	 * 
+	 *
 	 * @param key
 	 *            the key of the element we want to remove
 	 * @exception NoSuchElementException
@@ -172,12 +191,12 @@ public class HashObjLongNS {
 	 */
 	public long remove(Object key) {
 		int pos = find(key);
-		if (pos == -1)
+		if (pos < 0)
 			throw new NoSuchElementException();
-		next[pos] += next.length; // mark this field as empty
-		keys[pos] = null;
+		long tmp = values[pos];
+		delete(pos);
 		count--;
-		return values[pos];
+		return tmp;
 	}
 
 	/**
@@ -188,6 +207,7 @@ public class HashObjLongNS {
 			keys[i] = null;
 			next[i] = -1;
 		}
+		count = 0;
 	}
 
 	/**
@@ -200,82 +220,81 @@ public class HashObjLongNS {
 		long[] tmpValues = values;
 		int[] tmpNext = next;
 
-		int capacity = keys.length * 2 + 1;
-
-		// polzwame temp array-i za da ne se namaje hashtable-a pri OutOfMemory
+		// the new arrays are assigned only after they are all allocated, so an
+		// OutOfMemoryError leaves the table unchanged
+		int capacity = keys.length * 2;
 		Object[] keys = new Object[capacity];
 		long[] values = new long[capacity];
 		int[] next = new int[capacity];
-		for (int i = 0; i < next.length; i++) {
+		for (int i = 0; i < capacity; i++) {
 			next[i] = -1;
 		}
 
 		this.keys = keys;
 		this.values = values;
 		this.next = next;
+		shift = HashUtil.shift(capacity);
+		limit = HashUtil.limit(capacity, loadFactor);
 
+		int mask = capacity - 1;
 		for (int i = 0; i < tmpNext.length; i++) {
-			if ((tmpNext[i] >= 0) && (tmpNext[i] < tmpNext.length)) {
-				_put(tmpKeys[i], tmpValues[i]);
+			if (tmpNext[i] != -1) {
+				int pos = HashUtil.hash(tmpKeys[i], shift);
+				while (next[pos] != -1) {
+					pos = (pos + 1) & mask;
+				}
+				keys[pos] = tmpKeys[i];
+				values[pos] = tmpValues[i];
+				next[pos] = 0;
 			}
 		}
-
-		limit = (int) (capacity * loadFactor);
 	}
 
 	/**
 	 * Returns the count of elements currently in the table
-	 * 
+	 *
 	 * @return the count of elements
 	 */
 	public int size() {
 		return count;
 	}
 
+	/*
+	 * Returns the position of the key or -(insertion point) - 1 if the key is
+	 * not in the table.
+	 */
 	private int find(Object key) {
-		return find(key, (key.hashCode() & 0x7fffffff) % keys.length);
-	} // find
-
-	private int find(Object key, int pos) {
-		int i = 0;
-
-		while (next[pos] >= 0) {
+		int mask = next.length - 1;
+		int pos = HashUtil.hash(key, shift);
+		while (next[pos] != -1) {
 			if (key.equals(keys[pos])) {
-				if (next[pos] < next.length) {
-					return pos;
-				}
-			}
-			if ((pos = next[pos]) >= next.length) {
-				pos -= next.length;
-			}
-			if (++i > next.length) {
-				return -1;
+				return pos;
 			}
+			pos = (pos + 1) & mask;
 		}
+		return -pos - 1;
+	} // find
 
-		return -1;
-	}
-
-	private boolean _put(Object key, long value) {
-		int pos = (key.hashCode() & 0x7fffffff) % keys.length;
-		int index = find(key, pos);
-		if (index != -1) {
-			values[index] = value;
-			return false;
-		}
-
-		while ((next[pos] >= 0) && (next[pos] < next.length)) {
-			pos = next[pos];
-		}
-
-		keys[pos] = key;
-		values[pos] = value;
-		if (next[pos] < 0) {
-			next[pos] = (pos + step) % next.length;
-		} else {
-			next[pos] -= next.length;
+	/*
+	 * Frees a position, moving back the elements after it which would not be
+	 * found otherwise.
+	 */
+	private void delete(int pos) {
+		int mask = next.length - 1;
+		int i = (pos + 1) & mask;
+		while (next[i] != -1) {
+			int home = HashUtil.hash(keys[i], shift);
+			// the element can fill the free position if its home position is not
+			// cyclically in (pos, i]
+			if (((i - home) & mask) >= ((i - pos) & mask)) {
+				keys[pos] = keys[i];
+				values[pos] = values[i];
+				pos = i;
+			}
+			i = (i + 1) & mask;
 		}
-		return true;
-	} // _put
+		keys[pos] = null;
+		next[pos] = -1;
+	} // delete
 
 }
@@ -0,0 +1,93 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Contributors to the Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.equinox.internal.util.hash;
+
+/**
+ * Helper methods of the open addressing hashtables. The tables have a power of
+ * two capacity and the home position of a key is taken from the high bits of
+ * its hash code multiplied by the golden ratio, so that keys differing only in
+ * their high bits or forming sequences are spread over the table.
+ *
+ * @version 1.0
+ */
+
+final class HashUtil {
+
+	private static final int MAX_CAPACITY = 1 << 30;
+
+	private HashUtil() {
+	}
+
+	/**
+	 * Returns the smallest power of two which is not less than the requested
+	 * capacity and at least 2.
+	 */
+	static int tableSize(int capacity) {
+		if (capacity >= MAX_CAPACITY) {
+			return MAX_CAPACITY;
+		}
+		int size = 2;
+		while (size < capacity) {
+			size <<= 1;
+		}
+		return size;
+	}
+
+	static int shift(int capacity) {
+		int shift = 32;
+		while (capacity > 1) {
+			capacity >>>= 1;
+			shift--;
+		}
+		return shift;
+	}
+
+	/**
+	 * Returns the count of elements at which a table is rehashed. At least one
+	 * position is always left free, so that probing ends.
+	 */
+	static int limit(int capacity, double loadFactor) {
+		int limit = (int) (capacity * loadFactor);
+		if (limit >= capacity) {
+			limit = capacity - 1;
+		}
+		return limit < 1 ? 1 : limit;
+	}
+
+	static int hash(int key, int shift) {
+		return (key * 0x9E3779B9) >>> shift;
+	}
+
+	static int hash(long key, int shift) {
+		return ((int) (key ^ (key >>> 32)) * 0x9E3779B9) >>> shift;
+	}
+
+	static int hash(Object key, int shift) {
+		return (key.hashCode() * 0x9E3779B9) >>> shift;
+	}
+
+	/*
+	 * The stripe of a key is taken from the low bits of its hash code, while
+	 * its position in the stripe depends on all bits, so the keys of a stripe
+	 * still spread over its table.
+	 */
+	static int stripe(int key, int mask) {
+		return (key ^ (key >>> 16)) & mask;
+	}
+
+	static int stripe(long key, int mask) {
+		return stripe((int) (key ^ (key >>> 32)), mask);
+	}
+
+	static int stripe(Object key, int mask) {
+		return stripe(key.hashCode(), mask);
+	}
+}
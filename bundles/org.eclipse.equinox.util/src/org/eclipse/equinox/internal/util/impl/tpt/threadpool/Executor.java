@@ -139,13 +139,3 @@ public class Executor extends Thread implements ThreadContext {
 		}
 	}
 }
-
-class PEA implements PrivilegedAction {
-
-	Runnable job;
-
-	public Object run() {
-		job.run();
-		return null;
-	}
-}
@@ -0,0 +1,29 @@
+/*******************************************************************************
+ * Copyright (c) 1997, 2008 by ProSyst Software GmbH
+ * http://www.prosyst.com
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    ProSyst Software GmbH - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.equinox.internal.util.impl.tpt.threadpool;
+
+import java.security.PrivilegedAction;
+
+/**
+ * Runs a job of the thread pool in the AccessControlContext given when it was
+ * submitted.
+ */
+class PEA implements PrivilegedAction {
+
+	Runnable job;
+
+	public Object run() {
+		job.run();
+		return null;
+	}
+}
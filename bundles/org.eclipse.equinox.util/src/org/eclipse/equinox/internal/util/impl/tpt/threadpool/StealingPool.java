@@ -0,0 +1,497 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Contributors to the Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.equinox.internal.util.impl.tpt.threadpool;
+
+import java.security.*;
+import org.eclipse.equinox.internal.util.UtilActivator;
+import org.eclipse.equinox.internal.util.impl.tpt.ServiceFactoryImpl;
+import org.eclipse.equinox.internal.util.threadpool.ThreadContext;
+
+/**
+ * Work stealing backend of the thread pool, used when the
+ * <code>equinox.util.threadpool.workStealing</code> property is true.
+ *
+ * Each worker thread has its own job queue guarded by its own monitor, so
+ * submitters do not contend on a single lock. A job is given to an idle worker
+ * if there is one, jobs submitted from a worker go to its own queue and all
+ * other jobs are spread over the queues of the workers. A worker which has no
+ * jobs in its queue takes the jobs queued at the other workers before going
+ * idle. As with the {@link Executor} threads, each job runs with the thread
+ * priority and in the AccessControlContext given when it was submitted.
+ *
+ * Workers are started on demand up to the maximum number of threads of the
+ * pool and, except for the minimum number, stop after being idle for the keep
+ * alive time. The number of jobs of a bundle which run or wait in the pool at
+ * the same time is bounded by its {@link ThreadPoolFactoryImpl}, which is told
+ * when each of its jobs completes.
+ *
+ * @version 1.0
+ */
+
+class StealingPool {
+
+	private final int minimum;
+	private final int maximum;
+	private final long keepAlive;
+
+	/* replaced on start and stop of a worker, guarded by this */
+	private volatile Worker[] workers = new Worker[0];
+	private volatile boolean terminated = false;
+	/* round robin index of the worker receiving the next job, guarded by nextLock */
+	private final Object nextLock = new Object();
+	private int next = 0;
+
+	/* stack of the idle workers, guarded by idleLock */
+	private final Object idleLock = new Object();
+	private Worker idle;
+	private volatile int idleCount = 0;
+
+	/* counters of the stopped workers and of the rejected jobs, guarded by this */
+	private long stolen = 0;
+	private long rejected = 0;
+
+	StealingPool(int minimum, int maximum, long keepAlive) {
+		this.minimum = minimum < 1 ? 1 : minimum;
+		this.maximum = maximum < this.minimum ? this.minimum : maximum;
+		this.keepAlive = keepAlive;
+	}
+
+	void execute(Runnable job, int priority, String name, ThreadPoolFactoryImpl factory, AccessControlContext acc) {
+		Task task = new Task(job, priority, name, factory, acc);
+		Thread current = Thread.currentThread();
+		if (current instanceof Worker && ((Worker) current).pool == this) {
+			Worker self = (Worker) current;
+			Worker w = popIdle();
+			if (w != null) {
+				/* keep the job local, the woken worker steals it */
+				boolean pushed = self.push(task);
+				w.signal();
+				if (pushed) {
+					return;
+				}
+			} else if (workers.length >= maximum && self.push(task)) {
+				/* no worker can be started, the job runs after the current one */
+				return;
+			}
+		}
+		while (true) {
+			if (terminated) {
+				synchronized (this) {
+					rejected++;
+				}
+				throw new RuntimeException("[ThreadPool] ThreadPool is inaccessible");
+			}
+			Worker w = popIdle();
+			if (w != null) {
+				if (w.push(task)) {
+					w.signal();
+					return;
+				}
+				continue;
+			}
+			Worker[] ws = workers;
+			if (ws.length < maximum) {
+				w = startWorker();
+				if (w != null) {
+					if (w.push(task)) {
+						return;
+					}
+					continue;
+				}
+				ws = workers;
+			}
+			if (ws.length == 0) {
+				continue;
+			}
+			int i;
+			synchronized (nextLock) {
+				i = next;
+				next = (i + 1) % maximum;
+			}
+			if (ws[i % ws.length].push(task)) {
+				/* a worker which went idle meanwhile will take the job */
+				wakeIdle();
+				return;
+			}
+		}
+	}
+
+	private Worker startWorker() {
+		synchronized (this) {
+			if (terminated || workers.length >= maximum) {
+				return null;
+			}
+			Worker w = new Worker(this);
+			Worker[] ws = new Worker[workers.length + 1];
+			System.arraycopy(workers, 0, ws, 0, workers.length);
+			ws[workers.length] = w;
+			workers = ws;
+			w.start();
+			return w;
+		}
+	}
+
+	/*
+	 * Called by a worker which was idle for the keep alive time. Returns false
+	 * if the worker must keep running.
+	 */
+	private boolean stopWorker(Worker w) {
+		synchronized (this) {
+			if (!terminated && workers.length <= minimum) {
+				return false;
+			}
+			if (!w.exit()) {
+				return false;
+			}
+			Worker[] ws = workers;
+			for (int i = 0; i < ws.length; i++) {
+				if (ws[i] == w) {
+					Worker[] tmp = new Worker[ws.length - 1];
+					System.arraycopy(ws, 0, tmp, 0, i);
+					System.arraycopy(ws, i + 1, tmp, i, tmp.length - i);
+					workers = tmp;
+					break;
+				}
+			}
+			stolen += w.stolen;
+			return true;
+		}
+	}
+
+	private Worker popIdle() {
+		if (idleCount == 0) {
+			return null;
+		}
+		synchronized (idleLock) {
+			Worker w = idle;
+			if (w != null) {
+				idle = w.nextIdle;
+				w.nextIdle = null;
+				w.isIdle = false;
+				idleCount--;
+			}
+			return w;
+		}
+	}
+
+	private void wakeIdle() {
+		Worker w = popIdle();
+		if (w != null) {
+			w.signal();
+		}
+	}
+
+	private void pushIdle(Worker w) {
+		synchronized (idleLock) {
+			w.nextIdle = idle;
+			idle = w;
+			w.isIdle = true;
+			idleCount++;
+		}
+	}
+
+	private void removeIdle(Worker w) {
+		synchronized (idleLock) {
+			if (!w.isIdle) {
+				return;
+			}
+			Worker prev = null;
+			for (Worker tmp = idle; tmp != null; prev = tmp, tmp = tmp.nextIdle) {
+				if (tmp == w) {
+					if (prev == null) {
+						idle = w.nextIdle;
+					} else {
+						prev.nextIdle = w.nextIdle;
+					}
+					w.nextIdle = null;
+					w.isIdle = false;
+					idleCount--;
+					return;
+				}
+			}
+		}
+	}
+
+	/* takes a job queued at another worker */
+	private Task steal(Worker thief) {
+		Worker[] ws = workers;
+		int start = ws.length > 0 ? (thief.hashCode() & 0x7FFFFFFF) % ws.length : 0;
+		for (int i = 0; i < ws.length; i++) {
+			Worker victim = ws[(start + i) % ws.length];
+			if (victim != thief) {
+				Task task = victim.poll();
+				if (task != null) {
+					thief.stolen++;
+					return task;
+				}
+			}
+		}
+		return null;
+	}
+
+	void terminate() {
+		Worker[] ws;
+		synchronized (this) {
+			terminated = true;
+			ws = workers;
+		}
+		int discarded = 0;
+		for (int i = 0; i < ws.length; i++) {
+			discarded += ws[i].terminate();
+		}
+		if (discarded > 0) {
+			synchronized (this) {
+				rejected += discarded;
+			}
+			if (UtilActivator.LOG_DEBUG) {
+				UtilActivator.log.debug("[ThreadPool] Discarded queued jobs: " + discarded, null);
+			}
+		}
+	}
+
+	/**
+	 * Returns the number of workers running a job.
+	 */
+	int getActiveCount() {
+		Worker[] ws = workers;
+		int count = 0;
+		for (int i = 0; i < ws.length; i++) {
+			if (ws[i].job != null) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Returns the number of jobs waiting in the queues of the workers.
+	 */
+	int getQueuedCount() {
+		Worker[] ws = workers;
+		int count = 0;
+		for (int i = 0; i < ws.length; i++) {
+			count += ws[i].size;
+		}
+		return count;
+	}
+
+	/**
+	 * Returns the number of jobs run by a worker other than the one in whose
+	 * queue they were put.
+	 */
+	long getStolenCount() {
+		synchronized (this) {
+			Worker[] ws = workers;
+			long count = stolen;
+			for (int i = 0; i < ws.length; i++) {
+				count += ws[i].stolen;
+			}
+			return count;
+		}
+	}
+
+	/**
+	 * Returns the number of jobs rejected or discarded from the queues because
+	 * the pool was stopped.
+	 */
+	synchronized long getRejectedCount() {
+		return rejected;
+	}
+
+	private static class Task {
+		final Runnable job;
+		final int priority;
+		final String name;
+		final ThreadPoolFactoryImpl factory;
+		final AccessControlContext acc;
+
+		Task(Runnable job, int priority, String name, ThreadPoolFactoryImpl factory, AccessControlContext acc) {
+			this.job = job;
+			this.priority = priority;
+			this.name = name;
+			this.factory = factory;
+			this.acc = acc;
+		}
+	}
+
+	private static class Worker extends Thread implements ThreadContext {
+
+		final StealingPool pool;
+
+		/* queue of the worker, guarded by this */
+		private Task[] tasks = new Task[8];
+		private int head = 0;
+		volatile int size = 0;
+		private boolean exited = false;
+		private boolean terminated = false;
+		private boolean signalled = false;
+
+		/* guarded by pool.idleLock */
+		Worker nextIdle;
+		boolean isIdle = false;
+
+		/* only modified by the worker itself */
+		volatile Runnable job;
+		volatile long stolen = 0;
+		private PEA pea;
+
+		Worker(StealingPool pool) {
+			super(ServiceFactoryImpl.useNames ? Executor.iname : Executor.xname);
+			this.pool = pool;
+			if (getContextClassLoader() != Executor.defaultTCCL) {
+				setContextClassLoader(Executor.defaultTCCL);
+			}
+		}
+
+		synchronized boolean push(Task task) {
+			if (exited) {
+				return false;
+			}
+			if (size == tasks.length) {
+				Task[] tmp = new Task[tasks.length * 2];
+				for (int i = 0; i < size; i++) {
+					tmp[i] = tasks[(head + i) % tasks.length];
+				}
+				tasks = tmp;
+				head = 0;
+			}
+			tasks[(head + size) % tasks.length] = task;
+			size++;
+			return true;
+		}
+
+		synchronized Task poll() {
+			if (size == 0) {
+				return null;
+			}
+			Task task = tasks[head];
+			tasks[head] = null;
+			head = (head + 1) % tasks.length;
+			size--;
+			return task;
+		}
+
+		synchronized void signal() {
+			signalled = true;
+			notify();
+		}
+
+		/* stops the worker and discards its queued jobs, returns their number */
+		synchronized int terminate() {
+			terminated = true;
+			exited = true;
+			int discarded = size;
+			for (int i = 0; i < size; i++) {
+				tasks[(head + i) % tasks.length] = null;
+			}
+			head = 0;
+			size = 0;
+			notify();
+			return discarded;
+		}
+
+		/* marks the worker as stopped if it has no jobs */
+		synchronized boolean exit() {
+			if (size > 0) {
+				return false;
+			}
+			exited = true;
+			return true;
+		}
+
+		public void run() {
+			while (true) {
+				synchronized (this) {
+					if (terminated) {
+						exited = true;
+						break;
+					}
+				}
+				Task task = poll();
+				if (task == null) {
+					task = pool.steal(this);
+				}
+				if (task == null) {
+					/* announce being idle before looking for jobs for the last time, so that no job is missed */
+					pool.pushIdle(this);
+					task = pool.steal(this);
+					if (task == null) {
+						task = poll();
+					}
+					if (task == null) {
+						boolean timedOut = false;
+						synchronized (this) {
+							if (!signalled && !terminated && size == 0) {
+								try {
+									wait(pool.keepAlive);
+								} catch (InterruptedException ie) {
+								}
+								timedOut = !signalled && !terminated && size == 0;
+							}
+							signalled = false;
+						}
+						pool.removeIdle(this);
+						if (timedOut && pool.stopWorker(this)) {
+							break;
+						}
+						continue;
+					}
+					pool.removeIdle(this);
+				}
+				runTask(task);
+			}
+		}
+
+		private void runTask(Task task) {
+			job = task.job;
+			try {
+				if (ServiceFactoryImpl.useNames)
+					setName(task.name == null ? Executor.nullname : task.name);
+				if (getPriority() != task.priority)
+					setPriority(task.priority);
+				if (UtilActivator.debugLevel == 2 && UtilActivator.LOG_DEBUG) {
+					UtilActivator.log.debug(0x0100, 10003, getName(), null, false);
+				}
+				if (task.acc != null) {
+					if (pea == null)
+						pea = new PEA();
+					pea.job = task.job;
+					AccessController.doPrivileged(pea, task.acc);
+				} else
+					task.job.run();
+			} catch (Throwable t) {
+				if (ServiceFactoryImpl.log != null) {
+					ServiceFactoryImpl.log.error("[ThreadPool Manager]\r\nException while executing: \r\nNAME: " + this + "\r\nJOB: " + task.job + "\r\n", t);
+				}
+			} finally {
+				if (getContextClassLoader() != Executor.defaultTCCL) {
+					setContextClassLoader(Executor.defaultTCCL);
+				}
+				if (pea != null)
+					pea.job = null;
+				job = null;
+				if (ServiceFactoryImpl.useNames)
+					setName(Executor.iname);
+			}
+			if (UtilActivator.debugLevel == 2 && UtilActivator.LOG_DEBUG) {
+				UtilActivator.log.debug(0x0100, 10004, getName(), null, false);
+			}
+			if (task.factory != null) {
+				task.factory.finishedStealing();
+			}
+		}
+
+		public Runnable getRunnable() {
+			return job;
+		}
+	}
+}
@@ -95,7 +95,27 @@ public class ThreadPoolFactoryImpl extends ServiceFactoryImpl implements ThreadP
 
 		ThreadPoolManagerImpl tmp = threadPool;
 
-		if (tmp != null) {
+		if (tmp != null && tmp.stealing != null) {
+			/* the work stealing backend is not guarded by the sync monitor, the bundle queue is guarded by this */
+			synchronized (this) {
+				if (used >= limit) {
+					if (UtilActivator.LOG_DEBUG) {
+						UtilActivator.log.debug("In Bundle Queue: " + name + ", bundle queue size: " + queue.counter, null);
+					}
+					queue.addJob(job, name, priority, this, acc);
+					return;
+				}
+				used++;
+			}
+			try {
+				tmp.stealing.execute(job, priority, name, this, acc);
+			} catch (RuntimeException e) {
+				synchronized (this) {
+					used--;
+				}
+				throw e;
+			}
+		} else if (tmp != null) {
 			synchronized (tmp.getSyncMonitor()) {
 				if (used >= limit) {
 					if (UtilActivator.LOG_DEBUG) {
@@ -154,6 +174,35 @@ public class ThreadPoolFactoryImpl extends ServiceFactoryImpl implements ThreadP
 		}
 	}
 
+	/*
+	 * Called by the work stealing backend when a job of this factory completes.
+	 * Passes the next job waiting in the bundle queue to the pool.
+	 */
+	void finishedStealing() {
+		Job job;
+		synchronized (this) {
+			job = queue.getJob();
+			if (job == null) {
+				used--;
+				return;
+			}
+		}
+		ThreadPoolManagerImpl tmp = threadPool;
+		try {
+			if (tmp == null || tmp.stealing == null) {
+				throw new RuntimeException("[ThreadPool] ThreadPool is inaccessible");
+			}
+			tmp.stealing.execute(job.run, job.priority, job.name, this, job.acc);
+		} catch (RuntimeException e) {
+			/* the pool is stopped, the job is dropped like the ones in its queues */
+			synchronized (this) {
+				used--;
+			}
+		}
+		job.fullClear();
+		ThreadPoolManagerImpl.jobPool.releaseObject(job);
+	}
+
 	public void reset() {
 		if (threadPool != null) {
 			threadPool.reset();
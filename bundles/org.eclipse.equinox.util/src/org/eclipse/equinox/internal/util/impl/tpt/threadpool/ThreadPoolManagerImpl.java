@@ -42,6 +42,10 @@ public class ThreadPoolManagerImpl extends ObjectPool implements TimerListener,
 
 	private static String pIgnoreMax = "equinox.util.threadpool.ignoreMaximum";
 
+	private static String pWorkStealing = "equinox.util.threadpool.workStealing";
+
+	private static String pInactiveTime = "equinox.util.threadpool.inactiveTime";
+
 	private static int defMin = 1;
 
 	private static int defMax = 48;
@@ -53,12 +57,18 @@ public class ThreadPoolManagerImpl extends ObjectPool implements TimerListener,
 	private static boolean ignoreMax;
 	private static boolean autoMax;
 
+	/* used instead of the executors and the waiting queue if the workStealing property is true */
+	StealingPool stealing;
+
 	private ThreadPoolManagerImpl(int i, int j, int m) {
 		super((Class) null, i, j, m);
 		tMaximum = i * j;
 		ignoreMax = UtilActivator.getBoolean(pIgnoreMax);
 		autoMax = UtilActivator.getBoolean(pAutoMaximum);
 		jobPool = new ObjectPool(waiting, 5, 8, 4);
+		if (UtilActivator.getBoolean(pWorkStealing)) {
+			stealing = new StealingPool(m, tMaximum, UtilActivator.getInteger(pInactiveTime, 30) * 1000L);
+		}
 	}
 
 	public static ThreadPoolManagerImpl getThreadPool() {
@@ -77,6 +87,9 @@ public class ThreadPoolManagerImpl extends ObjectPool implements TimerListener,
 
 	public void clear() {
 		shrink(-1);
+		if (stealing != null) {
+			stealing.terminate();
+		}
 		threadPool = null;
 	}
 
@@ -197,6 +210,10 @@ public class ThreadPoolManagerImpl extends ObjectPool implements TimerListener,
 	}
 
 	public void execute(Runnable job, int priority, String name, ThreadPoolFactoryImpl factory, AccessControlContext acc) {
+		if (stealing != null) {
+			stealing.execute(job, priority, name, factory, acc);
+			return;
+		}
 		Executor ex = null;
 		synchronized (getSyncMonitor()) {
 			if (used < tMaximum || ignoreMax) {
@@ -253,4 +270,44 @@ public class ThreadPoolManagerImpl extends ObjectPool implements TimerListener,
 		return buff;
 	}
 
+	/**
+	 * Returns the number of threads running a job.
+	 */
+	public int getActiveCount() {
+		if (stealing != null) {
+			return stealing.getActiveCount();
+		}
+		synchronized (getSyncMonitor()) {
+			return used;
+		}
+	}
+
+	/**
+	 * Returns the number of jobs waiting for a free thread.
+	 */
+	public int getQueuedCount() {
+		if (stealing != null) {
+			return stealing.getQueuedCount();
+		}
+		synchronized (getSyncMonitor()) {
+			return waiting.counter;
+		}
+	}
+
+	/**
+	 * Returns the number of jobs taken by a thread from the queue of another
+	 * thread. Always 0 unless the work stealing backend is used.
+	 */
+	public long getStolenCount() {
+		return stealing != null ? stealing.getStolenCount() : 0;
+	}
+
+	/**
+	 * Returns the number of jobs rejected because the pool was stopped. Always 0
+	 * unless the work stealing backend is used.
+	 */
+	public long getRejectedCount() {
+		return stealing != null ? stealing.getRejectedCount() : 0;
+	}
+
 }
@@ -14,10 +14,12 @@ package org.eclipse.equinox.internal.util.impl.tpt.timer;
 
 import java.security.*;
 import java.util.Hashtable;
+import java.util.Vector;
 import org.eclipse.equinox.internal.util.UtilActivator;
 import org.eclipse.equinox.internal.util.impl.tpt.ServiceFactoryImpl;
 import org.eclipse.equinox.internal.util.impl.tpt.threadpool.Executor;
 import org.eclipse.equinox.internal.util.impl.tpt.threadpool.ThreadPoolFactoryImpl;
+import org.eclipse.equinox.internal.util.pool.MagazineObjectPool;
 import org.eclipse.equinox.internal.util.pool.ObjectPool;
 import org.eclipse.equinox.internal.util.ref.Log;
 import org.eclipse.equinox.internal.util.timer.Timer;
@@ -36,15 +38,28 @@ public class TimerImpl implements Runnable {
 	static ThreadPoolFactoryImpl threadPool;
 
 	private TimerQueue queue;
+	/* used instead of the queue if the equinox.timer.wheel property is true */
+	private TimerWheel wheel;
 	private boolean terminated = false;
 	private Object sync = new Object();
+	/* guarded by sync - the time until which the wheel thread sleeps, Long.MAX_VALUE while it is running */
+	private long wakeUp = Long.MAX_VALUE;
 	private Thread th;
 
 	public TimerImpl(ThreadPoolFactoryImpl threadPool) {
-		nodePool = new ObjectPool(new TimerQueueNode(), 2, 4, 2);
+		nodePool = new MagazineObjectPool(new TimerQueueNode(), 16, 8, 60000);
 		TimerImpl.threadPool = threadPool;
 		nodes = new Hashtable(10);
-		queue = new TimerQueue();
+		boolean useWheel = false;
+		try {
+			useWheel = "true".equals(UtilActivator.bc.getProperty("equinox.timer.wheel"));
+		} catch (Throwable ignored) {
+		}
+		if (useWheel) {
+			wheel = new TimerWheel(System.currentTimeMillis());
+		} else {
+			queue = new TimerQueue();
+		}
 		try {
 			th = ((ServiceFactoryImpl.privileged()) ? getOne() : new Thread(this, "[Timer] - Main Queue Handler"));
 			try {
@@ -60,6 +75,10 @@ public class TimerImpl implements Runnable {
 	}
 
 	public void run() {
+		if (wheel != null) {
+			runWheel();
+			return;
+		}
 		TimerQueueNode n = null;
 		while (!terminated) {
 			synchronized (sync) {
@@ -86,28 +105,15 @@ public class TimerImpl implements Runnable {
 				long current = System.currentTimeMillis();
 				if (n.runOn <= current) {
 					switch (n.type) {
-						case (Timer.ONE_SHOT_TIMER) : {
-							threadPool.execute0(n, n.priority, n.getEName(), n.acc);
-							queue.removeMin();
-							nodes.remove(n);
-							break;
-						}
+						case (Timer.ONE_SHOT_TIMER) :
 						case (Timer.ONE_SHOT_TIMER_NO_DELAY) : {
-							Executor e = threadPool.getExecutor();
-							if (e != null) {
-								e.setPriorityI(n.priority);
-								e.setRunnable(n, n.getEName(), threadPool, n.acc);
-							} else {
-								Thread th = new Thread(n, n.getEName());
-								th.setPriority(n.priority);
-								th.start();
-							}
+							execute(n);
 							queue.removeMin();
 							nodes.remove(n);
 							break;
 						}
 						case (Timer.PERIODICAL_TIMER) : {
-							threadPool.execute0(n, n.priority, n.getEName(), n.acc);
+							execute(n);
 							n.runOn += n.period;
 							if (n.runOn < current) { // time changed
 								n.runOn = current + n.period;
@@ -116,15 +122,7 @@ public class TimerImpl implements Runnable {
 							break;
 						}
 						case (Timer.PERIODICAL_TIMER_NO_DELAY) : {
-							Executor e = threadPool.getExecutor();
-							if (e != null) {
-								e.setPriorityI(n.priority);
-								e.setRunnable(n, n.getEName(), threadPool, n.acc);
-							} else {
-								Thread th = new Thread(n, n.getEName());
-								th.setPriority(n.priority);
-								th.start();
-							}
+							execute(n);
 							if (n.runOn < current) { // time changed
 								n.runOn = current + n.period;
 							}
@@ -161,6 +159,79 @@ public class TimerImpl implements Runnable {
 		queue = null;
 	}
 
+	/**
+	 * Main loop of the timer thread when the nodes are kept in a
+	 * {@link TimerWheel}. All nodes expired since the last wake up are removed
+	 * from the wheel at once and executed.
+	 */
+	private void runWheel() {
+		Vector expired = new Vector();
+		while (!terminated) {
+			long next;
+			synchronized (wheel) {
+				long current = System.currentTimeMillis();
+				wheel.advance(current, expired);
+				for (int i = 0; i < expired.size(); i++) {
+					TimerQueueNode n = (TimerQueueNode) expired.elementAt(i);
+					if (!n.enabled)
+						continue;
+					execute(n);
+					if (n.type == Timer.PERIODICAL_TIMER || n.type == Timer.PERIODICAL_TIMER_NO_DELAY) {
+						if (n.type == Timer.PERIODICAL_TIMER)
+							n.runOn += n.period;
+						if (n.runOn < current) { // time changed
+							n.runOn = current + n.period;
+						}
+						wheel.add(n);
+					} else {
+						nodes.remove(n);
+					}
+				}
+				expired.removeAllElements();
+				next = wheel.nextTick();
+			}
+			synchronized (sync) {
+				if (terminated)
+					break;
+				/* a node added since the wheel was advanced may expire earlier */
+				if (wakeUp >= next) {
+					long tmpWait = (next == Long.MAX_VALUE) ? 0 : next - System.currentTimeMillis();
+					if (next == Long.MAX_VALUE || tmpWait > 0) {
+						wakeUp = next;
+						try {
+							sync.wait(tmpWait);
+						} catch (InterruptedException e) {
+						}
+					}
+				}
+				wakeUp = Long.MAX_VALUE;
+			}
+		}
+		synchronized (wheel) {
+			wheel.clear();
+		}
+		nodePool.clear();
+		nodePool = null;
+		nodes.clear();
+		nodes = null;
+	}
+
+	private void execute(TimerQueueNode n) {
+		if (n.type == Timer.ONE_SHOT_TIMER_NO_DELAY || n.type == Timer.PERIODICAL_TIMER_NO_DELAY) {
+			Executor e = threadPool.getExecutor();
+			if (e != null) {
+				e.setPriorityI(n.priority);
+				e.setRunnable(n, n.getEName(), threadPool, n.acc);
+			} else {
+				Thread th = new Thread(n, n.getEName());
+				th.setPriority(n.priority);
+				th.start();
+			}
+		} else {
+			threadPool.execute0(n, n.priority, n.getEName(), n.acc);
+		}
+	}
+
 	public void terminate() {
 		terminated = true;
 		synchronized (sync) {
@@ -181,12 +252,22 @@ public class TimerImpl implements Runnable {
 		n.setEvent(listener, priority, timerType, System.currentTimeMillis() + periodMilis, periodMilis, event, name, acc);
 		TimerQueueNode tmp = (TimerQueueNode) nodes.remove(n);
 		if (tmp != null) {
-			synchronized (queue) {
-				queue.removeTimerNode(tmp);
-			}
+			removeNode(tmp);
 			tmp.returnInPool();
 		}
 		nodes.put(n, n);
+		if (wheel != null) {
+			synchronized (wheel) {
+				wheel.add(n);
+			}
+			synchronized (sync) {
+				if (n.runOn < wakeUp) {
+					wakeUp = n.runOn;
+					sync.notifyAll();
+				}
+			}
+			return;
+		}
 		TimerQueueNode nx;
 		synchronized (queue) {
 			queue.add(n);
@@ -224,14 +305,24 @@ public class TimerImpl implements Runnable {
 		rmTmp.setEvent(listener, 0, 0, 0, 0, event, null, null);
 		TimerQueueNode old = (TimerQueueNode) nodes.remove(rmTmp);
 		if (old != null) {
-			synchronized (queue) {
-				queue.removeTimerNode(old);
-			}
+			removeNode(old);
 			old.returnInPool();
 		}
 		rmTmp.returnInPool();
 	}
 
+	private void removeNode(TimerQueueNode node) {
+		if (wheel != null) {
+			synchronized (wheel) {
+				wheel.remove(node);
+			}
+		} else {
+			synchronized (queue) {
+				queue.removeTimerNode(node);
+			}
+		}
+	}
+
 	private class PrivilegedActionImpl implements PrivilegedAction {
 		private Runnable runnable = null;
 		private boolean locked = false;
@@ -23,7 +23,7 @@ import org.eclipse.equinox.internal.util.timer.TimerListener;
  * @version 1.0
  */
 
-class TimerQueueNode implements Runnable, ObjectCreator {
+public class TimerQueueNode implements Runnable, ObjectCreator {
 	public static final String PERIODICAL_TASK_NAME = "[Timer] - Periodical Task";
 
 	public static final String PERIODICAL_NO_DELAY_TASK_NAME = "[Timer] - Periodical No Delay Task";
@@ -61,6 +61,15 @@ class TimerQueueNode implements Runnable, ObjectCreator {
 
 	boolean enabled = false;
 
+	/* links and position of the node in the TimerWheel, the level is -1 if the node is not in the wheel */
+	TimerQueueNode wheelPrev;
+
+	TimerQueueNode wheelNext;
+
+	int wheelLevel = -1;
+
+	int wheelSlot;
+
 	public String getEName() {
 		if (ServiceFactoryImpl.useNames && !named) {
 			named = true;
@@ -0,0 +1,214 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Contributors to the Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.equinox.internal.util.impl.tpt.timer;
+
+import java.util.Vector;
+
+/**
+ * Hierarchical timing wheel holding the timer nodes. Unlike the sorted
+ * {@link TimerQueue}, adding and removing a node takes constant time.
+ *
+ * The wheel has {@link #LEVELS} levels of {@link #SLOTS} slots each. A tick is
+ * one millisecond. Level 0 holds the nodes expiring in the next 256 ticks, one
+ * slot per tick, and each next level holds nodes 256 times farther in the
+ * future with a slot covering 256 times more ticks. When the ticks of a slot of
+ * an upper level come into the range of the level below, its nodes are
+ * cascaded to the lower levels. Nodes expiring more than 2^32 ticks (about 49
+ * days) ahead are kept in the last level and cascaded again until they come
+ * into range.
+ *
+ * The slots are doubly linked lists of the nodes themselves. The class is not
+ * synchronized.
+ *
+ * @version 1.0
+ */
+
+public class TimerWheel {
+
+	static final int BITS = 8;
+	static final int SLOTS = 1 << BITS;
+	static final int MASK = SLOTS - 1;
+	static final int LEVELS = 4;
+	static final long MAX_DELTA = (1L << (BITS * LEVELS)) - 1;
+
+	private TimerQueueNode[][] slots = new TimerQueueNode[LEVELS][SLOTS];
+	private int[] counts = new int[LEVELS];
+	private int size = 0;
+
+	/* the first tick which is not processed yet */
+	private long currentTick;
+
+	public TimerWheel(long now) {
+		currentTick = now;
+	}
+
+	/**
+	 * Adds a node, which must not be in the wheel, to the slot of its
+	 * <code>runOn</code> time.
+	 */
+	public void add(TimerQueueNode node) {
+		long delta = node.runOn - currentTick;
+		long expires;
+		if (delta < 0) {
+			/* already expired - fire on the next tick */
+			expires = currentTick;
+			delta = 0;
+		} else if (delta > MAX_DELTA) {
+			expires = currentTick + MAX_DELTA;
+			delta = MAX_DELTA;
+		} else {
+			expires = node.runOn;
+		}
+		int level = 0;
+		while (delta >= (1L << (BITS * (level + 1)))) {
+			level++;
+		}
+		int slot = (int) ((expires >> (BITS * level)) & MASK);
+		TimerQueueNode head = slots[level][slot];
+		node.wheelPrev = null;
+		node.wheelNext = head;
+		if (head != null) {
+			head.wheelPrev = node;
+		}
+		slots[level][slot] = node;
+		node.wheelLevel = level;
+		node.wheelSlot = slot;
+		counts[level]++;
+		size++;
+	}
+
+	/**
+	 * Removes a node from the wheel. Does nothing if the node is not in the
+	 * wheel.
+	 */
+	public void remove(TimerQueueNode node) {
+		int level = node.wheelLevel;
+		if (level < 0) {
+			return;
+		}
+		if (node.wheelPrev != null) {
+			node.wheelPrev.wheelNext = node.wheelNext;
+		} else {
+			slots[level][node.wheelSlot] = node.wheelNext;
+		}
+		if (node.wheelNext != null) {
+			node.wheelNext.wheelPrev = node.wheelPrev;
+		}
+		node.wheelPrev = null;
+		node.wheelNext = null;
+		node.wheelLevel = -1;
+		counts[level]--;
+		size--;
+	}
+
+	/**
+	 * Returns the tick (time in milliseconds) at which the wheel has to be
+	 * advanced next, i.e. the time when a node expires or has to be cascaded,
+	 * or <code>Long.MAX_VALUE</code> if the wheel is empty.
+	 */
+	public long nextTick() {
+		if (size == 0) {
+			return Long.MAX_VALUE;
+		}
+		long next = Long.MAX_VALUE;
+		if (counts[0] > 0) {
+			for (int i = 0; i < SLOTS; i++) {
+				if (slots[0][(int) ((currentTick + i) & MASK)] != null) {
+					next = currentTick + i;
+					break;
+				}
+			}
+		}
+		for (int level = 1; level < LEVELS; level++) {
+			if (counts[level] > 0) {
+				int shift = BITS * level;
+				long unit = 1L << shift;
+				/* the slots of a level are cascaded on the ticks which are multiples of its unit */
+				long tick = (currentTick + unit - 1) & ~(unit - 1);
+				for (int i = 0; i < SLOTS && tick < next; i++, tick += unit) {
+					if (slots[level][(int) ((tick >> shift) & MASK)] != null) {
+						next = tick;
+						break;
+					}
+				}
+			}
+		}
+		return next;
+	}
+
+	/**
+	 * Advances the wheel to the specified time, removing all nodes expiring at
+	 * or before it. Ticks in which there is nothing to do are skipped.
+	 *
+	 * @param now the current time in milliseconds
+	 * @param expired the vector to which the expired nodes are added
+	 */
+	public void advance(long now, Vector expired) {
+		while (true) {
+			long tick = nextTick();
+			if (tick > now) {
+				if (currentTick <= now) {
+					currentTick = now + 1;
+				}
+				return;
+			}
+			currentTick = tick;
+			int index = (int) (tick & MASK);
+			for (int level = 1; index == 0 && level < LEVELS; level++) {
+				index = (int) ((tick >> (BITS * level)) & MASK);
+				cascade(level, index);
+			}
+			TimerQueueNode node = slots[0][(int) (tick & MASK)];
+			while (node != null) {
+				TimerQueueNode next = node.wheelNext;
+				remove(node);
+				expired.addElement(node);
+				node = next;
+			}
+			currentTick = tick + 1;
+		}
+	}
+
+	private void cascade(int level, int slot) {
+		TimerQueueNode node = slots[level][slot];
+		while (node != null) {
+			TimerQueueNode next = node.wheelNext;
+			remove(node);
+			add(node);
+			node = next;
+		}
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Removes all nodes from the wheel.
+	 */
+	public void clear() {
+		for (int level = 0; level < LEVELS; level++) {
+			for (int slot = 0; slot < SLOTS; slot++) {
+				TimerQueueNode node = slots[level][slot];
+				while (node != null) {
+					TimerQueueNode next = node.wheelNext;
+					remove(node);
+					node.returnInPool();
+					node = next;
+				}
+			}
+		}
+	}
+}
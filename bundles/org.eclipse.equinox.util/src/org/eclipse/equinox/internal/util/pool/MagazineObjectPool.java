@@ -0,0 +1,300 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Contributors to the Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.equinox.internal.util.pool;
+
+import java.lang.ref.WeakReference;
+import java.util.Vector;
+
+/**
+ * Object pool which keeps the free objects in per thread magazines, so that
+ * getting and releasing objects does not contend on a lock in the common case.
+ *
+ * Each thread has two magazines of <code>magazineSize</code> objects. Objects
+ * are taken from and released to the magazines of the current thread. Only
+ * when both magazines of the thread are empty (or full) a whole magazine is
+ * taken from (or given to) the depot shared by all threads, which holds up to
+ * <code>depotSize</code> full magazines. Magazines which stay in the depot for
+ * longer than the idle time are dropped when another magazine is put in the
+ * depot and by {@link #shrink()}. {@link #clear()} empties the magazines of
+ * all threads.
+ *
+ * The thread locals of the threads only hold weak references to their caches,
+ * which are kept by the pool until their thread dies or the pool is cleared.
+ * This way the threads which used the pool do not keep its classes after the
+ * pool is cleared.
+ *
+ * Unlike {@link ObjectPool} the pool never preallocates objects and a thread
+ * which only releases objects passes them to the other threads through the
+ * depot.
+ *
+ * @version 1.0
+ */
+
+public class MagazineObjectPool extends ObjectPool {
+
+	private int magazineSize;
+	private long idleTime;
+
+	/* weak references to the caches of the threads */
+	private ThreadLocal caches = new ThreadLocal();
+	/* increased by clear(), so that the caches of the threads are dropped */
+	private volatile int generation = 0;
+	/* the caches of the current generation, guarded by depot */
+	private Vector registered = new Vector();
+
+	/* stack of full magazines and the time each was put in the depot, guarded by depot */
+	private Object[][] depot;
+	private long[] depotTimes;
+	private int depotCount = 0;
+
+	/**
+	 * Creates a pool of objects created by the given creator.
+	 *
+	 * @param oc the creator of the pooled objects
+	 * @param magazineSize the number of objects in a magazine
+	 * @param depotSize the maximum number of full magazines in the depot
+	 * @param idleTime the time in milliseconds after which an unused magazine is
+	 *        dropped from the depot by {@link #shrink()}
+	 */
+	public MagazineObjectPool(ObjectCreator oc, int magazineSize, int depotSize, long idleTime) {
+		this(null, oc, magazineSize, depotSize, idleTime);
+	}
+
+	/**
+	 * Creates a pool of instances of the given class, which must have a public
+	 * default constructor.
+	 *
+	 * @see #MagazineObjectPool(ObjectCreator, int, int, long)
+	 */
+	public MagazineObjectPool(Class template, int magazineSize, int depotSize, long idleTime) {
+		this(template, null, magazineSize, depotSize, idleTime);
+	}
+
+	private MagazineObjectPool(Class template, ObjectCreator oc, int magazineSize, int depotSize, long idleTime) {
+		super(template, oc, 2, 1, 1);
+		if (magazineSize < 1 || depotSize < 1) {
+			throw new IllegalArgumentException("magazine size " + magazineSize + " and depot size " + depotSize + " must be positive");
+		}
+		this.magazineSize = magazineSize;
+		this.idleTime = idleTime;
+		depot = new Object[depotSize][];
+		depotTimes = new long[depotSize];
+	}
+
+	private Cache getCache() {
+		WeakReference ref = (WeakReference) caches.get();
+		Cache cache = (ref != null) ? (Cache) ref.get() : null;
+		int gen = generation;
+		if (cache == null || cache.generation != gen) {
+			cache = new Cache(magazineSize, gen);
+			caches.set(new WeakReference(cache));
+			synchronized (depot) {
+				/* the caches of the threads which have died are dropped */
+				for (int i = registered.size() - 1; i >= 0; i--) {
+					if (((Cache) registered.elementAt(i)).owner.get() == null) {
+						registered.removeElementAt(i);
+					}
+				}
+				/* a cache created while the pool is cleared is not kept */
+				if (gen == generation) {
+					registered.addElement(cache);
+				}
+			}
+		}
+		return cache;
+	}
+
+	/*
+	 * The monitor of the cache is only taken by its thread, except when the
+	 * pool is cleared, so it is uncontended.
+	 */
+	public Object getObject() {
+		Cache cache = getCache();
+		synchronized (cache) {
+			return getObject(cache);
+		}
+	}
+
+	private Object getObject(Cache cache) {
+		if (cache.loadedCount == 0) {
+			if (cache.previousCount > 0) {
+				cache.swap();
+			} else {
+				Object[] full = null;
+				synchronized (depot) {
+					if (depotCount > 0) {
+						full = depot[--depotCount];
+						depot[depotCount] = null;
+					}
+				}
+				if (full == null) {
+					if (dontExtend) {
+						throw new RuntimeException();
+					}
+					try {
+						return getInstance();
+					} catch (Throwable e) {
+						throw new RuntimeException("buffer fill failed: " + e);
+					}
+				}
+				/* the empty loaded magazine becomes the previous one */
+				cache.previous = cache.loaded;
+				cache.previousCount = 0;
+				cache.loaded = full;
+				cache.loadedCount = full.length;
+			}
+		}
+		Object tmp = cache.loaded[--cache.loadedCount];
+		cache.loaded[cache.loadedCount] = null;
+		return tmp;
+	}
+
+	public boolean releaseObject(Object obj) {
+		if (dontExtend) {
+			return false;
+		}
+		Cache cache = getCache();
+		synchronized (cache) {
+			/* the pool may have been cleared meanwhile */
+			if (dontExtend || cache.generation != generation) {
+				return false;
+			}
+			return releaseObject(cache, obj);
+		}
+	}
+
+	private boolean releaseObject(Cache cache, Object obj) {
+		if (cache.loadedCount == cache.loaded.length) {
+			if (cache.previousCount == 0) {
+				cache.swap();
+			} else {
+				boolean kept = false;
+				long now = System.currentTimeMillis();
+				synchronized (depot) {
+					if (depotCount > 0 && depotTimes[0] < now - idleTime) {
+						shrink(now - idleTime);
+					}
+					if (depotCount < depot.length) {
+						depot[depotCount] = cache.previous;
+						depotTimes[depotCount] = now;
+						depotCount++;
+						kept = true;
+					}
+				}
+				/* the full loaded magazine becomes the previous one and a new magazine is loaded */
+				Object[] empty = kept ? new Object[magazineSize] : clearMagazine(cache.previous);
+				cache.previous = cache.loaded;
+				cache.previousCount = cache.loadedCount;
+				cache.loaded = empty;
+				cache.loadedCount = 0;
+			}
+		}
+		cache.loaded[cache.loadedCount++] = obj;
+		return true;
+	}
+
+	private static Object[] clearMagazine(Object[] magazine) {
+		for (int i = 0; i < magazine.length; i++) {
+			magazine[i] = null;
+		}
+		return magazine;
+	}
+
+	/**
+	 * Drops the magazines which have not been used for longer than the idle
+	 * time from the depot.
+	 */
+	public void shrink() {
+		shrink(System.currentTimeMillis() - idleTime);
+	}
+
+	/*
+	 * the depot is a stack, so the magazines at the bottom are the ones which
+	 * have been unused for the longest time
+	 */
+	private void shrink(long idleSince) {
+		synchronized (depot) {
+			int idle = 0;
+			while (idle < depotCount && depotTimes[idle] <= idleSince) {
+				idle++;
+			}
+			if (idle > 0) {
+				System.arraycopy(depot, idle, depot, 0, depotCount - idle);
+				System.arraycopy(depotTimes, idle, depotTimes, 0, depotCount - idle);
+				for (int i = depotCount - idle; i < depotCount; i++) {
+					depot[i] = null;
+				}
+				depotCount -= idle;
+			}
+		}
+	}
+
+	protected void shrink(int count) {
+		if (count < 0) {
+			Object[] cleared;
+			synchronized (depot) {
+				generation++;
+				cleared = new Object[registered.size()];
+				registered.copyInto(cleared);
+				registered.removeAllElements();
+			}
+			shrink(Long.MAX_VALUE);
+			for (int i = 0; i < cleared.length; i++) {
+				Cache cache = (Cache) cleared[i];
+				synchronized (cache) {
+					cache.clear();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns the number of full magazines in the depot.
+	 */
+	public int getDepotCount() {
+		synchronized (depot) {
+			return depotCount;
+		}
+	}
+
+	private static class Cache {
+		Object[] loaded;
+		int loadedCount = 0;
+		Object[] previous;
+		int previousCount = 0;
+		int generation;
+		/* the thread using the cache */
+		WeakReference owner = new WeakReference(Thread.currentThread());
+
+		Cache(int magazineSize, int generation) {
+			loaded = new Object[magazineSize];
+			previous = new Object[magazineSize];
+			this.generation = generation;
+		}
+
+		void clear() {
+			clearMagazine(loaded);
+			clearMagazine(previous);
+			loadedCount = 0;
+			previousCount = 0;
+		}
+
+		void swap() {
+			Object[] tmp = loaded;
+			int tmpCount = loadedCount;
+			loaded = previous;
+			loadedCount = previousCount;
+			previous = tmp;
+			previousCount = tmpCount;
+		}
+	}
+}
@@ -39,7 +39,7 @@ public class ObjectPool {
 
 	// protected int usageReleased = 0;
 
-	protected boolean dontExtend = false;
+	protected volatile boolean dontExtend = false;
 
 	protected ObjectCreator oc;
 
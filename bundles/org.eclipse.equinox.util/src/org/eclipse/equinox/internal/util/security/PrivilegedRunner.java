@@ -12,6 +12,7 @@
 package org.eclipse.equinox.internal.util.security;
 
 import java.security.*;
+import org.eclipse.equinox.internal.util.pool.MagazineObjectPool;
 import org.eclipse.equinox.internal.util.pool.ObjectCreator;
 import org.eclipse.equinox.internal.util.pool.ObjectPool;
 
@@ -29,7 +30,7 @@ public final class PrivilegedRunner implements ObjectCreator {
 
 	static {
 		try {
-			POOL = new ObjectPool(new PrivilegedRunner(), 5, 10);
+			POOL = new MagazineObjectPool(new PrivilegedRunner(), 8, 10, 60000);
 		} catch (Exception e) {
 			e.printStackTrace();
 		}